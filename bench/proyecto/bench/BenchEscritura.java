@@ -0,0 +1,60 @@
+package proyecto.bench;
+
+import proyecto.model.Consulta;
+import proyecto.persistence.PersistenciaConsultas;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara el volcado anterior (List<String> + Files.write sobre el archivo vivo)
+ * con el volcado atomico y en streaming de PersistenciaBase, sobre 1M de consultas.
+ * Uso: ant bench   (o java proyecto.bench.BenchEscritura [filas])
+ */
+public class BenchEscritura {
+    private static final int CALENTAMIENTO = 2;
+    private static final int MEDICIONES = 5;
+
+    public static void main(String[] args) throws IOException {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("bench-escritura");
+        Path archivo = dir.resolve("consultas.csv");
+        PersistenciaConsultas pc = new PersistenciaConsultas(archivo);
+        List<Consulta> datos = GeneradorDatos.consultas(filas);
+
+        double anterior = medir("anterior (truncar + List<String>)", () -> volcadoAnterior(archivo, datos), archivo, filas);
+        double nuevo = medir("nuevo (temporal + fsync + move)", () -> pc.saveAll(datos), archivo, filas);
+        System.out.printf("relacion nuevo/anterior: %.2fx%n", nuevo / anterior);
+    }
+
+    // Replica la ruta de guardado previa a la escritura atomica
+    private static void volcadoAnterior(Path archivo, List<Consulta> datos) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("#id|pacienteId|doctorId|fechaISO|motivo|notas");
+        for (Consulta c : datos) {
+            lines.add(String.join("|", String.valueOf(c.getId()), String.valueOf(c.getPacienteId()),
+                    String.valueOf(c.getDoctorId()), c.getFecha().toString(), c.getMotivo(), c.getNotas()));
+        }
+        Files.write(archivo, lines, StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private interface Tarea { void correr() throws IOException; }
+
+    private static double medir(String nombre, Tarea t, Path archivo, int filas) throws IOException {
+        for (int i = 0; i < CALENTAMIENTO; i++) t.correr();
+        long total = 0;
+        for (int i = 0; i < MEDICIONES; i++) {
+            long t0 = System.nanoTime();
+            t.correr();
+            total += System.nanoTime() - t0;
+        }
+        double seg = total / 1e9 / MEDICIONES;
+        double filasSeg = filas / seg;
+        System.out.printf("%-36s %8.1f ms  %10.0f filas/s  %7.1f MB/s%n", nombre, seg * 1000, filasSeg,
+                Files.size(archivo) / seg / (1 << 20));
+        return filasSeg;
+    }
+}
@@ -0,0 +1,61 @@
+package proyecto.bench;
+
+import proyecto.model.Consulta;
+import proyecto.persistence.PersistenciaConsultas;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara la carga anterior (readAllLines + split + parseInt) con el lector en
+ * streaming de LectorRegistros sobre 1M de consultas.
+ * Uso: ant bench   (o java proyecto.bench.BenchLectura [filas])
+ */
+public class BenchLectura {
+    private static final int CALENTAMIENTO = 3;
+    private static final int MEDICIONES = 5;
+
+    public static void main(String[] args) throws IOException {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("bench-lectura");
+        PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        pc.saveAll(GeneradorDatos.consultas(filas));
+
+        double anterior = medir("anterior (readAllLines + split)", () -> cargaAnterior(dir.resolve("consultas.csv")).size());
+        double nuevo = medir("nuevo (LectorRegistros)", () -> pc.obtenerTodos().size());
+        System.out.printf("aceleracion: %.2fx%n", anterior / nuevo);
+    }
+
+    // Replica la carga previa al lector en streaming
+    private static List<Consulta> cargaAnterior(Path archivo) throws IOException {
+        List<Consulta> res = new ArrayList<>();
+        for (String l : Files.readAllLines(archivo, StandardCharsets.UTF_8)) {
+            if (l.trim().isEmpty() || l.trim().startsWith("#")) continue;
+            String[] p = l.split("\\|", -1);
+            if (p.length < 6) continue;
+            res.add(new Consulta(Integer.parseInt(p[0]), Integer.parseInt(p[1]), Integer.parseInt(p[2]),
+                    p[3].isEmpty() ? null : LocalDateTime.parse(p[3]), p[4], p[5]));
+        }
+        return res;
+    }
+
+    private interface Carga { int correr() throws IOException; }
+
+    private static double medir(String nombre, Carga c) throws IOException {
+        for (int i = 0; i < CALENTAMIENTO; i++) c.correr();
+        long total = 0;
+        int n = 0;
+        for (int i = 0; i < MEDICIONES; i++) {
+            long t0 = System.nanoTime();
+            n = c.correr();
+            total += System.nanoTime() - t0;
+        }
+        double ms = total / 1e6 / MEDICIONES;
+        System.out.printf("%-34s %8.1f ms  (%d filas)%n", nombre, ms, n);
+        return ms;
+    }
+}
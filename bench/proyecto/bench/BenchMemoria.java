@@ -0,0 +1,62 @@
+package proyecto.bench;
+
+import proyecto.model.Consulta;
+import proyecto.persistence.LectorRegistros;
+import proyecto.persistence.PersistenciaConsultas;
+import proyecto.persistence.TablaConsultas;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Memoria retenida por 1M de consultas cargadas sin diccionario (un String nuevo por
+ * campo), con los diccionarios de PersistenciaConsultas (una instancia por valor) y
+ * como TablaConsultas (por columnas, sin objetos por fila).
+ * Uso: ant bench   (o java proyecto.bench.BenchMemoria [filas])
+ */
+public class BenchMemoria {
+    public static void main(String[] args) throws IOException {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("bench-memoria");
+        Path archivo = dir.resolve("consultas.csv");
+        PersistenciaConsultas pc = new PersistenciaConsultas(archivo);
+        pc.saveAll(GeneradorDatos.consultas(filas));
+
+        long sin = medir("sin diccionario", () -> cargaSinDiccionario(archivo), List::size);
+        long con = medir("con diccionario", pc::obtenerTodos, List::size);
+        long tabla = medir("TablaConsultas", pc::tabla, TablaConsultas::filas);
+        System.out.printf("ahorro con diccionario: %.1f MB (%.0f%%)%n", (sin - con) / 1e6, 100.0 * (sin - con) / sin);
+        System.out.printf("ahorro por columnas:    %.1f MB (%.0f%%)%n", (sin - tabla) / 1e6, 100.0 * (sin - tabla) / sin);
+    }
+
+    // Lo que hacia aConsulta antes de los diccionarios
+    private static List<Consulta> cargaSinDiccionario(Path archivo) throws IOException {
+        List<Consulta> res = new ArrayList<>();
+        LectorRegistros.leer(archivo, null, r -> {
+            if (r.campos() >= 6) res.add(new Consulta(r.entero(0), r.entero(1), r.entero(2), r.fechaHora(3), r.texto(4), r.texto(5)));
+        });
+        return res;
+    }
+
+    private interface Carga<T> { T correr() throws IOException; }
+
+    // Heap ocupado despues de un GC con los datos cargados, menos el ocupado antes de cargarlos
+    private static <T> long medir(String nombre, Carga<T> c, ToIntFunction<T> filas) throws IOException {
+        long antes = usado();
+        T datos = c.correr();
+        long despues = usado();
+        long retenido = despues - antes;
+        int n = filas.applyAsInt(datos);
+        System.out.printf("%-18s %8.1f MB  (%d filas, %.0f bytes/fila)%n", nombre, retenido / 1e6, n, (double) retenido / n);
+        return retenido;
+    }
+
+    private static long usado() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
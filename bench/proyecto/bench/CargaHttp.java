@@ -0,0 +1,138 @@
+package proyecto.bench;
+
+import proyecto.servidor.ServidorHttp;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga de lecturas para el servidor HTTP: N clientes concurrentes (hilos
+ * virtuales) piden sin pausa una mezcla de busquedas por id y listados durante el tiempo
+ * indicado, y al final informa pedidos por segundo y percentiles de latencia.
+ *
+ * Sin --url genera datos sinteticos en un temporal y levanta el servidor en el mismo
+ * proceso, asi que se puede correr sin preparar nada.
+ * Uso: ant carga-http   o   java proyecto.bench.CargaHttp [--url http://host:puerto]
+ *      [--clientes 256] [--segundos 10] [--filas 100000]
+ */
+public class CargaHttp {
+    // Histograma de latencias en pasos de 100 microsegundos, hasta 5 segundos
+    private static final int PASO_MICROS = 100;
+    private static final int CUBETAS = 50_000;
+    private static final int CALENTAMIENTO_SEG = 2;
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int clientes = 256, segundos = 10, filas = 100_000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--url": url = args[i + 1]; break;
+                case "--clientes": clientes = Integer.parseInt(args[i + 1]); break;
+                case "--segundos": segundos = Integer.parseInt(args[i + 1]); break;
+                case "--filas": filas = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Argumento desconocido: " + args[i]);
+            }
+        }
+        ServidorHttp local = null;
+        if (url == null) {
+            Path dir = Files.createTempDirectory("carga-http");
+            GeneradorDatos.escribir(dir, filas);
+            local = new ServidorHttp(dir, InetAddress.getLoopbackAddress(), 0);
+            local.iniciar();
+            url = "http://127.0.0.1:" + local.getPuerto();
+        }
+        try {
+            System.out.printf("%d clientes durante %d s contra %s (%d filas por entidad)%n", clientes, segundos, url, filas);
+            correr(url, clientes, CALENTAMIENTO_SEG, filas, null);
+            Resultado r = new Resultado();
+            correr(url, clientes, segundos, filas, r);
+            r.informar(segundos);
+        } finally {
+            if (local != null) local.close();
+        }
+    }
+
+    private static final class Resultado {
+        final AtomicLongArray histograma = new AtomicLongArray(CUBETAS);
+        final LongAdder pedidos = new LongAdder();
+        final LongAdder errores = new LongAdder();
+
+        void registrar(long nanos, int estado) {
+            pedidos.increment();
+            if (estado != 200) errores.increment();
+            histograma.incrementAndGet((int) Math.min(CUBETAS - 1, nanos / 1000 / PASO_MICROS));
+        }
+
+        void informar(int segundos) {
+            long total = pedidos.sum();
+            System.out.printf("pedidos: %d  errores: %d  pedidos/s: %.0f%n", total, errores.sum(), total / (double) segundos);
+            System.out.printf("latencia ms  p50: %.1f  p90: %.1f  p99: %.1f  p99.9: %.1f%n",
+                    percentil(total, 0.50), percentil(total, 0.90), percentil(total, 0.99), percentil(total, 0.999));
+        }
+
+        private double percentil(long total, double p) {
+            long objetivo = (long) Math.ceil(total * p), acumulado = 0;
+            for (int i = 0; i < CUBETAS; i++) {
+                acumulado += histograma.get(i);
+                if (acumulado >= objetivo) return (i + 1) * PASO_MICROS / 1000.0;
+            }
+            return CUBETAS * PASO_MICROS / 1000.0;
+        }
+    }
+
+    // Con resultado null solo calienta (JIT, caches del servidor, conexiones)
+    private static void correr(String url, int clientes, int segundos, int filas, Resultado resultado) throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<java.util.concurrent.Future<?>> tareas = new ArrayList<>();
+            for (int c = 0; c < clientes; c++) {
+                tareas.add(hilos.submit(() -> {
+                    ThreadLocalRandom azar = ThreadLocalRandom.current();
+                    while (System.nanoTime() < fin) {
+                        HttpRequest pedido = HttpRequest.newBuilder(URI.create(url + ruta(azar, filas))).GET().build();
+                        long t0 = System.nanoTime();
+                        int estado;
+                        try {
+                            estado = http.send(pedido, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (IOException e) {
+                            estado = -1;
+                        }
+                        if (resultado != null) resultado.registrar(System.nanoTime() - t0, estado);
+                    }
+                    return null;
+                }));
+            }
+            for (java.util.concurrent.Future<?> t : tareas) t.get();
+        }
+    }
+
+    // Mezcla de lecturas: mayoria por id, algunos listados y busquedas
+    private static String ruta(ThreadLocalRandom azar, int filas) {
+        int id = 1 + azar.nextInt(filas);
+        switch (azar.nextInt(10)) {
+            case 0: return "/api/consultas?paciente=" + (1 + azar.nextInt(Math.min(filas, 50_000))) + "&limite=20";
+            case 1: return "/api/medicos?especialidad=Pediatria&desde=" + azar.nextInt(100) + "&limite=20";
+            case 2: return "/api/equipos?disponibles=true&limite=20";
+            case 3: return "/api/consultas/" + id;
+            case 4: return "/api/inventario/" + id;
+            case 5: return "/api/equipos/" + id;
+            case 6: return "/api/medicos/" + id;
+            default: return "/api/pacientes/" + id;
+        }
+    }
+}
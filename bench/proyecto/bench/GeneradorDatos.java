@@ -0,0 +1,129 @@
+package proyecto.bench;
+
+import proyecto.model.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Genera datos sinteticos (deterministas) para los cinco archivos de la aplicacion.
+ * Los nombres cumplen las validaciones de proyecto.validacionDatos, asi que los
+ * benchmarks de agregar/actualizar no fallan por datos invalidos.
+ * Uso: java proyecto.bench.GeneradorDatos [dir] [filas...]   (por defecto 1000 100000 1000000)
+ */
+public class GeneradorDatos {
+    private static final String[] NOMBRES = {"Juan", "Maria", "Jose", "Ana", "Luis", "Sofia", "Pedro", "Lucia", "Martin", "Elena"};
+    private static final String[] APELLIDOS = {"Perez", "Gomez", "Lopez", "Diaz", "Torres", "Ruiz", "Romero", "Castro"};
+    private static final String[] ESPECIALIDADES = {"Cardiologia", "Pediatria", "Neurologia", "Traumatologia", "Dermatologia"};
+    private static final String[] MOTIVOS = {"Control", "Dolor", "Revision", "Urgencia", "Vacuna"};
+    private static final String[] EQUIPOS = {"Monitor", "Electrocardiografo", "Desfibrilador", "Nebulizador", "Oximetro"};
+    private static final String[] INSUMOS = {"Gasas", "Jeringas", "Guantes", "Alcohol", "Vendas"};
+    private static final String[] UNIDADES = {"pz", "caja", "ml", "par"};
+    private static final LocalDateTime BASE = LocalDateTime.of(2020, 1, 1, 8, 0);
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "build/datos");
+        int[] tamanos = {1_000, 100_000, 1_000_000};
+        if (args.length > 1) {
+            tamanos = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) tamanos[i - 1] = Integer.parseInt(args[i]);
+        }
+        for (int filas : tamanos) {
+            Path destino = dir.resolve(String.valueOf(filas));
+            long t0 = System.nanoTime();
+            escribir(destino, filas);
+            System.out.printf("%s: %d filas por archivo en %.0f ms%n", destino, filas, (System.nanoTime() - t0) / 1e6);
+        }
+    }
+
+    /** Escribe pacientes, medicos, consultas, equipos e inventario con la cantidad de filas pedida. */
+    public static void escribir(Path dir, int filas) throws IOException {
+        Files.createDirectories(dir);
+        volcar(dir.resolve("pacientes.csv"), "#id|nombre|direccion|edad|telefono|version", pacientes(filas),
+                p -> String.join("|", String.valueOf(p.getId()), p.getNombre(), p.getDireccion(),
+                        String.valueOf(p.getEdad()), p.getTelefono(), String.valueOf(p.getVersion())));
+        volcar(dir.resolve("medicos.csv"), "#id|nombre|especialidad", medicos(filas),
+                d -> String.join("|", String.valueOf(d.getId()), d.getNombre(), d.getEspecialidad()));
+        volcar(dir.resolve("consultas.csv"), "#id|pacienteId|doctorId|fechaISO|motivo|notas", consultas(filas),
+                c -> String.join("|", String.valueOf(c.getId()), String.valueOf(c.getPacienteId()),
+                        String.valueOf(c.getDoctorId()), c.getFecha().toString(), c.getMotivo(), c.getNotas()));
+        volcar(dir.resolve("equipos.csv"), "#id|nombre|descripcion|disponible|version", equipos(filas),
+                e -> String.join("|", String.valueOf(e.getId()), e.getNombre(), e.getDescripcion(),
+                        String.valueOf(e.getDisponible()), String.valueOf(e.getVersion())));
+        volcar(dir.resolve("inventario.csv"), "#id|nombre|cantidad|unidad", inventario(filas),
+                i -> String.join("|", String.valueOf(i.getId()), i.getNombre(), String.valueOf(i.getCantidad()), i.getUnidad()));
+    }
+
+    public static List<Paciente> pacientes(int filas) {
+        List<Paciente> res = new ArrayList<>(filas);
+        for (int i = 1; i <= filas; i++) res.add(paciente(i));
+        return res;
+    }
+
+    public static Paciente paciente(int id) {
+        String nombre = NOMBRES[id % NOMBRES.length] + " " + APELLIDOS[(id / NOMBRES.length) % APELLIDOS.length];
+        return new Paciente(id, nombre, "Calle " + (id % 997) + " nro " + id, id % 100, "555-" + (1000 + id % 9000));
+    }
+
+    public static List<Doctor> medicos(int filas) {
+        List<Doctor> res = new ArrayList<>(filas);
+        for (int i = 1; i <= filas; i++) res.add(medico(i));
+        return res;
+    }
+
+    public static Doctor medico(int id) {
+        return new Doctor(id, "Dr. " + APELLIDOS[id % APELLIDOS.length] + " " + NOMBRES[(id / APELLIDOS.length) % NOMBRES.length],
+                ESPECIALIDADES[id % ESPECIALIDADES.length]);
+    }
+
+    /** Consultas cada 7 minutos desde 2020-01-01 08:00, repartidas entre 50k pacientes y 200 doctores. */
+    public static List<Consulta> consultas(int filas) {
+        List<Consulta> res = new ArrayList<>(filas);
+        for (int i = 1; i <= filas; i++) res.add(consulta(i));
+        return res;
+    }
+
+    public static Consulta consulta(int id) {
+        return new Consulta(id, 1 + id % 50_000, 1 + id % 200, BASE.plusMinutes(id * 7L),
+                MOTIVOS[id % MOTIVOS.length], "Sin observaciones");
+    }
+
+    public static List<Equipo> equipos(int filas) {
+        List<Equipo> res = new ArrayList<>(filas);
+        for (int i = 1; i <= filas; i++) res.add(equipo(i));
+        return res;
+    }
+
+    public static Equipo equipo(int id) {
+        return new Equipo(id, EQUIPOS[id % EQUIPOS.length] + id, "Equipo de prueba", 1 + id % 20);
+    }
+
+    public static List<InventarioItem> inventario(int filas) {
+        List<InventarioItem> res = new ArrayList<>(filas);
+        for (int i = 1; i <= filas; i++) res.add(item(i));
+        return res;
+    }
+
+    public static InventarioItem item(int id) {
+        return new InventarioItem(id, INSUMOS[id % INSUMOS.length] + " " + id, id % 500, UNIDADES[id % UNIDADES.length]);
+    }
+
+    private static <T> void volcar(Path archivo, String cabecera, List<T> filas, Function<T, String> linea) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            w.write(cabecera);
+            w.newLine();
+            for (T t : filas) {
+                w.write(linea.apply(t));
+                w.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package proyecto.bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import proyecto.bench.GeneradorDatos;
+import proyecto.model.Consulta;
+import proyecto.persistence.PersistenciaConsultas;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/** PersistenciaConsultas no tiene actualizar/eliminar: se cambia con saveAll. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BenchConsultas extends EstadoDatos {
+    private PersistenciaConsultas pc;
+    private List<Consulta> todas;
+
+    @Override
+    protected void abrir(Path dir) throws IOException {
+        pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        todas = pc.obtenerTodos();
+    }
+
+    @Benchmark
+    public List<Consulta> obtenerTodos() throws IOException {
+        return pc.obtenerTodos();
+    }
+
+    @Benchmark
+    public Optional<Consulta> obtenerPorId() throws IOException {
+        return pc.obtenerPorId(idExistente());
+    }
+
+    /** Un dia: se resuelve con el indice de fechas. */
+    @Benchmark
+    public List<Consulta> buscarConsultasPorFechaDia() throws IOException {
+        return pc.buscarConsultasPorFecha("2020-01-02");
+    }
+
+    /** Prefijo incompleto ("2020-0"): recorre el archivo. */
+    @Benchmark
+    public List<Consulta> buscarConsultasPorFechaPrefijo() throws IOException {
+        return pc.buscarConsultasPorFecha("2020-0");
+    }
+
+    @Benchmark
+    public void agregar() throws IOException {
+        pc.agregar(GeneradorDatos.consulta(siguienteId++));
+    }
+
+    @Benchmark
+    public void saveAll() throws IOException {
+        pc.saveAll(todas);
+    }
+}
@@ -0,0 +1,58 @@
+package proyecto.bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import proyecto.bench.GeneradorDatos;
+import proyecto.model.Equipo;
+import proyecto.persistence.PersistenciaEquipos;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/** PersistenciaEquipos no tiene saveAll: los cambios van a la bitacora. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BenchEquipos extends EstadoDatos {
+    private PersistenciaEquipos pe;
+
+    @Override
+    protected void abrir(Path dir) throws IOException {
+        pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+    }
+
+    @Benchmark
+    public List<Equipo> obtenerTodos() throws IOException {
+        return pe.obtenerTodos();
+    }
+
+    @Benchmark
+    public Optional<Equipo> obtenerPorId() throws IOException {
+        return pe.obtenerPorId(idExistente());
+    }
+
+    @Benchmark
+    public void agregar() throws IOException {
+        pe.agregar(GeneradorDatos.equipo(siguienteId++));
+    }
+
+    @Benchmark
+    public void actualizar() throws IOException {
+        Equipo e = GeneradorDatos.equipo(idExistente());
+        e.setDisponible(e.getDisponible() + 1);
+        pe.actualizar(e);
+    }
+
+    /** eliminar seguido de agregar del mismo id, para no vaciar el archivo durante la iteracion. */
+    @Benchmark
+    public void eliminarYReinsertar() throws IOException {
+        int id = idExistente();
+        pe.eliminar(id);
+        pe.agregar(GeneradorDatos.equipo(id));
+    }
+}
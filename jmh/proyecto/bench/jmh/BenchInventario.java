@@ -0,0 +1,44 @@
+package proyecto.bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import proyecto.bench.GeneradorDatos;
+import proyecto.model.InventarioItem;
+import proyecto.persistence.PersistenciaInventario;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** PersistenciaInventario solo tiene obtenerTodos, agregar y saveAll. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BenchInventario extends EstadoDatos {
+    private PersistenciaInventario pi;
+    private List<InventarioItem> todos;
+
+    @Override
+    protected void abrir(Path dir) throws IOException {
+        pi = new PersistenciaInventario(dir.resolve("inventario.csv"));
+        todos = pi.obtenerTodos();
+    }
+
+    @Benchmark
+    public List<InventarioItem> obtenerTodos() throws IOException {
+        return pi.obtenerTodos();
+    }
+
+    @Benchmark
+    public void agregar() throws IOException {
+        pi.agregar(GeneradorDatos.item(siguienteId++));
+    }
+
+    @Benchmark
+    public void saveAll() throws IOException {
+        pi.saveAll(todos);
+    }
+}
@@ -0,0 +1,50 @@
+package proyecto.bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import proyecto.bench.GeneradorDatos;
+import proyecto.model.Doctor;
+import proyecto.persistence.PersistenciaMedicos;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/** PersistenciaMedicos no tiene actualizar/eliminar: se cambia con saveAll. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BenchMedicos extends EstadoDatos {
+    private PersistenciaMedicos pm;
+    private List<Doctor> todos;
+
+    @Override
+    protected void abrir(Path dir) throws IOException {
+        pm = new PersistenciaMedicos(dir.resolve("medicos.csv"));
+        todos = pm.obtenerTodos();
+    }
+
+    @Benchmark
+    public List<Doctor> obtenerTodos() throws IOException {
+        return pm.obtenerTodos();
+    }
+
+    @Benchmark
+    public Optional<Doctor> obtenerPorId() throws IOException {
+        return pm.obtenerPorId(idExistente());
+    }
+
+    @Benchmark
+    public void agregar() throws IOException {
+        pm.agregar(GeneradorDatos.medico(siguienteId++));
+    }
+
+    @Benchmark
+    public void saveAll() throws IOException {
+        pm.saveAll(todos);
+    }
+}
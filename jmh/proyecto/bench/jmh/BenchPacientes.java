@@ -0,0 +1,75 @@
+package proyecto.bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import proyecto.bench.GeneradorDatos;
+import proyecto.model.Paciente;
+import proyecto.persistence.PersistenciaPacientes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BenchPacientes extends EstadoDatos {
+    private Path archivo;
+    private PersistenciaPacientes pp;
+
+    @Override
+    protected void abrir(Path dir) throws IOException {
+        archivo = dir.resolve("pacientes.csv");
+        pp = new PersistenciaPacientes(archivo);
+    }
+
+    /** Primera lectura del archivo (instancia nueva, sin cache). */
+    @Benchmark
+    public List<Paciente> obtenerTodosEnFrio() throws IOException {
+        return new PersistenciaPacientes(archivo).obtenerTodos();
+    }
+
+    @Benchmark
+    public List<Paciente> obtenerTodos() throws IOException {
+        return pp.obtenerTodos();
+    }
+
+    @Benchmark
+    public Optional<Paciente> obtenerPorId() throws IOException {
+        return pp.obtenerPorId(idExistente());
+    }
+
+    @Benchmark
+    public List<Paciente> buscarPorNombreTexto() throws IOException {
+        return pp.buscarPorNombre("lucia ro");
+    }
+
+    @Benchmark
+    public List<Paciente> buscarPorNombreRegex() throws IOException {
+        return pp.buscarPorNombre("^Luc.a R");
+    }
+
+    @Benchmark
+    public void agregar() throws IOException {
+        pp.agregar(GeneradorDatos.paciente(siguienteId++));
+    }
+
+    @Benchmark
+    public void actualizar() throws IOException {
+        Paciente p = GeneradorDatos.paciente(idExistente());
+        p.setEdad((p.getEdad() + 1) % 100);
+        pp.actualizar(p);
+    }
+
+    /** eliminar seguido de agregar del mismo id, para no vaciar el archivo durante la iteracion. */
+    @Benchmark
+    public void eliminarYReinsertar() throws IOException {
+        int id = idExistente();
+        pp.eliminar(id);
+        pp.agregar(GeneradorDatos.paciente(id));
+    }
+}
@@ -0,0 +1,68 @@
+package proyecto.bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import proyecto.bench.GeneradorDatos;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Estado comun de los benchmarks: genera los CSV una vez por tamano y, antes de cada
+ * iteracion, copia la version original a un directorio de trabajo, para que las
+ * escrituras de una iteracion no cambien el tamano de los datos de la siguiente.
+ */
+@State(Scope.Benchmark)
+public abstract class EstadoDatos {
+    @Param({"1000", "100000", "1000000"})
+    public int filas;
+
+    private Path original;
+    private Path trabajo;
+    // Ids para agregar: siempre por encima de los generados
+    protected int siguienteId;
+    // Recorre los ids existentes para obtenerPorId/actualizar
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generar() throws IOException {
+        original = Files.createTempDirectory("jmh-datos");
+        GeneradorDatos.escribir(original, filas);
+    }
+
+    @Setup(Level.Iteration)
+    public void preparar() throws IOException {
+        if (trabajo != null) borrar(trabajo);
+        trabajo = Files.createTempDirectory("jmh-trabajo");
+        try (Stream<Path> archivos = Files.list(original)) {
+            for (Path p : (Iterable<Path>) archivos::iterator) {
+                Files.copy(p, trabajo.resolve(p.getFileName()));
+            }
+        }
+        siguienteId = filas + 1;
+        cursor = 0;
+        abrir(trabajo);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        if (trabajo != null) borrar(trabajo);
+        borrar(original);
+    }
+
+    /** Crea la persistencia sobre los archivos del directorio de trabajo. */
+    protected abstract void abrir(Path dir) throws IOException;
+
+    /** Siguiente id existente, saltando por el archivo para no repetir siempre el mismo. */
+    protected int idExistente() {
+        cursor = (cursor + 7919) % filas;
+        return cursor + 1;
+    }
+
+    private static void borrar(Path dir) throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) s.sorted(Comparator.reverseOrder())::iterator) Files.deleteIfExists(p);
+        }
+    }
+}
@@ -1,9 +1,16 @@
-package interfaces; 
+package interfaces;
 
+import proyecto.busqueda.Criterio;
 import proyecto.model.Paciente;
 
 @FunctionalInterface
 public interface FiltroEdad {
     // Definimos el contrato: recibe un paciente y una edad mínima
     boolean validar(Paciente p, int edadMinima);
-}
\ No newline at end of file
+
+    // El mismo filtro con la edad fijada, como criterio para combinarlo con otros.
+    // Una lambda propia es opaca: se evalua paciente por paciente
+    default Criterio<Paciente> conEdad(int edadMinima) {
+        return Criterio.de(p -> validar(p, edadMinima));
+    }
+}
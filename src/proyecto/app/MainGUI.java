@@ -2,21 +2,44 @@ package proyecto.app;
 
 import proyecto.model.*;
 import proyecto.persistence.*;
+import proyecto.busqueda.Busqueda;
+import proyecto.busqueda.Campos;
+import proyecto.busqueda.Criterio;
+import proyecto.exportacion.Exportaciones;
+import proyecto.exportacion.Exportador;
+import proyecto.exportacion.Formato;
+import proyecto.validacionDatos.validacionPaciente;
+import proyecto.servidor.ServidorHttp;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.TableModel;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.Comparator;
-import java.util.function.Predicate;
 import java.time.format.DateTimeFormatter;
 import interfaces.FiltroEdad;
-import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 
 /**
@@ -43,13 +66,46 @@ public class MainGUI extends JFrame {
     private PersistenciaConsultas pc;
     private PersistenciaEquipos pe;
     private PersistenciaInventario pi;
+    // Medicos en memoria para ordenarlos en el panel funcional; se recargan si cambia el archivo
+    private CacheEntidades<Doctor> medicosEnCache;
 
     // Tables models
-    private DefaultTableModel pacientesModel = new DefaultTableModel(new String[]{"ID","Nombre","Edad","Tel","Direccion"},0);
-    private DefaultTableModel medicosModel = new DefaultTableModel(new String[]{"ID","Nombre","Especialidad"},0);
-    private DefaultTableModel consultasModel = new DefaultTableModel(new String[]{"ID","Paciente","Doctor","Fecha","Motivo","Notas"},0);
-    private DefaultTableModel equiposModel = new DefaultTableModel(new String[]{"ID","Nombre","Disp","Desc"},0);
-    private DefaultTableModel inventarioModel = new DefaultTableModel(new String[]{"ID","Nombre","Cantidad"},0);
+    // (respaldados por las listas cargadas; no copian filas)
+    private final ModeloTablaLista<Paciente> pacientesModel = new ModeloTablaLista<Paciente>()
+            .columna("ID", Integer.class, Paciente::getId)
+            .columna("Nombre", String.class, Paciente::getNombre)
+            .columna("Edad", Integer.class, Paciente::getEdad)
+            .columna("Tel", String.class, Paciente::getTelefono)
+            .columna("Direccion", String.class, Paciente::getDireccion);
+    private final ModeloTablaLista<Doctor> medicosModel = new ModeloTablaLista<Doctor>()
+            .columna("ID", Integer.class, Doctor::getId)
+            .columna("Nombre", String.class, Doctor::getNombre)
+            .columna("Especialidad", String.class, Doctor::getEspecialidad);
+    // Las consultas pueden ser millones: se muestran desde las columnas, sin crear un Consulta por fila
+    private final ModeloTablaConsultas consultasModel = new ModeloTablaConsultas();
+    private final ModeloTablaLista<Equipo> equiposModel = new ModeloTablaLista<Equipo>()
+            .columna("ID", Integer.class, Equipo::getId)
+            .columna("Nombre", String.class, Equipo::getNombre)
+            .columna("Disp", Integer.class, Equipo::getDisponible)
+            .columna("Desc", String.class, Equipo::getDescripcion);
+    private final ModeloTablaLista<InventarioItem> inventarioModel = new ModeloTablaLista<InventarioItem>()
+            .columna("ID", Integer.class, InventarioItem::getId)
+            .columna("Nombre", String.class, InventarioItem::getNombre)
+            .columna("Cantidad", Integer.class, InventarioItem::getCantidad);
+
+    // Hilos para la persistencia (virtuales: casi todo el tiempo esperan disco)
+    private final ExecutorService io = Executors.newVirtualThreadPerTaskExecutor();
+    // Carga en curso de cada tabla, para cancelarla si se pide otra
+    private final Map<TableModel, SwingWorker<?, ?>> cargas = new IdentityHashMap<>();
+    // Tablas paginadas: filas por pedido y carga de la pagina siguiente (si falta alguna)
+    private static final int FILAS_POR_PAGINA = 500;
+    private static final int FILAS_ANTES_DEL_FINAL = 50;
+    private final Map<TableModel, Runnable> siguientesPaginas = new IdentityHashMap<>();
+    // Suma de cantidades por unidad del inventario (agregado de la persistencia)
+    private final JLabel totalesInventario = new JLabel("Totales: -");
+    private final JProgressBar progreso = new JProgressBar();
+    private int tareasIniciadas;
+    private int tareasTerminadas;
 
     public MainGUI() {
         try {
@@ -58,6 +114,8 @@ public class MainGUI extends JFrame {
             pc = new PersistenciaConsultas(Paths.get("data/consultas.csv"));
             pe = new PersistenciaEquipos(Paths.get("data/equipos.csv"));
             pi = new PersistenciaInventario(Paths.get("data/inventario.csv"));
+            for (PersistenciaBase p : new PersistenciaBase[]{pp, pm, pc, pe, pi}) p.setInstantanea(true);
+            medicosEnCache = new CacheEntidades<>(pm, pm::obtenerTodos, Doctor::getId);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(null, "Error al iniciar persistencia: " + e.getMessage());
             System.exit(1);
@@ -83,6 +141,9 @@ public class MainGUI extends JFrame {
         tabs.addTab("Filtrar Búsquedas", buildPanelFuncional());
 
         add(tabs, BorderLayout.CENTER);
+        progreso.setStringPainted(true);
+        progreso.setVisible(false);
+        add(progreso, BorderLayout.SOUTH);
         refreshAll();
     }
 
@@ -99,7 +160,9 @@ public class MainGUI extends JFrame {
         if (edadS == null || edadS.isBlank()) throw new IllegalArgumentException("La edad no puede estar vacía.");
         if (!edadS.matches("\\d+")) throw new IllegalArgumentException("La edad debe ser un número entero.");
         int edad = Integer.parseInt(edadS);
-        if (edad <= 0 || edad > 120) throw new IllegalArgumentException("La edad debe ser entre 1 y 120.");
+        if (!validacionPaciente.validaEdad(edad))
+            throw new IllegalArgumentException("La edad debe ser entre " + validacionPaciente.EDAD_MINIMA
+                    + " y " + validacionPaciente.EDAD_MAXIMA + ".");
         return edad;
     }
 
@@ -143,7 +206,8 @@ public class MainGUI extends JFrame {
     private JPanel buildPacientesPanel() {
         JPanel p = new JPanel(new BorderLayout());
         JTable table = new JTable(pacientesModel);
-        p.add(new JScrollPane(table), BorderLayout.CENTER);
+        table.setAutoCreateRowSorter(true);
+        p.add(conCargaAlDesplazar(table), BorderLayout.CENTER);
 
         JPanel controls = new JPanel();
         JButton add = new JButton("Agregar");
@@ -171,8 +235,8 @@ public class MainGUI extends JFrame {
                 int edad = validarEdad(edadS);
                 validarDireccion(direccion);
 
-                pp.agregar(new Paciente(id,nombre,direccion,edad,tel));
-                refreshPacientes();
+                Paciente nuevo = new Paciente(id,nombre,direccion,edad,tel);
+                ejecutar(() -> pp.agregar(nuevo), this::refreshPacientes);
             } catch (NumberFormatException nfe) {
                 JOptionPane.showMessageDialog(this, "ID o Edad inválida. Debe ser un número.");
             } catch (IllegalArgumentException iae) {
@@ -186,9 +250,9 @@ public class MainGUI extends JFrame {
             try {
                 int row = table.getSelectedRow();
                 if (row<0) { JOptionPane.showMessageDialog(this, "Selecciona un paciente"); return; }
-                int id = Integer.parseInt(pacientesModel.getValueAt(row,0).toString());
+                int id = pacientesModel.fila(table.convertRowIndexToModel(row)).getId();
                 if (JOptionPane.showConfirmDialog(this, "Confirmar eliminar ID="+id)==JOptionPane.YES_OPTION){
-                    pp.eliminar(id); refreshPacientes();
+                    ejecutar(() -> pp.eliminar(id), this::refreshPacientes);
                 }
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
         });
@@ -197,27 +261,8 @@ public class MainGUI extends JFrame {
             try {
                 int row = table.getSelectedRow();
                 if (row<0) { JOptionPane.showMessageDialog(this, "Selecciona un paciente"); return; }
-                int id = Integer.parseInt(pacientesModel.getValueAt(row,0).toString());
-                var op = pp.obtenerPorId(id);
-                if (op.isEmpty()) { JOptionPane.showMessageDialog(this, "Paciente no encontrado"); return; }
-                Paciente pOld = op.get();
-
-                String nombre = JOptionPane.showInputDialog(this, "Nombre:", pOld.getNombre());
-                String edadS = JOptionPane.showInputDialog(this, "Edad:", String.valueOf(pOld.getEdad()));
-                String tel = JOptionPane.showInputDialog(this, "Telefono:", pOld.getTelefono());
-                String direccion = JOptionPane.showInputDialog(this, "Dirección:", pOld.getDireccion());
-
-                // Validaciones
-                validarNombrePaciente(nombre);
-                int edad = validarEdad(edadS);
-                validarDireccion(direccion);
-
-                pOld.setNombre(nombre); pOld.setEdad(edad); pOld.setTelefono(tel); pOld.setDireccion(direccion);
-                pp.actualizar(pOld); refreshPacientes();
-            } catch (NumberFormatException nfe) {
-                JOptionPane.showMessageDialog(this, "Edad inválida. Debe ser un número.");
-            } catch (IllegalArgumentException iae) {
-                JOptionPane.showMessageDialog(this, "Error de validación: " + iae.getMessage());
+                int id = pacientesModel.fila(table.convertRowIndexToModel(row)).getId();
+                consultar(() -> pp.obtenerPorId(id), op -> editarPaciente(op));
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
         });
 
@@ -231,13 +276,38 @@ public class MainGUI extends JFrame {
         return p;
     }
 
+    private void editarPaciente(java.util.Optional<Paciente> op) {
+        try {
+            if (op.isEmpty()) { JOptionPane.showMessageDialog(this, "Paciente no encontrado"); return; }
+            Paciente pOld = op.get();
+
+            String nombre = JOptionPane.showInputDialog(this, "Nombre:", pOld.getNombre());
+            String edadS = JOptionPane.showInputDialog(this, "Edad:", String.valueOf(pOld.getEdad()));
+            String tel = JOptionPane.showInputDialog(this, "Telefono:", pOld.getTelefono());
+            String direccion = JOptionPane.showInputDialog(this, "Dirección:", pOld.getDireccion());
+
+            // Validaciones
+            validarNombrePaciente(nombre);
+            int edad = validarEdad(edadS);
+            validarDireccion(direccion);
+
+            pOld.setNombre(nombre); pOld.setEdad(edad); pOld.setTelefono(tel); pOld.setDireccion(direccion);
+            guardarEdicion(() -> pp.actualizar(pOld), this::refreshPacientes);
+        } catch (NumberFormatException nfe) {
+            JOptionPane.showMessageDialog(this, "Edad inválida. Debe ser un número.");
+        } catch (IllegalArgumentException iae) {
+            JOptionPane.showMessageDialog(this, "Error de validación: " + iae.getMessage());
+        } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
+    }
+
     // --------------------------
     // Médicos (sin cambios funcionales)
     // --------------------------
     private JPanel buildMedicosPanel() {
         JPanel p = new JPanel(new BorderLayout());
         JTable table = new JTable(medicosModel);
-        p.add(new JScrollPane(table), BorderLayout.CENTER);
+        table.setAutoCreateRowSorter(true);
+        p.add(conCargaAlDesplazar(table), BorderLayout.CENTER);
         JPanel controls = new JPanel();
         JButton add = new JButton("Agregar");
         JButton del = new JButton("Eliminar");
@@ -253,8 +323,8 @@ public class MainGUI extends JFrame {
                 if (nombre==null) return;
                 String esp = JOptionPane.showInputDialog(this, "Especialidad:");
                 if (esp==null) return;
-                pm.agregar(new Doctor(id,nombre,esp));
-                refreshMedicos();
+                Doctor nuevo = new Doctor(id,nombre,esp);
+                ejecutar(() -> pm.agregar(nuevo), this::refreshMedicos);
             } catch (NumberFormatException nfe) {
                 JOptionPane.showMessageDialog(this, "ID inválida. Debe ser un número.");
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
@@ -264,13 +334,10 @@ public class MainGUI extends JFrame {
             try {
                 int row = table.getSelectedRow();
                 if (row<0) { JOptionPane.showMessageDialog(this, "Selecciona un doctor"); return; }
-                int id = Integer.parseInt(medicosModel.getValueAt(row,0).toString());
-                var list = pm.obtenerTodos();
+                int id = medicosModel.fila(table.convertRowIndexToModel(row)).getId();
                 if (JOptionPane.showConfirmDialog(this, "Confirmar eliminar ID="+id)==JOptionPane.YES_OPTION){
-                list.removeIf(d->d.getId()==id);
-                pm.saveAll(list);
+                    ejecutar(() -> pm.eliminar(id), this::refreshMedicos);
                 }
-                refreshMedicos();
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
         });
 
@@ -283,6 +350,7 @@ public class MainGUI extends JFrame {
     private JPanel buildConsultasPanel() {
         JPanel p = new JPanel(new BorderLayout());
         JTable table = new JTable(consultasModel);
+        table.setAutoCreateRowSorter(true);
         p.add(new JScrollPane(table), BorderLayout.CENTER);
         JPanel controls = new JPanel();
         JButton add = new JButton("Agregar");
@@ -309,8 +377,8 @@ public class MainGUI extends JFrame {
                 if (motivo==null) return;
                 String notas = JOptionPane.showInputDialog(this, "Notas:");
                 if (notas==null) return;
-                pc.agregar(new Consulta(id,pid,did,dt,motivo,notas));
-                refreshConsultas();
+                Consulta nueva = new Consulta(id,pid,did,dt,motivo,notas);
+                ejecutar(() -> pc.agregar(nueva), this::refreshConsultas);
             } catch (NumberFormatException nfe) {
                 JOptionPane.showMessageDialog(this, "ID inválido. Debe ser un número.");
             } catch (IllegalArgumentException iae) {
@@ -322,13 +390,10 @@ public class MainGUI extends JFrame {
             try {
                 int row = table.getSelectedRow();
                 if (row<0) { JOptionPane.showMessageDialog(this, "Selecciona una consulta"); return; }
-                int id = Integer.parseInt(consultasModel.getValueAt(row,0).toString());
-                var list = pc.obtenerTodos();
+                int id = consultasModel.getTabla().id(table.convertRowIndexToModel(row));
                 if (JOptionPane.showConfirmDialog(this, "Confirmar eliminar ID="+id)==JOptionPane.YES_OPTION){
-                list.removeIf(c->c.getId()==id);
-                pc.saveAll(list);
+                    ejecutar(() -> pc.eliminar(id), this::refreshConsultas);
                 }
-                refreshConsultas();
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
         });
 
@@ -348,7 +413,8 @@ public class MainGUI extends JFrame {
     private JPanel buildEquiposPanel() {
         JPanel p = new JPanel(new BorderLayout());
         JTable table = new JTable(equiposModel);
-        p.add(new JScrollPane(table), BorderLayout.CENTER);
+        table.setAutoCreateRowSorter(true);
+        p.add(conCargaAlDesplazar(table), BorderLayout.CENTER);
         JPanel controls = new JPanel();
         JButton add = new JButton("Agregar");
         JButton edit = new JButton("Cambiar Disp");
@@ -371,8 +437,8 @@ public class MainGUI extends JFrame {
                 // Validación
                 validarEquipo(nombre, dispoS);
 
-                pe.agregar(new Equipo(id,nombre,desc,disponibilidad));
-                refreshEquipos();
+                Equipo nuevo = new Equipo(id,nombre,desc,disponibilidad);
+                ejecutar(() -> pe.agregar(nuevo), this::refreshEquipos);
             } catch (NumberFormatException nfe) {
                 JOptionPane.showMessageDialog(this, "ID o Disponibilidad inválida. Debe ser un número.");
             } catch (IllegalArgumentException iae) {
@@ -384,22 +450,8 @@ public class MainGUI extends JFrame {
             try {
                 int row = table.getSelectedRow();
                 if (row<0) { JOptionPane.showMessageDialog(this, "Selecciona un equipo"); return; }
-                int id = Integer.parseInt(equiposModel.getValueAt(row,0).toString());
-                var oe = pe.obtenerPorId(id);
-                if (oe.isEmpty()) { JOptionPane.showMessageDialog(this, "Equipo medico no existente"); return; }
-                Equipo E01d = oe.get();
-
-                String dispoS = JOptionPane.showInputDialog(this, "Disponibles" , String.valueOf(E01d.getDisponible()));
-                if (dispoS==null) return;
-                int disp = Integer.parseInt(dispoS);
-                // Validar nueva cantidad antes de settear
-                validarEquipo(E01d.getNombre(), dispoS); // valida disponibilidad y que el nombre existente sea válido
-                E01d.setDisponible(disp);
-                pe.actualizar(E01d); refreshEquipos();
-            } catch (NumberFormatException nfe) {
-                JOptionPane.showMessageDialog(this, "Disponibilidad inválida. Debe ser un número.");
-            } catch (IllegalArgumentException iae) {
-                JOptionPane.showMessageDialog(this, "Error de validación: " + iae.getMessage());
+                int id = equiposModel.fila(table.convertRowIndexToModel(row)).getId();
+                consultar(() -> pe.obtenerPorId(id), oe -> editarEquipo(oe));
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
         });
 
@@ -407,11 +459,9 @@ public class MainGUI extends JFrame {
             try {
                 int row = table.getSelectedRow();
                 if (row<0) { JOptionPane.showMessageDialog(this, "Selecciona un equipo"); return; }
-                int id = Integer.parseInt(equiposModel.getValueAt(row,0).toString());
-                var list = pe.obtenerTodos();
-                list.removeIf(e->e.getId()==id);
+                int id = equiposModel.fila(table.convertRowIndexToModel(row)).getId();
                 if (JOptionPane.showConfirmDialog(this, "Confirmar eliminar ID="+id)==JOptionPane.YES_OPTION){
-                    pe.eliminar(id); refreshEquipos();
+                    ejecutar(() -> pe.eliminar(id), this::refreshEquipos);
                 }
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
         });
@@ -419,19 +469,40 @@ public class MainGUI extends JFrame {
         return p;
     }
 
+    private void editarEquipo(java.util.Optional<Equipo> oe) {
+        try {
+            if (oe.isEmpty()) { JOptionPane.showMessageDialog(this, "Equipo medico no existente"); return; }
+            Equipo E01d = oe.get();
+
+            String dispoS = JOptionPane.showInputDialog(this, "Disponibles" , String.valueOf(E01d.getDisponible()));
+            if (dispoS==null) return;
+            int disp = Integer.parseInt(dispoS);
+            // Validar nueva cantidad antes de settear
+            validarEquipo(E01d.getNombre(), dispoS); // valida disponibilidad y que el nombre existente sea válido
+            E01d.setDisponible(disp);
+            guardarEdicion(() -> pe.actualizar(E01d), this::refreshEquipos);
+        } catch (NumberFormatException nfe) {
+            JOptionPane.showMessageDialog(this, "Disponibilidad inválida. Debe ser un número.");
+        } catch (IllegalArgumentException iae) {
+            JOptionPane.showMessageDialog(this, "Error de validación: " + iae.getMessage());
+        } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
+    }
+
     // --------------------------
     // Inventario (validación cantidad al actualizar)
     // --------------------------
     private JPanel buildInventarioPanel() {
         JPanel p = new JPanel(new BorderLayout());
         JTable table = new JTable(inventarioModel);
-        p.add(new JScrollPane(table), BorderLayout.CENTER);
+        table.setAutoCreateRowSorter(true);
+        p.add(conCargaAlDesplazar(table), BorderLayout.CENTER);
         JPanel controls = new JPanel();
         JButton add = new JButton("Agregar");
         JButton upd = new JButton("Actualizar Cantidad");
         JButton del = new JButton("Eliminar");
         controls.add(add); controls.add(upd); controls.add(del);
         p.add(controls, BorderLayout.SOUTH);
+        p.add(totalesInventario, BorderLayout.NORTH);
 
         add.addActionListener(a->{
             try {
@@ -440,8 +511,8 @@ public class MainGUI extends JFrame {
                 String cantS = JOptionPane.showInputDialog(this, "Cantidad:");
                 int cant = validarCantidadInventario(cantS);
                 String unidad = JOptionPane.showInputDialog(this, "Unidad:");
-                pi.agregar(new InventarioItem(id,nombre,cant,unidad));
-                refreshInventario();
+                InventarioItem nuevo = new InventarioItem(id,nombre,cant,unidad);
+                ejecutar(() -> pi.agregar(nuevo), this::refreshInventario);
             } catch (NumberFormatException nfe) {
                 JOptionPane.showMessageDialog(this, "ID inválido. Debe ser un número.");
             } catch (IllegalArgumentException iae) {
@@ -453,16 +524,8 @@ public class MainGUI extends JFrame {
             try {
                 int row = table.getSelectedRow();
                 if (row<0) { JOptionPane.showMessageDialog(this, "Selecciona un item"); return; }
-                int id = Integer.parseInt(inventarioModel.getValueAt(row,0).toString());
-                var list = pi.obtenerTodos();
-                for (InventarioItem it: list) {
-                    if (it.getId()==id) {
-                        String nuevaS = JOptionPane.showInputDialog(this, "Nueva cantidad:", it.getCantidad());
-                        int nueva = validarCantidadInventario(nuevaS);
-                        it.setCantidad(nueva);
-                    }
-                }
-                pi.saveAll(list); refreshInventario();
+                int id = inventarioModel.fila(table.convertRowIndexToModel(row)).getId();
+                consultar(() -> pi.obtenerPorId(id), oi -> oi.ifPresent(this::actualizarCantidad));
             } catch (NumberFormatException nfe) {
                 JOptionPane.showMessageDialog(this, "ID inválido. Debe ser un número.");
             } catch (IllegalArgumentException iae) {
@@ -474,20 +537,32 @@ public class MainGUI extends JFrame {
             try {
                 int row = table.getSelectedRow();
                 if (row<0) { JOptionPane.showMessageDialog(this, "Selecciona un item"); return; }
-                int id = Integer.parseInt(inventarioModel.getValueAt(row,0).toString());
-                var list = pi.obtenerTodos();
-                list.removeIf(it->it.getId()==id);
-                pi.saveAll(list); refreshInventario();
+                int id = inventarioModel.fila(table.convertRowIndexToModel(row)).getId();
+                ejecutar(() -> pi.eliminar(id), this::refreshInventario);
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
         });
 
         return p;
     }
 
+    private void actualizarCantidad(InventarioItem it) {
+        try {
+            String nuevaS = JOptionPane.showInputDialog(this, "Nueva cantidad:", it.getCantidad());
+            int nueva = validarCantidadInventario(nuevaS);
+            // Solo se reescribe ese item: lo que otros cambiaron mientras tanto se conserva
+            ejecutar(() -> pi.actualizarCantidad(it.getId(), nueva), this::refreshInventario);
+        } catch (NumberFormatException nfe) {
+            JOptionPane.showMessageDialog(this, "ID inválido. Debe ser un número.");
+        } catch (IllegalArgumentException iae) {
+            JOptionPane.showMessageDialog(this, "Error de validación: " + iae.getMessage());
+        } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage()); }
+    }
+
     // --------------------------
     // Refreshers
     // --------------------------
     private void refreshAll() {
+        // Las cinco cargas corren a la vez: el arranque tarda lo que el archivo mas lento
         refreshPacientes();
         refreshMedicos();
         refreshConsultas();
@@ -496,68 +571,290 @@ public class MainGUI extends JFrame {
     }
 
     private void refreshPacientes() {
-        try {
-            List<Paciente> list = pp.obtenerTodos();
-            pacientesModel.setRowCount(0);
-            for (Paciente p: list) pacientesModel.addRow(new Object[]{p.getId(), p.getNombre(), p.getEdad(), p.getTelefono() , p.getDireccion()});
-        } catch (Exception e) { JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()); }
+        cargarPaginada(pacientesModel, pp::obtenerPagina, "Error: ");
     }
 
     private void refreshFiltradoPacientes(String patron) {
-        try {
-            List<Paciente> filtrados = pp.buscarPorNombre(patron); // usa el patrón como filtro
-            pacientesModel.setRowCount(0); // limpia la tabla
+        // usa el patrón como filtro
+        cargarPaginada(pacientesModel, (despues, limite) -> pp.buscarPorNombre(patron, despues, limite), "Error al filtrar pacientes: ");
+    }
 
-            for (Paciente p : filtrados) {
-                pacientesModel.addRow(new Object[]{ p.getId(), p.getNombre(), p.getEdad(), p.getTelefono(), p.getDireccion() });
-           }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error al filtrar pacientes: " + e.getMessage());
-        }
+    // Busqueda mientras se escribe: texto literal, sin acentos ni mayusculas
+    private void refreshBusquedaPacientes(String texto) {
+        if (texto.isBlank()) refreshPacientes();
+        else cargarTabla(pacientesModel, () -> pp.buscarPorTexto(texto.trim()), "Error al filtrar pacientes: ");
     }
 
     private void refreshMedicos() {
-        try {
-            List<Doctor> list = pm.obtenerTodos();
-            medicosModel.setRowCount(0);
-            for (Doctor d: list) medicosModel.addRow(new Object[]{d.getId(), d.getNombre(), d.getEspecialidad()});
-        } catch (Exception e) { JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()); }
+        cargarPaginada(medicosModel, pm::obtenerPagina, "Error: ");
     }
 
     private void refreshConsultas() {
-        try {
-            var list = pc.obtenerTodos();
-            consultasModel.setRowCount(0);
-            for (Consulta c: list) consultasModel.addRow(new Object[]{c.getId(), c.getPacienteId(), c.getDoctorId(), c.getFecha(), c.getMotivo(), c.getNotas()});
-        } catch (Exception e) { JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()); }
+        cargarTabla(consultasModel, pc::tabla, consultasModel::setTabla, "Error: ");
     }
 
     private void refreshConsultasFiltradas(String patronFecha) {
-        try {
-            var list = pc.buscarConsultasPorFecha(patronFecha);
-            consultasModel.setRowCount(0);
-            for (Consulta c : list) {
-                consultasModel.addRow(new Object[]{ c.getId(), c.getPacienteId(), c.getDoctorId(), c.getFecha()});
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error al filtrar consultas: " + e.getMessage());
-        }
+        cargarTabla(consultasModel, () -> pc.tabla().buscarConsultasPorFecha(patronFecha), consultasModel::setTabla,
+                "Error al filtrar consultas: ");
     }
 
     private void refreshEquipos() {
-        try {
-            var list = pe.obtenerTodos();
-            equiposModel.setRowCount(0);
-            for (Equipo e: list) equiposModel.addRow(new Object[]{e.getId(), e.getNombre(), e.getDisponible(), e.getDescripcion()});
-        } catch (Exception e) { JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()); }
+        cargarPaginada(equiposModel, pe::obtenerPagina, "Error: ");
     }
 
     private void refreshInventario() {
+        cargarPaginada(inventarioModel, pi::obtenerPagina, "Error: ");
+        consultar(pi::totalesPorUnidad, totales -> {
+            StringBuilder sb = new StringBuilder("Totales:");
+            totales.forEach((unidad, total) -> sb.append("  ").append(total).append(' ').append(unidad.isEmpty() ? "(sin unidad)" : unidad));
+            totalesInventario.setText(totales.isEmpty() ? "Totales: -" : sb.toString());
+        });
+    }
+
+    // --------------------------
+    // Trabajo en segundo plano
+    // --------------------------
+    // La persistencia nunca se llama desde el EDT: cada operacion corre en un hilo virtual
+    // y el resultado vuelve al EDT en done()/process().
+
+    @FunctionalInterface
+    private interface Tarea<T> { T ejecutar() throws Exception; }
+
+    @FunctionalInterface
+    private interface Accion { void ejecutar() throws Exception; }
+
+    /** Corre la consulta fuera del EDT y entrega el resultado en el EDT. */
+    private <T> void consultar(Tarea<T> tarea, Consumer<T> alTerminar) {
+        iniciarTarea();
+        io.execute(new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return tarea.ejecutar();
+            }
+
+            @Override
+            protected void done() {
+                terminarTarea();
+                try {
+                    alTerminar.accept(get());
+                } catch (ExecutionException ex) {
+                    mostrarError(ex.getCause());
+                } catch (InterruptedException | CancellationException ex) {
+                    // cancelada: no hay nada que mostrar
+                } catch (RuntimeException ex) {
+                    mostrarError(ex);
+                }
+            }
+        });
+    }
+
+    // Los reportes muestran las primeras filas; el resto solo se cuenta (completo con Guardar)
+    private static final int FILAS_EN_PANTALLA = 1000;
+
+    /** Texto de las primeras FILAS_EN_PANTALLA filas; consume y cierra el stream. */
+    private static <T> String vistaPrevia(Stream<T> filas, Function<T, String> linea, String siVacio) {
+        StringBuilder sb = new StringBuilder();
+        long n = 0;
+        try (filas) {
+            for (Iterator<T> it = filas.iterator(); it.hasNext(); n++) {
+                T t = it.next();
+                if (n >= FILAS_EN_PANTALLA) continue;
+                if (n > 0) sb.append('\n');
+                sb.append(linea.apply(t));
+            }
+        }
+        if (n == 0) return siVacio;
+        if (n > FILAS_EN_PANTALLA) sb.append(masFilas(n - FILAS_EN_PANTALLA));
+        return sb.toString();
+    }
+
+    /**
+     * Muestra las primeras FILAS_EN_PANTALLA coincidencias en cuanto estan (la busqueda deja
+     * de recorrer ahi) y despues agrega cuantas mas hay, contadas aparte.
+     */
+    private <T> void mostrarBusqueda(Tarea<Busqueda<T>> busqueda, Function<T, String> linea, String siVacio, JTextArea area) {
+        consultar(busqueda, b -> consultar(() -> b.limite(FILAS_EN_PANTALLA).aLista(), primeras -> {
+            area.setText(primeras.isEmpty() ? siVacio : primeras.stream().map(linea).collect(Collectors.joining("\n")));
+            if (primeras.size() < FILAS_EN_PANTALLA) return;
+            consultar(b::contar, total -> {
+                if (total > FILAS_EN_PANTALLA) area.append(masFilas(total - FILAS_EN_PANTALLA));
+            });
+        }));
+    }
+
+    // Una linea por decada: "30-39: 120"; la ultima junta hasta 120
+    private static String distribucionPorDecada(int[] porEdad) {
+        StringBuilder sb = new StringBuilder("Pacientes por edad:");
+        long total = 0;
+        for (int desde = 0; desde < porEdad.length; desde += 10) {
+            int hasta = porEdad.length - desde <= 11 ? porEdad.length - 1 : desde + 9;
+            long n = 0;
+            for (int e = desde; e <= hasta; e++) n += porEdad[e];
+            sb.append('\n').append(desde).append('-').append(hasta).append(": ").append(n);
+            total += n;
+            if (hasta == porEdad.length - 1) break;
+        }
+        return sb.append("\nTotal: ").append(total).toString();
+    }
+
+    private static String masFilas(long n) {
+        return "\n... y " + n + " más (use Guardar para el reporte completo)";
+    }
+
+    /**
+     * Pide el archivo (.csv o .json) y exporta en segundo plano, a medida que se leen las
+     * filas: el reporte completo no pasa por la memoria.
+     */
+    private <T> void guardarReporte(String nombre, Exportador<T> exportador, Tarea<Stream<T>> filas) {
+        JFileChooser fc = new JFileChooser();
+        FileNameExtensionFilter csv = new FileNameExtensionFilter("CSV (*.csv)", Formato.CSV.getExtension());
+        fc.addChoosableFileFilter(csv);
+        fc.addChoosableFileFilter(new FileNameExtensionFilter("JSON (*.json)", Formato.JSON.getExtension()));
+        fc.setFileFilter(csv);
+        fc.setSelectedFile(new File(nombre + "." + Formato.CSV.getExtension()));
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path destino = fc.getSelectedFile().toPath();
+        if (!destino.getFileName().toString().contains(".") && fc.getFileFilter() instanceof FileNameExtensionFilter) {
+            destino = destino.resolveSibling(destino.getFileName() + "." + ((FileNameExtensionFilter) fc.getFileFilter()).getExtensions()[0]);
+        }
+        Formato formato;
         try {
-            var list = pi.obtenerTodos();
-            inventarioModel.setRowCount(0);
-            for (InventarioItem it: list) inventarioModel.addRow(new Object[]{it.getId(), it.getNombre(), it.getCantidad()});
-        } catch (Exception e) { JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()); }
+            formato = Formato.deArchivo(destino);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage());
+            return;
+        }
+        Path archivo = destino;
+        consultar(() -> exportador.exportar(filas.ejecutar(), formato, archivo),
+                n -> JOptionPane.showMessageDialog(this, n + " filas guardadas en " + archivo));
+    }
+
+    /** Corre una escritura fuera del EDT y, si termina bien, ejecuta luego en el EDT. */
+    private void ejecutar(Accion accion, Runnable luego) {
+        consultar(() -> { accion.ejecutar(); return null; }, r -> luego.run());
+    }
+
+    /**
+     * Guarda una edicion; si otro usuario cambio el registro mientras se editaba, avisa y
+     * recarga la tabla para que se vuelva a editar sobre los datos actuales.
+     */
+    private void guardarEdicion(Accion accion, Runnable recargar) {
+        consultar(() -> {
+            try {
+                accion.ejecutar();
+                return null;
+            } catch (ConflictoVersionException ex) {
+                return ex;
+            }
+        }, conflicto -> {
+            if (conflicto != null) {
+                JOptionPane.showMessageDialog(this, conflicto.getMessage() + ". Se recargan los datos; vuelve a editarlo.",
+                        "Conflicto de edicion", JOptionPane.WARNING_MESSAGE);
+            }
+            recargar.run();
+        });
+    }
+
+    /**
+     * Recarga la tabla en segundo plano. La lista cargada pasa tal cual al modelo (un solo
+     * evento); si llega otra carga para la misma tabla, la anterior se cancela.
+     */
+    private <T> void cargarTabla(ModeloTablaLista<T> modelo, Tarea<List<T>> carga, String prefijoError) {
+        cargarTabla(modelo, carga, filas -> {
+            siguientesPaginas.remove(modelo);
+            modelo.setFilas(filas);
+        }, prefijoError);
+    }
+
+    /**
+     * Carga la primera pagina; las siguientes se piden al acercarse al final de la tabla
+     * (conCargaAlDesplazar). La memoria crece con lo que se recorre, no con el archivo.
+     */
+    private <T> void cargarPaginada(ModeloTablaLista<T> modelo, Pagina.Paginador<T> paginador, String prefijoError) {
+        siguientesPaginas.remove(modelo);
+        cargarTabla(modelo, () -> paginador.pagina(null, FILAS_POR_PAGINA), pagina -> {
+            modelo.setFilas(new ArrayList<>(pagina.getFilas()));
+            prepararSiguiente(modelo, paginador, pagina, prefijoError);
+        }, prefijoError);
+    }
+
+    private <T> void prepararSiguiente(ModeloTablaLista<T> modelo, Pagina.Paginador<T> paginador, Pagina<T> pagina, String prefijoError) {
+        if (!pagina.hayMas()) { siguientesPaginas.remove(modelo); return; }
+        Pagina.Cursor cursor = pagina.getSiguiente();
+        siguientesPaginas.put(modelo, () -> cargarTabla(modelo, () -> paginador.pagina(cursor, FILAS_POR_PAGINA), siguiente -> {
+            modelo.agregarFilas(siguiente.getFilas());
+            prepararSiguiente(modelo, paginador, siguiente, prefijoError);
+        }, prefijoError));
+    }
+
+    // Pide la pagina siguiente cuando quedan pocas filas por ver y no hay otra carga de esa tabla
+    private JScrollPane conCargaAlDesplazar(JTable table) {
+        JScrollPane sp = new JScrollPane(table);
+        sp.getVerticalScrollBar().addAdjustmentListener(e -> {
+            BoundedRangeModel m = sp.getVerticalScrollBar().getModel();
+            if (m.getValue() + m.getExtent() < m.getMaximum() - table.getRowHeight() * FILAS_ANTES_DEL_FINAL) return;
+            if (cargas.containsKey(table.getModel())) return;
+            Runnable siguiente = siguientesPaginas.remove(table.getModel());
+            if (siguiente != null) siguiente.run();
+        });
+        return sp;
+    }
+
+    // Una carga pendiente por modelo: la nueva cancela la anterior
+    private <T> void cargarTabla(TableModel modelo, Tarea<T> carga, Consumer<T> aplicar, String prefijoError) {
+        iniciarTarea();
+        SwingWorker<T, Void> w = new SwingWorker<>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return carga.ejecutar();
+            }
+
+            @Override
+            protected void done() {
+                if (cargas.get(modelo) == this) cargas.remove(modelo);
+                terminarTarea();
+                if (isCancelled()) return;
+                try {
+                    aplicar.accept(get());
+                } catch (ExecutionException ex) {
+                    JOptionPane.showMessageDialog(MainGUI.this, prefijoError + ex.getCause().getMessage());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        SwingWorker<?, ?> anterior = cargas.put(modelo, w);
+        if (anterior != null) anterior.cancel(false);
+        io.execute(w);
+    }
+
+    private void mostrarError(Throwable ex) {
+        if (ex instanceof IllegalArgumentException && !(ex instanceof NumberFormatException)) {
+            JOptionPane.showMessageDialog(this, "Error de validación: " + ex.getMessage());
+        } else {
+            JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage());
+        }
+    }
+
+    // Barra de progreso: cuenta las tareas de la tanda actual (solo se toca desde el EDT)
+    private void iniciarTarea() {
+        tareasIniciadas++;
+        progreso.setMaximum(tareasIniciadas);
+        progreso.setValue(tareasTerminadas);
+        progreso.setString("Cargando datos (" + tareasTerminadas + "/" + tareasIniciadas + ")");
+        progreso.setVisible(true);
+    }
+
+    private void terminarTarea() {
+        tareasTerminadas++;
+        if (tareasTerminadas >= tareasIniciadas) {
+            tareasIniciadas = 0;
+            tareasTerminadas = 0;
+            progreso.setVisible(false);
+        } else {
+            progreso.setValue(tareasTerminadas);
+            progreso.setString("Cargando datos (" + tareasTerminadas + "/" + tareasIniciadas + ")");
+        }
     }
 
     // --------------------------
@@ -566,23 +863,34 @@ public class MainGUI extends JFrame {
     private JPanel buildBuscarPacientesPanel() {
         JPanel p = new JPanel(new BorderLayout());
         JTable table = new JTable(pacientesModel);
-        p.add(new JScrollPane(table), BorderLayout.CENTER);
+        table.setAutoCreateRowSorter(true);
+        p.add(conCargaAlDesplazar(table), BorderLayout.CENTER);
 
         JPanel top = new JPanel();
         JTextField txt = new JTextField(20);
         JButton btn = new JButton("Buscar");
-        top.add(new JLabel("Nombre (patrón):"));
+        top.add(new JLabel("Nombre:"));
         top.add(txt);
         top.add(btn);
         p.add(top, BorderLayout.NORTH);
 
+        // El boton acepta expresiones regulares; al escribir se busca el texto tal cual,
+        // esperando 200 ms sin teclear para no consultar en cada tecla
         btn.addActionListener(e -> refreshFiltradoPacientes(txt.getText()));
+        Timer espera = new Timer(200, e -> refreshBusquedaPacientes(txt.getText()));
+        espera.setRepeats(false);
+        txt.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { espera.restart(); }
+            @Override public void removeUpdate(DocumentEvent e) { espera.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { espera.restart(); }
+        });
         return p;
     }
 
     private JPanel buildBuscarConsultasPanel() {
         JPanel p = new JPanel(new BorderLayout());
         JTable table = new JTable(consultasModel);
+        table.setAutoCreateRowSorter(true);
         p.add(new JScrollPane(table), BorderLayout.CENTER);
 
         JPanel top = new JPanel();
@@ -597,7 +905,12 @@ public class MainGUI extends JFrame {
         return p;
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // Modo sin interfaz: solo el servidor HTTP sobre los mismos datos
+        if (Arrays.asList(args).contains("--servidor")) {
+            ServidorHttp.main(args);
+            return;
+        }
         SwingUtilities.invokeLater(()->{
             new MainGUI().setVisible(true);
         });
@@ -613,41 +926,55 @@ public class MainGUI extends JFrame {
         JPanel pPacientes = new JPanel(new BorderLayout());
         pPacientes.setBorder(BorderFactory.createTitledBorder("1. Pacientes (Lambda Propia + Predicate)"));
         
-        JPanel pPacControles = new JPanel(new GridLayout(3, 2));
+        JPanel pPacControles = new JPanel(new GridLayout(4, 2));
         JTextField txtEdad = new JTextField();
         JTextField txtDir = new JTextField();
         JButton btnFiltrarPac = new JButton("Filtrar (Edad y Dir)");
+        JButton btnGuardarPac = new JButton("Guardar...");
+        JButton btnEdades = new JButton("Distribución por Edad");
         
         pPacControles.add(new JLabel("Edad Mínima:")); pPacControles.add(txtEdad);
         pPacControles.add(new JLabel("Dirección (contiene):")); pPacControles.add(txtDir);
-        pPacControles.add(new JLabel("")); pPacControles.add(btnFiltrarPac);
+        pPacControles.add(btnGuardarPac); pPacControles.add(btnFiltrarPac);
+        pPacControles.add(btnEdades); pPacControles.add(new JLabel());
         
         JTextArea txtResPacientes = new JTextArea(); // Usamos area de texto para ver resultados rápido
         pPacientes.add(pPacControles, BorderLayout.NORTH);
         pPacientes.add(new JScrollPane(txtResPacientes), BorderLayout.CENTER);
 
-        btnFiltrarPac.addActionListener(e -> {
+        // El mismo criterio sirve para ver (con los indices) y para guardar (leyendo de a una pagina)
+        Supplier<Criterio<Paciente>> criterioPacientes = () -> {
             try {
                 int edadMin = txtEdad.getText().isEmpty() ? 0 : Integer.parseInt(txtEdad.getText());
-                String dirBuscar = txtDir.getText().toLowerCase();
+                String dirBuscar = txtDir.getText().trim();
                 
                 // 1. Uso de la Interfaz Funcional Personalizada (Requisito)
                 FiltroEdad criterioEdad = (p, edad) -> p.getEdad() >= edad;
                 
-                // 2. Uso de Predicate estándar
-                Predicate<Paciente> criterioDireccion = p -> 
-                    dirBuscar.isEmpty() || p.getDireccion().toLowerCase().contains(dirBuscar);
-                
-                // 3. Stream Filter + Collect
-                var listaFiltrada = pp.obtenerTodos().stream()
-                    .filter(p -> criterioEdad.validar(p, edadMin)) // Usa interfaz propia
-                    .filter(criterioDireccion)                     // Usa Predicate
-                    .map(Paciente::toString)                       // Transformar a String
-                    .collect(Collectors.joining("\n"));            // Unir con saltos de linea
-                
-                txtResPacientes.setText(listaFiltrada.isEmpty() ? "No hay coincidencias" : listaFiltrada);
+                // 2. La lambda es opaca para la persistencia: se declara ademas la edad como
+                //    rango, asi el indice de edades elige los candidatos y la lambda los confirma
+                Criterio<Paciente> criterio = Campos.PACIENTE_EDAD.desde(edadMin).y(criterioEdad.conEdad(edadMin));
                 
-            } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Error en datos: " + ex.getMessage()); }
+                // 3. Combinado con la direccion (sin distinguir acentos ni mayusculas)
+                return dirBuscar.isEmpty() ? criterio : criterio.y(Campos.PACIENTE_DIRECCION.contiene(dirBuscar));
+            } catch (Exception ex) {
+                JOptionPane.showMessageDialog(this, "Error en datos: " + ex.getMessage());
+                return null;
+            }
+        };
+
+        btnFiltrarPac.addActionListener(e -> {
+            Criterio<Paciente> criterio = criterioPacientes.get();
+            if (criterio == null) return;
+            mostrarBusqueda(() -> pp.buscar(criterio), Paciente::toString, "No hay coincidencias", txtResPacientes);
+        });
+        // El histograma se mantiene con cada escritura: no se recorre ningun paciente
+        btnEdades.addActionListener(e -> consultar(pp::histogramaEdades,
+                histograma -> txtResPacientes.setText(distribucionPorDecada(histograma))));
+        btnGuardarPac.addActionListener(e -> {
+            Criterio<Paciente> criterio = criterioPacientes.get();
+            if (criterio != null) guardarReporte("pacientes", Exportaciones.pacientes(),
+                    () -> Pagina.recorrer(pp::obtenerPagina, FILAS_POR_PAGINA).filter(criterio));
         });
 
         // --- CUADRANTE 2: MÉDICOS (Ordenar y Filtrar) ---
@@ -657,74 +984,82 @@ public class MainGUI extends JFrame {
         JPanel pMedControles = new JPanel();
         JTextField txtEsp = new JTextField(10);
         JButton btnMedicos = new JButton("Filtrar y Ordenar");
+        JButton btnGuardarMed = new JButton("Guardar...");
         pMedControles.add(new JLabel("Especialidad:")); pMedControles.add(txtEsp); pMedControles.add(btnMedicos);
+        pMedControles.add(btnGuardarMed);
         
         JTextArea txtResMedicos = new JTextArea();
         pMedicos.add(pMedControles, BorderLayout.NORTH);
         pMedicos.add(new JScrollPane(txtResMedicos), BorderLayout.CENTER);
         
-        btnMedicos.addActionListener(e -> {
-            try {
-                String esp = txtEsp.getText().toLowerCase();
-                var resultado = pm.obtenerTodos().stream()
-                        .filter(d -> esp.isEmpty() || d.getEspecialidad().toLowerCase().contains(esp)) // Filtro
-                        .sorted(Comparator.comparing(Doctor::getEspecialidad)
-                                .thenComparing(Doctor::getNombre)) // Ordenamiento doble (Esp luego Nombre)
-                        .map(Doctor::toString)
-                        .collect(Collectors.joining("\n"));
-                
-                txtResMedicos.setText(resultado.isEmpty() ? "No encontrados" : resultado);
-            } catch (IOException ex) {
-                Logger.getLogger(MainGUI.class.getName()).log(Level.SEVERE, null, ex);
-            }
+        // Para ordenar hace falta ver todas las coincidencias; se busca sobre la cache.
+        // La especialidad se lee en el EDT y la tarea trabaja con el valor capturado
+        Function<String, Tarea<Busqueda<Doctor>>> medicosOrdenados = especialidad -> {
+            String esp = especialidad.toLowerCase();
+            return () -> Busqueda.sobre(medicosEnCache.todos())
+                        .donde(d -> esp.isEmpty() || d.getEspecialidad().toLowerCase().contains(esp)) // Filtro
+                        .ordenadaPor(Comparator.comparing(Doctor::getEspecialidad)
+                                .thenComparing(Doctor::getNombre)); // Ordenamiento doble (Esp luego Nombre)
+        };
+        btnMedicos.addActionListener(e -> mostrarBusqueda(medicosOrdenados.apply(txtEsp.getText()),
+                Doctor::toString, "No encontrados", txtResMedicos));
+        btnGuardarMed.addActionListener(e -> {
+            Tarea<Busqueda<Doctor>> medicos = medicosOrdenados.apply(txtEsp.getText());
+            guardarReporte("medicos", Exportaciones.medicos(), () -> medicos.ejecutar().stream());
         });
 
         // --- CUADRANTE 3: EQUIPOS (Reportes, Map, Suma) ---
         JPanel pEquipos = new JPanel(new BorderLayout());
         pEquipos.setBorder(BorderFactory.createTitledBorder("3. Equipos (Reporte & Stocks)"));
         
-        JPanel pEqTop = new JPanel(new GridLayout(2, 2));
+        JPanel pEqTop = new JPanel(new GridLayout(3, 2));
         JTextField txtUmbral = new JTextField("5");
         JButton btnBajoStock = new JButton("Buscar Bajo Stock");
         JButton btnReporte = new JButton("Generar Reporte Completo");
+        JButton btnGuardarBajo = new JButton("Guardar Bajo Stock...");
+        JButton btnGuardarReporte = new JButton("Guardar Reporte...");
         JLabel lblTotalStock = new JLabel("Total Items: -");
         
         pEqTop.add(new JLabel("Umbral Stock:")); pEqTop.add(txtUmbral);
         pEqTop.add(btnBajoStock); pEqTop.add(btnReporte);
+        pEqTop.add(btnGuardarBajo); pEqTop.add(btnGuardarReporte);
         
         JTextArea txtResEquipos = new JTextArea();
         pEquipos.add(pEqTop, BorderLayout.NORTH);
         pEquipos.add(new JScrollPane(txtResEquipos), BorderLayout.CENTER);
         pEquipos.add(lblTotalStock, BorderLayout.SOUTH);
         
-        btnBajoStock.addActionListener(e -> {
+        // Los bajo stock salen del agregado de la persistencia (solo los que cumplen, de menor a mayor)
+        Supplier<Integer> umbralStock = () -> {
             try {
-                int umbral = Integer.parseInt(txtUmbral.getText());
-                String bajos = pe.obtenerTodos().stream()
-                    .filter(eq -> eq.getDisponible() < umbral)
-                    .map(eq -> "ALERTA: " + eq.getNombre() + " (Quedan: " + eq.getDisponible() + ")")
-                    .collect(Collectors.joining("\n"));
-                txtResEquipos.setText(bajos.isEmpty() ? "Todos los stocks están bien." : bajos);
-            } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Número inválido"); }
+                return Integer.parseInt(txtUmbral.getText());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "Número inválido");
+                return null;
+            }
+        };
+        btnBajoStock.addActionListener(e -> {
+            Integer umbral = umbralStock.get();
+            if (umbral == null) return;
+            consultar(() -> vistaPrevia(pe.obtenerBajoStock(umbral).stream(),
+                    eq -> "ALERTA: " + eq.getNombre() + " (Quedan: " + eq.getDisponible() + ")",
+                    "Todos los stocks están bien."), txtResEquipos::setText);
+        });
+        btnGuardarBajo.addActionListener(e -> {
+            Integer umbral = umbralStock.get();
+            if (umbral != null) guardarReporte("equipos-bajo-stock", Exportaciones.equipos(), () -> pe.obtenerBajoStock(umbral).stream());
         });
         
         btnReporte.addActionListener(e -> {
-            try {
-                // A. Generar texto (Map)
-                String reporte = pe.obtenerTodos().stream()
-                        .map(eq -> "Equipo: " + eq.getNombre() + " | Disponibles: " + eq.getDisponible()) // Transformación
-                        .collect(Collectors.joining("\n"));
-                txtResEquipos.setText("--- REPORTE GENERAL ---\n" + reporte);
-                
-                // B. Calcular Suma Total (MapToInt + Sum)
-                int total = pe.obtenerTodos().stream()
-                        .mapToInt(proyecto.model.Equipo::getDisponible) // Extraer entero
-                        .sum(); // Sumar
-                lblTotalStock.setText("Stock Total en Almacén: " + total + " unidades.");
-            } catch (IOException ex) {
-                Logger.getLogger(MainGUI.class.getName()).log(Level.SEVERE, null, ex);
-            }
+            // A. Texto (Map), leido de a una pagina
+            consultar(() -> "--- REPORTE GENERAL ---\n" + vistaPrevia(Pagina.recorrer(pe::obtenerPagina, FILAS_POR_PAGINA),
+                    eq -> "Equipo: " + eq.getNombre() + " | Disponibles: " + eq.getDisponible(), ""), // Transformación
+                txtResEquipos::setText);
+            // B. Suma Total: mantenida por la persistencia en cada escritura
+            consultar(pe::getStockTotal, total -> lblTotalStock.setText("Stock Total en Almacén: " + total + " unidades."));
         });
+        btnGuardarReporte.addActionListener(e -> guardarReporte("equipos", Exportaciones.equipos(),
+                () -> Pagina.recorrer(pe::obtenerPagina, FILAS_POR_PAGINA)));
 
         // --- CUADRANTE 4: CONSULTAS (Rango Fechas) ---
         JPanel pConsultas = new JPanel(new BorderLayout());
@@ -734,10 +1069,11 @@ public class MainGUI extends JFrame {
         JTextField txtInicio = new JTextField("2023-01-01");
         JTextField txtFin = new JTextField("2025-12-31");
         JButton btnBuscarCons = new JButton("Buscar en Rango");
+        JButton btnGuardarCons = new JButton("Guardar...");
         
         pConsTop.add(new JLabel("Inicio (YYYY-MM-DD):")); pConsTop.add(txtInicio);
         pConsTop.add(new JLabel("Fin (YYYY-MM-DD):")); pConsTop.add(txtFin);
-        pConsTop.add(new JLabel("")); pConsTop.add(btnBuscarCons);
+        pConsTop.add(btnGuardarCons); pConsTop.add(btnBuscarCons);
         
         JTextArea txtResConsultas = new JTextArea();
         pConsultas.add(pConsTop, BorderLayout.NORTH);
@@ -749,19 +1085,33 @@ public class MainGUI extends JFrame {
                 java.time.LocalDate fInicio = java.time.LocalDate.parse(txtInicio.getText());
                 java.time.LocalDate fFin = java.time.LocalDate.parse(txtFin.getText());
                 
-                String res = pc.obtenerTodos().stream()
-                    .filter(c -> {
-                        java.time.LocalDate fConsulta = c.getFecha().toLocalDate();
-                        // Lógica: No antes del inicio Y no después del fin
-                        return !fConsulta.isBefore(fInicio) && !fConsulta.isAfter(fFin);
-                    })
-                    .map(c -> "Consulta ID: " + c.getId() + " - Fecha: " + c.getFecha())
-                    .collect(Collectors.joining("\n"));
-                
-                txtResConsultas.setText(res.isEmpty() ? "Sin consultas en ese rango" : res);
+                // Lógica: No antes del inicio Y no después del fin (filtrado en la persistencia)
+                consultar(() -> {
+                        TablaConsultas enRango = pc.tabla().buscarConsultasEnRango(fInicio, fFin);
+                        StringBuilder sb = new StringBuilder();
+                        int mostradas = Math.min(enRango.filas(), FILAS_EN_PANTALLA);
+                        for (int i = 0; i < mostradas; i++) {
+                            if (i > 0) sb.append('\n');
+                            sb.append("Consulta ID: ").append(enRango.id(i)).append(" - Fecha: ").append(enRango.fecha(i));
+                        }
+                        if (enRango.filas() > mostradas) sb.append(masFilas(enRango.filas() - mostradas));
+                        return sb.toString();
+                    },
+                    res -> txtResConsultas.setText(res.isEmpty() ? "Sin consultas en ese rango" : res));
                 
             } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Formato fecha incorrecto (use YYYY-MM-DD)"); }
         });
+        btnGuardarCons.addActionListener(e -> {
+            java.time.LocalDate fInicio, fFin;
+            try {
+                fInicio = java.time.LocalDate.parse(txtInicio.getText());
+                fFin = java.time.LocalDate.parse(txtFin.getText());
+            } catch (Exception ex) { JOptionPane.showMessageDialog(this, "Formato fecha incorrecto (use YYYY-MM-DD)"); return; }
+            // Se recorre el archivo en lugar de la tabla: no hace falta cargar la historia completa
+            LocalDateTime desde = fInicio.atStartOfDay(), hasta = fFin.plusDays(1).atStartOfDay();
+            guardarReporte("consultas", Exportaciones.consultas(), () -> pc.stream()
+                    .filter(c -> c.getFecha() != null && !c.getFecha().isBefore(desde) && c.getFecha().isBefore(hasta)));
+        });
 
         // Agregar todo al panel principal
         mainPanel.add(pPacientes);
@@ -0,0 +1,48 @@
+package proyecto.app;
+
+import proyecto.persistence.TablaConsultas;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDateTime;
+
+/**
+ * Modelo de tabla sobre una TablaConsultas: cada celda se lee de las columnas al
+ * pintarla, sin crear un Consulta por fila.
+ */
+public class ModeloTablaConsultas extends AbstractTableModel {
+    private static final String[] NOMBRES = {"ID", "Paciente", "Doctor", "Fecha", "Motivo", "Notas"};
+    private static final Class<?>[] TIPOS = {Integer.class, Integer.class, Integer.class, LocalDateTime.class, String.class, String.class};
+    private TablaConsultas tabla = new TablaConsultas.Constructor().construir();
+
+    /** Reemplaza los datos; dispara un unico evento. */
+    public void setTabla(TablaConsultas tabla) {
+        this.tabla = tabla == null ? new TablaConsultas.Constructor().construir() : tabla;
+        fireTableDataChanged();
+    }
+
+    public TablaConsultas getTabla() { return tabla; }
+
+    @Override
+    public int getRowCount() { return tabla.filas(); }
+
+    @Override
+    public int getColumnCount() { return NOMBRES.length; }
+
+    @Override
+    public String getColumnName(int columna) { return NOMBRES[columna]; }
+
+    @Override
+    public Class<?> getColumnClass(int columna) { return TIPOS[columna]; }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        switch (columna) {
+            case 0: return tabla.id(fila);
+            case 1: return tabla.pacienteId(fila);
+            case 2: return tabla.doctorId(fila);
+            case 3: return tabla.fecha(fila);
+            case 4: return tabla.motivo(fila);
+            default: return tabla.notas(fila);
+        }
+    }
+}
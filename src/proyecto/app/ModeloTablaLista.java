@@ -0,0 +1,64 @@
+package proyecto.app;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Modelo de tabla respaldado directamente por la lista de entidades cargada.
+ * No copia los datos a filas de Object[]: cada celda se calcula al pintarla, asi que
+ * JTable solo pide las filas visibles. Reemplazar la lista dispara un unico evento.
+ */
+public class ModeloTablaLista<T> extends AbstractTableModel {
+    private final List<String> nombres = new ArrayList<>();
+    private final List<Class<?>> tipos = new ArrayList<>();
+    private final List<Function<T, ?>> valores = new ArrayList<>();
+    private List<T> filas = Collections.emptyList();
+
+    /** Agrega una columna; el tipo se usa para ordenar y alinear (Integer ordena como numero). */
+    public ModeloTablaLista<T> columna(String nombre, Class<?> tipo, Function<T, ?> valor) {
+        nombres.add(nombre);
+        tipos.add(tipo);
+        valores.add(valor);
+        return this;
+    }
+
+    /** Reemplaza los datos sin copiarlos. */
+    public void setFilas(List<T> filas) {
+        this.filas = filas == null ? Collections.emptyList() : filas;
+        fireTableDataChanged();
+    }
+
+    /** Agrega filas al final (carga por paginas) con un solo evento. */
+    public void agregarFilas(List<T> nuevas) {
+        if (nuevas.isEmpty()) return;
+        if (!(filas instanceof ArrayList)) filas = new ArrayList<>(filas);
+        int desde = filas.size();
+        filas.addAll(nuevas);
+        fireTableRowsInserted(desde, filas.size() - 1);
+    }
+
+    public List<T> getFilas() { return filas; }
+
+    /** Entidad en la fila del modelo (usar convertRowIndexToModel si la tabla esta ordenada). */
+    public T fila(int fila) { return filas.get(fila); }
+
+    @Override
+    public int getRowCount() { return filas.size(); }
+
+    @Override
+    public int getColumnCount() { return nombres.size(); }
+
+    @Override
+    public String getColumnName(int columna) { return nombres.get(columna); }
+
+    @Override
+    public Class<?> getColumnClass(int columna) { return tipos.get(columna); }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        return valores.get(columna).apply(filas.get(fila));
+    }
+}
@@ -0,0 +1,191 @@
+package proyecto.busqueda;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Busqueda sobre filas en memoria (p.ej. CacheEntidades.todos()): criterios combinados con
+ * Y, orden y limite opcionales. Es inmutable; cada metodo devuelve otra busqueda.
+ *
+ *   Busqueda.sobre(pacientes).donde(filtroEdad.conEdad(30)).donde(p -> ...).limite(100).stream()
+ *
+ * Decide sola si recorrer en paralelo (en el pool fork-join comun): con menos de
+ * UMBRAL_PARALELO filas, o un solo procesador, repartir cuesta mas de lo que se gana.
+ *
+ * Sin orden, el stream es perezoso y respeta el orden de las filas: en paralelo se filtra
+ * por tramos, cada tramo repartido entre los hilos, y sus coincidencias se entregan antes
+ * de empezar el siguiente. Los tramos empiezan chicos y crecen, asi las primeras
+ * coincidencias llegan enseguida aunque haya millones de filas, y con limite se deja de
+ * recorrer en cuanto se juntan. Con orden hace falta ver todas las filas antes de
+ * entregar la primera.
+ */
+public final class Busqueda<T> {
+    /** Filas a partir de las cuales se recorre en paralelo. */
+    public static final int UMBRAL_PARALELO = 50_000;
+    private static final int PRIMER_TRAMO = 4_096;
+    private static final int TRAMO_MAXIMO = 1 << 18;
+
+    private final List<T> filas;
+    private final Predicate<? super T> criterio;
+    private final Comparator<? super T> orden;
+    private final long limite;
+    // null: segun la cantidad de filas
+    private final Boolean paralela;
+
+    private Busqueda(List<T> filas, Predicate<? super T> criterio, Comparator<? super T> orden, long limite, Boolean paralela) {
+        this.filas = filas;
+        this.criterio = criterio;
+        this.orden = orden;
+        this.limite = limite;
+        this.paralela = paralela;
+    }
+
+    /** Busqueda sobre las filas dadas, que no deben cambiar mientras se recorren. */
+    public static <T> Busqueda<T> sobre(List<T> filas) {
+        // Los tramos se recorren por indice
+        List<T> accesibles = filas instanceof RandomAccess ? filas : new ArrayList<>(filas);
+        return new Busqueda<>(accesibles, null, null, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Busqueda sobre filas que se crean al pedirlas (p.ej. copias o filas de una tabla por
+     * columnas): solo se crean las que se llegan a evaluar.
+     */
+    public static <T> Busqueda<T> sobre(int filas, IntFunction<? extends T> fila) {
+        if (filas < 0) throw new IllegalArgumentException("Cantidad de filas negativa");
+        return new Busqueda<>(new Vista<>(filas, fila), null, null, Long.MAX_VALUE, null);
+    }
+
+    /** Agrega un criterio; la fila tiene que cumplir todos. */
+    public Busqueda<T> donde(Predicate<? super T> otro) {
+        Objects.requireNonNull(otro);
+        Predicate<? super T> previo = criterio;
+        Predicate<T> ambos = previo == null ? otro::test : t -> previo.test(t) && otro.test(t);
+        return new Busqueda<>(filas, ambos, orden, limite, paralela);
+    }
+
+    /** Orden del resultado; sin orden se respeta el de las filas. */
+    public Busqueda<T> ordenadaPor(Comparator<? super T> comparador) {
+        return new Busqueda<>(filas, criterio, Objects.requireNonNull(comparador), limite, paralela);
+    }
+
+    /** Cuantas filas entregar como maximo. */
+    public Busqueda<T> limite(long maximo) {
+        if (maximo < 0) throw new IllegalArgumentException("El limite no puede ser negativo");
+        return new Busqueda<>(filas, criterio, orden, maximo, paralela);
+    }
+
+    /** Fuerza el recorrido en paralelo (true) o secuencial (false) en lugar de decidirlo. */
+    public Busqueda<T> paralela(boolean enParalelo) {
+        return new Busqueda<>(filas, criterio, orden, limite, enParalelo);
+    }
+
+    /** Si se va a recorrer en paralelo. */
+    public boolean esParalela() {
+        if (paralela != null) return paralela;
+        return filas.size() >= UMBRAL_PARALELO && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Las filas que cumplen los criterios. No se recorre nada hasta que se consume el
+     * stream, y solo lo necesario para lo que se consume.
+     */
+    public Stream<T> stream() {
+        if (orden != null) {
+            // El orden necesita todas las coincidencias; se calcula al empezar a consumir
+            return StreamSupport.stream(() -> ordenadas().spliterator(), Spliterator.ORDERED | Spliterator.SIZED, false);
+        }
+        if (!esParalela()) return limitar(filtrar(filas.stream()));
+        Iterator<T> porTramos = new PorTramos();
+        return limitar(StreamSupport.stream(Spliterators.spliteratorUnknownSize(porTramos, Spliterator.ORDERED), false));
+    }
+
+    /** Cuantas filas cumplen los criterios (hasta el limite). */
+    public long contar() {
+        Stream<T> s = esParalela() ? filas.parallelStream() : filas.stream();
+        return limitar(filtrar(s)).count();
+    }
+
+    /** El resultado completo como lista. */
+    public List<T> aLista() {
+        try (Stream<T> s = stream()) {
+            return s.collect(Collectors.toList());
+        }
+    }
+
+    private List<T> ordenadas() {
+        Stream<T> s = esParalela() ? filas.parallelStream() : filas.stream();
+        return Collections.unmodifiableList(limitar(filtrar(s).sorted(orden)).collect(Collectors.toList()));
+    }
+
+    private Stream<T> filtrar(Stream<T> s) {
+        return criterio == null ? s : s.filter(criterio);
+    }
+
+    private Stream<T> limitar(Stream<T> s) {
+        return limite == Long.MAX_VALUE ? s : s.limit(limite);
+    }
+
+    // Coincidencias de cada tramo, filtrado en paralelo, en el orden de las filas
+    private final class PorTramos implements Iterator<T> {
+        private int inicio;
+        private int tramo = PRIMER_TRAMO;
+        private int[] encontradas = new int[0];
+        private int siguiente;
+
+        @Override
+        public boolean hasNext() {
+            while (siguiente == encontradas.length) {
+                if (inicio >= filas.size()) return false;
+                int fin = (int) Math.min(filas.size(), (long) inicio + tramo);
+                encontradas = criterio == null ? IntStream.range(inicio, fin).toArray()
+                        : IntStream.range(inicio, fin).parallel().filter(i -> criterio.test(filas.get(i))).toArray();
+                siguiente = 0;
+                inicio = fin;
+                tramo = Math.min(TRAMO_MAXIMO, tramo * 2);
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return filas.get(encontradas[siguiente++]);
+        }
+    }
+
+    private static final class Vista<T> extends AbstractList<T> implements RandomAccess {
+        private final int filas;
+        private final IntFunction<? extends T> fila;
+
+        Vista(int filas, IntFunction<? extends T> fila) {
+            this.filas = filas;
+            this.fila = fila;
+        }
+
+        @Override
+        public T get(int i) {
+            if (i < 0 || i >= filas) throw new IndexOutOfBoundsException("Fila " + i + " de " + filas);
+            return fila.apply(i);
+        }
+
+        @Override
+        public int size() { return filas; }
+    }
+}
@@ -0,0 +1,75 @@
+package proyecto.busqueda;
+
+import java.util.function.Function;
+
+/**
+ * Campo de una entidad por el que se puede filtrar: un nombre y como leerlo de la fila.
+ * Arma los criterios de comparacion; los campos conocidos estan en Campos y la
+ * persistencia los reconoce (por identidad) para usar sus indices.
+ */
+public final class Campo<T, V extends Comparable<? super V>> {
+    private final String nombre;
+    private final Function<? super T, ? extends V> valor;
+
+    private Campo(String nombre, Function<? super T, ? extends V> valor) {
+        this.nombre = nombre;
+        this.valor = valor;
+    }
+
+    public static <T, V extends Comparable<? super V>> Campo<T, V> de(String nombre, Function<? super T, ? extends V> valor) {
+        if (nombre == null || valor == null) throw new IllegalArgumentException("El campo necesita nombre y valor");
+        return new Campo<>(nombre, valor);
+    }
+
+    public String getNombre() { return nombre; }
+
+    /** Valor del campo en la fila (puede ser null). */
+    public V valor(T fila) { return valor.apply(fila); }
+
+    public Criterio<T> igual(V v) {
+        return new Criterio.Rango<>(this, requerido(v), true, v, true);
+    }
+
+    /** desde <= valor <= hasta. */
+    public Criterio<T> entre(V desde, V hasta) {
+        return new Criterio.Rango<>(this, requerido(desde), true, requerido(hasta), true);
+    }
+
+    /** valor >= v. */
+    public Criterio<T> desde(V v) {
+        return new Criterio.Rango<>(this, requerido(v), true, null, false);
+    }
+
+    /** valor > v. */
+    public Criterio<T> mayorQue(V v) {
+        return new Criterio.Rango<>(this, requerido(v), false, null, false);
+    }
+
+    /** valor <= v. */
+    public Criterio<T> hasta(V v) {
+        return new Criterio.Rango<>(this, null, false, requerido(v), true);
+    }
+
+    /** valor < v. */
+    public Criterio<T> menorQue(V v) {
+        return new Criterio.Rango<>(this, null, false, requerido(v), false);
+    }
+
+    /** El texto del campo empieza con el dado (sin distinguir acentos ni mayusculas). */
+    public Criterio<T> empiezaCon(String texto) {
+        return new Criterio.Texto<>(this, requerido(texto), true);
+    }
+
+    /** El texto del campo contiene el dado (sin distinguir acentos ni mayusculas). */
+    public Criterio<T> contiene(String texto) {
+        return new Criterio.Texto<>(this, requerido(texto), false);
+    }
+
+    private <X> X requerido(X v) {
+        if (v == null) throw new IllegalArgumentException("Falta el valor para comparar " + nombre);
+        return v;
+    }
+
+    @Override
+    public String toString() { return nombre; }
+}
@@ -0,0 +1,48 @@
+package proyecto.busqueda;
+
+import proyecto.model.Consulta;
+import proyecto.model.Doctor;
+import proyecto.model.Equipo;
+import proyecto.model.InventarioItem;
+import proyecto.model.Paciente;
+
+import java.time.LocalDateTime;
+
+/**
+ * Campos de las entidades del modelo para armar criterios. La persistencia usa un indice
+ * cuando el criterio acota alguno de estos:
+ *   pacientes: id, edad, nombre (prefijo o contiene)
+ *   consultas: id, paciente, doctor, fecha
+ *   equipos / inventario: id y un tope de disponibles / cantidad
+ * Los demas se evaluan fila por fila.
+ */
+public final class Campos {
+    private Campos() {}
+
+    public static final Campo<Paciente, Integer> PACIENTE_ID = Campo.de("id", Paciente::getId);
+    public static final Campo<Paciente, String> PACIENTE_NOMBRE = Campo.de("nombre", Paciente::getNombre);
+    public static final Campo<Paciente, String> PACIENTE_DIRECCION = Campo.de("direccion", Paciente::getDireccion);
+    public static final Campo<Paciente, Integer> PACIENTE_EDAD = Campo.de("edad", Paciente::getEdad);
+    public static final Campo<Paciente, String> PACIENTE_TELEFONO = Campo.de("telefono", Paciente::getTelefono);
+
+    public static final Campo<Doctor, Integer> MEDICO_ID = Campo.de("id", Doctor::getId);
+    public static final Campo<Doctor, String> MEDICO_NOMBRE = Campo.de("nombre", Doctor::getNombre);
+    public static final Campo<Doctor, String> MEDICO_ESPECIALIDAD = Campo.de("especialidad", Doctor::getEspecialidad);
+
+    public static final Campo<Consulta, Integer> CONSULTA_ID = Campo.de("id", Consulta::getId);
+    public static final Campo<Consulta, Integer> CONSULTA_PACIENTE = Campo.de("paciente", Consulta::getPacienteId);
+    public static final Campo<Consulta, Integer> CONSULTA_DOCTOR = Campo.de("doctor", Consulta::getDoctorId);
+    public static final Campo<Consulta, LocalDateTime> CONSULTA_FECHA = Campo.de("fecha", Consulta::getFecha);
+    public static final Campo<Consulta, String> CONSULTA_MOTIVO = Campo.de("motivo", Consulta::getMotivo);
+    public static final Campo<Consulta, String> CONSULTA_NOTAS = Campo.de("notas", Consulta::getNotas);
+
+    public static final Campo<Equipo, Integer> EQUIPO_ID = Campo.de("id", Equipo::getId);
+    public static final Campo<Equipo, String> EQUIPO_NOMBRE = Campo.de("nombre", Equipo::getNombre);
+    public static final Campo<Equipo, String> EQUIPO_DESCRIPCION = Campo.de("descripcion", Equipo::getDescripcion);
+    public static final Campo<Equipo, Integer> EQUIPO_DISPONIBLE = Campo.de("disponible", Equipo::getDisponible);
+
+    public static final Campo<InventarioItem, Integer> INVENTARIO_ID = Campo.de("id", InventarioItem::getId);
+    public static final Campo<InventarioItem, String> INVENTARIO_NOMBRE = Campo.de("nombre", InventarioItem::getNombre);
+    public static final Campo<InventarioItem, Integer> INVENTARIO_CANTIDAD = Campo.de("cantidad", InventarioItem::getCantidad);
+    public static final Campo<InventarioItem, String> INVENTARIO_UNIDAD = Campo.de("unidad", InventarioItem::getUnidad);
+}
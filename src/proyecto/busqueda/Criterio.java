@@ -0,0 +1,294 @@
+package proyecto.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Criterio de busqueda declarativo: comparaciones sobre campos (ver Campo y Campos)
+ * combinadas con y/o. Se evalua como cualquier Predicate, pero como se sabe de que esta
+ * hecho, la persistencia puede mirarlo antes de recorrer: si fija el id o un rango de un
+ * campo indexado parte del indice y evalua el criterio completo solo sobre esas filas.
+ *
+ *   Criterio<Paciente> c = Campos.PACIENTE_EDAD.desde(60).y(Campos.PACIENTE_DIRECCION.contiene("centro"));
+ *   pp.buscar(c).limite(100).aLista();
+ *
+ * Un Predicate cualquiera entra con Criterio.de(...): filtra igual, pero esa parte no se
+ * puede resolver con un indice. Los criterios son inmutables.
+ */
+public abstract class Criterio<T> implements Predicate<T> {
+
+    Criterio() {}
+
+    /** Criterio opaco: se evalua fila por fila, sin indices. */
+    public static <T> Criterio<T> de(Predicate<? super T> predicado) {
+        if (predicado == null) throw new IllegalArgumentException("Falta el predicado");
+        if (predicado instanceof Criterio) {
+            @SuppressWarnings("unchecked")
+            Criterio<T> c = (Criterio<T>) predicado;
+            return c;
+        }
+        return new Libre<>(predicado);
+    }
+
+    /** Tiene que cumplir este y el otro. */
+    public Criterio<T> y(Criterio<T> otro) {
+        if (otro == null) throw new IllegalArgumentException("Falta el criterio");
+        List<Criterio<T>> partes = new ArrayList<>(terminos());
+        partes.addAll(otro.terminos());
+        return new Y<>(partes);
+    }
+
+    /** Tiene que cumplir este o el otro. */
+    public Criterio<T> o(Criterio<T> otro) {
+        if (otro == null) throw new IllegalArgumentException("Falta el criterio");
+        List<Criterio<T>> partes = new ArrayList<>(alternativas());
+        partes.addAll(otro.alternativas());
+        return new O<>(partes);
+    }
+
+    /* ---------- Para los planes de la persistencia ---------- */
+
+    /** Las partes de un y (este mismo criterio si no es un y). */
+    public List<Criterio<T>> terminos() {
+        return Collections.singletonList(this);
+    }
+
+    /** Las alternativas de un o (este mismo criterio si no es un o). */
+    public List<Criterio<T>> alternativas() {
+        return Collections.singletonList(this);
+    }
+
+    /**
+     * Rango que el criterio exige sobre el campo: la interseccion de las comparaciones con
+     * ese campo que estan unidas por y. null si no lo acota (o si es un o).
+     */
+    public <V extends Comparable<? super V>> Rango<T, V> rango(Campo<T, V> campo) {
+        Rango<T, V> res = null;
+        for (Criterio<T> t : terminos()) {
+            if (t instanceof Rango && ((Rango<T, ?>) t).campo == campo) {
+                @SuppressWarnings("unchecked")
+                Rango<T, V> r = (Rango<T, V>) t;
+                res = res == null ? r : res.interseccion(r);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Texto que el criterio exige en el campo (un prefijo si hay, si no un contiene), unido
+     * por y; null si no exige ninguno.
+     */
+    public Texto<T> texto(Campo<T, String> campo) {
+        Texto<T> res = null;
+        for (Criterio<T> t : terminos()) {
+            if (t instanceof Texto && ((Texto<T>) t).campo == campo && (res == null || !res.prefijo)) res = (Texto<T>) t;
+        }
+        return res;
+    }
+
+    /** Quita acentos y pasa a minusculas: "José" -> "jose". Asi comparan los criterios de texto. */
+    public static String normalizar(String s) {
+        if (s == null) return "";
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 128) {
+                String d = Normalizer.normalize(s, Normalizer.Form.NFD);
+                return Texto.MARCAS.matcher(d).replaceAll("").toLowerCase(Locale.ROOT);
+            }
+        }
+        // Solo ASCII: no hay acentos que quitar
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /* ---------- Tipos de criterio ---------- */
+
+    /**
+     * Valor del campo entre dos cotas (cada una incluida o no; null si no hay cota). La
+     * igualdad es el rango de un solo valor. Una fila sin valor (null) no cumple.
+     */
+    public static final class Rango<T, V extends Comparable<? super V>> extends Criterio<T> {
+        private final Campo<T, V> campo;
+        private final V desde;
+        private final boolean incluyeDesde;
+        private final V hasta;
+        private final boolean incluyeHasta;
+
+        Rango(Campo<T, V> campo, V desde, boolean incluyeDesde, V hasta, boolean incluyeHasta) {
+            this.campo = campo;
+            this.desde = desde;
+            this.incluyeDesde = incluyeDesde;
+            this.hasta = hasta;
+            this.incluyeHasta = incluyeHasta;
+        }
+
+        public Campo<T, V> getCampo() { return campo; }
+
+        public V getDesde() { return desde; }
+
+        public boolean isIncluyeDesde() { return incluyeDesde; }
+
+        public V getHasta() { return hasta; }
+
+        public boolean isIncluyeHasta() { return incluyeHasta; }
+
+        /** Si es una igualdad (un solo valor). */
+        public boolean esValor() {
+            return desde != null && hasta != null && incluyeDesde && incluyeHasta && desde.compareTo(hasta) == 0;
+        }
+
+        /** Para campos enteros: el menor valor que cumple (Long.MIN_VALUE sin cota inferior). */
+        public long minimoEntero() {
+            return desde == null ? Long.MIN_VALUE : ((Number) desde).longValue() + (incluyeDesde ? 0 : 1);
+        }
+
+        /** Para campos enteros: el mayor valor que cumple (Long.MAX_VALUE sin cota superior). */
+        public long maximoEntero() {
+            return hasta == null ? Long.MAX_VALUE : ((Number) hasta).longValue() - (incluyeHasta ? 0 : 1);
+        }
+
+        public boolean contiene(V v) {
+            if (v == null) return false;
+            if (desde != null) {
+                int c = v.compareTo(desde);
+                if (c < 0 || c == 0 && !incluyeDesde) return false;
+            }
+            if (hasta != null) {
+                int c = v.compareTo(hasta);
+                if (c > 0 || c == 0 && !incluyeHasta) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean test(T fila) {
+            return contiene(campo.valor(fila));
+        }
+
+        // Las dos cotas mas estrechas de cada lado
+        Rango<T, V> interseccion(Rango<T, V> otro) {
+            V d = desde, h = hasta;
+            boolean id = incluyeDesde, ih = incluyeHasta;
+            if (otro.desde != null) {
+                int c = d == null ? -1 : d.compareTo(otro.desde);
+                if (c < 0) { d = otro.desde; id = otro.incluyeDesde; }
+                else if (c == 0) id &= otro.incluyeDesde;
+            }
+            if (otro.hasta != null) {
+                int c = h == null ? 1 : h.compareTo(otro.hasta);
+                if (c > 0) { h = otro.hasta; ih = otro.incluyeHasta; }
+                else if (c == 0) ih &= otro.incluyeHasta;
+            }
+            return new Rango<>(campo, d, id, h, ih);
+        }
+
+        @Override
+        public String toString() {
+            if (esValor()) return campo.getNombre() + " = " + desde;
+            StringBuilder sb = new StringBuilder(campo.getNombre());
+            if (desde != null) sb.append(incluyeDesde ? " >= " : " > ").append(desde);
+            if (desde != null && hasta != null) sb.append(" y ").append(campo.getNombre());
+            if (hasta != null) sb.append(incluyeHasta ? " <= " : " < ").append(hasta);
+            return sb.toString();
+        }
+    }
+
+    /** Texto del campo que empieza con o contiene el buscado, sin distinguir acentos ni mayusculas. */
+    public static final class Texto<T> extends Criterio<T> {
+        static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+        private final Campo<T, ?> campo;
+        private final String buscado;
+        private final boolean prefijo;
+
+        Texto(Campo<T, ?> campo, String buscado, boolean prefijo) {
+            this.campo = campo;
+            this.buscado = normalizar(buscado);
+            this.prefijo = prefijo;
+        }
+
+        public Campo<T, ?> getCampo() { return campo; }
+
+        /** El texto buscado, ya normalizado. */
+        public String getBuscado() { return buscado; }
+
+        public boolean esPrefijo() { return prefijo; }
+
+        @Override
+        public boolean test(T fila) {
+            Object v = campo.valor(fila);
+            String texto = normalizar(v == null ? null : v.toString());
+            return prefijo ? texto.startsWith(buscado) : texto.contains(buscado);
+        }
+
+        @Override
+        public String toString() {
+            return campo.getNombre() + (prefijo ? " empieza con '" : " contiene '") + buscado + "'";
+        }
+    }
+
+    static final class Y<T> extends Criterio<T> {
+        private final List<Criterio<T>> partes;
+
+        Y(List<Criterio<T>> partes) {
+            this.partes = Collections.unmodifiableList(partes);
+        }
+
+        @Override
+        public List<Criterio<T>> terminos() { return partes; }
+
+        @Override
+        public boolean test(T fila) {
+            for (Criterio<T> c : partes) if (!c.test(fila)) return false;
+            return true;
+        }
+
+        @Override
+        public String toString() { return unir(partes, " y "); }
+    }
+
+    static final class O<T> extends Criterio<T> {
+        private final List<Criterio<T>> partes;
+
+        O(List<Criterio<T>> partes) {
+            this.partes = Collections.unmodifiableList(partes);
+        }
+
+        @Override
+        public List<Criterio<T>> alternativas() { return partes; }
+
+        @Override
+        public boolean test(T fila) {
+            for (Criterio<T> c : partes) if (c.test(fila)) return true;
+            return false;
+        }
+
+        @Override
+        public String toString() { return unir(partes, " o "); }
+    }
+
+    static final class Libre<T> extends Criterio<T> {
+        private final Predicate<? super T> predicado;
+
+        Libre(Predicate<? super T> predicado) {
+            this.predicado = predicado;
+        }
+
+        @Override
+        public boolean test(T fila) { return predicado.test(fila); }
+
+        @Override
+        public String toString() { return "(predicado)"; }
+    }
+
+    private static String unir(List<? extends Criterio<?>> partes, String separador) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < partes.size(); i++) {
+            if (i > 0) sb.append(separador);
+            sb.append(partes.get(i));
+        }
+        return sb.append(')').toString();
+    }
+}
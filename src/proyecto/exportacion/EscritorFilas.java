@@ -0,0 +1,122 @@
+package proyecto.exportacion;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Escribe filas en un formato. Cada fila se arma en un StringBuilder que se vuelca al
+ * Writer cuando pasa de TAMANO_VOLCADO, asi que la memoria no depende de cuantas filas
+ * haya.
+ */
+abstract class EscritorFilas {
+    private static final int TAMANO_VOLCADO = 8 * 1024;
+
+    protected final Writer out;
+    protected final StringBuilder sb = new StringBuilder(TAMANO_VOLCADO + 1024);
+
+    EscritorFilas(Writer out) {
+        this.out = out;
+    }
+
+    abstract void cabecera(List<String> nombres) throws IOException;
+
+    abstract void fila(Object[] valores) throws IOException;
+
+    abstract void fin() throws IOException;
+
+    protected final void volcarSiLleno() throws IOException {
+        if (sb.length() >= TAMANO_VOLCADO) volcar();
+    }
+
+    protected final void volcar() throws IOException {
+        out.append(sb);
+        sb.setLength(0);
+    }
+
+    static final class Csv extends EscritorFilas {
+        Csv(Writer out) { super(out); }
+
+        @Override
+        void cabecera(List<String> nombres) throws IOException {
+            for (int i = 0; i < nombres.size(); i++) {
+                if (i > 0) sb.append(',');
+                texto(nombres.get(i));
+            }
+            sb.append('\n');
+        }
+
+        @Override
+        void fila(Object[] valores) throws IOException {
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) sb.append(',');
+                Object v = valores[i];
+                if (v instanceof Number || v instanceof Boolean) sb.append(v);
+                else if (v != null) texto(v.toString());
+            }
+            sb.append('\n');
+            volcarSiLleno();
+        }
+
+        @Override
+        void fin() throws IOException { volcar(); }
+
+        // Entre comillas (duplicandolas) solo si tiene separador, comillas o saltos de linea
+        private void texto(String s) {
+            boolean citar = false;
+            for (int i = 0; i < s.length() && !citar; i++) {
+                char c = s.charAt(i);
+                citar = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!citar) { sb.append(s); return; }
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') sb.append('"');
+                sb.append(c);
+            }
+            sb.append('"');
+        }
+    }
+
+    static final class Json extends EscritorFilas {
+        private String[] nombres;
+        private boolean primera = true;
+
+        Json(Writer out) { super(out); }
+
+        @Override
+        void cabecera(List<String> nombres) {
+            // Los nombres se escapan una sola vez
+            this.nombres = new String[nombres.size()];
+            StringBuilder nombre = new StringBuilder();
+            for (int i = 0; i < this.nombres.length; i++) {
+                nombre.setLength(0);
+                proyecto.servidor.Json.texto(nombre, nombres.get(i));
+                this.nombres[i] = nombre.append(':').toString();
+            }
+            sb.append('[');
+        }
+
+        @Override
+        void fila(Object[] valores) throws IOException {
+            sb.append(primera ? "\n{" : ",\n{");
+            primera = false;
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(nombres[i]);
+                Object v = valores[i];
+                if (v == null || v instanceof Number || v instanceof Boolean) sb.append(v);
+                else proyecto.servidor.Json.texto(sb, v.toString());
+            }
+            sb.append('}');
+            volcarSiLleno();
+        }
+
+        @Override
+        void fin() throws IOException {
+            sb.append(primera ? "]\n" : "\n]\n");
+            volcar();
+        }
+    }
+}
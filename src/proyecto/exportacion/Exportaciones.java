@@ -0,0 +1,36 @@
+package proyecto.exportacion;
+
+import proyecto.model.*;
+
+/** Columnas de exportacion de cada entidad, con los mismos nombres que el CSV de datos. */
+public final class Exportaciones {
+
+    private Exportaciones() {}
+
+    public static Exportador<Paciente> pacientes() {
+        return new Exportador<Paciente>().columna("id", Paciente::getId).columna("nombre", Paciente::getNombre)
+                .columna("direccion", Paciente::getDireccion).columna("edad", Paciente::getEdad)
+                .columna("telefono", Paciente::getTelefono);
+    }
+
+    public static Exportador<Doctor> medicos() {
+        return new Exportador<Doctor>().columna("id", Doctor::getId).columna("nombre", Doctor::getNombre)
+                .columna("especialidad", Doctor::getEspecialidad);
+    }
+
+    public static Exportador<Consulta> consultas() {
+        return new Exportador<Consulta>().columna("id", Consulta::getId).columna("pacienteId", Consulta::getPacienteId)
+                .columna("doctorId", Consulta::getDoctorId).columna("fecha", Consulta::getFecha)
+                .columna("motivo", Consulta::getMotivo).columna("notas", Consulta::getNotas);
+    }
+
+    public static Exportador<Equipo> equipos() {
+        return new Exportador<Equipo>().columna("id", Equipo::getId).columna("nombre", Equipo::getNombre)
+                .columna("descripcion", Equipo::getDescripcion).columna("disponible", Equipo::getDisponible);
+    }
+
+    public static Exportador<InventarioItem> inventario() {
+        return new Exportador<InventarioItem>().columna("id", InventarioItem::getId).columna("nombre", InventarioItem::getNombre)
+                .columna("cantidad", InventarioItem::getCantidad).columna("unidad", InventarioItem::getUnidad);
+    }
+}
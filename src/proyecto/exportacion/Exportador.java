@@ -0,0 +1,100 @@
+package proyecto.exportacion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Exporta filas a CSV o JSON a medida que se leen: cada fila se escribe y se descarta, con
+ * buffers de tamano fijo, asi que se puede exportar toda la historia sin que el resultado
+ * pase por la memoria. Las columnas se definen una vez:
+ *
+ *   new Exportador&lt;Paciente&gt;().columna("id", Paciente::getId).columna("nombre", Paciente::getNombre)
+ *
+ * Los numeros y booleanos se escriben tal cual; lo demas como texto (toString), null vacio.
+ */
+public final class Exportador<T> {
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final List<String> nombres = new ArrayList<>();
+    private final List<Function<? super T, ?>> valores = new ArrayList<>();
+
+    public Exportador<T> columna(String nombre, Function<? super T, ?> valor) {
+        if (nombre == null || nombre.isBlank()) throw new IllegalArgumentException("Columna sin nombre");
+        nombres.add(nombre);
+        valores.add(valor);
+        return this;
+    }
+
+    public List<String> getColumnas() { return Collections.unmodifiableList(nombres); }
+
+    /**
+     * Escribe las filas en out (que no se cierra) y devuelve cuantas se escribieron. El
+     * stream se consume y se cierra; si viene de la persistencia (stream(), Pagina.recorrer)
+     * se lee el archivo a la par que se escribe.
+     */
+    public long exportar(Stream<? extends T> filas, Formato formato, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), TAMANO_BUFFER);
+        long n = exportar(filas, formato, w);
+        w.flush();
+        return n;
+    }
+
+    /** Igual que el anterior, escribiendo en w (que no se cierra ni se vacia). */
+    public long exportar(Stream<? extends T> filas, Formato formato, Writer w) throws IOException {
+        EscritorFilas escritor = formato.escritor(w);
+        Object[] fila = new Object[valores.size()];
+        long n = 0;
+        try (filas) {
+            escritor.cabecera(nombres);
+            Iterator<? extends T> it = filas.iterator();
+            while (it.hasNext()) {
+                T t = it.next();
+                for (int i = 0; i < fila.length; i++) fila[i] = valores.get(i).apply(t);
+                escritor.fila(fila);
+                n++;
+            }
+            escritor.fin();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return n;
+    }
+
+    /**
+     * Exporta a un archivo. Se escribe en un temporal al lado y se renombra al terminar:
+     * si algo falla a mitad, el destino queda como estaba.
+     */
+    public long exportar(Stream<? extends T> filas, Formato formato, Path destino) throws IOException {
+        Path dir = destino.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, destino.getFileName().toString(), ".tmp");
+        try {
+            long n;
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                n = exportar(filas, formato, out);
+            }
+            try {
+                Files.move(tmp, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return n;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package proyecto.exportacion;
+
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/** Formatos de exportacion. */
+public enum Formato {
+    /** Cabecera con los nombres de columna y una fila por linea; comillas solo donde hacen falta. */
+    CSV("csv") {
+        @Override
+        EscritorFilas escritor(Writer out) { return new EscritorFilas.Csv(out); }
+    },
+    /** Un arreglo de objetos, uno por linea. */
+    JSON("json") {
+        @Override
+        EscritorFilas escritor(Writer out) { return new EscritorFilas.Json(out); }
+    };
+
+    private final String extension;
+
+    Formato(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() { return extension; }
+
+    abstract EscritorFilas escritor(Writer out);
+
+    /** Formato segun la extension del archivo (.csv o .json). */
+    public static Formato deArchivo(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (Formato f : values()) {
+            if (nombre.endsWith("." + f.extension)) return f;
+        }
+        throw new IllegalArgumentException("Extension desconocida (use .csv o .json): " + archivo.getFileName());
+    }
+}
@@ -8,6 +8,8 @@ public class Equipo {
     private String nombre;
     private String descripcion;
     private int disponible;
+    // Cambia con cada actualizacion guardada; sirve para detectar ediciones simultaneas
+    private int version;
 
     public Equipo() {}
 
@@ -18,6 +20,11 @@ public class Equipo {
         this.disponible = disponible;
     }
 
+    public Equipo(int id, String nombre, String descripcion, int disponible, int version) {
+        this(id, nombre, descripcion, disponible);
+        this.version = version;
+    }
+
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
     public String getNombre() { return nombre; }
@@ -28,6 +35,9 @@ public class Equipo {
     public int getDisponible() { return disponible; }
     public void setDisponible(int disponible) { this.disponible = disponible; }
 
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+
     @Override
     public String toString() {
         return id + " | " + nombre + (disponible );
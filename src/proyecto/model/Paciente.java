@@ -11,6 +11,8 @@ public class Paciente {
     private String direccion;
     private int edad;
     private String telefono;
+    // Cambia con cada actualizacion guardada; sirve para detectar ediciones simultaneas
+    private int version;
 
     public Paciente() {}
 
@@ -22,6 +24,11 @@ public class Paciente {
         this.telefono = telefono;
     }
 
+    public Paciente(int id, String nombre, String direccion, int edad, String telefono, int version) {
+        this(id, nombre, direccion, edad, telefono);
+        this.version = version;
+    }
+
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
 
@@ -37,6 +44,9 @@ public class Paciente {
     public String getTelefono() { return telefono; }
     public void setTelefono(String telefono) { this.telefono = telefono; }
 
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+
     @Override
     public String toString() {
         return id + " | " + nombre + " | " + edad + " años";
@@ -0,0 +1,188 @@
+package proyecto.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Totales de stock que se mantienen al escribir en lugar de recalcularse releyendo el
+ * archivo: suma total, suma por unidad, items por id y un monticulo minimo por cantidad
+ * para las alertas de bajo stock. Cada alta o baja cuesta O(log n); el total es O(1) y los
+ * k items bajo un umbral salen en O(k log k) sin mirar el resto.
+ *
+ * Refleja las filas tal como las devuelve obtenerTodos (un id repetido en el archivo
+ * cuenta tantas veces como aparece). No es seguro entre hilos: la persistencia lo modifica
+ * con el cerrojo de escritura del archivo tomado.
+ */
+final class AgregadoStock<T> {
+    private static final class Entrada<T> {
+        final T item;
+        final int id;
+        final int cantidad;
+        final String unidad;
+        int posicion;
+        // Otra fila con el mismo id
+        Entrada<T> otra;
+
+        Entrada(T item, int id, int cantidad, String unidad) {
+            this.item = item;
+            this.id = id;
+            this.cantidad = cantidad;
+            this.unidad = unidad;
+        }
+    }
+
+    private final ToIntFunction<T> idDe;
+    private final ToIntFunction<T> cantidadDe;
+    private final Function<T, String> unidadDe;
+
+    private final MapaEnteros<Entrada<T>> porId = new MapaEnteros<>();
+    // Por unidad: {suma, filas}; la unidad desaparece cuando no le quedan filas
+    private final Map<String, long[]> porUnidad = new TreeMap<>();
+    private Entrada<T>[] monticulo = nuevo(16);
+    private int filas;
+    private long total;
+
+    // Java no crea arreglos de un tipo generico: se crea el crudo y se convierte una sola vez
+    @SuppressWarnings("unchecked")
+    private static <T> Entrada<T>[] nuevo(int n) {
+        return (Entrada<T>[]) new Entrada<?>[n];
+    }
+
+    /** unidadDe puede devolver null (p.ej. equipos): esas filas no suman por unidad. */
+    AgregadoStock(ToIntFunction<T> idDe, ToIntFunction<T> cantidadDe, Function<T, String> unidadDe) {
+        this.idDe = idDe;
+        this.cantidadDe = cantidadDe;
+        this.unidadDe = unidadDe;
+    }
+
+    /** Suma una fila. El agregado se queda con el item: no modificarlo despues. */
+    void agregar(T item) {
+        Entrada<T> e = new Entrada<>(item, idDe.applyAsInt(item), cantidadDe.applyAsInt(item), unidadDe.apply(item));
+        Entrada<T> primera = porId.obtener(e.id);
+        if (primera == null) {
+            porId.poner(e.id, e);
+        } else {
+            while (primera.otra != null) primera = primera.otra;
+            primera.otra = e;
+        }
+        total += e.cantidad;
+        if (e.unidad != null) {
+            long[] u = porUnidad.computeIfAbsent(e.unidad, k -> new long[2]);
+            u[0] += e.cantidad;
+            u[1]++;
+        }
+        if (filas == monticulo.length) monticulo = Arrays.copyOf(monticulo, filas * 2);
+        e.posicion = filas;
+        monticulo[filas++] = e;
+        subir(e.posicion);
+    }
+
+    /** Resta todas las filas con ese id y las devuelve (vacia si no habia). */
+    List<T> quitar(int id) {
+        Entrada<T> e = porId.quitar(id);
+        if (e == null) return Collections.emptyList();
+        List<T> quitados = new ArrayList<>(1);
+        for (; e != null; e = e.otra) {
+            quitados.add(e.item);
+            total -= e.cantidad;
+            if (e.unidad != null) {
+                long[] u = porUnidad.get(e.unidad);
+                u[0] -= e.cantidad;
+                if (--u[1] == 0) porUnidad.remove(e.unidad);
+            }
+            quitarDelMonticulo(e.posicion);
+        }
+        return quitados;
+    }
+
+    /** Primera fila con ese id, o null. */
+    T obtener(int id) {
+        Entrada<T> e = porId.obtener(id);
+        return e == null ? null : e.item;
+    }
+
+    long getTotal() { return total; }
+
+    int getFilas() { return filas; }
+
+    /** Suma de cantidades por unidad, ordenado por unidad. */
+    Map<String, Long> getTotalesPorUnidad() {
+        Map<String, Long> res = new TreeMap<>();
+        for (Map.Entry<String, long[]> u : porUnidad.entrySet()) res.put(u.getKey(), u.getValue()[0]);
+        return Collections.unmodifiableMap(res);
+    }
+
+    /**
+     * Items con cantidad menor que el umbral, de menor a mayor cantidad (y por id). Recorre
+     * solo la parte del monticulo bajo el umbral: si un nodo no cumple, sus hijos tampoco.
+     */
+    List<T> bajoStock(int umbral) {
+        List<Entrada<T>> res = new ArrayList<>();
+        int[] pendientes = new int[16];
+        int n = 0;
+        if (filas > 0) pendientes[n++] = 0;
+        while (n > 0) {
+            int i = pendientes[--n];
+            if (monticulo[i].cantidad >= umbral) continue;
+            res.add(monticulo[i]);
+            if (n + 2 > pendientes.length) pendientes = Arrays.copyOf(pendientes, pendientes.length * 2);
+            if (2 * i + 1 < filas) pendientes[n++] = 2 * i + 1;
+            if (2 * i + 2 < filas) pendientes[n++] = 2 * i + 2;
+        }
+        res.sort(AgregadoStock::comparar);
+        List<T> items = new ArrayList<>(res.size());
+        for (Entrada<T> e : res) items.add(e.item);
+        return items;
+    }
+
+    private void quitarDelMonticulo(int i) {
+        Entrada<T> ultima = monticulo[--filas];
+        monticulo[filas] = null;
+        if (i == filas) return;
+        monticulo[i] = ultima;
+        ultima.posicion = i;
+        subir(i);
+        bajar(ultima.posicion);
+    }
+
+    private void subir(int i) {
+        Entrada<T> e = monticulo[i];
+        while (i > 0) {
+            int padre = (i - 1) / 2;
+            if (comparar(monticulo[padre], e) <= 0) break;
+            mover(padre, i);
+            i = padre;
+        }
+        monticulo[i] = e;
+        e.posicion = i;
+    }
+
+    private void bajar(int i) {
+        Entrada<T> e = monticulo[i];
+        while (2 * i + 1 < filas) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < filas && comparar(monticulo[hijo + 1], monticulo[hijo]) < 0) hijo++;
+            if (comparar(e, monticulo[hijo]) <= 0) break;
+            mover(hijo, i);
+            i = hijo;
+        }
+        monticulo[i] = e;
+        e.posicion = i;
+    }
+
+    private void mover(int desde, int hasta) {
+        monticulo[hasta] = monticulo[desde];
+        monticulo[hasta].posicion = hasta;
+    }
+
+    private static int comparar(Entrada<?> a, Entrada<?> b) {
+        int c = Integer.compare(a.cantidad, b.cantidad);
+        return c != 0 ? c : Integer.compare(a.id, b.id);
+    }
+}
@@ -0,0 +1,172 @@
+package proyecto.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Bitacora de cambios (solo anexar) que acompana a un archivo CSV.
+ * Cada registro ocupa una linea: U|crc|linea-csv (alta/modificacion) o D|crc|id (baja).
+ * El crc (CRC32 en hexadecimal) cubre el tipo y el contenido, de modo que un registro
+ * cortado a medias por una caida se detecta al reproducir la bitacora y se descarta
+ * junto con todo lo que venga despues.
+ */
+public class BitacoraCambios {
+    private final Path ruta;
+    // Ultimo estado pendiente por id: la linea CSV, o null si fue borrado
+    private final Map<Integer, String> pendientes = new LinkedHashMap<>();
+    private int registros;
+    // Tamano del archivo segun lo ultimo que leimos o escribimos nosotros
+    private long tamanoConocido;
+
+    public BitacoraCambios(Path ruta) throws IOException {
+        this.ruta = ruta;
+        if (Files.notExists(ruta)) {
+            try {
+                Files.createFile(ruta);
+            } catch (FileAlreadyExistsException e) {
+                // Otra instancia (u otro proceso) la creo entre la comprobacion y la creacion
+            }
+        }
+        reproducir();
+    }
+
+    public Path getRuta() { return ruta; }
+
+    /** Cantidad de registros escritos desde la ultima compactacion. */
+    public int getRegistros() { return registros; }
+
+    /** Indica si otro proceso modifico la bitacora desde la ultima lectura/escritura propia. */
+    public boolean cambioExterno() throws IOException {
+        return Files.size(ruta) != tamanoConocido;
+    }
+
+    public boolean estaVacia() { return pendientes.isEmpty(); }
+
+    public boolean tieneCambio(int id) { return pendientes.containsKey(id); }
+
+    /** Devuelve la linea pendiente para el id (null si fue borrado). Usar junto con {@link #tieneCambio}. */
+    public String cambio(int id) { return pendientes.get(id); }
+
+    /**
+     * Copia de los cambios pendientes por id. Es una copia porque quien la recorre puede
+     * hacerlo mientras otro lector vuelve a reproducir la bitacora.
+     */
+    public Map<Integer, String> getPendientes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(pendientes));
+    }
+
+    public void registrarModificacion(int id, String linea) throws IOException {
+        escribir('U', linea);
+        pendientes.remove(id);
+        pendientes.put(id, linea);
+    }
+
+    public void registrarBorrado(int id) throws IOException {
+        escribir('D', String.valueOf(id));
+        pendientes.remove(id);
+        pendientes.put(id, null);
+    }
+
+    /** Descarta todos los registros (tras volcarlos al CSV). */
+    public void vaciar() throws IOException {
+        try (FileChannel ch = FileChannel.open(ruta, StandardOpenOption.WRITE)) {
+            ch.truncate(0);
+            ch.force(true);
+        }
+        pendientes.clear();
+        registros = 0;
+        tamanoConocido = 0;
+    }
+
+    /**
+     * Vuelve a leer la bitacora desde disco. Si el ultimo registro quedo incompleto o
+     * con crc invalido, el archivo se trunca justo antes de ese registro.
+     */
+    public final void reproducir() throws IOException {
+        pendientes.clear();
+        registros = 0;
+        byte[] datos = Files.readAllBytes(ruta);
+        int inicio = 0;
+        int validoHasta = 0;
+        while (inicio < datos.length) {
+            int fin = inicio;
+            while (fin < datos.length && datos[fin] != '\n') fin++;
+            if (fin == datos.length) break; // sin salto de linea final: escritura interrumpida
+            if (!aplicar(new String(datos, inicio, fin - inicio, StandardCharsets.UTF_8))) break;
+            registros++;
+            inicio = fin + 1;
+            validoHasta = inicio;
+        }
+        if (validoHasta < datos.length) {
+            try (FileChannel ch = FileChannel.open(ruta, StandardOpenOption.WRITE)) {
+                ch.truncate(validoHasta);
+                ch.force(true);
+            }
+        }
+        tamanoConocido = validoHasta;
+    }
+
+    private boolean aplicar(String registro) {
+        if (registro.length() < 11 || registro.charAt(1) != '|' || registro.charAt(10) != '|') return false;
+        char tipo = registro.charAt(0);
+        String contenido = registro.substring(11);
+        long crc;
+        try {
+            crc = Long.parseLong(registro.substring(2, 10), 16);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (crc != crc(tipo, contenido)) return false;
+        try {
+            if (tipo == 'U') {
+                int id = idDeLinea(contenido);
+                pendientes.remove(id);
+                pendientes.put(id, contenido);
+            } else if (tipo == 'D') {
+                int id = Integer.parseInt(contenido);
+                pendientes.remove(id);
+                pendientes.put(id, null);
+            } else {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    // Llamar con el cerrojo de escritura del archivo tomado
+    private void escribir(char tipo, String contenido) throws IOException {
+        // Lo que otro proceso anexo antes que nosotros se lee ahora; si no, al avanzar
+        // tamanoConocido quedaria marcado como visto sin haberse aplicado nunca
+        if (cambioExterno()) reproducir();
+        String registro = tipo + "|" + String.format("%08x", crc(tipo, contenido)) + "|" + contenido + "\n";
+        byte[] bytes = registro.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel ch = FileChannel.open(ruta, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(false);
+        }
+        tamanoConocido += bytes.length;
+        registros++;
+    }
+
+    private static long crc(char tipo, String contenido) {
+        CRC32 crc = new CRC32();
+        crc.update(tipo);
+        crc.update(contenido.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    static int idDeLinea(String linea) {
+        int sep = linea.indexOf('|');
+        return Integer.parseInt(sep < 0 ? linea.trim() : linea.substring(0, sep).trim());
+    }
+}
@@ -0,0 +1,111 @@
+package proyecto.persistence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Copia en memoria de todas las filas de una persistencia, compartida por todos los
+ * pedidos del servidor (o las busquedas de la interfaz). Las lecturas no bloquean: toman
+ * la vista vigente y solo comparan la huella del archivo, asi que un cambio hecho por
+ * otro proceso (p.ej. la interfaz) se ve en el siguiente pedido. Cuando la huella cambia
+ * un solo hilo recarga y los demas esperan esa recarga en lugar de leer el archivo cada
+ * uno.
+ *
+ * Las filas se comparten entre pedidos: quien las use no debe modificarlas.
+ */
+public final class CacheEntidades<T> {
+    private static final int MAXIMO_FILTRADAS = 64;
+
+    @FunctionalInterface
+    public interface Carga<T> {
+        List<T> leer() throws IOException;
+    }
+
+    private static final class Vista<T> {
+        final long[] huella;
+        final List<T> filas;
+        final MapaEnteros<T> porId;
+        // Resultados de filtros ya pedidos sobre estas filas, por clave
+        final ConcurrentHashMap<String, List<T>> filtradas = new ConcurrentHashMap<>();
+
+        Vista(long[] huella, List<T> filas, MapaEnteros<T> porId) {
+            this.huella = huella;
+            this.filas = filas;
+            this.porId = porId;
+        }
+    }
+
+    private final PersistenciaBase persistencia;
+    private final Carga<T> carga;
+    private final ToIntFunction<T> id;
+    private volatile Vista<T> vista;
+
+    public CacheEntidades(PersistenciaBase persistencia, Carga<T> carga, ToIntFunction<T> id) {
+        this.persistencia = persistencia;
+        this.carga = carga;
+        this.id = id;
+    }
+
+    /** Todas las filas, en el orden del archivo (lista de solo lectura). */
+    public List<T> todos() throws IOException {
+        return vigente().filas;
+    }
+
+    /** La fila con ese id, o null. */
+    public T porId(int clave) throws IOException {
+        return vigente().porId.obtener(clave);
+    }
+
+    /**
+     * Filas que cumplen el filtro, en el orden del archivo. La clave identifica al filtro:
+     * el resultado se reutiliza en los pedidos siguientes con la misma clave mientras el
+     * archivo no cambie (los listados repetidos no recorren todas las filas).
+     */
+    public List<T> filtradas(String clave, Predicate<T> filtro) throws IOException {
+        Vista<T> v = vigente();
+        List<T> res = v.filtradas.get(clave);
+        if (res != null) return res;
+        List<T> nuevas = new ArrayList<>();
+        for (T t : v.filas) {
+            if (filtro.test(t)) nuevas.add(t);
+        }
+        res = Collections.unmodifiableList(nuevas);
+        // Las busquedas de texto libre no se repiten: que no crezca sin limite
+        if (v.filtradas.size() >= MAXIMO_FILTRADAS) v.filtradas.clear();
+        v.filtradas.put(clave, res);
+        return res;
+    }
+
+    /** Descarta la vista; la llaman las escrituras del propio servidor. */
+    public void invalidar() {
+        vista = null;
+    }
+
+    private Vista<T> vigente() throws IOException {
+        Vista<T> v = vista;
+        if (v != null && Arrays.equals(v.huella, persistencia.huella())) return v;
+        synchronized (this) {
+            // Otro hilo pudo recargar mientras se esperaba
+            long[] huella = persistencia.huella();
+            v = vista;
+            if (v != null && Arrays.equals(v.huella, huella)) return v;
+            // La huella se toma antes de leer: si el archivo cambia durante la lectura, la
+            // proxima comparacion falla y se vuelve a cargar
+            List<T> filas = carga.leer();
+            MapaEnteros<T> porId = new MapaEnteros<>(filas.size());
+            for (T t : filas) {
+                // Como obtenerPorId de las persistencias: si un id se repite vale el primero
+                if (!porId.contiene(id.applyAsInt(t))) porId.poner(id.applyAsInt(t), t);
+            }
+            v = new Vista<>(huella, Collections.unmodifiableList(filas), porId);
+            vista = v;
+            return v;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package proyecto.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cerrojo de lectura/escritura de un archivo de datos. Hay uno solo por archivo en el
+ * proceso (lo comparten todas las persistencias abiertas sobre el mismo CSV) y ademas se
+ * coordina con otros procesos con FileChannel.lock sobre archivo.lock: compartido
+ * mientras haya lectores en el proceso, exclusivo mientras alguien escribe.
+ *
+ * Los lectores no se bloquean entre si y cada archivo tiene su propio cerrojo, asi que
+ * las escrituras a archivos distintos van en paralelo. Es reentrante y quien escribe
+ * puede leer dentro de la escritura (no al reves: no se puede pasar de lectura a escritura).
+ */
+final class CerrojoArchivo {
+    private static final ConcurrentHashMap<Path, CerrojoArchivo> CERROJOS = new ConcurrentHashMap<>();
+
+    private final Path ruta;
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    // Estado del bloqueo entre procesos, protegido por el monitor de este objeto
+    private FileChannel canal;
+    private FileLock bloqueo;
+    private int lectores;
+    private int escrituras;
+
+    private CerrojoArchivo(Path archivo) {
+        this.ruta = archivo.resolveSibling(archivo.getFileName() + ".lock");
+    }
+
+    /** El cerrojo del archivo, el mismo para todas las rutas que llevan a el. */
+    static CerrojoArchivo de(Path archivo) {
+        return CERROJOS.computeIfAbsent(archivo.toAbsolutePath().normalize(), CerrojoArchivo::new);
+    }
+
+    void bloquearLectura() throws IOException {
+        cerrojo.readLock().lock();
+        try {
+            synchronized (this) {
+                // El primer lector del proceso toma el bloqueo compartido; dentro de una escritura ya hay uno exclusivo
+                if (lectores == 0 && bloqueo == null) bloqueo = canal().lock(0, Long.MAX_VALUE, true);
+                lectores++;
+            }
+        } catch (IOException | RuntimeException e) {
+            cerrojo.readLock().unlock();
+            throw e;
+        }
+    }
+
+    void liberarLectura() throws IOException {
+        try {
+            synchronized (this) {
+                if (--lectores == 0 && escrituras == 0) soltar();
+            }
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    void bloquearEscritura() throws IOException {
+        cerrojo.writeLock().lock();
+        try {
+            synchronized (this) {
+                if (escrituras == 0) {
+                    soltar();
+                    bloqueo = canal().lock();
+                }
+                escrituras++;
+            }
+        } catch (IOException | RuntimeException e) {
+            cerrojo.writeLock().unlock();
+            throw e;
+        }
+    }
+
+    void liberarEscritura() throws IOException {
+        try {
+            synchronized (this) {
+                if (--escrituras == 0) {
+                    soltar();
+                    // Quien escribia sigue leyendo: vuelve al bloqueo compartido
+                    if (lectores > 0) bloqueo = canal().lock(0, Long.MAX_VALUE, true);
+                }
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private void soltar() throws IOException {
+        if (bloqueo != null && bloqueo.isValid()) bloqueo.release();
+        bloqueo = null;
+    }
+
+    // Una interrupcion durante lock() cierra el canal: se vuelve a abrir
+    private FileChannel canal() throws IOException {
+        if (canal == null || !canal.isOpen()) {
+            canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return canal;
+    }
+}
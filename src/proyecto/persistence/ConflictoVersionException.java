@@ -0,0 +1,27 @@
+package proyecto.persistence;
+
+/**
+ * El registro cambio en el archivo desde que se leyo: la version con la que se edito ya
+ * no es la actual. Hay que volver a leerlo y repetir la edicion.
+ */
+public class ConflictoVersionException extends IllegalStateException {
+    private final int id;
+    private final int versionEsperada;
+    private final int versionActual;
+
+    public ConflictoVersionException(int id, int versionEsperada, int versionActual) {
+        super("El registro " + id + " fue modificado por otro usuario (version " + versionActual
+                + ", se editaba la " + versionEsperada + ")");
+        this.id = id;
+        this.versionEsperada = versionEsperada;
+        this.versionActual = versionActual;
+    }
+
+    public int getId() { return id; }
+
+    /** Version que tenia el registro cuando se leyo para editarlo. */
+    public int getVersionEsperada() { return versionEsperada; }
+
+    /** Version que tiene ahora en el archivo. */
+    public int getVersionActual() { return versionActual; }
+}
@@ -0,0 +1,126 @@
+package proyecto.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Diccionario de una columna de texto con pocos valores distintos (especialidad, unidad,
+ * motivo...): cada valor se decodifica una sola vez y todas las filas comparten la misma
+ * instancia de String. La busqueda compara directamente los bytes del campo, asi que un
+ * valor ya visto no crea ningun objeto.
+ *
+ * Se puede usar desde varios hilos (el escaneo mapeado es paralelo): la busqueda no
+ * bloquea y solo las altas se sincronizan. Si la columna resulta tener mas valores
+ * distintos que el maximo, el diccionario deja de crecer y los textos se decodifican
+ * como siempre.
+ */
+public class DiccionarioTextos {
+    private static final int MAXIMO_POR_DEFECTO = 4096;
+
+    private static final class Entrada {
+        final int hash;
+        final byte[] bytes;
+        final String texto;
+
+        Entrada(int hash, byte[] bytes, String texto) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.texto = texto;
+        }
+    }
+
+    private final int maximo;
+    // Tabla de direccionamiento abierto; se reemplaza entera al crecer
+    private volatile Entrada[] tabla = new Entrada[16];
+    private int cantidad;
+    private volatile boolean lleno;
+
+    public DiccionarioTextos() {
+        this(MAXIMO_POR_DEFECTO);
+    }
+
+    public DiccionarioTextos(int maximo) {
+        if (maximo <= 0) throw new IllegalArgumentException("El maximo debe ser positivo");
+        this.maximo = maximo;
+    }
+
+    /** Cantidad de valores distintos guardados. */
+    public synchronized int tamano() { return cantidad; }
+
+    /** Indica si se alcanzo el maximo y el diccionario ya no agrega valores. */
+    public boolean estaLleno() { return lleno; }
+
+    /**
+     * Texto de los n bytes UTF-8 desde la posicion p del buffer (sin mover su posicion).
+     */
+    public String texto(ByteBuffer buf, int p, int n) {
+        if (n == 0) return "";
+        int h = hash(buf, p, n);
+        Entrada[] t = tabla;
+        for (int i = h & (t.length - 1); t[i] != null; i = (i + 1) & (t.length - 1)) {
+            if (t[i].hash == h && iguales(t[i].bytes, buf, p, n)) return t[i].texto;
+        }
+        byte[] bytes = new byte[n];
+        buf.get(p, bytes, 0, n);
+        String texto = new String(bytes, StandardCharsets.UTF_8);
+        return lleno ? texto : agregar(h, bytes, texto);
+    }
+
+    /**
+     * Instancia compartida de un texto ya decodificado (p.ej. el de una alta).
+     */
+    public String compartir(String texto) {
+        if (texto == null || texto.isEmpty()) return texto;
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        return texto(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    private synchronized String agregar(int h, byte[] bytes, String texto) {
+        // Otro hilo pudo agregarlo mientras se decodificaba
+        Entrada[] t = tabla;
+        int i = h & (t.length - 1);
+        for (; t[i] != null; i = (i + 1) & (t.length - 1)) {
+            if (t[i].hash == h && Arrays.equals(t[i].bytes, bytes)) return t[i].texto;
+        }
+        if (cantidad >= maximo) {
+            lleno = true;
+            return texto;
+        }
+        if ((cantidad + 1) * 2 > t.length) {
+            t = agrandar(t);
+            i = h & (t.length - 1);
+            while (t[i] != null) i = (i + 1) & (t.length - 1);
+        }
+        // La entrada es inmutable: un lector que la vea la ve completa
+        t[i] = new Entrada(h, bytes, texto);
+        cantidad++;
+        tabla = t;
+        return texto;
+    }
+
+    private static Entrada[] agrandar(Entrada[] vieja) {
+        Entrada[] nueva = new Entrada[vieja.length * 2];
+        for (Entrada e : vieja) {
+            if (e == null) continue;
+            int i = e.hash & (nueva.length - 1);
+            while (nueva[i] != null) i = (i + 1) & (nueva.length - 1);
+            nueva[i] = e;
+        }
+        return nueva;
+    }
+
+    private static int hash(ByteBuffer buf, int p, int n) {
+        int h = 1;
+        for (int i = 0; i < n; i++) h = 31 * h + buf.get(p + i);
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean iguales(byte[] bytes, ByteBuffer buf, int p, int n) {
+        if (bytes.length != n) return false;
+        for (int i = 0; i < n; i++) {
+            if (bytes[i] != buf.get(p + i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,224 @@
+package proyecto.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Escaneo de solo lectura sobre el archivo mapeado en memoria (FileChannel.map).
+ * El archivo se parte en trozos que terminan en un salto de linea y cada trozo se
+ * recorre en paralelo directamente desde el buffer mapeado, sin copiarlo al heap.
+ * Pensado para archivos de varios GB; para archivos chicos conviene LectorRegistros.
+ *
+ * Un MappedByteBuffer no se puede desmapear a mano: queda mapeado hasta que el GC lo
+ * libera. En Windows eso impide reemplazar o borrar el archivo mientras tanto, y volcar
+ * reemplaza el CSV con un move atomico (fallaria con AccessDeniedException despues de
+ * un escaneo). Por eso en Windows, salvo que se pida lo contrario, cada trozo se lee por
+ * bloques con FileChannel.read: se pierde la copia cero pero se mantiene el paralelismo.
+ */
+public class EscaneoMapeado {
+    /** Por debajo de este tamano el mapeo no compensa y se usa el lector normal. */
+    public static final long UMBRAL_MAPEO = 64L << 20;
+    // Cada trozo se mapea por separado (un MappedByteBuffer no puede pasar de 2 GB)
+    private static final long TAMANO_TROZO_MAX = 256L << 20;
+    // Bloque de lectura cuando no se mapea (crece si una linea no entra)
+    private static final int TAMANO_BLOQUE = 1 << 20;
+
+    /** Si por defecto se mapea: no en Windows, donde el archivo mapeado no se puede reemplazar. */
+    public static final boolean MAPEO_POR_DEFECTO = !System.getProperty("os.name", "").startsWith("Windows");
+
+    /**
+     * Resultado de un escaneo con las filas aceptadas y la velocidad conseguida.
+     */
+    public static class Resultado<T> {
+        private final List<T> filas;
+        private final long bytes;
+        private final long nanos;
+        private final int trozos;
+
+        Resultado(List<T> filas, long bytes, long nanos, int trozos) {
+            this.filas = filas;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.trozos = trozos;
+        }
+
+        public List<T> getFilas() { return filas; }
+        public long getBytes() { return bytes; }
+        public long getNanos() { return nanos; }
+        public int getTrozos() { return trozos; }
+
+        public double bytesPorSegundo() {
+            return nanos == 0 ? 0 : bytes * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d bytes en %d trozos, %.1f MB/s", bytes, trozos, bytesPorSegundo() / (1 << 20));
+        }
+    }
+
+    /**
+     * Recorre el archivo en paralelo. mapeo recibe cada registro y devuelve el valor a
+     * conservar o null para descartarlo; el orden del archivo se mantiene en el resultado.
+     */
+    public static <T> Resultado<T> escanear(Path archivo, Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        return escanear(archivo, ForkJoinPool.commonPool().getParallelism(), mapeo);
+    }
+
+    /**
+     * Igual que escanear, partiendo el archivo en al menos tantos trozos como se pida
+     * (menos si no hay tantas lineas).
+     */
+    public static <T> Resultado<T> escanear(Path archivo, int trozos, Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        return escanear(archivo, trozos, MAPEO_POR_DEFECTO, mapeo);
+    }
+
+    /**
+     * Igual que escanear, eligiendo si los trozos se mapean o se leen por bloques. Mapear
+     * en Windows solo es seguro si nadie va a reemplazar el archivo en este proceso.
+     */
+    public static <T> Resultado<T> escanear(Path archivo, int trozos, boolean mapear,
+                                            Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        if (trozos < 1) throw new IllegalArgumentException("Se necesita al menos un trozo");
+        long t0 = System.nanoTime();
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = ch.size();
+            long[] cortes = cortes(ch, tamano, trozos);
+            int n = cortes.length - 1;
+            List<List<T>> parciales = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) parciales.add(null);
+            try {
+                IntStream.range(0, n).parallel().forEach(i -> {
+                    try {
+                        parciales.set(i, mapear ? escanearTrozo(ch, cortes[i], cortes[i + 1], mapeo)
+                                                : leerTrozo(ch, cortes[i], cortes[i + 1], mapeo));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            int total = 0;
+            for (List<T> p : parciales) total += p.size();
+            List<T> filas = new ArrayList<>(total);
+            for (List<T> p : parciales) filas.addAll(p);
+            return new Resultado<>(filas, tamano, System.nanoTime() - t0, n);
+        }
+    }
+
+    // Posiciones de corte alineadas al byte siguiente a un '\n'
+    private static long[] cortes(FileChannel ch, long tamano, int trozos) throws IOException {
+        long porTamano = (tamano + TAMANO_TROZO_MAX - 1) / TAMANO_TROZO_MAX;
+        int n = (int) Math.max(1, Math.max(trozos, porTamano));
+        long paso = Math.max(1, tamano / n);
+        List<Long> res = new ArrayList<>();
+        res.add(0L);
+        ByteBuffer aux = ByteBuffer.allocate(8192);
+        long pos = 0;
+        for (int i = 1; i < n; i++) {
+            long objetivo = Math.max(pos, i * paso);
+            long corte = siguienteLinea(ch, objetivo, tamano, aux);
+            if (corte >= tamano) break;
+            if (corte > pos) { res.add(corte); pos = corte; }
+        }
+        res.add(tamano);
+        long[] arr = new long[res.size()];
+        for (int i = 0; i < arr.length; i++) arr[i] = res.get(i);
+        return arr;
+    }
+
+    private static long siguienteLinea(FileChannel ch, long desde, long tamano, ByteBuffer aux) throws IOException {
+        long pos = desde;
+        while (pos < tamano) {
+            aux.clear();
+            int n = ch.read(aux, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (aux.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return tamano;
+    }
+
+    private static <T> List<T> escanearTrozo(FileChannel ch, long ini, long fin,
+                                             Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        List<T> res = new ArrayList<>();
+        if (fin <= ini) return res;
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, ini, fin - ini);
+        recorrer(buf, buf.limit(), ini, new LectorRegistros.Registro(), mapeo, res);
+        return res;
+    }
+
+    // Mismo recorrido sin mapear: bloques leidos con read posicional, arrastrando la linea cortada
+    private static <T> List<T> leerTrozo(FileChannel ch, long ini, long fin,
+                                         Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        List<T> res = new ArrayList<>();
+        LectorRegistros.Registro r = new LectorRegistros.Registro();
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(TAMANO_BLOQUE, Math.max(1, fin - ini)));
+        long base = ini;
+        long leido = ini;
+        while (leido < fin) {
+            if (!buf.hasRemaining()) {
+                buf.flip();
+                buf = ByteBuffer.allocate(buf.capacity() * 2).put(buf);
+            }
+            ByteBuffer destino = buf.duplicate();
+            destino.limit(buf.position() + (int) Math.min(buf.remaining(), fin - leido));
+            int n = ch.read(destino, leido);
+            // Si el archivo se acorto mientras tanto, se procesa lo que hay
+            if (n < 0) leido = fin;
+            else { leido += n; buf.position(destino.position()); }
+            int lleno = buf.position();
+            int usados = leido >= fin ? lleno : finUltimaLinea(buf, lleno);
+            recorrer(buf, usados, base, r, mapeo, res);
+            buf.limit(lleno).position(usados);
+            buf.compact();
+            base += usados;
+        }
+        return res;
+    }
+
+    private static int finUltimaLinea(ByteBuffer buf, int lleno) {
+        for (int i = lleno - 1; i >= 0; i--) {
+            if (buf.get(i) == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    // Recorre las lineas de buf[0, limite); ini es la posicion en el archivo del byte 0
+    private static <T> void recorrer(ByteBuffer buf, int limite, long ini, LectorRegistros.Registro r,
+                                     Function<LectorRegistros.Registro, T> mapeo, List<T> res) {
+        int p = 0;
+        while (p < limite) {
+            int nl = p;
+            while (nl < limite && buf.get(nl) != '\n') nl++;
+            int siguiente = Math.min(nl + 1, limite);
+            int f = nl;
+            if (f > p && buf.get(f - 1) == '\r') f--;
+            if (!esIgnorable(buf, p, f)) {
+                r.preparar(buf, p, f, ini + p, ini + siguiente);
+                T v = mapeo.apply(r);
+                if (v != null) res.add(v);
+            }
+            p = siguiente;
+        }
+    }
+
+    private static boolean esIgnorable(ByteBuffer buf, int ini, int fin) {
+        int i = ini;
+        while (i < fin && (buf.get(i) & 0xFF) <= ' ') i++;
+        return i == fin || buf.get(i) == '#';
+    }
+}
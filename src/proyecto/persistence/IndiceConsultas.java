@@ -0,0 +1,160 @@
+package proyecto.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Indice en memoria de consultas.csv: para cada fila guarda su posicion en el archivo
+ * y su fecha en minutos desde la epoca, y mantiene las filas ordenadas por fecha para
+ * responder rangos con busqueda binaria. Ademas indexa las filas por id, pacienteId y
+ * doctorId. Se reconstruye al cargar y se actualiza al anexar.
+ */
+class IndiceConsultas {
+    static final long SIN_FECHA = Long.MIN_VALUE;
+
+    // Por numero de fila (orden del archivo)
+    private long[] posiciones = new long[1024];
+    private long[] minutos = new long[1024];
+    private int filas;
+
+    // Filas con fecha, ordenadas por minuto (y por fila dentro del mismo minuto)
+    private int[] orden = new int[0];
+    private long[] minutosOrdenados = new long[0];
+    private int ordenadas;
+
+    // Indices secundarios: clave -> filas
+    private final MapaListasEnteros porId = new MapaListasEnteros();
+    private final MapaListasEnteros porPaciente = new MapaListasEnteros();
+    private final MapaListasEnteros porDoctor = new MapaListasEnteros();
+
+    int filas() { return filas; }
+
+    long posicion(int fila) { return posiciones[fila]; }
+
+    long minuto(int fila) { return minutos[fila]; }
+
+    /** Agrega una fila durante la construccion; llamar a {@link #ordenar()} al terminar. */
+    int cargar(long posicion, long minuto, int id, int pacienteId, int doctorId) {
+        if (filas == posiciones.length) {
+            posiciones = Arrays.copyOf(posiciones, filas * 2);
+            minutos = Arrays.copyOf(minutos, filas * 2);
+        }
+        posiciones[filas] = posicion;
+        minutos[filas] = minuto;
+        porId.agregar(id, filas);
+        porPaciente.agregar(pacienteId, filas);
+        porDoctor.agregar(doctorId, filas);
+        return filas++;
+    }
+
+    void ordenar() {
+        int[] conFecha = new int[filas];
+        int n = 0;
+        for (int i = 0; i < filas; i++) {
+            if (minutos[i] != SIN_FECHA) conFecha[n++] = i;
+        }
+        int[] ordenado = ordenarPorMinuto(conFecha, n);
+        orden = Arrays.copyOf(ordenado, Math.max(16, n));
+        minutosOrdenados = new long[orden.length];
+        for (int k = 0; k < n; k++) minutosOrdenados[k] = minutos[orden[k]];
+        ordenadas = n;
+    }
+
+    // Filas (con fecha) ordenadas por minuto y, a igual minuto, por numero de fila
+    private int[] ordenarPorMinuto(int[] f, int n) {
+        if (n == 0) return new int[0];
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int k = 0; k < n; k++) {
+            min = Math.min(min, minutos[f[k]]);
+            max = Math.max(max, minutos[f[k]]);
+        }
+        int[] res = new int[n];
+        if (max - min < (1L << 31)) {
+            // (minuto relativo, fila) empaquetados en un long: un solo sort primitivo
+            long[] claves = new long[n];
+            for (int k = 0; k < n; k++) claves[k] = ((minutos[f[k]] - min) << 32) | f[k];
+            if (n > 8192) Arrays.parallelSort(claves);
+            else Arrays.sort(claves);
+            for (int k = 0; k < n; k++) res[k] = (int) claves[k];
+        } else {
+            Integer[] aux = new Integer[n];
+            for (int k = 0; k < n; k++) aux[k] = f[k];
+            Arrays.sort(aux, (a, b) -> minutos[a] != minutos[b] ? Long.compare(minutos[a], minutos[b]) : Integer.compare(a, b));
+            for (int k = 0; k < n; k++) res[k] = aux[k];
+        }
+        return res;
+    }
+
+    /** Agrega una fila nueva (anexada al final del archivo) manteniendo el orden por fecha. */
+    int agregar(long posicion, long minuto, int id, int pacienteId, int doctorId) {
+        int fila = cargar(posicion, minuto, id, pacienteId, doctorId);
+        if (minuto == SIN_FECHA) return fila;
+        if (ordenadas == orden.length) {
+            orden = Arrays.copyOf(orden, Math.max(16, ordenadas * 2));
+            minutosOrdenados = Arrays.copyOf(minutosOrdenados, orden.length);
+        }
+        int k = cotaSuperior(minuto);
+        System.arraycopy(orden, k, orden, k + 1, ordenadas - k);
+        System.arraycopy(minutosOrdenados, k, minutosOrdenados, k + 1, ordenadas - k);
+        orden[k] = fila;
+        minutosOrdenados[k] = minuto;
+        ordenadas++;
+        return fila;
+    }
+
+    /**
+     * Posiciones (ascendentes, en orden del archivo) de las filas con fecha en [desde, hasta).
+     */
+    long[] posicionesEnRango(long desde, long hasta) {
+        int lo = cotaInferior(desde);
+        int hi = cotaInferior(hasta);
+        if (hi <= lo) return new long[0];
+        long[] res = new long[hi - lo];
+        for (int k = lo; k < hi; k++) res[k - lo] = posiciones[orden[k]];
+        Arrays.sort(res);
+        return res;
+    }
+
+    /** Fila de la primera consulta con ese id, o -1. */
+    int filaDeId(int id) { return porId.primero(id); }
+
+    /** Posiciones (en orden del archivo) de las consultas del paciente. */
+    long[] posicionesDePaciente(int pacienteId) {
+        int[] f = porPaciente.valores(pacienteId);
+        long[] res = new long[f.length];
+        for (int k = 0; k < f.length; k++) res[k] = posiciones[f[k]];
+        return res;
+    }
+
+    /**
+     * Filas del doctor con fecha en [desde, hasta), ordenadas por fecha.
+     */
+    int[] filasDeDoctor(int doctorId, long desde, long hasta) {
+        int[] f = porDoctor.valores(doctorId);
+        int n = 0;
+        for (int fila : f) {
+            long m = minutos[fila];
+            if (m != SIN_FECHA && m >= desde && m < hasta) f[n++] = fila;
+        }
+        return ordenarPorMinuto(f, n);
+    }
+
+    private int cotaInferior(long minuto) {
+        int lo = 0, hi = ordenadas;
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            if (minutosOrdenados[m] < minuto) lo = m + 1;
+            else hi = m;
+        }
+        return lo;
+    }
+
+    private int cotaSuperior(long minuto) {
+        int lo = 0, hi = ordenadas;
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            if (minutosOrdenados[m] <= minuto) lo = m + 1;
+            else hi = m;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,110 @@
+package proyecto.persistence;
+
+import proyecto.validacionDatos.validacionPaciente;
+
+import java.util.Arrays;
+
+/**
+ * Ids de pacientes agrupados por edad: un casillero por cada edad valida (0 a 120, ver
+ * validacionPaciente.validaEdad) y uno mas para las edades fuera de ese rango que pudiera
+ * traer el archivo. Cuantos hay en un rango de edades sale sumando casilleros, en
+ * O(casilleros) sin importar cuantos pacientes haya, y sus ids recorriendo solo esos
+ * casilleros. Cada alta o baja cuesta O(1), asi que la persistencia lo mantiene con cada
+ * escritura y el histograma esta siempre al dia sin leer el archivo.
+ *
+ * Guarda un id una sola vez (la persistencia indexa la primera fila de cada id). No es
+ * seguro entre hilos: se modifica con el cerrojo de escritura del archivo tomado.
+ */
+final class IndiceEdades {
+    private static final int EDADES = validacionPaciente.EDAD_MAXIMA - validacionPaciente.EDAD_MINIMA + 1;
+    // Casillero de las edades invalidas
+    private static final int FUERA = EDADES;
+    private static final int[] VACIO = new int[0];
+
+    // Por casillero: ids (los primeros cantidades[c] son validos)
+    private final int[][] ids = new int[EDADES + 1][];
+    private final int[] cantidades = new int[EDADES + 1];
+    // Edad de cada id del casillero FUERA, en la misma posicion
+    private int[] edadesFuera = VACIO;
+    // Posicion de cada id dentro de su casillero, para quitarlo sin buscarlo
+    private final MapaEnterosInt posicion = new MapaEnterosInt();
+
+    /** Agrega el id (que no debe estar) con esa edad. */
+    void agregar(int id, int edad) {
+        int c = casillero(edad);
+        int n = cantidades[c];
+        if (ids[c] == null) ids[c] = new int[8];
+        else if (n == ids[c].length) ids[c] = Arrays.copyOf(ids[c], n * 2);
+        ids[c][n] = id;
+        if (c == FUERA) {
+            if (n == edadesFuera.length) edadesFuera = Arrays.copyOf(edadesFuera, Math.max(8, n * 2));
+            edadesFuera[n] = edad;
+        }
+        posicion.poner(id, n);
+        cantidades[c]++;
+    }
+
+    /** Quita el id, que se agrego con esa edad. */
+    void quitar(int id, int edad) {
+        int p = posicion.quitar(id);
+        if (p == MapaEnterosInt.NINGUNO) return;
+        int c = casillero(edad);
+        int ultima = --cantidades[c];
+        // El ultimo del casillero pasa al lugar libre
+        if (p != ultima) {
+            int movido = ids[c][ultima];
+            ids[c][p] = movido;
+            if (c == FUERA) edadesFuera[p] = edadesFuera[ultima];
+            posicion.poner(movido, p);
+        }
+    }
+
+    /** Cuantos pacientes tienen edad en [desde, hasta]. */
+    int contar(long desde, long hasta) {
+        int n = 0;
+        for (int c = primerCasillero(desde), fin = ultimoCasillero(hasta); c <= fin; c++) n += cantidades[c];
+        if (incluyeFuera(desde, hasta)) {
+            for (int k = 0; k < cantidades[FUERA]; k++) {
+                if (edadesFuera[k] >= desde && edadesFuera[k] <= hasta) n++;
+            }
+        }
+        return n;
+    }
+
+    /** Ids con edad en [desde, hasta], de menor a mayor edad (las edades invalidas al final). */
+    int[] ids(long desde, long hasta) {
+        int[] res = new int[contar(desde, hasta)];
+        int n = 0;
+        for (int c = primerCasillero(desde), fin = ultimoCasillero(hasta); c <= fin; c++) {
+            System.arraycopy(ids[c] == null ? VACIO : ids[c], 0, res, n, cantidades[c]);
+            n += cantidades[c];
+        }
+        if (incluyeFuera(desde, hasta)) {
+            for (int k = 0; k < cantidades[FUERA]; k++) {
+                if (edadesFuera[k] >= desde && edadesFuera[k] <= hasta) res[n++] = ids[FUERA][k];
+            }
+        }
+        return res;
+    }
+
+    /** Pacientes por edad: posicion i = cuantos tienen EDAD_MINIMA + i. */
+    int[] histograma() {
+        return Arrays.copyOf(cantidades, EDADES);
+    }
+
+    private static int casillero(int edad) {
+        return validacionPaciente.validaEdad(edad) ? edad - validacionPaciente.EDAD_MINIMA : FUERA;
+    }
+
+    private static int primerCasillero(long desde) {
+        return (int) Math.min(EDADES, Math.max(0, desde - validacionPaciente.EDAD_MINIMA));
+    }
+
+    private static int ultimoCasillero(long hasta) {
+        return (int) Math.max(-1, Math.min(EDADES - 1, hasta - validacionPaciente.EDAD_MINIMA));
+    }
+
+    private static boolean incluyeFuera(long desde, long hasta) {
+        return desde <= hasta && (desde < validacionPaciente.EDAD_MINIMA || hasta > validacionPaciente.EDAD_MAXIMA);
+    }
+}
@@ -0,0 +1,165 @@
+package proyecto.persistence;
+
+import proyecto.busqueda.Criterio;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Indice de busqueda por nombre: los nombres se normalizan (sin acentos, en minusculas)
+ * y se indexan por trigramas, de modo que una busqueda por subcadena o prefijo solo
+ * verifica los candidatos que contienen todos los trigramas de la consulta.
+ * Las consultas recientes se guardan en una cache LRU que se vacia con cada cambio.
+ */
+public class IndiceNombres {
+    private static final int CAPACIDAD_CACHE = 256;
+    private static final int[] VACIO = new int[0];
+
+    // Por entrada: id del paciente y nombre normalizado (null si la entrada fue borrada)
+    private int[] ids = new int[1024];
+    private String[] nombres = new String[1024];
+    private int entradas;
+    private int borradas;
+    private final MapaEnterosInt entradaDeId = new MapaEnterosInt();
+    private MapaListasEnteros trigramas = new MapaListasEnteros();
+
+    private final Map<String, int[]> recientes = new LinkedHashMap<String, int[]>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> e) {
+            return size() > CAPACIDAD_CACHE;
+        }
+    };
+
+    /** Quita acentos y pasa a minusculas: "José" -> "jose". Igual que los criterios de texto. */
+    public static String normalizar(String s) {
+        return Criterio.normalizar(s);
+    }
+
+    public synchronized void agregar(int id, String nombre) {
+        quitar(id);
+        if (entradas == ids.length) {
+            ids = Arrays.copyOf(ids, entradas * 2);
+            nombres = Arrays.copyOf(nombres, entradas * 2);
+        }
+        String n = normalizar(nombre);
+        int e = entradas++;
+        ids[e] = id;
+        nombres[e] = n;
+        entradaDeId.poner(id, e);
+        indexar(n, e);
+        recientes.clear();
+    }
+
+    public synchronized void quitar(int id) {
+        int e = entradaDeId.quitar(id);
+        if (e == MapaEnterosInt.NINGUNO) return;
+        // Borrado perezoso: la entrada queda en las listas de trigramas pero se ignora
+        nombres[e] = null;
+        borradas++;
+        recientes.clear();
+        if (borradas > 1024 && borradas > entradas / 2) reconstruir();
+    }
+
+    /** Ids cuyo nombre contiene el texto (sin distinguir acentos ni mayusculas). */
+    public synchronized int[] buscarSubcadena(String texto) {
+        return buscar(normalizar(texto), false);
+    }
+
+    /** Ids cuyo nombre empieza con el texto (sin distinguir acentos ni mayusculas). */
+    public synchronized int[] buscarPrefijo(String texto) {
+        return buscar(normalizar(texto), true);
+    }
+
+    private int[] buscar(String q, boolean prefijo) {
+        String clave = (prefijo ? "P|" : "S|") + q;
+        int[] res = recientes.get(clave);
+        // La cache se queda con su arreglo: quien llama recibe una copia
+        if (res != null) return res.clone();
+        int[] candidatos = null;
+        int total = entradas;
+        int n = 0;
+        if (q.length() >= 3) {
+            candidatos = candidatos(q);
+            total = candidatos.length;
+        }
+        int[] ok = new int[Math.min(total, 1024)];
+        for (int k = 0; k < total; k++) {
+            int e = candidatos == null ? k : candidatos[k];
+            String nombre = nombres[e];
+            if (nombre == null) continue;
+            if (prefijo ? nombre.startsWith(q) : nombre.contains(q)) {
+                if (n == ok.length) ok = Arrays.copyOf(ok, n * 2);
+                ok[n++] = ids[e];
+            }
+        }
+        res = Arrays.copyOf(ok, n);
+        recientes.put(clave, res);
+        return res.clone();
+    }
+
+    // Interseccion de las listas de todos los trigramas de la consulta, empezando por la
+    // mas corta. Las entradas se agregan en orden creciente, asi que cada lista esta ordenada.
+    private int[] candidatos(String q) {
+        int m = q.length() - 2;
+        int[] ts = new int[m];
+        int[] cantidades = new int[m];
+        for (int i = 0; i < m; i++) {
+            ts[i] = trigrama(q, i);
+            cantidades[i] = trigramas.cantidad(ts[i]);
+            if (cantidades[i] == 0) return VACIO;
+        }
+        int mejor = 0;
+        for (int i = 1; i < m; i++) if (cantidades[i] < cantidades[mejor]) mejor = i;
+        int[] res = Arrays.copyOf(trigramas.sinCopiar(ts[mejor]), cantidades[mejor]);
+        int n = res.length;
+        for (int i = 0; i < m && n > 0; i++) {
+            if (ts[i] == ts[mejor]) continue;
+            int[] lista = trigramas.sinCopiar(ts[i]);
+            int tam = cantidades[i];
+            int k = 0, desde = 0;
+            for (int j = 0; j < n; j++) {
+                int pos = Arrays.binarySearch(lista, desde, tam, res[j]);
+                if (pos >= 0) { res[k++] = res[j]; desde = pos + 1; }
+                else desde = -pos - 1;
+            }
+            n = k;
+        }
+        return n == res.length ? res : Arrays.copyOf(res, n);
+    }
+
+    private void reconstruir() {
+        int[] viejosIds = ids;
+        String[] viejosNombres = nombres;
+        int viejas = entradas;
+        ids = new int[Math.max(1024, viejas - borradas)];
+        nombres = new String[ids.length];
+        entradas = 0;
+        borradas = 0;
+        entradaDeId.limpiar();
+        trigramas = new MapaListasEnteros();
+        for (int e = 0; e < viejas; e++) {
+            if (viejosNombres[e] == null) continue;
+            int nueva = entradas++;
+            ids[nueva] = viejosIds[e];
+            nombres[nueva] = viejosNombres[e];
+            entradaDeId.poner(viejosIds[e], nueva);
+            indexar(viejosNombres[e], nueva);
+        }
+    }
+
+    private void indexar(String n, int e) {
+        for (int i = 0; i + 3 <= n.length(); i++) {
+            int t = trigrama(n, i);
+            // Un trigrama repetido en el mismo nombre se indexa una sola vez
+            boolean repetido = false;
+            for (int j = 0; j < i && !repetido; j++) repetido = trigrama(n, j) == t;
+            if (!repetido) trigramas.agregar(t, e);
+        }
+    }
+
+    // Los tres caracteres en un int; las colisiones se descartan al verificar el candidato
+    private static int trigrama(String s, int i) {
+        return (s.charAt(i) * 31 + s.charAt(i + 1)) * 31 + s.charAt(i + 2);
+    }
+}
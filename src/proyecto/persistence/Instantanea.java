@@ -0,0 +1,246 @@
+package proyecto.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instantanea binaria por columnas de un CSV (archivo.snap). Guarda la huella del CSV
+ * (y de su bitacora) con la que se genero: solo se usa si coincide con la actual, asi
+ * que el CSV sigue siendo la fuente de verdad y la instantanea es descartable.
+ *
+ * Formato: "SNP1", huella (3 longs), filas, columnas y luego cada columna:
+ * 'I' n ints | 'L' n longs | 'S' n largos + bytes UTF-8 | 'D' diccionario + n codigos.
+ * Un largo de texto -1 representa null. Las columnas de texto con muchos valores
+ * repetidos se guardan con diccionario aunque no se pida.
+ */
+public class Instantanea {
+    private static final int MAGICO = 0x534E5031; // "SNP1"
+    private static final byte ENTEROS = 'I';
+    private static final byte LARGOS = 'L';
+    private static final byte TEXTOS = 'S';
+    private static final byte DICCIONARIO = 'D';
+    // Valores distintos a partir de los cuales una columna de texto se guarda sin diccionario
+    private static final int MAXIMO_DICCIONARIO = 1 << 16;
+
+    private final int filas;
+    private final List<Object> columnas;
+
+    private Instantanea(int filas, List<Object> columnas) {
+        this.filas = filas;
+        this.columnas = columnas;
+    }
+
+    public int filas() { return filas; }
+
+    /** Cantidad de columnas; si no es la esperada la instantanea es de otro formato. */
+    public int columnas() { return columnas.size(); }
+
+    public int[] enteros(int columna) { return (int[]) columnas.get(columna); }
+
+    public long[] largos(int columna) { return (long[]) columnas.get(columna); }
+
+    /** Textos de la columna; en las columnas con diccionario los valores iguales son la misma instancia. */
+    public String[] textos(int columna) { return (String[]) columnas.get(columna); }
+
+    /**
+     * Lee la instantanea si existe y fue generada con esa huella; si no, o si esta
+     * danada, devuelve null y hay que leer el CSV.
+     */
+    public static Instantanea leer(Path archivo, long[] huella) throws IOException {
+        if (Files.notExists(archivo)) return null;
+        ByteBuffer b;
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = ch.size();
+            if (tamano < 32 || tamano > Integer.MAX_VALUE) return null;
+            b = ByteBuffer.allocate((int) tamano);
+            while (b.hasRemaining() && ch.read(b) > 0) { }
+            b.flip();
+        }
+        try {
+            if (b.getInt() != MAGICO) return null;
+            for (long h : huella) if (b.getLong() != h) return null;
+            int filas = b.getInt();
+            int cantidad = b.getInt();
+            List<Object> columnas = new ArrayList<>(cantidad);
+            for (int c = 0; c < cantidad; c++) {
+                byte tipo = b.get();
+                switch (tipo) {
+                    case ENTEROS: {
+                        int[] v = new int[filas];
+                        b.asIntBuffer().get(v);
+                        b.position(b.position() + filas * 4);
+                        columnas.add(v);
+                        break;
+                    }
+                    case LARGOS: {
+                        long[] v = new long[filas];
+                        b.asLongBuffer().get(v);
+                        b.position(b.position() + filas * 8);
+                        columnas.add(v);
+                        break;
+                    }
+                    case TEXTOS:
+                        columnas.add(leerTextos(b, filas));
+                        break;
+                    case DICCIONARIO: {
+                        String[] dic = leerTextos(b, b.getInt());
+                        String[] v = new String[filas];
+                        for (int i = 0; i < filas; i++) v[i] = dic[b.getInt()];
+                        columnas.add(v);
+                        break;
+                    }
+                    default:
+                        return null;
+                }
+            }
+            return b.hasRemaining() ? null : new Instantanea(filas, columnas);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // n largos seguidos de los bytes UTF-8 de los n textos
+    private static String[] leerTextos(ByteBuffer b, int n) {
+        int[] largos = new int[n];
+        b.asIntBuffer().get(largos);
+        b.position(b.position() + n * 4);
+        byte[] arr = b.array();
+        int pos = b.arrayOffset() + b.position();
+        String[] res = new String[n];
+        for (int i = 0; i < n; i++) {
+            if (largos[i] < 0) continue;
+            res[i] = new String(arr, pos, largos[i], StandardCharsets.UTF_8);
+            pos += largos[i];
+        }
+        b.position(pos - b.arrayOffset());
+        return res;
+    }
+
+    /**
+     * Arma una instantanea columna por columna; todas las columnas deben tener filas valores.
+     */
+    public static class Escritor {
+        private final int filas;
+        private final List<Object[]> columnas = new ArrayList<>();
+
+        public Escritor(int filas) {
+            this.filas = filas;
+        }
+
+        public Escritor enteros(int[] valores) {
+            return agregar(ENTEROS, valores, valores.length);
+        }
+
+        public Escritor largos(long[] valores) {
+            return agregar(LARGOS, valores, valores.length);
+        }
+
+        /** Texto libre; si resulta tener pocos valores distintos se guarda con diccionario. */
+        public Escritor textos(String[] valores) {
+            return agregar(TEXTOS, valores, valores.length);
+        }
+
+        /** Texto con pocos valores distintos: se guarda cada valor una vez y un codigo por fila. */
+        public Escritor diccionario(String[] valores) {
+            return agregar(DICCIONARIO, valores, valores.length);
+        }
+
+        private Escritor agregar(byte tipo, Object valores, int largo) {
+            if (largo != filas) throw new IllegalArgumentException("La columna tiene " + largo + " valores, se esperaban " + filas);
+            columnas.add(new Object[]{tipo, valores});
+            return this;
+        }
+
+        /** Escribe en un temporal y lo mueve sobre el archivo, para no dejar instantaneas a medias. */
+        public void escribir(Path archivo, long[] huella) throws IOException {
+            Path tmp = Files.createTempFile(archivo.toAbsolutePath().getParent(), archivo.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16))) {
+                    out.writeInt(MAGICO);
+                    for (long h : huella) out.writeLong(h);
+                    out.writeInt(filas);
+                    out.writeInt(columnas.size());
+                    for (Object[] col : columnas) {
+                        byte tipo = (Byte) col[0];
+                        if (tipo == TEXTOS) {
+                            // Texto con muchos valores repetidos (motivos, notas...): tambien con diccionario
+                            int[] codigos = codificar((String[]) col[1], Math.min(filas / 2, MAXIMO_DICCIONARIO));
+                            if (codigos != null) {
+                                tipo = DICCIONARIO;
+                                col = new Object[]{tipo, col[1], codigos};
+                            }
+                        }
+                        out.writeByte(tipo);
+                        switch (tipo) {
+                            case ENTEROS:
+                                for (int v : (int[]) col[1]) out.writeInt(v);
+                                break;
+                            case LARGOS:
+                                for (long v : (long[]) col[1]) out.writeLong(v);
+                                break;
+                            case TEXTOS:
+                                escribirTextos(out, (String[]) col[1]);
+                                break;
+                            default:
+                                escribirDiccionario(out, (String[]) col[1], col.length > 2 ? (int[]) col[2] : null);
+                        }
+                    }
+                }
+                try {
+                    Files.move(tmp, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, archivo, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        private static void escribirTextos(DataOutputStream out, String[] valores) throws IOException {
+            byte[][] bytes = new byte[valores.length][];
+            for (int i = 0; i < valores.length; i++) {
+                bytes[i] = valores[i] == null ? null : valores[i].getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes[i] == null ? -1 : bytes[i].length);
+            }
+            for (byte[] b : bytes) if (b != null) out.write(b);
+        }
+
+        // Codigo por fila seguido del diccionario en la ultima posicion, o null si hay mas de maximo valores distintos
+        private static int[] codificar(String[] valores, int maximo) {
+            Map<String, Integer> codigos = new HashMap<>();
+            int[] porFila = new int[valores.length + 1];
+            for (int i = 0; i < valores.length; i++) {
+                Integer c = codigos.get(valores[i]);
+                if (c == null) {
+                    if (codigos.size() >= maximo) return null;
+                    c = codigos.size();
+                    codigos.put(valores[i], c);
+                }
+                porFila[i] = c;
+            }
+            porFila[valores.length] = codigos.size();
+            return porFila;
+        }
+
+        private static void escribirDiccionario(DataOutputStream out, String[] valores, int[] codigos) throws IOException {
+            if (codigos == null) codigos = codificar(valores, Integer.MAX_VALUE);
+            String[] dic = new String[codigos[valores.length]];
+            for (int i = 0; i < valores.length; i++) dic[codigos[i]] = valores[i];
+            out.writeInt(dic.length);
+            escribirTextos(out, dic);
+            for (int i = 0; i < valores.length; i++) out.writeInt(codigos[i]);
+        }
+    }
+}
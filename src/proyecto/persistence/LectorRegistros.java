@@ -0,0 +1,442 @@
+package proyecto.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lector en streaming de archivos delimitados por '|'.
+ * Recorre el archivo por bloques de bytes una sola vez, sin crear un String por linea
+ * ni usar String.split: los campos se exponen como rangos dentro del bloque y los
+ * enteros se convierten directamente desde los bytes. Las lineas vacias y las que
+ * empiezan con '#' se saltan, igual que en readDataLines.
+ *
+ * El {@link Registro} que entrega es reutilizado: hay que extraer los valores antes
+ * de pedir el siguiente.
+ */
+public class LectorRegistros implements Closeable {
+    private static final int TAMANO_BLOQUE = 1 << 16;
+
+    @FunctionalInterface
+    public interface Accion {
+        void aceptar(Registro r) throws IOException;
+    }
+
+    private final FileChannel canal;
+    private byte[] datos = new byte[TAMANO_BLOQUE];
+    private ByteBuffer vista = ByteBuffer.wrap(datos);
+    private int inicio;
+    private int limite;
+    // Posicion en el archivo del byte datos[0]
+    private long base;
+    private boolean finArchivo;
+    private final Registro registro = new Registro();
+
+    // Cambios pendientes de la bitacora que se superponen al archivo (puede ser null)
+    private final Map<Integer, String> superpuestos;
+    private Set<Integer> aplicados;
+    private Iterator<Map.Entry<Integer, String>> altasFinales;
+    private Registro registroBitacora;
+    private Registro actual;
+
+    public LectorRegistros(Path archivo) throws IOException {
+        this(archivo, 0, null);
+    }
+
+    /**
+     * @param desde posicion en bytes donde empezar (debe ser inicio de linea)
+     * @param superpuestos cambios por id a aplicar sobre el archivo (linea o null si esta borrado)
+     */
+    public LectorRegistros(Path archivo, long desde, Map<Integer, String> superpuestos) throws IOException {
+        this.canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        this.canal.position(desde);
+        this.base = desde;
+        this.superpuestos = superpuestos == null || superpuestos.isEmpty() ? null : superpuestos;
+        if (this.superpuestos != null) {
+            aplicados = new HashSet<>();
+            registroBitacora = new Registro();
+        }
+    }
+
+    /**
+     * Avanza al siguiente registro de datos. Devuelve false al llegar al final.
+     */
+    public boolean siguiente() throws IOException {
+        while (true) {
+            if (altasFinales != null) return siguienteAlta();
+            if (!siguienteDelArchivo()) {
+                if (superpuestos == null) return false;
+                altasFinales = superpuestos.entrySet().iterator();
+                continue;
+            }
+            actual = registro;
+            if (superpuestos == null) return true;
+            int id;
+            try {
+                id = registro.entero(0);
+            } catch (NumberFormatException e) {
+                return true;
+            }
+            if (!superpuestos.containsKey(id)) return true;
+            String cambio = superpuestos.get(id);
+            if (cambio == null || !aplicados.add(id)) continue;
+            registroBitacora.preparar(cambio);
+            actual = registroBitacora;
+            return true;
+        }
+    }
+
+    private boolean siguienteAlta() {
+        while (altasFinales.hasNext()) {
+            Map.Entry<Integer, String> e = altasFinales.next();
+            if (e.getValue() == null || aplicados.contains(e.getKey())) continue;
+            registroBitacora.preparar(e.getValue());
+            actual = registroBitacora;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean siguienteDelArchivo() throws IOException {
+        while (true) {
+            int nl = -1;
+            for (int i = inicio; i < limite; i++) {
+                if (datos[i] == '\n') { nl = i; break; }
+            }
+            if (nl < 0) {
+                if (!finArchivo) { rellenar(); continue; }
+                if (inicio >= limite) return false;
+                nl = limite; // ultima linea sin salto final
+            }
+            int ini = inicio;
+            int fin = nl;
+            inicio = Math.min(nl + 1, limite);
+            if (fin > ini && datos[fin - 1] == '\r') fin--;
+            if (esIgnorable(ini, fin)) continue;
+            registro.preparar(vista, ini, fin, base + ini, base + inicio);
+            return true;
+        }
+    }
+
+    private boolean esIgnorable(int ini, int fin) {
+        int i = ini;
+        while (i < fin && (datos[i] & 0xFF) <= ' ') i++;
+        return i == fin || datos[i] == '#';
+    }
+
+    private void rellenar() throws IOException {
+        int pendiente = limite - inicio;
+        if (inicio > 0) {
+            System.arraycopy(datos, inicio, datos, 0, pendiente);
+            base += inicio;
+            inicio = 0;
+            limite = pendiente;
+        }
+        if (limite == datos.length) {
+            // Una sola linea mas larga que el bloque: se agranda
+            datos = Arrays.copyOf(datos, datos.length * 2);
+            vista = ByteBuffer.wrap(datos);
+        }
+        ByteBuffer destino = ByteBuffer.wrap(datos, limite, datos.length - limite);
+        int n = canal.read(destino);
+        if (n < 0) finArchivo = true;
+        else limite += n;
+    }
+
+    public Registro actual() { return actual; }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    // --------------------------
+    // Atajos
+    // --------------------------
+
+    /** Recorre todo el archivo aplicando la accion a cada registro. */
+    public static void leer(Path archivo, Map<Integer, String> superpuestos, Accion accion) throws IOException {
+        try (LectorRegistros lector = new LectorRegistros(archivo, 0, superpuestos)) {
+            while (lector.siguiente()) accion.aceptar(lector.actual());
+        }
+    }
+
+    /**
+     * Lee solo las lineas que empiezan en las posiciones dadas (en bytes, orden ascendente),
+     * reutilizando el bloque leido cuando varias lineas caen en el mismo.
+     */
+    public static void leerEn(Path archivo, long[] posiciones, int cantidad, Accion accion) throws IOException {
+        if (cantidad == 0) return;
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            byte[] bloque = new byte[8192];
+            ByteBuffer vista = ByteBuffer.wrap(bloque);
+            long inicioBloque = 0;
+            int largoBloque = 0;
+            Registro r = new Registro();
+            for (int k = 0; k < cantidad; k++) {
+                long pos = posiciones[k];
+                boolean enBloque = pos >= inicioBloque && pos < inicioBloque + largoBloque;
+                int nl = enBloque ? buscarSalto(bloque, (int) (pos - inicioBloque), largoBloque) : -1;
+                if (nl < 0) {
+                    // La linea no esta completa en el bloque actual: se lee un bloque que empiece en ella
+                    inicioBloque = pos;
+                    largoBloque = 0;
+                    while (true) {
+                        if (largoBloque == bloque.length) {
+                            bloque = Arrays.copyOf(bloque, bloque.length * 2);
+                            vista = ByteBuffer.wrap(bloque);
+                        }
+                        int n = ch.read(ByteBuffer.wrap(bloque, largoBloque, bloque.length - largoBloque), pos + largoBloque);
+                        if (n <= 0) { nl = largoBloque; break; } // ultima linea sin salto final
+                        int previo = largoBloque;
+                        largoBloque += n;
+                        nl = buscarSalto(bloque, previo, largoBloque);
+                        if (nl >= 0) break;
+                    }
+                }
+                int desde = (int) (pos - inicioBloque);
+                int fin = nl;
+                if (fin > desde && bloque[fin - 1] == '\r') fin--;
+                r.preparar(vista, desde, fin, pos, inicioBloque + Math.min(nl + 1, largoBloque));
+                accion.aceptar(r);
+            }
+        }
+    }
+
+    private static int buscarSalto(byte[] b, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (b[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Stream perezoso de registros convertidos con mapeo. Se lee del archivo a medida que
+     * se consume, asi que un limit()/findFirst() deja de leer en cuanto termina.
+     * El stream debe cerrarse (try-with-resources) para liberar el archivo.
+     */
+    public static <T> Stream<T> stream(Path archivo, long desde, Map<Integer, String> superpuestos,
+                                       Function<Registro, T> mapeo) throws IOException {
+        LectorRegistros lector = new LectorRegistros(archivo, desde, superpuestos);
+        Spliterator<T> sp = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> accion) {
+                try {
+                    if (!lector.siguiente()) return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                accion.accept(mapeo.apply(lector.actual()));
+                return true;
+            }
+        };
+        return StreamSupport.stream(sp, false).onClose(() -> {
+            try {
+                lector.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Vista de una linea: los campos son rangos de bytes dentro del buffer.
+     */
+    public static final class Registro {
+        private ByteBuffer buf;
+        private int[] inicios = new int[8];
+        private int[] fines = new int[8];
+        private int campos;
+        private int ini;
+        private int fin;
+        private long posicion = -1;
+        private long siguiente = -1;
+        private byte[] auxiliar = new byte[64];
+
+        void preparar(ByteBuffer buf, int ini, int fin, long posicion, long siguiente) {
+            this.buf = buf;
+            this.ini = ini;
+            this.fin = fin;
+            this.posicion = posicion;
+            this.siguiente = siguiente;
+            campos = 0;
+            int desde = ini;
+            for (int i = ini; i < fin; i++) {
+                if (buf.get(i) == '|') {
+                    agregarCampo(desde, i);
+                    desde = i + 1;
+                }
+            }
+            agregarCampo(desde, fin);
+        }
+
+        void preparar(String linea) {
+            byte[] b = linea.getBytes(StandardCharsets.UTF_8);
+            preparar(ByteBuffer.wrap(b), 0, b.length, -1, -1);
+        }
+
+        private void agregarCampo(int desde, int hasta) {
+            if (campos == inicios.length) {
+                inicios = Arrays.copyOf(inicios, campos * 2);
+                fines = Arrays.copyOf(fines, campos * 2);
+            }
+            inicios[campos] = desde;
+            fines[campos] = hasta;
+            campos++;
+        }
+
+        public int campos() { return campos; }
+
+        /** Posicion en bytes del inicio de la linea en el archivo (-1 si viene de la bitacora). */
+        public long posicion() { return posicion; }
+
+        /** Posicion en bytes donde empieza la linea siguiente (-1 si viene de la bitacora). */
+        public long siguiente() { return siguiente; }
+
+        public boolean vacio(int i) { return fines[i] == inicios[i]; }
+
+        public int longitud(int i) { return fines[i] - inicios[i]; }
+
+        /** Byte j-esimo del campo i. */
+        public byte byteEn(int i, int j) { return buf.get(inicios[i] + j); }
+
+        /** Entero del campo i, con las mismas reglas que Integer.parseInt. */
+        public int entero(int i) {
+            int p = inicios[i];
+            int f = fines[i];
+            if (p >= f) throw new NumberFormatException("Campo " + i + " vacio");
+            boolean negativo = false;
+            byte b = buf.get(p);
+            if (b == '-' || b == '+') {
+                negativo = b == '-';
+                if (++p == f) throw new NumberFormatException(texto(i));
+            }
+            long v = 0;
+            for (; p < f; p++) {
+                int d = buf.get(p) - '0';
+                if (d < 0 || d > 9) throw new NumberFormatException("For input string: \"" + texto(i) + "\"");
+                v = v * 10 + d;
+                if (v > (long) Integer.MAX_VALUE + 1) throw new NumberFormatException("For input string: \"" + texto(i) + "\"");
+            }
+            if (negativo) v = -v;
+            if (v > Integer.MAX_VALUE) throw new NumberFormatException("For input string: \"" + texto(i) + "\"");
+            return (int) v;
+        }
+
+        /**
+         * Fecha ISO (yyyy-MM-ddTHH:mm[:ss]) del campo i leida directamente de los bytes;
+         * otros formatos se delegan en LocalDateTime.parse. Devuelve null si el campo esta vacio.
+         */
+        public LocalDateTime fechaHora(int i) {
+            int p = inicios[i];
+            int n = fines[i] - p;
+            if (n == 0) return null;
+            if ((n == 16 || n == 19) && buf.get(p + 4) == '-' && buf.get(p + 7) == '-' && buf.get(p + 10) == 'T'
+                    && buf.get(p + 13) == ':' && (n == 16 || buf.get(p + 16) == ':')) {
+                int anio = digitos(p, 4), mes = digitos(p + 5, 2), dia = digitos(p + 8, 2);
+                int hora = digitos(p + 11, 2), min = digitos(p + 14, 2);
+                int seg = n == 19 ? digitos(p + 17, 2) : 0;
+                if (anio >= 0 && mes >= 0 && dia >= 0 && hora >= 0 && min >= 0 && seg >= 0) {
+                    return LocalDateTime.of(anio, mes, dia, hora, min, seg);
+                }
+            }
+            return LocalDateTime.parse(texto(i));
+        }
+
+        /**
+         * Minutos desde 1970-01-01T00:00 de la fecha del campo i, sin crear objetos para el
+         * formato ISO canonico. Long.MIN_VALUE si el campo esta vacio.
+         */
+        public long minutoEpoch(int i) {
+            long s = segundoEpoch(i);
+            return s == Long.MIN_VALUE ? s : Math.floorDiv(s, 60);
+        }
+
+        /**
+         * Segundos (enteros) desde 1970-01-01T00:00 de la fecha del campo i, igual que
+         * minutoEpoch. Long.MIN_VALUE si el campo esta vacio.
+         */
+        public long segundoEpoch(int i) {
+            int p = inicios[i];
+            int n = fines[i] - p;
+            if (n == 0) return Long.MIN_VALUE;
+            if ((n == 16 || n == 19) && buf.get(p + 4) == '-' && buf.get(p + 7) == '-' && buf.get(p + 10) == 'T'
+                    && buf.get(p + 13) == ':' && (n == 16 || buf.get(p + 16) == ':')) {
+                int anio = digitos(p, 4), mes = digitos(p + 5, 2), dia = digitos(p + 8, 2);
+                int hora = digitos(p + 11, 2), min = digitos(p + 14, 2);
+                int seg = n == 19 ? digitos(p + 17, 2) : 0;
+                if (anio >= 0 && mes >= 1 && mes <= 12 && dia >= 1 && dia <= Month.of(mes).length(Year.isLeap(anio))
+                        && hora >= 0 && hora < 24 && min >= 0 && min < 60 && seg >= 0 && seg < 60) {
+                    return diasEpoch(anio, mes, dia) * 86400L + hora * 3600L + min * 60L + seg;
+                }
+            }
+            return fechaHora(i).toEpochSecond(ZoneOffset.UTC);
+        }
+
+        // Dias desde 1970-01-01 en el calendario gregoriano proleptico
+        static long diasEpoch(int anio, int mes, int dia) {
+            long y = mes <= 2 ? anio - 1 : anio;
+            long era = Math.floorDiv(y, 400);
+            long yoe = y - era * 400;
+            long doy = (153L * (mes + (mes > 2 ? -3 : 9)) + 2) / 5 + dia - 1;
+            long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+            return era * 146097 + doe - 719468;
+        }
+
+        private int digitos(int p, int n) {
+            int v = 0;
+            for (int k = 0; k < n; k++) {
+                int d = buf.get(p + k) - '0';
+                if (d < 0 || d > 9) return -1;
+                v = v * 10 + d;
+            }
+            return v;
+        }
+
+        /** Indica si el campo i empieza con el texto dado (comparando bytes UTF-8). */
+        public boolean empiezaCon(int i, byte[] prefijo) {
+            if (longitud(i) < prefijo.length) return false;
+            int p = inicios[i];
+            for (int k = 0; k < prefijo.length; k++) {
+                if (buf.get(p + k) != prefijo[k]) return false;
+            }
+            return true;
+        }
+
+        public String texto(int i) {
+            return decodificar(inicios[i], fines[i] - inicios[i]);
+        }
+
+        /** Texto del campo, compartiendo la instancia con los valores iguales del diccionario. */
+        public String texto(int i, DiccionarioTextos diccionario) {
+            return diccionario.texto(buf, inicios[i], fines[i] - inicios[i]);
+        }
+
+        /** La linea completa, tal como esta en el archivo. */
+        public String linea() {
+            return decodificar(ini, fin - ini);
+        }
+
+        private String decodificar(int p, int n) {
+            if (n == 0) return "";
+            if (buf.hasArray()) return new String(buf.array(), buf.arrayOffset() + p, n, StandardCharsets.UTF_8);
+            if (auxiliar.length < n) auxiliar = new byte[Math.max(n, auxiliar.length * 2)];
+            buf.get(p, auxiliar, 0, n);
+            return new String(auxiliar, 0, n, StandardCharsets.UTF_8);
+        }
+    }
+}
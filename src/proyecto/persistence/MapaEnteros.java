@@ -0,0 +1,66 @@
+package proyecto.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Mapa con claves int primitivas (direccionamiento abierto, sondeo lineal).
+ * Evita el boxing de Integer en los indices por id.
+ */
+public class MapaEnteros<V> extends TablaEnteros {
+    private Object[] valores;
+
+    public MapaEnteros() { this(16); }
+
+    public MapaEnteros(int capacidadEsperada) {
+        super(capacidadEsperada);
+        valores = new Object[capacidad()];
+    }
+
+    public int tamano() { return ocupadas(); }
+
+    public boolean contiene(int clave) { return buscar(clave) >= 0; }
+
+    @SuppressWarnings("unchecked")
+    public V obtener(int clave) {
+        int i = buscar(clave);
+        return i < 0 ? null : (V) valores[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V poner(int clave, V valor) {
+        int i = reservar(clave);
+        V anterior = (V) valores[i];
+        valores[i] = valor;
+        return anterior;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V quitar(int clave) {
+        int i = buscar(clave);
+        if (i < 0) return null;
+        V anterior = (V) valores[i];
+        liberar(i);
+        return anterior;
+    }
+
+    @Override
+    public void limpiar() {
+        super.limpiar();
+        Arrays.fill(valores, null);
+    }
+
+    @Override
+    void mover(int desde, int hacia) { valores[hacia] = valores[desde]; }
+
+    @Override
+    void vaciar(int ranura) { valores[ranura] = null; }
+
+    @Override
+    void reubicar(int[] destinos, int nuevaCapacidad) {
+        Object[] viejos = valores;
+        valores = new Object[nuevaCapacidad];
+        for (int k = 0; k < destinos.length; k++) {
+            if (destinos[k] >= 0) valores[destinos[k]] = viejos[k];
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package proyecto.persistence;
+
+/**
+ * Mapa de int a int sin boxing, para los indices que guardan posiciones por id.
+ * Los valores no deben ser -1: obtener y quitar lo devuelven cuando la clave no esta.
+ */
+public class MapaEnterosInt extends TablaEnteros {
+    public static final int NINGUNO = -1;
+
+    private int[] valores;
+
+    public MapaEnterosInt() { this(16); }
+
+    public MapaEnterosInt(int capacidadEsperada) {
+        super(capacidadEsperada);
+        valores = new int[capacidad()];
+    }
+
+    public int tamano() { return ocupadas(); }
+
+    public boolean contiene(int clave) { return buscar(clave) >= 0; }
+
+    /** Valor de la clave, o NINGUNO si no esta. */
+    public int obtener(int clave) {
+        int i = buscar(clave);
+        return i < 0 ? NINGUNO : valores[i];
+    }
+
+    /** Pone el valor y devuelve el anterior, o NINGUNO si la clave es nueva. */
+    public int poner(int clave, int valor) {
+        int antes = ocupadas();
+        int i = reservar(clave);
+        int anterior = ocupadas() > antes ? NINGUNO : valores[i];
+        valores[i] = valor;
+        return anterior;
+    }
+
+    /** Quita la clave y devuelve su valor, o NINGUNO si no estaba. */
+    public int quitar(int clave) {
+        int i = buscar(clave);
+        if (i < 0) return NINGUNO;
+        int anterior = valores[i];
+        liberar(i);
+        return anterior;
+    }
+
+    @Override
+    public void limpiar() { super.limpiar(); }
+
+    @Override
+    void mover(int desde, int hacia) { valores[hacia] = valores[desde]; }
+
+    // Un int no retiene nada: no hace falta limpiar la ranura
+    @Override
+    void vaciar(int ranura) { }
+
+    @Override
+    void reubicar(int[] destinos, int nuevaCapacidad) {
+        int[] viejos = valores;
+        valores = new int[nuevaCapacidad];
+        for (int k = 0; k < destinos.length; k++) {
+            if (destinos[k] >= 0) valores[destinos[k]] = viejos[k];
+        }
+    }
+}
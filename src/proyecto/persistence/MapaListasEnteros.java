@@ -0,0 +1,99 @@
+package proyecto.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de clave int a lista de int, todo en arreglos primitivos (sin Integer).
+ * Se usa para los indices secundarios: clave -> filas donde aparece.
+ */
+public class MapaListasEnteros extends TablaEnteros {
+    private static final int[] VACIO = new int[0];
+
+    private int[][] listas;
+    private int[] tamanos;
+
+    public MapaListasEnteros() {
+        super(16);
+        listas = new int[capacidad()][];
+        tamanos = new int[capacidad()];
+    }
+
+    /** Cantidad de claves distintas. */
+    public int claves() { return ocupadas(); }
+
+    public void agregar(int clave, int valor) {
+        int i = reservar(clave);
+        if (listas[i] == null) {
+            listas[i] = new int[2];
+        } else if (tamanos[i] == listas[i].length) {
+            listas[i] = Arrays.copyOf(listas[i], tamanos[i] * 2);
+        }
+        listas[i][tamanos[i]++] = valor;
+    }
+
+    /** Quita una aparicion del valor en la lista de la clave. */
+    public boolean quitar(int clave, int valor) {
+        int i = buscar(clave);
+        if (i < 0) return false;
+        int[] l = listas[i];
+        for (int k = 0; k < tamanos[i]; k++) {
+            if (l[k] == valor) {
+                System.arraycopy(l, k + 1, l, k, tamanos[i] - k - 1);
+                tamanos[i]--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int cantidad(int clave) {
+        int i = buscar(clave);
+        return i >= 0 ? tamanos[i] : 0;
+    }
+
+    /** Primer valor de la clave, o -1 si no tiene. */
+    public int primero(int clave) {
+        int i = buscar(clave);
+        return i >= 0 && tamanos[i] > 0 ? listas[i][0] : -1;
+    }
+
+    /** Copia de los valores de la clave, en orden de insercion. */
+    public int[] valores(int clave) {
+        int i = buscar(clave);
+        return i >= 0 ? Arrays.copyOf(listas[i], tamanos[i]) : VACIO;
+    }
+
+    /**
+     * Lista interna de la clave, sin copiar: solo las primeras {@link #cantidad(int)}
+     * posiciones son validas y no debe modificarse.
+     */
+    int[] sinCopiar(int clave) {
+        int i = buscar(clave);
+        return i >= 0 ? listas[i] : VACIO;
+    }
+
+    @Override
+    void mover(int desde, int hacia) {
+        listas[hacia] = listas[desde];
+        tamanos[hacia] = tamanos[desde];
+    }
+
+    @Override
+    void vaciar(int ranura) {
+        listas[ranura] = null;
+        tamanos[ranura] = 0;
+    }
+
+    @Override
+    void reubicar(int[] destinos, int nuevaCapacidad) {
+        int[][] viejasListas = listas;
+        int[] viejosTamanos = tamanos;
+        listas = new int[nuevaCapacidad][];
+        tamanos = new int[nuevaCapacidad];
+        for (int k = 0; k < destinos.length; k++) {
+            if (destinos[k] < 0) continue;
+            listas[destinos[k]] = viejasListas[k];
+            tamanos[destinos[k]] = viejosTamanos[k];
+        }
+    }
+}
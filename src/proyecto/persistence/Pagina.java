@@ -0,0 +1,117 @@
+package proyecto.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Una pagina de resultados y el cursor para pedir la siguiente.
+ *
+ * El cursor recuerda la ultima fila entregada (su id y donde esta en el archivo). Si el
+ * archivo no se reescribio desde entonces, la pagina siguiente se lee desde esa posicion
+ * sin recorrer lo anterior; si se reescribio (compactacion, baja), se busca esa fila por
+ * id y se sigue desde ella. Las altas que se anexan mientras se pagina aparecen al final.
+ */
+public final class Pagina<T> {
+    private final List<T> filas;
+    private final Cursor siguiente;
+
+    Pagina(List<T> filas, Cursor siguiente) {
+        this.filas = Collections.unmodifiableList(filas);
+        this.siguiente = siguiente;
+    }
+
+    public List<T> getFilas() { return filas; }
+
+    /** Indica si hay mas filas despues de esta pagina. */
+    public boolean hayMas() { return siguiente != null; }
+
+    /** Cursor para pedir la pagina siguiente; null si esta es la ultima. */
+    public Cursor getSiguiente() { return siguiente; }
+
+    /** Pide una pagina, p.ej. pp::obtenerPagina. */
+    @FunctionalInterface
+    public interface Paginador<T> {
+        Pagina<T> pagina(Cursor despues, int limite) throws IOException;
+    }
+
+    /**
+     * Todas las filas como stream perezoso, pidiendo de a una pagina de tamano filas: en
+     * memoria nunca hay mas de una pagina. Los errores de lectura salen como
+     * UncheckedIOException.
+     */
+    public static <T> Stream<T> recorrer(Paginador<T> paginador, int tamano) {
+        if (tamano <= 0) throw new IllegalArgumentException("El tamano de pagina debe ser positivo");
+        Iterator<T> filas = new Iterator<T>() {
+            private Iterator<T> actual = Collections.emptyIterator();
+            private Cursor cursor;
+            private boolean ultima;
+
+            @Override
+            public boolean hasNext() {
+                while (!actual.hasNext()) {
+                    if (ultima) return false;
+                    Pagina<T> p;
+                    try {
+                        p = paginador.pagina(cursor, tamano);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    cursor = p.getSiguiente();
+                    ultima = cursor == null;
+                    actual = p.getFilas().iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return actual.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(filas, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Posicion despues de una fila. Se puede guardar como texto (aTexto/desdeTexto) y
+     * retomar mas tarde, incluso desde otra instancia de la persistencia.
+     */
+    public static final class Cursor {
+        // Inicio de la linea de la ultima fila entregada; -1 si vino de la bitacora
+        private final long posicion;
+        private final int ultimoId;
+
+        Cursor(long posicion, int ultimoId) {
+            this.posicion = posicion;
+            this.ultimoId = ultimoId;
+        }
+
+        long getPosicion() { return posicion; }
+
+        /** Id de la ultima fila entregada. */
+        public int getUltimoId() { return ultimoId; }
+
+        public String aTexto() { return posicion + ":" + ultimoId; }
+
+        public static Cursor desdeTexto(String texto) {
+            int dos = texto == null ? -1 : texto.indexOf(':');
+            if (dos < 0) throw new IllegalArgumentException("Cursor invalido: " + texto);
+            try {
+                return new Cursor(Long.parseLong(texto.substring(0, dos)), Integer.parseInt(texto.substring(dos + 1)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Cursor invalido: " + texto);
+            }
+        }
+
+        @Override
+        public String toString() { return aTexto(); }
+    }
+}
@@ -1,39 +1,665 @@
 package proyecto.persistence;
 
+import proyecto.busqueda.Criterio;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Clase base con utilidades comunes para la persistencia CSV.
  */
 public class PersistenciaBase {
+    // Registros en la bitacora a partir de los cuales se compacta en segundo plano
+    private static final int UMBRAL_COMPACTACION = 512;
+    private static final long PERIODO_COMPACTACION_SEG = 60;
+    // Buffer de escritura para los volcados completos (en caracteres)
+    private static final int TAMANO_BUFFER_ESCRITURA = 1 << 16;
+
+    private static final ScheduledExecutorService COMPACTADOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "compactador-bitacora");
+        t.setDaemon(true);
+        return t;
+    });
+
     protected final Path file;
+    // Compartido con las demas persistencias (y procesos) que usan el mismo archivo
+    private final CerrojoArchivo cerrojo;
+    // Huella del archivo la ultima vez que se sincronizo la cache en memoria
+    private long modificacionCache = Long.MIN_VALUE;
+    private long tamanoCache = -1;
+    private long tamanoBitacoraCache = -1;
+
+    private BitacoraCambios bitacora;
+    private boolean compactacionPendiente;
+    private boolean rotarRespaldo;
+    private boolean usarInstantanea;
 
     public PersistenciaBase(Path file) throws IOException {
         this.file = file;
+        this.cerrojo = CerrojoArchivo.de(file);
         if (Files.notExists(file.getParent())) {
             Files.createDirectories(file.getParent());
         }
         if (Files.notExists(file)) {
-            Files.createFile(file);
+            try {
+                Files.createFile(file);
+            } catch (FileAlreadyExistsException e) {
+                // Otra instancia (u otro proceso) lo creo entre la comprobacion y la creacion
+            }
         }
     }
 
+    /**
+     * Activa la bitacora de cambios (archivo.log): actualizaciones y bajas se anexan ahi
+     * en lugar de reescribir el CSV, y se vuelcan al CSV en segundo plano.
+     */
+    protected void habilitarBitacora() throws IOException {
+        // Con el cerrojo: al abrirla se trunca un registro a medias, y sin cerrojo podria
+        // ser uno que otra instancia esta escribiendo en ese momento
+        bitacora = conLectura(() -> new BitacoraCambios(file.resolveSibling(file.getFileName() + ".log")));
+        WeakReference<PersistenciaBase> ref = new WeakReference<>(this);
+        ScheduledFuture<?>[] tarea = new ScheduledFuture<?>[1];
+        tarea[0] = COMPACTADOR.scheduleWithFixedDelay(() -> {
+            PersistenciaBase p = ref.get();
+            if (p == null) { tarea[0].cancel(false); return; }
+            p.compactarEnSegundoPlano();
+        }, PERIODO_COMPACTACION_SEG, PERIODO_COMPACTACION_SEG, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Operacion sobre el archivo que se hace con el cerrojo tomado.
+     */
+    @FunctionalInterface
+    protected interface Operacion<T> {
+        T ejecutar() throws IOException;
+    }
+
+    @FunctionalInterface
+    protected interface Paso {
+        void ejecutar() throws IOException;
+    }
+
+    /**
+     * Ejecuta la operacion con el archivo bloqueado para lectura: otros lectores siguen,
+     * los escritores (de este u otro proceso) esperan. Orden de bloqueo: primero el
+     * archivo y despues el monitor de la persistencia, nunca al reves.
+     */
+    protected <T> T conLectura(Operacion<T> operacion) throws IOException {
+        cerrojo.bloquearLectura();
+        try {
+            return operacion.ejecutar();
+        } finally {
+            cerrojo.liberarLectura();
+        }
+    }
+
+    protected void conLectura(Paso paso) throws IOException {
+        conLectura(() -> { paso.ejecutar(); return null; });
+    }
+
+    /**
+     * Ejecuta la operacion con el archivo bloqueado en exclusiva. Las comprobaciones que
+     * hace la operacion (p.ej. que el id no exista) siguen valiendo al escribir.
+     */
+    protected <T> T conEscritura(Operacion<T> operacion) throws IOException {
+        cerrojo.bloquearEscritura();
+        try {
+            return operacion.ejecutar();
+        } finally {
+            cerrojo.liberarEscritura();
+        }
+    }
+
+    protected void conEscritura(Paso paso) throws IOException {
+        conEscritura(() -> { paso.ejecutar(); return null; });
+    }
+
+    /** Filas que un indice deja para revisar con el criterio; null si el criterio no lo acota. */
+    @FunctionalInterface
+    protected interface PorIndice<T> {
+        List<T> candidatas(Criterio<T> criterio) throws IOException;
+    }
+
+    /**
+     * Filas a revisar para el criterio: las que da el indice o, si es un o, la union (sin
+     * repetir) de las de cada alternativa. null si alguna alternativa no tiene indice y hay
+     * que recorrer todas las filas.
+     */
+    protected static <T> List<T> candidatas(Criterio<T> criterio, PorIndice<T> indice) throws IOException {
+        List<Criterio<T>> alternativas = criterio.alternativas();
+        if (alternativas.size() == 1) return indice.candidatas(criterio);
+        List<T> union = new ArrayList<>();
+        Set<T> vistas = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Criterio<T> a : alternativas) {
+            List<T> c = indice.candidatas(a);
+            if (c == null) return null;
+            for (T t : c) if (vistas.add(t)) union.add(t);
+        }
+        return union;
+    }
+
     protected List<String> readDataLines() throws IOException {
-        return Files.readAllLines(file, StandardCharsets.UTF_8)
-                .stream()
-                .filter(l -> !l.trim().isEmpty() && !l.trim().startsWith("#"))
-                .collect(Collectors.toList());
+        List<String> lineas = new ArrayList<>();
+        leerRegistros(r -> lineas.add(r.linea()));
+        return lineas;
+    }
+
+    /**
+     * Recorre en streaming todos los registros del archivo (con los cambios de la bitacora aplicados).
+     */
+    protected void leerRegistros(LectorRegistros.Accion accion) throws IOException {
+        conLectura(() -> LectorRegistros.leer(file, cambiosPendientes(), accion));
+    }
+
+    /**
+     * Stream perezoso de registros desde la posicion indicada; hay que cerrarlo.
+     */
+    protected <T> Stream<T> streamRegistros(long desde, Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        // cambiosPendientes es una copia: sirve aunque el stream se consuma despues de soltar el cerrojo
+        return conLectura(() -> LectorRegistros.stream(file, desde, cambiosPendientes(), mapeo));
+    }
+
+    /**
+     * Pagina por desplazamiento: saltea las primeras desde filas que cumplen el filtro y
+     * devuelve las limite siguientes. Las filas salteadas no se convierten y se deja de leer
+     * el archivo en cuanto se llena la pagina.
+     */
+    protected <T> Pagina<T> leerPagina(int desde, int limite, Predicate<LectorRegistros.Registro> filtro,
+                                       Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        if (desde < 0) throw new IllegalArgumentException("desde no puede ser negativo");
+        if (limite <= 0) throw new IllegalArgumentException("El limite debe ser positivo");
+        return conLectura(() -> {
+            try (LectorRegistros l = new LectorRegistros(file, 0, cambiosPendientes())) {
+                for (int salteadas = 0; salteadas < desde && l.siguiente(); ) {
+                    if (filtro.test(l.actual())) salteadas++;
+                }
+                return completarPagina(l, limite, filtro, mapeo);
+            }
+        });
+    }
+
+    /**
+     * Pagina que sigue a la fila del cursor (la primera si despues es null). Si no hay
+     * cambios pendientes en la bitacora y la fila sigue en la misma posicion, se lee desde
+     * ahi sin recorrer lo anterior. Si no, se busca la fila por id; si tampoco esta (se
+     * borro), se sigue con las filas de id mayor, que es exacto mientras los ids crezcan
+     * en el orden del archivo (las altas se anexan al final).
+     */
+    protected <T> Pagina<T> leerPagina(Pagina.Cursor despues, int limite, Predicate<LectorRegistros.Registro> filtro,
+                                       Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        if (despues == null) return leerPagina(0, limite, filtro, mapeo);
+        if (limite <= 0) throw new IllegalArgumentException("El limite debe ser positivo");
+        return conLectura(() -> {
+            Map<Integer, String> cambios = cambiosPendientes();
+            long posicion = despues.getPosicion();
+            if (cambios == null && posicion >= 0 && esInicioDeLinea(posicion)) {
+                try (LectorRegistros l = new LectorRegistros(file, posicion, null)) {
+                    LectorRegistros.Registro r = l.siguiente() ? l.actual() : null;
+                    if (r != null && r.posicion() == posicion && idDe(r) == despues.getUltimoId()) {
+                        return completarPagina(l, limite, filtro, mapeo);
+                    }
+                }
+            }
+            try (LectorRegistros l = new LectorRegistros(file, 0, cambios)) {
+                List<T> mayores = new ArrayList<>();
+                Pagina.Cursor ultimoMayor = null;
+                boolean hayMasMayores = false;
+                while (l.siguiente()) {
+                    LectorRegistros.Registro r = l.actual();
+                    long id = idDe(r);
+                    if (id == despues.getUltimoId()) return completarPagina(l, limite, filtro, mapeo);
+                    if (id > despues.getUltimoId() && filtro.test(r)) {
+                        if (mayores.size() == limite) {
+                            hayMasMayores = true;
+                        } else {
+                            mayores.add(mapeo.apply(r));
+                            ultimoMayor = new Pagina.Cursor(r.posicion(), (int) id);
+                        }
+                    }
+                }
+                return new Pagina<>(mayores, hayMasMayores ? ultimoMayor : null);
+            }
+        });
+    }
+
+    // Llena la pagina desde donde esta el lector; si despues queda otra fila, hay siguiente
+    private static <T> Pagina<T> completarPagina(LectorRegistros l, int limite, Predicate<LectorRegistros.Registro> filtro,
+                                                 Function<LectorRegistros.Registro, T> mapeo) throws IOException {
+        List<T> filas = new ArrayList<>(Math.min(limite, 1024));
+        Pagina.Cursor ultimo = null;
+        while (l.siguiente()) {
+            LectorRegistros.Registro r = l.actual();
+            if (!filtro.test(r)) continue;
+            if (filas.size() == limite) return new Pagina<>(filas, ultimo);
+            filas.add(mapeo.apply(r));
+            ultimo = new Pagina.Cursor(r.posicion(), (int) idDe(r));
+        }
+        return new Pagina<>(filas, null);
+    }
+
+    // Id de la fila (campo 0), o Long.MIN_VALUE si no es un numero
+    private static long idDe(LectorRegistros.Registro r) {
+        try {
+            return r.entero(0);
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // Un cursor de antes de una reescritura puede caer en medio de una linea
+    private boolean esInicioDeLinea(long posicion) throws IOException {
+        if (posicion == 0) return true;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (posicion >= ch.size()) return false;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            return ch.read(b, posicion - 1) == 1 && b.get(0) == '\n';
+        }
+    }
+
+    // Copia de los cambios de la bitacora (null si no hay): otro lector puede reproducirla
+    // mientras se recorre el archivo con ellos
+    private synchronized Map<Integer, String> cambiosPendientes() throws IOException {
+        if (bitacora == null) return null;
+        releerBitacora();
+        return bitacora.estaVacia() ? null : bitacora.getPendientes();
+    }
+
+    // Vuelve a leer la bitacora si otro proceso anexo registros. Llamar con el cerrojo tomado
+    private synchronized void releerBitacora() throws IOException {
+        if (bitacora != null && bitacora.cambioExterno()) bitacora.reproducir();
+    }
+
+    /**
+     * Escritor de un volcado completo del archivo.
+     */
+    @FunctionalInterface
+    protected interface Volcado {
+        void escribir(BufferedWriter w) throws IOException;
+    }
+
+    /**
+     * Si esta activo, cada reescritura completa conserva la version anterior como archivo.bak.
+     */
+    public void setRotarRespaldo(boolean rotarRespaldo) { this.rotarRespaldo = rotarRespaldo; }
+
+    /**
+     * Si esta activo, las lecturas completas se guardan en una instantanea binaria
+     * (archivo.snap) que se usa en lugar del CSV mientras este no cambie.
+     */
+    public void setInstantanea(boolean usarInstantanea) { this.usarInstantanea = usarInstantanea; }
+
+    /**
+     * Lectura completa que pasa por la instantanea: si esta al dia se arma desde ella, si no
+     * se lee el CSV y se regenera. desdeInstantanea devuelve null si la instantanea no tiene
+     * las columnas esperadas (formato anterior) y aInstantanea si los datos no se pueden
+     * representar; en esos casos se usa el CSV.
+     */
+    protected <T> List<T> leerConInstantanea(LecturaCompleta<T> desdeCsv, Function<Instantanea, List<T>> desdeInstantanea,
+                                             Function<List<T>, Instantanea.Escritor> aInstantanea) throws IOException {
+        if (!usarInstantanea) return desdeCsv.leer();
+        return conLectura(() -> {
+            Path ruta = rutaInstantanea();
+            long[] antes = huella();
+            Instantanea inst = Instantanea.leer(ruta, antes);
+            List<T> res = inst == null ? null : desdeInstantanea.apply(inst);
+            if (res != null) return res;
+            res = desdeCsv.leer();
+            // Solo si el archivo no cambio mientras se leia: la huella tiene que describir lo leido
+            if (Arrays.equals(antes, huella())) {
+                Instantanea.Escritor escritor = aInstantanea.apply(res);
+                try {
+                    // Varios lectores pueden regenerarla a la vez: cada uno escribe un temporal y lo mueve
+                    if (escritor != null) escritor.escribir(ruta, antes);
+                } catch (IOException e) {
+                    Logger.getLogger(PersistenciaBase.class.getName()).log(Level.WARNING, "No se pudo guardar la instantanea de " + file, e);
+                }
+            }
+            return res;
+        });
+    }
+
+    /**
+     * Version de la fila guardada en el campo i; 0 si la fila es de antes de las versiones
+     * (no tiene el campo o tiene otra cosa).
+     */
+    protected static int version(LectorRegistros.Registro r, int i) {
+        if (r.campos() <= i || r.vacio(i)) return 0;
+        try {
+            return r.entero(i);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Lectura completa del CSV.
+     */
+    @FunctionalInterface
+    protected interface LecturaCompleta<T> {
+        List<T> leer() throws IOException;
+    }
+
+    /**
+     * La instantanea si esta activa y al dia con el CSV; null si hay que leer el CSV.
+     */
+    protected Instantanea instantaneaVigente() throws IOException {
+        if (!usarInstantanea) return null;
+        return conLectura(() -> Instantanea.leer(rutaInstantanea(), huella()));
+    }
+
+    private Path rutaInstantanea() {
+        return file.resolveSibling(file.getFileName() + ".snap");
+    }
+
+    /**
+     * Fecha de modificacion y tamano del CSV y tamano de la bitacora (-1 si no hay). Sirve
+     * para cachear datos derivados del archivo con su propia huella, tambien fuera de la
+     * persistencia (p.ej. las caches del servidor).
+     */
+    public synchronized long[] huella() throws IOException {
+        return new long[]{Files.getLastModifiedTime(file).toMillis(), Files.size(file),
+                bitacora == null ? -1 : Files.size(bitacora.getRuta())};
     }
 
     protected void writeAllLines(List<String> lines) throws IOException {
-        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING);
+        escribirTodo(w -> {
+            for (String l : lines) { w.write(l); w.newLine(); }
+        });
+    }
+
+    /**
+     * Reemplaza el contenido del archivo de forma atomica: se escribe en un temporal del
+     * mismo directorio, se fuerza a disco y se mueve sobre el original. Una caida a mitad
+     * del volcado deja intacto el archivo anterior.
+     */
+    protected void escribirTodo(Volcado volcado) throws IOException {
+        conEscritura(() -> volcar(volcado));
+    }
+
+    private void volcar(Volcado volcado) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            // El temporal nace con 0600: al moverlo, el archivo perderia los permisos que tenia
+            copiarPermisos(file, tmp);
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                BufferedWriter w = new BufferedWriter(
+                        new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8), TAMANO_BUFFER_ESCRITURA);
+                volcado.escribir(w);
+                w.flush();
+                ch.force(true);
+            }
+            if (rotarRespaldo) rotarRespaldo();
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            sincronizarDirectorio(dir);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        // Lo escrito ya es el estado completo: lo pendiente en la bitacora sobra
+        if (bitacora != null && bitacora.getRegistros() > 0) bitacora.vaciar();
+    }
+
+    private static void copiarPermisos(Path desde, Path hacia) throws IOException {
+        if (Files.notExists(desde)) return;
+        try {
+            Files.setPosixFilePermissions(hacia, Files.getPosixFilePermissions(desde));
+        } catch (UnsupportedOperationException e) {
+            // Sin permisos POSIX (Windows): el temporal hereda los del directorio
+        }
+    }
+
+    private void rotarRespaldo() throws IOException {
+        Path bak = file.resolveSibling(file.getFileName() + ".bak");
+        Files.deleteIfExists(bak);
+        try {
+            // Un enlace duro conserva la version anterior sin copiarla
+            Files.createLink(bak, file);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(file, bak, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Fuerza a disco la entrada de directorio del rename (no soportado en todos los sistemas)
+    private static void sincronizarDirectorio(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // Windows no permite abrir directorios; el rename ya es atomico igualmente
+        }
+    }
+
+    /**
+     * Anexa una linea al final del archivo. Devuelve la posicion en bytes donde quedo, que
+     * es despues del salto agregado si la ultima linea no lo tenia.
+     */
+    protected long appendLine(String line) throws IOException {
+        return conEscritura(() -> anexar(java.util.Collections.singletonList(line)));
+    }
+
+    /**
+     * Anexa muchas lineas abriendo el archivo una sola vez, con un buffer grande y un
+     * unico force al final. Pensado para importaciones masivas.
+     */
+    protected void appendLines(List<String> lines) throws IOException {
+        if (!lines.isEmpty()) conEscritura(() -> anexar(lines));
+    }
+
+    // Devuelve la posicion donde empieza la primera linea anexada
+    private long anexar(List<String> lines) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fin = ch.size();
+            ch.position(fin);
+            // Si la ultima linea quedo sin salto (editado a mano), no pegarle la primera nueva
+            if (fin > 0 && !terminaEnSalto(ch, fin)) {
+                ByteBuffer salto = ByteBuffer.wrap(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+                while (salto.hasRemaining()) ch.write(salto);
+            }
+            long inicio = ch.position();
+            BufferedWriter w = new BufferedWriter(
+                    new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8), TAMANO_BUFFER_ESCRITURA);
+            for (String l : lines) { w.write(l); w.newLine(); }
+            w.flush();
+            ch.force(false);
+            return inicio;
+        }
+    }
+
+    private static boolean terminaEnSalto(FileChannel ch, long fin) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(1);
+        return ch.read(b, fin - 1) == 1 && b.get(0) == '\n';
+    }
+
+    /**
+     * Version masiva de agregarLinea: las altas con cambio pendiente en la bitacora van a
+     * la bitacora y el resto se anexa de una vez con appendLines.
+     */
+    protected void agregarLineas(int[] ids, List<String> lines) throws IOException {
+        conEscritura(() -> {
+            releerBitacora();
+            if (bitacora == null || bitacora.estaVacia()) {
+                appendLines(lines);
+                return;
+            }
+            List<String> directas = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                if (bitacora.tieneCambio(ids[i])) registrarModificacion(ids[i], lines.get(i));
+                else directas.add(lines.get(i));
+            }
+            appendLines(directas);
+        });
+    }
+
+    /**
+     * Importacion masiva comun a las persistencias: valida y arma las lineas en paralelo
+     * (motivoRechazo devuelve null si el registro es valido), descarta ids que ya existen
+     * o se repiten en el lote (gana el primero) y anexa las aceptadas de una sola vez.
+     * alAceptar recibe las aceptadas, en orden, ya escritas.
+     */
+    protected <T> ReporteImportacion importarLote(Stream<T> datos, Function<T, String> motivoRechazo,
+                                                  ToIntFunction<T> idDe, IntPredicate existe,
+                                                  Function<T, String> linea, Consumer<List<T>> alAceptar) throws IOException {
+        return conEscritura(() -> importar(datos, motivoRechazo, idDe, existe, linea, alAceptar));
+    }
+
+    private <T> ReporteImportacion importar(Stream<T> datos, Function<T, String> motivoRechazo,
+                                            ToIntFunction<T> idDe, IntPredicate existe,
+                                            Function<T, String> linea, Consumer<List<T>> alAceptar) throws IOException {
+        long t0 = System.nanoTime();
+        List<T> lote = datos.collect(Collectors.toList());
+        int n = lote.size();
+        String[] motivos = new String[n];
+        String[] lineas = new String[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            T t = lote.get(i);
+            motivos[i] = t == null ? "Registro nulo" : motivoRechazo.apply(t);
+            if (motivos[i] == null) lineas[i] = linea.apply(t);
+        });
+
+        ReporteImportacion reporte = new ReporteImportacion(n);
+        MapaEnteros<Boolean> vistos = new MapaEnteros<>();
+        List<T> aceptadas = new ArrayList<>(n);
+        List<String> aEscribir = new ArrayList<>(n);
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            T t = lote.get(i);
+            int id = t == null ? 0 : idDe.applyAsInt(t);
+            String motivo = motivos[i];
+            if (motivo == null && (existe.test(id) || vistos.contiene(id))) motivo = "ID duplicado";
+            if (motivo != null) {
+                reporte.rechazar(i, id, motivo);
+                continue;
+            }
+            vistos.poner(id, Boolean.TRUE);
+            ids[aceptadas.size()] = id;
+            aceptadas.add(t);
+            aEscribir.add(lineas[i]);
+        }
+        agregarLineas(ids, aEscribir);
+        alAceptar.accept(aceptadas);
+        reporte.terminar(aceptadas.size(), System.nanoTime() - t0);
+        return reporte;
+    }
+
+    /**
+     * Registra una modificacion de la fila con ese id como un unico anexo a la bitacora.
+     */
+    protected void registrarModificacion(int id, String line) throws IOException {
+        conEscritura(() -> {
+            bitacora.registrarModificacion(id, line);
+            despuesDeRegistrar();
+        });
+    }
+
+    /**
+     * Registra el borrado de la fila con ese id como un unico anexo a la bitacora.
+     */
+    protected void registrarBorrado(int id) throws IOException {
+        conEscritura(() -> {
+            bitacora.registrarBorrado(id);
+            despuesDeRegistrar();
+        });
+    }
+
+    /**
+     * Anexa una alta. Si el id tiene un cambio pendiente en la bitacora (p.ej. un borrado)
+     * la alta se registra ahi para que no quede oculta al aplicar la bitacora.
+     */
+    protected void agregarLinea(int id, String line) throws IOException {
+        conEscritura(() -> {
+            // Un borrado que otro proceso dejo en la bitacora ocultaria la alta anexada al CSV
+            releerBitacora();
+            if (bitacora != null && bitacora.tieneCambio(id)) registrarModificacion(id, line);
+            else appendLine(line);
+        });
+    }
+
+    private synchronized void despuesDeRegistrar() {
+        if (bitacora.getRegistros() >= UMBRAL_COMPACTACION && !compactacionPendiente) {
+            compactacionPendiente = true;
+            COMPACTADOR.execute(this::compactarEnSegundoPlano);
+        }
+    }
+
+    private void compactarEnSegundoPlano() {
+        try {
+            compactar();
+        } catch (IOException e) {
+            Logger.getLogger(PersistenciaBase.class.getName()).log(Level.WARNING, "No se pudo compactar " + file, e);
+        }
+    }
+
+    /**
+     * Vuelca los cambios de la bitacora al CSV y la deja vacia.
+     */
+    public void compactar() throws IOException {
+        conEscritura(this::volcarBitacora);
+    }
+
+    private void volcarBitacora() throws IOException {
+        compactacionPendiente = false;
+        if (bitacora == null || bitacora.getRegistros() == 0) return;
+        // El contenido logico no cambia: si la cache estaba al dia lo sigue estando
+        boolean vigente = cacheVigente();
+        List<String> cabecera = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String l;
+            while ((l = br.readLine()) != null && l.trim().startsWith("#")) cabecera.add(l);
+        }
+        Map<Integer, String> cambios = cambiosPendientes();
+        escribirTodo(w -> {
+            for (String l : cabecera) { w.write(l); w.newLine(); }
+            LectorRegistros.leer(file, cambios, r -> { w.write(r.linea()); w.newLine(); });
+        });
+        if (vigente) marcarCacheVigente();
+    }
+
+    /**
+     * Indica si la cache en memoria sigue reflejando el archivo (misma fecha de modificacion y tamano).
+     */
+    protected synchronized boolean cacheVigente() throws IOException {
+        return tamanoCache >= 0
+                && Files.size(file) == tamanoCache
+                && Files.getLastModifiedTime(file).toMillis() == modificacionCache
+                && (bitacora == null || Files.size(bitacora.getRuta()) == tamanoBitacoraCache);
+    }
+
+    /**
+     * Registra la huella actual del archivo; llamar tras cargar la cache o tras escribir en el.
+     */
+    protected synchronized void marcarCacheVigente() throws IOException {
+        modificacionCache = Files.getLastModifiedTime(file).toMillis();
+        tamanoCache = Files.size(file);
+        if (bitacora != null) tamanoBitacoraCache = Files.size(bitacora.getRuta());
     }
 
-    protected void appendLine(String line) throws IOException {
-        Files.write(file, java.util.Collections.singletonList(line), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    protected void invalidarCache() {
+        tamanoCache = -1;
     }
 }
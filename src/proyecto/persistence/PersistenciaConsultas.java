@@ -1,83 +1,396 @@
 package proyecto.persistence;
 
+import proyecto.busqueda.Busqueda;
+import proyecto.busqueda.Criterio;
 import proyecto.model.Consulta;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Persistencia de consultas (id|pacienteId|doctorId|fechaISO|motivo|notas)
  */
 public class PersistenciaConsultas extends PersistenciaBase {
+    private static final Logger LOG = Logger.getLogger(PersistenciaConsultas.class.getName());
+    private boolean escaneoMapeado = true;
+    private EscaneoMapeado.Resultado<Consulta> ultimoEscaneo;
+    // Prefijos de fecha que se pueden traducir a un rango: yyyy[-MM[-dd[THH[:mm]]]]
+    private static final Pattern PREFIJO_FECHA = Pattern.compile("(\\d{4})(?:-(\\d{2})(?:-(\\d{2})(?:T(\\d{2})(?::(\\d{2}))?)?)?)?");
+    private IndiceConsultas indice;
+    // Motivos y notas se repiten mucho entre consultas: una instancia por valor distinto
+    private final DiccionarioTextos motivos = new DiccionarioTextos();
+    private final DiccionarioTextos notas = new DiccionarioTextos();
+    // Ultima tabla por columnas armada y la huella del archivo con la que se armo
+    private TablaConsultas tabla;
+    private long[] huellaTabla;
+    // Fecha vacia en la columna de segundos de la instantanea
+    private static final long SIN_SEGUNDOS = Long.MIN_VALUE;
+
     public PersistenciaConsultas(Path file) throws IOException { super(file); }
 
+    /**
+     * Activa/desactiva el escaneo con el archivo mapeado en memoria para archivos grandes.
+     * En Windows los trozos se leen sin mapear (ver EscaneoMapeado), porque un archivo
+     * mapeado no se podria reemplazar al volcar.
+     */
+    public void setEscaneoMapeado(boolean escaneoMapeado) { this.escaneoMapeado = escaneoMapeado; }
+
+    /** Datos del ultimo escaneo mapeado (bytes, tiempo, bytes/s), o null si no hubo. */
+    public EscaneoMapeado.Resultado<Consulta> getUltimoEscaneo() { return ultimoEscaneo; }
+
     public List<Consulta> obtenerTodos() throws IOException {
-        List<Consulta> res = new ArrayList<>();
-        for (String l: readDataLines()) {
-            String[] p = l.split("\\|", -1);
-            if (p.length<6) continue;
-            int id = Integer.parseInt(p[0]);
-            int pacienteId = Integer.parseInt(p[1]);
-            int doctorId = Integer.parseInt(p[2]);
-            LocalDateTime fecha = p[3].isEmpty()?null:LocalDateTime.parse(p[3]);
-            String motivo = p[4];
-            String notas = p[5];
-            res.add(new Consulta(id,pacienteId,doctorId,fecha,motivo,notas));
+        return leerConInstantanea(() -> filtrar(r -> true), PersistenciaConsultas::desdeInstantanea, PersistenciaConsultas::aInstantanea);
+    }
+
+    // Columnas: id, pacienteId, doctorId, fecha (segundos epoch UTC), motivo, notas
+    private static List<Consulta> desdeInstantanea(Instantanea s) {
+        int[] ids = s.enteros(0), pacientes = s.enteros(1), doctores = s.enteros(2);
+        long[] fechas = s.largos(3);
+        String[] motivos = s.textos(4), notas = s.textos(5);
+        List<Consulta> res = new ArrayList<>(s.filas());
+        for (int i = 0; i < s.filas(); i++) {
+            LocalDateTime fecha = fechas[i] == SIN_SEGUNDOS ? null : LocalDateTime.ofEpochSecond(fechas[i], 0, ZoneOffset.UTC);
+            res.add(new Consulta(ids[i], pacientes[i], doctores[i], fecha, motivos[i], notas[i]));
         }
         return res;
     }
+
+    private static Instantanea.Escritor aInstantanea(List<Consulta> consultas) {
+        int n = consultas.size();
+        int[] ids = new int[n], pacientes = new int[n], doctores = new int[n];
+        long[] fechas = new long[n];
+        String[] motivos = new String[n], notas = new String[n];
+        for (int i = 0; i < n; i++) {
+            Consulta c = consultas.get(i);
+            LocalDateTime f = c.getFecha();
+            // Fracciones de segundo no entran en la columna: se sigue leyendo el CSV
+            if (f != null && f.getNano() != 0) return null;
+            ids[i] = c.getId(); pacientes[i] = c.getPacienteId(); doctores[i] = c.getDoctorId();
+            fechas[i] = f == null ? SIN_SEGUNDOS : f.toEpochSecond(ZoneOffset.UTC);
+            motivos[i] = c.getMotivo(); notas[i] = c.getNotas();
+        }
+        return new Instantanea.Escritor(n).enteros(ids).enteros(pacientes).enteros(doctores).largos(fechas).textos(motivos).textos(notas);
+    }
+
+    /**
+     * Todas las consultas guardadas por columnas, sin crear un Consulta por fila. Se reutiliza
+     * mientras el archivo no cambie; sale de la instantanea si esta activa y al dia.
+     */
+    public TablaConsultas tabla() throws IOException {
+        return conLectura(this::armarTabla);
+    }
+
+    private synchronized TablaConsultas armarTabla() throws IOException {
+        long[] h = huella();
+        if (tabla != null && Arrays.equals(h, huellaTabla)) return tabla;
+        tabla = null;
+        Instantanea s = instantaneaVigente();
+        TablaConsultas.Constructor c = new TablaConsultas.Constructor(s == null ? 1024 : s.filas());
+        if (s != null) {
+            // Mismas columnas que obtenerTodos; SIN_SEGUNDOS coincide con TablaConsultas.SIN_FECHA
+            int[] ids = s.enteros(0), pacientes = s.enteros(1), doctores = s.enteros(2);
+            long[] fechas = s.largos(3);
+            String[] motivosInst = s.textos(4), notasInst = s.textos(5);
+            for (int i = 0; i < s.filas(); i++) c.agregar(ids[i], pacientes[i], doctores[i], fechas[i], motivosInst[i], notasInst[i]);
+        } else {
+            leerRegistros(r -> {
+                if (r.campos() >= 6) c.agregar(r.entero(0), r.entero(1), r.entero(2), r.segundoEpoch(3), r.texto(4, motivos), r.texto(5, notas));
+            });
+        }
+        // Si el archivo cambio mientras se leia, la tabla no se guarda para la proxima
+        TablaConsultas nueva = c.construir();
+        if (Arrays.equals(h, huella())) {
+            tabla = nueva;
+            huellaTabla = h;
+        }
+        return nueva;
+    }
+
+    /** Consultas que cumplen el criterio, sobre la tabla (ver TablaConsultas.buscar). */
+    public Busqueda<Consulta> buscar(Criterio<Consulta> criterio) throws IOException {
+        if (criterio == null) throw new IllegalArgumentException("Falta el criterio");
+        return tabla().buscar(criterio);
+    }
+
+    /**
+     * Recorre las consultas sin cargarlas todas en memoria. El stream debe cerrarse.
+     */
+    public Stream<Consulta> stream() throws IOException {
+        return streamRegistros(0, r -> r.campos()<6 ? null : aConsulta(r)).filter(Objects::nonNull);
+    }
     
     public List<Consulta> buscarConsultasPorFecha(String patronFecha) throws IOException {
-        List<Consulta> resultados = new ArrayList<>();
+        return conLectura(() -> buscarPorFecha(patronFecha));
+    }
+
+    private List<Consulta> buscarPorFecha(String patronFecha) throws IOException {
+        if (patronFecha == null || patronFecha.isBlank()) return obtenerTodos();
+        long[] rango = rangoDePrefijo(patronFecha);
+        // Un prefijo de fecha completo equivale a un rango: se resuelve con el indice
+        if (rango != null) return buscarEnIndice(rango[0], rango[1]);
+        return filtrar(filtroTextoFecha(patronFecha));
+    }
+
+    // Fecha con formato yyyy-MM-ddTHH:mm que empieza con el patron
+    private static Predicate<LectorRegistros.Registro> filtroTextoFecha(String patronFecha) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+        byte[] prefijo = patronFecha.getBytes(StandardCharsets.UTF_8);
+        return r -> {
+            if (r.vacio(3)) return false;
+            // Fecha ISO canonica: el texto guardado ya coincide con el formato buscado,
+            // se compara el prefijo sobre los bytes sin convertir ni formatear la fecha
+            if (patronFecha.length() <= 16 && esFechaCanonica(r)) return r.empiezaCon(3, prefijo);
+            return r.fechaHora(3).format(formatter).startsWith(patronFecha);
+        };
+    }
+
+    /** Pagina de consultas en el orden del archivo; ver Pagina para el cursor. */
+    public Pagina<Consulta> obtenerPagina(int desde, int limite) throws IOException {
+        return leerPagina(desde, limite, r -> r.campos() >= 6, this::aConsulta);
+    }
 
-        for (String l : readDataLines()) {
-            String[] p = l.split("\\|", -1);
-            if (p.length < 6) continue;
-
-            int id = Integer.parseInt(p[0]);
-            int pacienteId = Integer.parseInt(p[1]);
-            int doctorId = Integer.parseInt(p[2]);
-            LocalDateTime fecha = p[3].isEmpty() ? null : LocalDateTime.parse(p[3]);
-            String motivo = p[4];
-            String notas = p[5];
-
-            if (fecha != null) {
-                String fechaTexto = fecha.format(formatter);
-                if (patronFecha == null || patronFecha.isBlank() || fechaTexto.startsWith(patronFecha)) {
-                    resultados.add(new Consulta(id, pacienteId, doctorId, fecha, motivo, notas));
-                }
-            } else if (patronFecha == null || patronFecha.isBlank()) {
-                // Si no hay fecha y el patrón está vacío, también se incluye
-                resultados.add(new Consulta(id, pacienteId, doctorId, null, motivo, notas));
+    public Pagina<Consulta> obtenerPagina(Pagina.Cursor despues, int limite) throws IOException {
+        return leerPagina(despues, limite, r -> r.campos() >= 6, this::aConsulta);
+    }
+
+    /**
+     * Pagina de buscarConsultasPorFecha (mismo criterio) en el orden del archivo. Recorre
+     * el archivo solo hasta llenar la pagina, sin armar el indice.
+     */
+    public Pagina<Consulta> buscarConsultasPorFecha(String patronFecha, Pagina.Cursor despues, int limite) throws IOException {
+        Predicate<LectorRegistros.Registro> filtro;
+        long[] rango = patronFecha == null || patronFecha.isBlank() ? null : rangoDePrefijo(patronFecha);
+        if (patronFecha == null || patronFecha.isBlank()) {
+            filtro = r -> true;
+        } else if (rango != null) {
+            filtro = r -> {
+                long m = r.minutoEpoch(3);
+                return m != Long.MIN_VALUE && m >= rango[0] && m < rango[1];
+            };
+        } else {
+            filtro = filtroTextoFecha(patronFecha);
+        }
+        return leerPagina(despues, limite, r -> r.campos() >= 6 && filtro.test(r), this::aConsulta);
+    }
+
+    /**
+     * Rango de minutos [desde, hasta) que cubre un prefijo de fecha yyyy[-MM[-dd[THH[:mm]]]],
+     * vacio si la fecha no existe (p.ej. mes 13), o null si el texto no es un prefijo asi.
+     */
+    static long[] rangoDePrefijo(String patronFecha) {
+        Matcher m = PREFIJO_FECHA.matcher(patronFecha);
+        if (!m.matches()) return null;
+        LocalDateTime desde;
+        LocalDateTime hasta;
+        try {
+            int anio = Integer.parseInt(m.group(1));
+            if (m.group(2) == null) {
+                desde = LocalDateTime.of(anio, 1, 1, 0, 0); hasta = desde.plusYears(1);
+            } else if (m.group(3) == null) {
+                desde = LocalDateTime.of(anio, Integer.parseInt(m.group(2)), 1, 0, 0); hasta = desde.plusMonths(1);
+            } else if (m.group(4) == null) {
+                desde = LocalDate.of(anio, Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3))).atStartOfDay(); hasta = desde.plusDays(1);
+            } else if (m.group(5) == null) {
+                desde = LocalDateTime.of(anio, Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)), Integer.parseInt(m.group(4)), 0); hasta = desde.plusHours(1);
+            } else {
+                desde = LocalDateTime.of(anio, Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)), Integer.parseInt(m.group(4)), Integer.parseInt(m.group(5))); hasta = desde.plusMinutes(1);
             }
+        } catch (DateTimeException e) {
+            return new long[]{0, 0}; // ninguna fecha tiene ese prefijo
         }
-        return resultados;
+        return new long[]{minuto(desde), minuto(hasta)};
     }
 
+    /**
+     * Consultas cuya fecha (dia) cae entre inicio y fin, ambos incluidos.
+     */
+    public List<Consulta> buscarConsultasEnRango(LocalDate inicio, LocalDate fin) throws IOException {
+        if (fin.isBefore(inicio)) return new ArrayList<>();
+        return conLectura(() -> buscarEnIndice(minuto(inicio.atStartOfDay()), minuto(fin.plusDays(1).atStartOfDay())));
+    }
 
-    public Optional<Consulta> obtenerPorId(int id) throws IOException {
-            return obtenerTodos().stream().filter(x->x.getId()==id).findFirst();
+    // Busqueda binaria en el indice de fechas y lectura solo de las filas que coinciden
+    private List<Consulta> buscarEnIndice(long desde, long hasta) throws IOException {
+        return leerFilas(indice().posicionesEnRango(desde, hasta));
+    }
+
+    // Devuelve el indice, reconstruyendolo si el archivo cambio desde la ultima vez.
+    // Llamar con el cerrojo del archivo tomado
+    private synchronized IndiceConsultas indice() throws IOException {
+        if (indice != null && cacheVigente()) return indice;
+        indice = null;
+        marcarCacheVigente();
+        try {
+            IndiceConsultas nuevo = new IndiceConsultas();
+            leerRegistros(r -> {
+                if (r.campos() >= 6) nuevo.cargar(r.posicion(), r.minutoEpoch(3), r.entero(0), r.entero(1), r.entero(2));
+            });
+            nuevo.ordenar();
+            indice = nuevo;
+        } catch (IOException | RuntimeException e) {
+            invalidarCache();
+            throw e;
         }
+        return indice;
+    }
+
+    private static long minuto(LocalDateTime fecha) {
+        return fecha == null ? IndiceConsultas.SIN_FECHA : Math.floorDiv(fecha.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // Recorre el archivo (mapeado y en paralelo si es grande) devolviendo las filas aceptadas
+    private List<Consulta> filtrar(Predicate<LectorRegistros.Registro> filtro) throws IOException {
+        return conLectura(() -> escanear(filtro));
+    }
+
+    private List<Consulta> escanear(Predicate<LectorRegistros.Registro> filtro) throws IOException {
+        if (escaneoMapeado && Files.size(file) >= EscaneoMapeado.UMBRAL_MAPEO) {
+            EscaneoMapeado.Resultado<Consulta> res = EscaneoMapeado.escanear(file,
+                    r -> r.campos() >= 6 && filtro.test(r) ? aConsulta(r) : null);
+            ultimoEscaneo = res;
+            LOG.log(Level.FINE, "Escaneo mapeado de {0}: {1}", new Object[]{file, res});
+            return res.getFilas();
+        }
+        List<Consulta> res = new ArrayList<>();
+        leerRegistros(r -> {
+            if (r.campos() >= 6 && filtro.test(r)) res.add(aConsulta(r));
+        });
+        return res;
+    }
+
+    private static boolean esFechaCanonica(LectorRegistros.Registro r) {
+        return r.longitud(3) >= 16 && r.byteEn(3, 4) == '-' && r.byteEn(3, 10) == 'T';
+    }
+
+    private Consulta aConsulta(LectorRegistros.Registro r) {
+        return new Consulta(r.entero(0), r.entero(1), r.entero(2), r.fechaHora(3), r.texto(4, motivos), r.texto(5, notas));
+    }
+
+
+    public Optional<Consulta> obtenerPorId(int id) throws IOException {
+        return conLectura(() -> {
+            IndiceConsultas idx = indice();
+            int fila = idx.filaDeId(id);
+            if (fila < 0) return Optional.<Consulta>empty();
+            List<Consulta> res = leerFilas(new long[]{idx.posicion(fila)});
+            return res.isEmpty() ? Optional.<Consulta>empty() : Optional.of(res.get(0));
+        });
+    }
+
+    /**
+     * Todas las consultas de un paciente, en el orden del archivo.
+     */
+    public List<Consulta> obtenerPorPaciente(int pacienteId) throws IOException {
+        return conLectura(() -> leerFilas(indice().posicionesDePaciente(pacienteId)));
+    }
+
+    /**
+     * Agenda de un doctor: sus consultas con fecha en [desde, hasta), ordenadas por fecha.
+     * desde/hasta pueden ser null para no acotar ese extremo. Las consultas sin fecha no
+     * entran en ninguna agenda, aunque ambos extremos sean null: para verlas hay que buscar
+     * por doctor sin rango de fechas (buscar con Campos.CONSULTA_DOCTOR).
+     */
+    public List<Consulta> obtenerPorDoctor(int doctorId, LocalDateTime desde, LocalDateTime hasta) throws IOException {
+        return conLectura(() -> agenda(doctorId, desde, hasta));
+    }
+
+    private List<Consulta> agenda(int doctorId, LocalDateTime desde, LocalDateTime hasta) throws IOException {
+        IndiceConsultas idx = indice();
+        int[] filas = idx.filasDeDoctor(doctorId,
+                desde == null ? Long.MIN_VALUE + 1 : minuto(desde),
+                hasta == null ? Long.MAX_VALUE : minuto(hasta));
+        // Se lee en orden del archivo y se devuelve en orden de fecha
+        long[] posiciones = new long[filas.length];
+        for (int k = 0; k < filas.length; k++) posiciones[k] = idx.posicion(filas[k]);
+        long[] ordenadas = posiciones.clone();
+        Arrays.sort(ordenadas);
+        List<Consulta> leidas = leerFilas(ordenadas);
+        List<Consulta> res = new ArrayList<>(filas.length);
+        for (long p : posiciones) res.add(leidas.get(Arrays.binarySearch(ordenadas, p)));
+        return res;
+    }
+
+    // Lee las filas en esas posiciones (ascendentes)
+    private List<Consulta> leerFilas(long[] posiciones) throws IOException {
+        List<Consulta> res = new ArrayList<>(posiciones.length);
+        LectorRegistros.leerEn(file, posiciones, posiciones.length, r -> res.add(aConsulta(r)));
+        return res;
+    }
     
 
     public void agregar(Consulta c) throws IOException {
-        if (c.getId()<=0) throw new IllegalArgumentException("ID debe ser positivo");
-        if (c.getPacienteId()<=0) throw new IllegalArgumentException("ID debe ser positivo");
-        if (c.getDoctorId()<=0) throw new IllegalArgumentException("ID debe ser positivo");
-        if (obtenerPorId(c.getId()).isPresent()) throw new IllegalArgumentException("ID duplicado");
-        // no check uniqueness for simplicity
-        appendLine(toLine(c));
+        String motivo = motivoRechazo(c);
+        if (motivo != null) throw new IllegalArgumentException(motivo);
+        conEscritura(() -> {
+            if (obtenerPorId(c.getId()).isPresent()) throw new IllegalArgumentException("ID duplicado");
+            boolean indiceAlDia = indice != null && cacheVigente();
+            long posicion = appendLine(toLine(c));
+            if (indiceAlDia) {
+                indice.agregar(posicion, minuto(c.getFecha()), c.getId(), c.getPacienteId(), c.getDoctorId());
+                marcarCacheVigente();
+            }
+        });
+    }
+
+    /**
+     * Borra la consulta reescribiendo el archivo sin ella, sin que otra escritura se
+     * cuele entre la lectura y la reescritura.
+     */
+    public void eliminar(int id) throws IOException {
+        conEscritura(() -> {
+            List<Consulta> todas = obtenerTodos();
+            if (!todas.removeIf(c -> c.getId() == id)) throw new NoSuchElementException("Consulta no encontrada");
+            saveAll(todas);
+        });
+    }
+
+    /**
+     * Alta masiva: valida en paralelo, consulta los ids existentes en el indice y escribe
+     * todas las filas aceptadas en un solo anexo. Los rechazos quedan en el reporte.
+     */
+    public ReporteImportacion importar(Stream<Consulta> datos) throws IOException {
+        return conEscritura(() -> {
+            IndiceConsultas idx = indice();
+            ReporteImportacion reporte = importarLote(datos, this::motivoRechazo, Consulta::getId,
+                    id -> idx.filaDeId(id) >= 0, this::toLine, aceptadas -> { });
+            // El indice se rearma en la proxima consulta
+            indice = null;
+            invalidarCache();
+            return reporte;
+        });
+    }
+
+    // Reglas de alta; null si la consulta es valida
+    private String motivoRechazo(Consulta c) {
+        if (c.getId()<=0) return "ID debe ser positivo";
+        if (c.getPacienteId()<=0) return "ID debe ser positivo";
+        if (c.getDoctorId()<=0) return "ID debe ser positivo";
+        return null;
     }
 
     public void saveAll(List<Consulta> list) throws IOException {
-        List<String> lines = new ArrayList<>();
-        lines.add("#id|pacienteId|doctorId|fechaISO|motivo|notas");
-        for (Consulta c: list) lines.add(toLine(c));
-        writeAllLines(lines);
+        conEscritura(() -> {
+            escribirTodo(w -> {
+                w.write("#id|pacienteId|doctorId|fechaISO|motivo|notas"); w.newLine();
+                for (Consulta c: list) { w.write(toLine(c)); w.newLine(); }
+            });
+            indice = null;
+            invalidarCache();
+        });
     }
 
     private String toLine(Consulta c) {
@@ -1,72 +1,195 @@
 package proyecto.persistence;
 
+import proyecto.busqueda.Busqueda;
+import proyecto.busqueda.Campos;
+import proyecto.busqueda.Criterio;
 import proyecto.model.Equipo;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.regex.Pattern;
-import proyecto.validacionDatos.validacionEquipos;
+import proyecto.validacionDatos.MotorValidacion;
 
 /**
- * Persistencia de equipos (id|nombre|descripcion|disponible)
+ * Persistencia de equipos (id|nombre|descripcion|disponible|version)
  */
 public class PersistenciaEquipos extends PersistenciaBase {
-    private validacionEquipos ve;
-    public PersistenciaEquipos(Path file) throws IOException { super(file); }
+    private static final MotorValidacion<Equipo> VALIDACION = MotorValidacion.equipos();
+    // Stock por id y total; se arma al primer uso y cada escritura lo corrige sin releer
+    private AgregadoStock<Equipo> agregado;
+
+    public PersistenciaEquipos(Path file) throws IOException {
+        super(file);
+        habilitarBitacora();
+    }
 
     public List<Equipo> obtenerTodos() throws IOException {
+        return leerConInstantanea(this::leerCsv, PersistenciaEquipos::desdeInstantanea, PersistenciaEquipos::aInstantanea);
+    }
+
+    /** Pagina de equipos en el orden del archivo; ver Pagina para el cursor. */
+    public Pagina<Equipo> obtenerPagina(int desde, int limite) throws IOException {
+        return leerPagina(desde, limite, r -> r.campos() >= 4, PersistenciaEquipos::aEquipo);
+    }
+
+    public Pagina<Equipo> obtenerPagina(Pagina.Cursor despues, int limite) throws IOException {
+        return leerPagina(despues, limite, r -> r.campos() >= 4, PersistenciaEquipos::aEquipo);
+    }
+
+    private List<Equipo> leerCsv() throws IOException {
         List<Equipo> res = new ArrayList<>();
-        for (String l: readDataLines()) {
-            String[] p = l.split("\\|", -1);
-            if (p.length<4) continue;
-            int id = Integer.parseInt(p[0]);
-            String nombre = p[1];
-            String desc = p[2];
-            int disp = Integer.parseInt(p[3]);
-            res.add(new Equipo(id,nombre,desc,disp));
-        }
+        leerRegistros(r -> {
+            if (r.campos()<4) return;
+            res.add(aEquipo(r));
+        });
         return res;
     }
+
+    private static Equipo aEquipo(LectorRegistros.Registro r) {
+        return new Equipo(r.entero(0), r.texto(1), r.texto(2), r.entero(3), version(r, 4));
+    }
+
+    // Columnas: id, nombre, descripcion, disponible, version
+    private static List<Equipo> desdeInstantanea(Instantanea s) {
+        if (s.columnas() != 5) return null;
+        int[] ids = s.enteros(0), disponibles = s.enteros(3), versiones = s.enteros(4);
+        String[] nombres = s.textos(1), descripciones = s.textos(2);
+        List<Equipo> res = new ArrayList<>(s.filas());
+        for (int i = 0; i < s.filas(); i++) res.add(new Equipo(ids[i], nombres[i], descripciones[i], disponibles[i], versiones[i]));
+        return res;
+    }
+
+    private static Instantanea.Escritor aInstantanea(List<Equipo> equipos) {
+        int n = equipos.size();
+        int[] ids = new int[n], disponibles = new int[n], versiones = new int[n];
+        String[] nombres = new String[n], descripciones = new String[n];
+        for (int i = 0; i < n; i++) {
+            Equipo e = equipos.get(i);
+            ids[i] = e.getId(); nombres[i] = e.getNombre(); descripciones[i] = e.getDescripcion();
+            disponibles[i] = e.getDisponible(); versiones[i] = e.getVersion();
+        }
+        return new Instantanea.Escritor(n).enteros(ids).textos(nombres).textos(descripciones).enteros(disponibles).enteros(versiones);
+    }
     public Optional<Equipo> obtenerPorId(int id) throws IOException {
-        return obtenerTodos().stream().filter(x->x.getId()==id).findFirst();
+        return conLectura(() -> Optional.ofNullable(agregado().obtener(id)).map(PersistenciaEquipos::copia));
+    }
+
+    /** Unidades disponibles sumando todos los equipos. */
+    public long getStockTotal() throws IOException {
+        return conLectura(() -> agregado().getTotal());
+    }
+
+    /** Equipos con menos de umbral disponibles, de menor a mayor disponibilidad. */
+    public List<Equipo> obtenerBajoStock(int umbral) throws IOException {
+        return conLectura(() -> {
+            List<Equipo> res = new ArrayList<>();
+            for (Equipo e : agregado().bajoStock(umbral)) res.add(copia(e));
+            return res;
+        });
+    }
+
+    /**
+     * Equipos que cumplen el criterio. Un id fijo sale del agregado de stock, y un tope de disponibles
+     * (hasta, menorQue, entre) de su monticulo, que solo recorre los equipos bajo el tope; si
+     * no, se revisan todos. Entrega copias.
+     */
+    public Busqueda<Equipo> buscar(Criterio<Equipo> criterio) throws IOException {
+        if (criterio == null) throw new IllegalArgumentException("Falta el criterio");
+        List<Equipo> revisar = conLectura(() -> {
+            List<Equipo> c = candidatas(criterio, this::porIndice);
+            if (c == null) return obtenerTodos();
+            List<Equipo> res = new ArrayList<>(c.size());
+            for (Equipo x : c) res.add(copia(x));
+            return res;
+        });
+        return Busqueda.sobre(revisar).donde(criterio);
+    }
+
+    // Llamar con el cerrojo del archivo tomado. Filas del agregado (sin copiar)
+    private List<Equipo> porIndice(Criterio<Equipo> c) throws IOException {
+        Criterio.Rango<Equipo, Integer> id = c.rango(Campos.EQUIPO_ID);
+        if (id != null && id.esValor()) {
+            Equipo x = agregado().obtener(id.getDesde());
+            return x == null ? Collections.<Equipo>emptyList() : Collections.singletonList(x);
+        }
+        Criterio.Rango<Equipo, Integer> stock = c.rango(Campos.EQUIPO_DISPONIBLE);
+        if (stock == null || stock.maximoEntero() >= Integer.MAX_VALUE) return null;
+        return agregado().bajoStock((int) Math.max(Integer.MIN_VALUE, stock.maximoEntero() + 1));
+    }
+
+    // Llamar con el cerrojo del archivo tomado. Si otro proceso escribio, se rearma.
+    private synchronized AgregadoStock<Equipo> agregado() throws IOException {
+        if (agregado != null && cacheVigente()) return agregado;
+        agregado = null;
+        // La huella se toma antes de leer, como en las demas caches
+        marcarCacheVigente();
+        AgregadoStock<Equipo> nuevo = new AgregadoStock<>(Equipo::getId, Equipo::getDisponible, e -> null);
+        try {
+            for (Equipo e : obtenerTodos()) nuevo.agregar(e);
+        } catch (IOException | RuntimeException ex) {
+            invalidarCache();
+            throw ex;
+        }
+        agregado = nuevo;
+        return nuevo;
+    }
+
+    private static Equipo copia(Equipo e) {
+        return new Equipo(e.getId(), e.getNombre(), e.getDescripcion(), e.getDisponible(), e.getVersion());
     }
 
     public void agregar(Equipo e) throws IOException {
-        if (e.getId()<=0) throw new IllegalArgumentException("ID debe ser positivo");
-        if (ve.validaNombreEquipo(e.getNombre()) == false) throw new IllegalArgumentException("Nombre erroneo");
-        if (ve.validaCantidadEquipo(e.getDisponible()) == false) throw new IllegalArgumentException("Debe ser positivo");
-        if (obtenerPorId(e.getId()).isPresent()) throw new IllegalArgumentException("ID duplicado");
-        appendLine(toLine(e));
+        String motivo = VALIDACION.motivo(e);
+        if (motivo != null) throw new IllegalArgumentException(motivo);
+        conEscritura(() -> {
+            AgregadoStock<Equipo> a = agregado();
+            if (a.obtener(e.getId()) != null) throw new IllegalArgumentException("ID duplicado");
+            agregarLinea(e.getId(), toLine(e));
+            synchronized (this) {
+                a.agregar(new Equipo(e.getId(), safe(e.getNombre()), safe(e.getDescripcion()), e.getDisponible(), e.getVersion()));
+                marcarCacheVigente();
+            }
+        });
     }
 
+    /**
+     * Guarda los cambios si el equipo sigue en la version con la que se leyo; si otro lo
+     * actualizo antes lanza ConflictoVersionException y no escribe nada. Al guardar, e pasa
+     * a tener la nueva version.
+     */
     public void actualizar(Equipo e) throws IOException {
-        List<Equipo> todos = obtenerTodos();
-        boolean found = false;
-        for (int i = 0; i <todos.size(); i++){
-            if (todos.get(i).getId()==e.getId()){
-                todos.set(i, e); found = true; break;
+        conEscritura(() -> {
+            AgregadoStock<Equipo> a = agregado();
+            Equipo actual = a.obtener(e.getId());
+            if (actual == null) throw new NoSuchElementException("Equipo no encontrado");
+            if (actual.getVersion() != e.getVersion()) throw new ConflictoVersionException(e.getId(), e.getVersion(), actual.getVersion());
+            Equipo nuevo = new Equipo(e.getId(), safe(e.getNombre()), safe(e.getDescripcion()), e.getDisponible(), actual.getVersion() + 1);
+            registrarModificacion(e.getId(), toLine(nuevo));
+            synchronized (this) {
+                a.quitar(e.getId());
+                a.agregar(nuevo);
+                marcarCacheVigente();
             }
-        }
-        if (!found) throw new NoSuchElementException("Equipo no encontrado");
-        List<String> lines = new ArrayList<>();
-        lines.add("#id|nombre|descripcion|6");
-        for (Equipo x: todos) lines.add(toLine(x));
-        writeAllLines(lines);
+            e.setVersion(nuevo.getVersion());
+        });
     }
     
     public void eliminar(int id) throws IOException {
-        List<Equipo> todos = obtenerTodos();
-        boolean removed = todos.removeIf(x->x.getId()==id);
-        if (!removed) throw new NoSuchElementException("Equipo no encontrado");
-        List<String> lines = new ArrayList<>();
-        lines.add("#id|nombre|descripcion|6");
-        for (Equipo x: todos) lines.add(toLine(x));
-        writeAllLines(lines);
+        conEscritura(() -> {
+            AgregadoStock<Equipo> a = agregado();
+            if (a.obtener(id) == null) throw new NoSuchElementException("Equipo no encontrado");
+            registrarBorrado(id);
+            synchronized (this) {
+                a.quitar(id);
+                marcarCacheVigente();
+            }
+        });
     }
  
     private String toLine(Equipo e) {
-        return String.join("|", String.valueOf(e.getId()), safe(e.getNombre()), safe(e.getDescripcion()), String.valueOf(e.getDisponible()));
+        return String.join("|", String.valueOf(e.getId()), safe(e.getNombre()), safe(e.getDescripcion()), String.valueOf(e.getDisponible()),
+                String.valueOf(e.getVersion()));
     }
 
     private String safe(String s) { return s==null?"":s.replace("|"," ").trim(); }
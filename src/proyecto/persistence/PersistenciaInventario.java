@@ -1,5 +1,8 @@
 package proyecto.persistence;
 
+import proyecto.busqueda.Busqueda;
+import proyecto.busqueda.Campos;
+import proyecto.busqueda.Criterio;
 import proyecto.model.InventarioItem;
 
 import java.io.IOException;
@@ -10,28 +13,200 @@ import java.util.*;
  * Persistencia de inventario (id|nombre|cantidad|unidad)
  */
 public class PersistenciaInventario extends PersistenciaBase {
+    // Pocas unidades distintas (pz, caja, ml...): una instancia por valor
+    private final DiccionarioTextos unidades = new DiccionarioTextos();
+    // Stock por id, total y por unidad; se arma al primer uso y cada escritura lo corrige sin releer
+    private AgregadoStock<InventarioItem> agregado;
+
     public PersistenciaInventario(Path file) throws IOException { super(file); }
 
     public List<InventarioItem> obtenerTodos() throws IOException {
+        return leerConInstantanea(this::leerCsv, PersistenciaInventario::desdeInstantanea, PersistenciaInventario::aInstantanea);
+    }
+
+    /** Pagina del inventario en el orden del archivo; ver Pagina para el cursor. */
+    public Pagina<InventarioItem> obtenerPagina(int desde, int limite) throws IOException {
+        return leerPagina(desde, limite, r -> r.campos() >= 4, this::aItem);
+    }
+
+    public Pagina<InventarioItem> obtenerPagina(Pagina.Cursor despues, int limite) throws IOException {
+        return leerPagina(despues, limite, r -> r.campos() >= 4, this::aItem);
+    }
+
+    private List<InventarioItem> leerCsv() throws IOException {
         List<InventarioItem> res = new ArrayList<>();
-        for (String l: readDataLines()) {
-            String[] p = l.split("\\|", -1);
-            if (p.length<4) continue;
-            res.add(new InventarioItem(Integer.parseInt(p[0]), p[1], Integer.parseInt(p[2]), p[3]));
-        }
+        leerRegistros(r -> {
+            if (r.campos()<4) return;
+            res.add(aItem(r));
+        });
         return res;
     }
 
+    private InventarioItem aItem(LectorRegistros.Registro r) {
+        return new InventarioItem(r.entero(0), r.texto(1), r.entero(2), r.texto(3, unidades));
+    }
+
+    // Columnas: id, nombre, cantidad, unidad (con diccionario)
+    private static List<InventarioItem> desdeInstantanea(Instantanea s) {
+        int[] ids = s.enteros(0), cantidades = s.enteros(2);
+        String[] nombres = s.textos(1), unidades = s.textos(3);
+        List<InventarioItem> res = new ArrayList<>(s.filas());
+        for (int i = 0; i < s.filas(); i++) res.add(new InventarioItem(ids[i], nombres[i], cantidades[i], unidades[i]));
+        return res;
+    }
+
+    private static Instantanea.Escritor aInstantanea(List<InventarioItem> items) {
+        int n = items.size();
+        int[] ids = new int[n], cantidades = new int[n];
+        String[] nombres = new String[n], unidades = new String[n];
+        for (int i = 0; i < n; i++) {
+            InventarioItem it = items.get(i);
+            ids[i] = it.getId(); nombres[i] = it.getNombre(); cantidades[i] = it.getCantidad(); unidades[i] = it.getUnidad();
+        }
+        return new Instantanea.Escritor(n).enteros(ids).textos(nombres).enteros(cantidades).diccionario(unidades);
+    }
+
+    public Optional<InventarioItem> obtenerPorId(int id) throws IOException {
+        return conLectura(() -> Optional.ofNullable(agregado().obtener(id)).map(PersistenciaInventario::copia));
+    }
+
+    /** Cantidad total sumando todos los items, sin importar la unidad. */
+    public long getStockTotal() throws IOException {
+        return conLectura(() -> agregado().getTotal());
+    }
+
+    /** Cantidad total por unidad (pz, caja, ml...), ordenado por unidad. */
+    public Map<String, Long> totalesPorUnidad() throws IOException {
+        return conLectura(() -> agregado().getTotalesPorUnidad());
+    }
+
+    /** Items con cantidad menor que umbral, de menor a mayor cantidad. */
+    public List<InventarioItem> obtenerBajoStock(int umbral) throws IOException {
+        return conLectura(() -> {
+            List<InventarioItem> res = new ArrayList<>();
+            for (InventarioItem it : agregado().bajoStock(umbral)) res.add(copia(it));
+            return res;
+        });
+    }
+
+    /**
+     * Items del inventario que cumplen el criterio. Un id fijo sale del agregado de stock, y un tope de cantidad
+     * (hasta, menorQue, entre) de su monticulo, que solo recorre los items bajo el tope; si
+     * no, se revisan todos. Entrega copias.
+     */
+    public Busqueda<InventarioItem> buscar(Criterio<InventarioItem> criterio) throws IOException {
+        if (criterio == null) throw new IllegalArgumentException("Falta el criterio");
+        List<InventarioItem> revisar = conLectura(() -> {
+            List<InventarioItem> c = candidatas(criterio, this::porIndice);
+            if (c == null) return obtenerTodos();
+            List<InventarioItem> res = new ArrayList<>(c.size());
+            for (InventarioItem x : c) res.add(copia(x));
+            return res;
+        });
+        return Busqueda.sobre(revisar).donde(criterio);
+    }
+
+    // Llamar con el cerrojo del archivo tomado. Filas del agregado (sin copiar)
+    private List<InventarioItem> porIndice(Criterio<InventarioItem> c) throws IOException {
+        Criterio.Rango<InventarioItem, Integer> id = c.rango(Campos.INVENTARIO_ID);
+        if (id != null && id.esValor()) {
+            InventarioItem x = agregado().obtener(id.getDesde());
+            return x == null ? Collections.<InventarioItem>emptyList() : Collections.singletonList(x);
+        }
+        Criterio.Rango<InventarioItem, Integer> stock = c.rango(Campos.INVENTARIO_CANTIDAD);
+        if (stock == null || stock.maximoEntero() >= Integer.MAX_VALUE) return null;
+        return agregado().bajoStock((int) Math.max(Integer.MIN_VALUE, stock.maximoEntero() + 1));
+    }
+
+    // Llamar con el cerrojo del archivo tomado. Si otro proceso escribio, se rearma.
+    private synchronized AgregadoStock<InventarioItem> agregado() throws IOException {
+        if (agregado != null && cacheVigente()) return agregado;
+        agregado = null;
+        // La huella se toma antes de leer, como en las demas caches
+        marcarCacheVigente();
+        AgregadoStock<InventarioItem> nuevo = nuevoAgregado();
+        try {
+            for (InventarioItem it : obtenerTodos()) nuevo.agregar(it);
+        } catch (IOException | RuntimeException ex) {
+            invalidarCache();
+            throw ex;
+        }
+        agregado = nuevo;
+        return nuevo;
+    }
+
+    private static AgregadoStock<InventarioItem> nuevoAgregado() {
+        return new AgregadoStock<>(InventarioItem::getId, InventarioItem::getCantidad, InventarioItem::getUnidad);
+    }
+
+    private static InventarioItem copia(InventarioItem i) {
+        return new InventarioItem(i.getId(), i.getNombre(), i.getCantidad(), i.getUnidad());
+    }
+
     public void agregar(InventarioItem i) throws IOException {
         if (i.getId()<=0) throw new IllegalArgumentException("ID debe ser positivo");
-        appendLine(toLine(i));
+        conEscritura(() -> {
+            AgregadoStock<InventarioItem> a = agregado();
+            appendLine(toLine(i));
+            synchronized (this) {
+                a.agregar(new InventarioItem(i.getId(), safe(i.getNombre()), i.getCantidad(), safe(i.getUnidad())));
+                marcarCacheVigente();
+            }
+        });
+    }
+
+    /**
+     * Cambia la cantidad de un item. Lee y reescribe el archivo con el cerrojo tomado, asi
+     * dos cambios simultaneos no se pisan.
+     */
+    public void actualizarCantidad(int id, int cantidad) throws IOException {
+        conEscritura(() -> {
+            AgregadoStock<InventarioItem> a = agregado();
+            if (a.obtener(id) == null) throw new NoSuchElementException("Item no encontrado");
+            List<InventarioItem> todos = obtenerTodos();
+            for (InventarioItem it : todos) {
+                if (it.getId() == id) it.setCantidad(cantidad);
+            }
+            escribirLista(todos);
+            synchronized (this) {
+                for (InventarioItem it : a.quitar(id)) a.agregar(new InventarioItem(id, it.getNombre(), cantidad, it.getUnidad()));
+                marcarCacheVigente();
+            }
+        });
+    }
+
+    public void eliminar(int id) throws IOException {
+        conEscritura(() -> {
+            AgregadoStock<InventarioItem> a = agregado();
+            if (a.obtener(id) == null) throw new NoSuchElementException("Item no encontrado");
+            List<InventarioItem> todos = obtenerTodos();
+            todos.removeIf(it -> it.getId() == id);
+            escribirLista(todos);
+            synchronized (this) {
+                a.quitar(id);
+                marcarCacheVigente();
+            }
+        });
     }
 
     public void saveAll(List<InventarioItem> list) throws IOException {
-        List<String> lines = new ArrayList<>();
-        lines.add("#id|nombre|cantidad|unidad");
-        for (InventarioItem it: list) lines.add(toLine(it));
-        writeAllLines(lines);
+        conEscritura(() -> {
+            escribirLista(list);
+            // Lo escrito es el contenido completo: el agregado sale de la lista, sin releer
+            AgregadoStock<InventarioItem> nuevo = nuevoAgregado();
+            for (InventarioItem it : list) nuevo.agregar(new InventarioItem(it.getId(), safe(it.getNombre()), it.getCantidad(), safe(it.getUnidad())));
+            synchronized (this) {
+                agregado = nuevo;
+                marcarCacheVigente();
+            }
+        });
+    }
+
+    private void escribirLista(List<InventarioItem> list) throws IOException {
+        escribirTodo(w -> {
+            w.write("#id|nombre|cantidad|unidad"); w.newLine();
+            for (InventarioItem it: list) { w.write(toLine(it)); w.newLine(); }
+        });
     }
 
     private String toLine(InventarioItem i) {
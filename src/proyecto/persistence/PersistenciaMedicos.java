@@ -1,48 +1,126 @@
 package proyecto.persistence;
 
+import proyecto.busqueda.Busqueda;
+import proyecto.busqueda.Criterio;
 import proyecto.model.Doctor;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.regex.Pattern;
-import proyecto.validacionDatos.validacionMedico;
+import java.util.stream.Stream;
+import proyecto.validacionDatos.MotorValidacion;
 
 /**
  * Persistencia de medicos en CSV (id|nombre|especialidad)
  */
 public class PersistenciaMedicos extends PersistenciaBase {
-    private validacionMedico vm;
+    private static final MotorValidacion<Doctor> VALIDACION = MotorValidacion.medicos();
+    // Las especialidades se repiten en casi todas las filas: una instancia por valor
+    private final DiccionarioTextos especialidades = new DiccionarioTextos();
     public PersistenciaMedicos(Path file) throws IOException { super(file); }
 
     public List<Doctor> obtenerTodos() throws IOException {
+        return leerConInstantanea(this::leerCsv, PersistenciaMedicos::desdeInstantanea, PersistenciaMedicos::aInstantanea);
+    }
+
+    /** Pagina de medicos en el orden del archivo; ver Pagina para el cursor. */
+    public Pagina<Doctor> obtenerPagina(int desde, int limite) throws IOException {
+        return leerPagina(desde, limite, r -> r.campos() >= 3, this::aDoctor);
+    }
+
+    public Pagina<Doctor> obtenerPagina(Pagina.Cursor despues, int limite) throws IOException {
+        return leerPagina(despues, limite, r -> r.campos() >= 3, this::aDoctor);
+    }
+
+    private List<Doctor> leerCsv() throws IOException {
         List<Doctor> res = new ArrayList<>();
-        for (String l: readDataLines()) {
-            String[] p = l.split("\\|", -1);
-            if (p.length<3) continue;
-            res.add(new Doctor(Integer.parseInt(p[0]), p[1], p[2]));
-        }
+        leerRegistros(r -> {
+            if (r.campos()<3) return;
+            res.add(aDoctor(r));
+        });
+        return res;
+    }
+
+    private Doctor aDoctor(LectorRegistros.Registro r) {
+        return new Doctor(r.entero(0), r.texto(1), r.texto(2, especialidades));
+    }
+
+    // Columnas: id, nombre, especialidad (con diccionario)
+    private static List<Doctor> desdeInstantanea(Instantanea s) {
+        int[] ids = s.enteros(0);
+        String[] nombres = s.textos(1), especialidades = s.textos(2);
+        List<Doctor> res = new ArrayList<>(s.filas());
+        for (int i = 0; i < s.filas(); i++) res.add(new Doctor(ids[i], nombres[i], especialidades[i]));
         return res;
     }
 
+    private static Instantanea.Escritor aInstantanea(List<Doctor> medicos) {
+        int n = medicos.size();
+        int[] ids = new int[n];
+        String[] nombres = new String[n], especialidades = new String[n];
+        for (int i = 0; i < n; i++) {
+            Doctor d = medicos.get(i);
+            ids[i] = d.getId(); nombres[i] = d.getNombre(); especialidades[i] = d.getEspecialidad();
+        }
+        return new Instantanea.Escritor(n).enteros(ids).textos(nombres).diccionario(especialidades);
+    }
+
+    /** Medicos que cumplen el criterio. No hay indices: se revisan todos. */
+    public Busqueda<Doctor> buscar(Criterio<Doctor> criterio) throws IOException {
+        if (criterio == null) throw new IllegalArgumentException("Falta el criterio");
+        return Busqueda.sobre(obtenerTodos()).donde(criterio);
+    }
+
     public Optional<Doctor> obtenerPorId(int id) throws IOException {
         return obtenerTodos().stream().filter(d->d.getId()==id).findFirst();
     }
     
     
     public void agregar(Doctor d) throws IOException {
-        if (d.getId()<=0) throw new IllegalArgumentException("ID debe ser positivo");
-        if (vm.validaNombreMedico(d.getNombre()) == false) throw new IllegalArgumentException("Nombre erroneo");
-        if (vm.validaEspecialidad(d.getEspecialidad()) == false) throw new IllegalArgumentException("Especialidad erronea");
-        if (obtenerPorId(d.getId()).isPresent()) throw new IllegalArgumentException("ID duplicado");
-        appendLine(String.join("|", String.valueOf(d.getId()), safe(d.getNombre()), safe(d.getEspecialidad())));
+        String motivo = VALIDACION.motivo(d);
+        if (motivo != null) throw new IllegalArgumentException(motivo);
+        conEscritura(() -> {
+            if (obtenerPorId(d.getId()).isPresent()) throw new IllegalArgumentException("ID duplicado");
+            appendLine(toLine(d));
+        });
+    }
+
+    /**
+     * Borra el medico reescribiendo el archivo sin el, sin que otra escritura se cuele
+     * entre la lectura y la reescritura.
+     */
+    public void eliminar(int id) throws IOException {
+        conEscritura(() -> {
+            List<Doctor> todos = obtenerTodos();
+            if (!todos.removeIf(d -> d.getId() == id)) throw new NoSuchElementException("Medico no encontrado");
+            saveAll(todos);
+        });
+    }
+
+    /**
+     * Alta masiva: valida en paralelo, arma una sola vez el conjunto de ids existentes y
+     * escribe todas las filas aceptadas en un solo anexo. Los rechazos quedan en el reporte.
+     */
+    public ReporteImportacion importar(Stream<Doctor> datos) throws IOException {
+        return conEscritura(() -> {
+            MapaEnteros<Boolean> existentes = new MapaEnteros<>();
+            leerRegistros(r -> {
+                if (r.campos() >= 3) existentes.poner(r.entero(0), Boolean.TRUE);
+            });
+            return importarLote(datos, VALIDACION::motivo, Doctor::getId, existentes::contiene, this::toLine, aceptados -> { });
+        });
     }
 
     public void saveAll(List<Doctor> list) throws IOException {
-        List<String> lines = new ArrayList<>();
-        lines.add("#id|nombre|especialidad");
-        for (Doctor d: list) lines.add(String.join("|", String.valueOf(d.getId()), safe(d.getNombre()), safe(d.getEspecialidad())));
-        writeAllLines(lines);
+        escribirTodo(w -> {
+            w.write("#id|nombre|especialidad"); w.newLine();
+            for (Doctor d: list) { w.write(toLine(d)); w.newLine(); }
+        });
+    }
+
+    private String toLine(Doctor d) {
+        return String.join("|", String.valueOf(d.getId()), safe(d.getNombre()), safe(d.getEspecialidad()));
     }
 
     private String safe(String s) { return s==null?"":s.replace("|"," ").trim(); }
@@ -1,100 +1,392 @@
 package proyecto.persistence;
 
+import proyecto.busqueda.Busqueda;
+import proyecto.busqueda.Campos;
+import proyecto.busqueda.Criterio;
 import proyecto.model.Paciente;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
-import proyecto.validacionDatos.validacionPaciente;
+import proyecto.validacionDatos.MotorValidacion;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * Persistencia de pacientes en CSV (id|nombre|direccion|edad|telefono|fecha)
+ * Persistencia de pacientes en CSV (id|nombre|direccion|edad|telefono|version)
  */
 public class PersistenciaPacientes extends PersistenciaBase {
-    private validacionPaciente vp;
-    public PersistenciaPacientes(Path file) throws IOException { super(file); }
+    private static final MotorValidacion<Paciente> VALIDACION = MotorValidacion.pacientes();
+    // Cache write-through: se carga una vez y se recarga solo si el archivo cambia por fuera
+    private final List<Paciente> filas = new ArrayList<>();
+    private final MapaEnteros<Paciente> porId = new MapaEnteros<>();
+    // Direcciones repetidas (mismo barrio, misma calle) comparten la instancia
+    private final DiccionarioTextos direcciones = new DiccionarioTextos();
+    // Indice de nombres: se arma en la primera busqueda y luego se mantiene con cada escritura
+    private IndiceNombres indiceNombres;
+    // Ids por edad: se arma en la primera busqueda por edad y luego se mantiene con cada escritura
+    private IndiceEdades indiceEdades;
+    // Patrones regex ya compilados (LRU), para no recompilar la misma busqueda
+    private static final int PATRONES_EN_CACHE = 64;
+    private final Map<String, Pattern> patrones = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> e) {
+            return size() > PATRONES_EN_CACHE;
+        }
+    };
+    // Caracteres que hacen que el texto buscado se trate como expresion regular
+    private static final Pattern METACARACTERES = Pattern.compile("[\\\\\\[\\](){}.*+?^$|]");
 
-    public List<Paciente> obtenerTodos() throws IOException {
-        List<Paciente> res = new ArrayList<>();
-        for (String l : readDataLines()) {
-            String[] p = l.split("\\|", -1);
-            if (p.length < 4) continue;
-            int id = Integer.parseInt(p[0]);
-            String nombre = p[1];
-            String direccion = p[2];
-            int edad = Integer.parseInt(p[3]);
-            String telefono = p[4];
-            res.add(new Paciente(id,nombre,direccion,edad,telefono));
+    public PersistenciaPacientes(Path file) throws IOException {
+        super(file);
+        habilitarBitacora();
+    }
+
+    // Llamar con el cerrojo del archivo tomado (lectura o escritura)
+    private synchronized void cargar() throws IOException {
+        if (cacheVigente()) return;
+        filas.clear();
+        porId.limpiar();
+        indiceNombres = null;
+        indiceEdades = null;
+        // La huella se toma antes de leer: si el archivo cambia durante la carga se recargara
+        marcarCacheVigente();
+        try {
+            for (Paciente pac : leerConInstantanea(this::leerCsv, PersistenciaPacientes::desdeInstantanea, PersistenciaPacientes::aInstantanea)) {
+                filas.add(pac);
+                if (!porId.contiene(pac.getId())) porId.poner(pac.getId(), pac);
+            }
+        } catch (IOException | RuntimeException e) {
+            invalidarCache();
+            throw e;
         }
+    }
+
+    private List<Paciente> leerCsv() throws IOException {
+        List<Paciente> res = new ArrayList<>();
+        leerRegistros(r -> {
+            if (r.campos() < 5) return;
+            res.add(aPaciente(r));
+        });
         return res;
     }
+
+    private Paciente aPaciente(LectorRegistros.Registro r) {
+        return new Paciente(r.entero(0), r.texto(1), r.texto(2, direcciones), r.entero(3), r.texto(4), version(r, 5));
+    }
+
+    // Columnas: id, nombre, direccion, edad, telefono, version
+    private static List<Paciente> desdeInstantanea(Instantanea s) {
+        if (s.columnas() != 6) return null;
+        int[] ids = s.enteros(0), edades = s.enteros(3), versiones = s.enteros(5);
+        String[] nombres = s.textos(1), direcciones = s.textos(2), telefonos = s.textos(4);
+        List<Paciente> res = new ArrayList<>(s.filas());
+        for (int i = 0; i < s.filas(); i++) res.add(new Paciente(ids[i], nombres[i], direcciones[i], edades[i], telefonos[i], versiones[i]));
+        return res;
+    }
+
+    private static Instantanea.Escritor aInstantanea(List<Paciente> pacientes) {
+        int n = pacientes.size();
+        int[] ids = new int[n], edades = new int[n], versiones = new int[n];
+        String[] nombres = new String[n], direcciones = new String[n], telefonos = new String[n];
+        for (int i = 0; i < n; i++) {
+            Paciente p = pacientes.get(i);
+            ids[i] = p.getId(); nombres[i] = p.getNombre(); direcciones[i] = p.getDireccion();
+            edades[i] = p.getEdad(); telefonos[i] = p.getTelefono(); versiones[i] = p.getVersion();
+        }
+        return new Instantanea.Escritor(n).enteros(ids).textos(nombres).textos(direcciones).enteros(edades).textos(telefonos)
+                .enteros(versiones);
+    }
+
+    public List<Paciente> obtenerTodos() throws IOException {
+        return conLectura(() -> {
+            cargar();
+            List<Paciente> res = new ArrayList<>(filas.size());
+            for (Paciente p : filas) res.add(copia(p));
+            return res;
+        });
+    }
+    /**
+     * Busca por nombre. Si el patron es texto simple se resuelve con el indice de nombres
+     * (sin distinguir acentos ni mayusculas); si tiene metacaracteres se usa como regex.
+     */
     public List<Paciente> buscarPorNombre(String patron) throws IOException {
-    List<Paciente> resultados = new ArrayList<>();
-    Pattern pattern = Pattern.compile(patron, Pattern.CASE_INSENSITIVE);
+        if (patron == null || patron.isEmpty()) return obtenerTodos();
+        if (!METACARACTERES.matcher(patron).find()) return buscarPorTexto(patron);
+        Pattern pattern = compilar(patron);
+        return conLectura(() -> {
+            cargar();
+            List<Paciente> resultados = new ArrayList<>();
+            for (Paciente p : filas) {
+                if (pattern.matcher(p.getNombre()).find()) {
+                    resultados.add(copia(p));
+                }
+            }
+            return resultados;
+        });
+    }
 
-    for (String l : readDataLines()) {
-        String[] p = l.split("\\|", -1);
-        if (p.length < 5) continue;
+    private Pattern compilar(String patron) {
+        synchronized (patrones) {
+            return patrones.computeIfAbsent(patron, p -> Pattern.compile(p, Pattern.CASE_INSENSITIVE));
+        }
+    }
+
+    /** Pagina de pacientes en el orden del archivo; ver Pagina para el cursor. */
+    public Pagina<Paciente> obtenerPagina(int desde, int limite) throws IOException {
+        return leerPagina(desde, limite, r -> r.campos() >= 5, this::aPaciente);
+    }
 
-        int id = Integer.parseInt(p[0]);
-        String nombre = p[1];
-        String direccion = p[2];
-        int edad = Integer.parseInt(p[3]);
-        String telefono = p[4];
+    public Pagina<Paciente> obtenerPagina(Pagina.Cursor despues, int limite) throws IOException {
+        return leerPagina(despues, limite, r -> r.campos() >= 5, this::aPaciente);
+    }
 
-        if (pattern.matcher(nombre).find()) {
-            resultados.add(new Paciente(id, nombre, direccion, edad, telefono));
+    /**
+     * Pagina de buscarPorNombre (mismo criterio), leida del archivo hasta llenar la pagina
+     * en lugar de armar la lista completa de coincidencias.
+     */
+    public Pagina<Paciente> buscarPorNombre(String patron, Pagina.Cursor despues, int limite) throws IOException {
+        Predicate<String> coincide;
+        if (patron == null || patron.isEmpty()) {
+            coincide = nombre -> true;
+        } else if (METACARACTERES.matcher(patron).find()) {
+            Pattern pattern = compilar(patron);
+            coincide = nombre -> pattern.matcher(nombre).find();
+        } else {
+            String buscado = IndiceNombres.normalizar(patron);
+            coincide = nombre -> IndiceNombres.normalizar(nombre).contains(buscado);
         }
+        return leerPagina(despues, limite, r -> r.campos() >= 5 && coincide.test(r.texto(1)), this::aPaciente);
+    }
+
+    /**
+     * Pacientes cuyo nombre contiene el texto, sin distinguir acentos ni mayusculas.
+     * Pensado para busqueda mientras se escribe.
+     */
+    public List<Paciente> buscarPorTexto(String texto) throws IOException {
+        return conLectura(() -> porIds(indiceNombres().buscarSubcadena(texto)));
+    }
+
+    /**
+     * Pacientes cuyo nombre empieza con el texto, sin distinguir acentos ni mayusculas.
+     */
+    public List<Paciente> buscarPorPrefijo(String texto) throws IOException {
+        return conLectura(() -> porIds(indiceNombres().buscarPrefijo(texto)));
+    }
+
+    // Llamar con el cerrojo del archivo tomado
+    private synchronized IndiceNombres indiceNombres() throws IOException {
+        cargar();
+        if (indiceNombres == null) {
+            IndiceNombres idx = new IndiceNombres();
+            for (Paciente p : filas) {
+                if (porId.obtener(p.getId()) == p) idx.agregar(p.getId(), p.getNombre());
+            }
+            indiceNombres = idx;
+        }
+        return indiceNombres;
+    }
+
+    /**
+     * Pacientes que cumplen el criterio. Antes de recorrer se mira el criterio: si fija el
+     * id, un rango de edad o un texto del nombre se parte del indice que deja menos filas y
+     * el criterio completo se evalua solo sobre esas; un o usa la union si cada alternativa
+     * tiene indice. Si no, se revisan todas. La busqueda es perezosa y entrega copias; el
+     * orden depende del indice usado (ordenadaPor para fijarlo).
+     */
+    public Busqueda<Paciente> buscar(Criterio<Paciente> criterio) throws IOException {
+        if (criterio == null) throw new IllegalArgumentException("Falta el criterio");
+        Paciente[] revisar = conLectura(() -> {
+            synchronized (this) {
+                cargar();
+                List<Paciente> c = candidatas(criterio, this::porIndice);
+                return (c != null ? c : filas).toArray(new Paciente[0]);
+            }
+        });
+        return Busqueda.sobre(revisar.length, i -> copia(revisar[i])).donde(criterio);
+    }
+
+    // Llamar con el cerrojo y el monitor tomados. Filas del indice mas selectivo (sin copiar)
+    private List<Paciente> porIndice(Criterio<Paciente> c) throws IOException {
+        Criterio.Rango<Paciente, Integer> id = c.rango(Campos.PACIENTE_ID);
+        if (id != null && id.esValor()) {
+            Paciente p = porId.obtener(id.getDesde());
+            return p == null ? Collections.<Paciente>emptyList() : Collections.singletonList(p);
+        }
+        Criterio.Rango<Paciente, Integer> edad = c.rango(Campos.PACIENTE_EDAD);
+        Criterio.Texto<Paciente> nombre = c.texto(Campos.PACIENTE_NOMBRE);
+        // El histograma dice cuantos deja la edad sin juntar los ids
+        int porEdad = edad == null ? Integer.MAX_VALUE : indiceEdades().contar(edad.minimoEntero(), edad.maximoEntero());
+        int[] ids = null;
+        if (nombre != null) {
+            IndiceNombres idx = indiceNombres();
+            ids = nombre.esPrefijo() ? idx.buscarPrefijo(nombre.getBuscado()) : idx.buscarSubcadena(nombre.getBuscado());
+        }
+        if (edad != null && (ids == null || porEdad <= ids.length)) ids = indiceEdades().ids(edad.minimoEntero(), edad.maximoEntero());
+        if (ids == null) return null;
+        List<Paciente> res = new ArrayList<>(ids.length);
+        for (int i : ids) {
+            Paciente p = porId.obtener(i);
+            if (p != null) res.add(p);
+        }
+        return res;
+    }
+
+    /**
+     * Cuantos pacientes hay de cada edad: posicion e = pacientes de e años (0 a 120). Sale
+     * del indice de edades, que se mantiene con cada escritura: no lee el archivo salvo que
+     * otro proceso lo haya cambiado.
+     */
+    public int[] histogramaEdades() throws IOException {
+        return conLectura(() -> indiceEdades().histograma());
+    }
+
+    /** Cuantos pacientes tienen edad entre desde y hasta (incluidas), sin recorrerlos. */
+    public int contarPorEdad(int desde, int hasta) throws IOException {
+        return conLectura(() -> indiceEdades().contar(desde, hasta));
+    }
+
+    /** Ids de los pacientes con edad entre desde y hasta (incluidas), de menor a mayor edad. */
+    public int[] idsPorEdad(int desde, int hasta) throws IOException {
+        return conLectura(() -> indiceEdades().ids(desde, hasta));
+    }
+
+    // Llamar con el cerrojo del archivo tomado
+    private synchronized IndiceEdades indiceEdades() throws IOException {
+        cargar();
+        if (indiceEdades == null) {
+            IndiceEdades idx = new IndiceEdades();
+            for (Paciente p : filas) {
+                if (porId.obtener(p.getId()) == p) idx.agregar(p.getId(), p.getEdad());
+            }
+            indiceEdades = idx;
+        }
+        return indiceEdades;
+    }
+
+    private List<Paciente> porIds(int[] ids) {
+        List<Paciente> res = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Paciente p = porId.obtener(id);
+            if (p != null) res.add(copia(p));
+        }
+        return res;
     }
-    return resultados;
-}
 
     
     public Optional<Paciente> obtenerPorId(int id) throws IOException {
-        return obtenerTodos().stream().filter(x->x.getId()==id).findFirst();
+        return conLectura(() -> {
+            cargar();
+            Paciente p = porId.obtener(id);
+            return p == null ? Optional.<Paciente>empty() : Optional.of(copia(p));
+        });
     }
 
     public void agregar(Paciente p) throws IOException {
-        if (p.getId()<=0) throw new IllegalArgumentException("ID debe ser positivo");
-        if (vp.validaNombrePaciente(p.getNombre()) == false) throw new IllegalArgumentException("Nombre erroneo");
-        if (vp.validaEdad(p.getEdad()) == false) throw new IllegalArgumentException("Edad imposible");
-        if (vp.validaDireccion(p.getDireccion()) == false) throw new IllegalArgumentException("Formato de Direccion erronea");
-        if (obtenerPorId(p.getId()).isPresent()) throw new IllegalArgumentException("ID duplicado");
-        appendLine(toLine(p));
-    
+        String motivo = VALIDACION.motivo(p);
+        if (motivo != null) throw new IllegalArgumentException(motivo);
+        conEscritura(() -> {
+            if (obtenerPorId(p.getId()).isPresent()) throw new IllegalArgumentException("ID duplicado");
+            agregarLinea(p.getId(), toLine(p));
+            Paciente nuevo = normalizar(p);
+            filas.add(nuevo);
+            porId.poner(nuevo.getId(), nuevo);
+            if (indiceNombres != null) indiceNombres.agregar(nuevo.getId(), nuevo.getNombre());
+            if (indiceEdades != null) indiceEdades.agregar(nuevo.getId(), nuevo.getEdad());
+            marcarCacheVigente();
+        });
+    }
+
+    /**
+     * Alta masiva: valida en paralelo, descarta ids existentes o repetidos y escribe todas
+     * las filas aceptadas en un solo anexo. Los rechazos quedan en el reporte.
+     */
+    public ReporteImportacion importar(Stream<Paciente> datos) throws IOException {
+        return conEscritura(() -> {
+            cargar();
+            return importarLote(datos, VALIDACION::motivo, Paciente::getId, porId::contiene, this::toLine, aceptados -> {
+                for (Paciente p : aceptados) {
+                    Paciente nuevo = normalizar(p);
+                    filas.add(nuevo);
+                    porId.poner(nuevo.getId(), nuevo);
+                    if (indiceNombres != null) indiceNombres.agregar(nuevo.getId(), nuevo.getNombre());
+                    if (indiceEdades != null) indiceEdades.agregar(nuevo.getId(), nuevo.getEdad());
+                }
+                try {
+                    marcarCacheVigente();
+                } catch (IOException e) {
+                    invalidarCache();
+                }
+            });
+        });
     }
 
+    /**
+     * Guarda los cambios si el paciente sigue en la version con la que se leyo; si otro lo
+     * actualizo antes lanza ConflictoVersionException y no escribe nada. Al guardar, p pasa
+     * a tener la nueva version.
+     */
     public void actualizar(Paciente p) throws IOException {
-        List<Paciente> todos = obtenerTodos();
-        boolean found=false;
-        for (int i=0;i<todos.size();i++){
-            if (todos.get(i).getId()==p.getId()){
-                todos.set(i,p); found=true; break;
+        conEscritura(() -> {
+            cargar();
+            Paciente actual = porId.obtener(p.getId());
+            if (actual == null) throw new NoSuchElementException("Paciente no encontrado");
+            if (actual.getVersion() != p.getVersion()) throw new ConflictoVersionException(p.getId(), p.getVersion(), actual.getVersion());
+            Paciente nuevo = normalizar(p);
+            nuevo.setVersion(actual.getVersion() + 1);
+            // Primero el archivo: si falla, la cache queda como estaba
+            registrarModificacion(nuevo.getId(), toLine(nuevo));
+            filas.set(indiceDe(actual), nuevo);
+            porId.poner(nuevo.getId(), nuevo);
+            if (indiceNombres != null) indiceNombres.agregar(nuevo.getId(), nuevo.getNombre());
+            if (indiceEdades != null) {
+                indiceEdades.quitar(actual.getId(), actual.getEdad());
+                indiceEdades.agregar(nuevo.getId(), nuevo.getEdad());
             }
-        }
-        if (!found) throw new NoSuchElementException("Paciente no encontrado");
-        List<String> lines = new ArrayList<>();
-        lines.add("#id|nombre|direccion|edad|telefono|fecha");
-        for (Paciente x: todos) lines.add(toLine(x));
-        writeAllLines(lines);
+            marcarCacheVigente();
+            p.setVersion(nuevo.getVersion());
+        });
     }
 
     public void eliminar(int id) throws IOException {
-        List<Paciente> todos = obtenerTodos();
-        boolean removed = todos.removeIf(x->x.getId()==id);
-        if (!removed) throw new NoSuchElementException("Paciente no encontrado");
-        List<String> lines = new ArrayList<>();
-        lines.add("#id|nombre|direccion|edad|telefono|fecha");
-        for (Paciente x: todos) lines.add(toLine(x));
-        writeAllLines(lines);
+        conEscritura(() -> {
+            cargar();
+            Paciente quitado = porId.obtener(id);
+            if (quitado == null) throw new NoSuchElementException("Paciente no encontrado");
+            // Primero el archivo: si falla, la cache queda como estaba
+            registrarBorrado(id);
+            porId.quitar(id);
+            filas.removeIf(x->x.getId()==id);
+            if (indiceNombres != null) indiceNombres.quitar(id);
+            if (indiceEdades != null) indiceEdades.quitar(id, quitado.getEdad());
+            marcarCacheVigente();
+        });
+    }
+
+    private int indiceDe(Paciente p) {
+        for (int i = 0; i < filas.size(); i++) {
+            if (filas.get(i) == p) return i;
+        }
+        return -1;
+    }
+
+    // Las entidades que salen de la cache son copias para que el llamador no la altere
+    private static Paciente copia(Paciente p) {
+        return new Paciente(p.getId(), p.getNombre(), p.getDireccion(), p.getEdad(), p.getTelefono(), p.getVersion());
+    }
+
+    // Misma forma en que queda escrito en el archivo
+    private Paciente normalizar(Paciente p) {
+        return new Paciente(p.getId(), safe(p.getNombre()), direcciones.compartir(safe(p.getDireccion())), p.getEdad(),
+                safe(p.getTelefono()), p.getVersion());
     }
 
     private String toLine(Paciente p) {
         return String.join("|", String.valueOf(p.getId()), safe(p.getNombre()), safe(p.getDireccion()),
-                String.valueOf(p.getEdad()), safe(p.getTelefono()));
+                String.valueOf(p.getEdad()), safe(p.getTelefono()), String.valueOf(p.getVersion()));
     }
 
     private String safe(String s) { return s==null?"":s.replace("|"," ").trim(); }
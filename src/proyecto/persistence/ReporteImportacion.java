@@ -0,0 +1,63 @@
+package proyecto.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una importacion masiva: cuantas filas se leyeron y aceptaron, y por que
+ * se rechazo cada una de las demas (posicion en el origen, id y motivo).
+ */
+public class ReporteImportacion {
+
+    public static class Rechazo {
+        private final int posicion;
+        private final int id;
+        private final String motivo;
+
+        Rechazo(int posicion, int id, String motivo) {
+            this.posicion = posicion;
+            this.id = id;
+            this.motivo = motivo;
+        }
+
+        /** Posicion (desde 0) del registro dentro de lo importado. */
+        public int getPosicion() { return posicion; }
+        public int getId() { return id; }
+        public String getMotivo() { return motivo; }
+
+        @Override
+        public String toString() {
+            return "#" + posicion + " (id " + id + "): " + motivo;
+        }
+    }
+
+    private final int leidos;
+    private int aceptados;
+    private final List<Rechazo> rechazos = new ArrayList<>();
+    private long nanos;
+
+    ReporteImportacion(int leidos) {
+        this.leidos = leidos;
+    }
+
+    void rechazar(int posicion, int id, String motivo) {
+        rechazos.add(new Rechazo(posicion, id, motivo));
+    }
+
+    void terminar(int aceptados, long nanos) {
+        this.aceptados = aceptados;
+        this.nanos = nanos;
+    }
+
+    public int getLeidos() { return leidos; }
+    public int getAceptados() { return aceptados; }
+    public List<Rechazo> getRechazos() { return Collections.unmodifiableList(rechazos); }
+    public long getNanos() { return nanos; }
+
+    @Override
+    public String toString() {
+        return String.format("%d leidos, %d aceptados, %d rechazados en %d ms",
+                leidos, aceptados, rechazos.size(), nanos / 1_000_000);
+    }
+}
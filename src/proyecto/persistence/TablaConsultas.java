@@ -0,0 +1,454 @@
+package proyecto.persistence;
+
+import proyecto.busqueda.Busqueda;
+import proyecto.busqueda.Campos;
+import proyecto.busqueda.Criterio;
+import proyecto.model.Consulta;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Consultas guardadas por columnas: ids y fechas en arreglos primitivos y motivo/notas
+ * como posiciones dentro de un unico arreglo de bytes UTF-8 (los valores repetidos se
+ * guardan una vez). Un millon de filas ocupa unos 28 bytes por fila mas los textos
+ * distintos, en lugar de un Consulta + LocalDateTime + dos String por fila.
+ *
+ * Las filas se leen con los accesores por numero de fila, sin crear objetos; consulta(i)
+ * y aLista() crean los Consulta solo cuando se piden. Las busquedas devuelven otra
+ * TablaConsultas que comparte las columnas y solo guarda los numeros de fila elegidos.
+ * Es inmutable y se puede leer desde varios hilos.
+ */
+public class TablaConsultas {
+    /** Valor de segundos(i) para una consulta sin fecha. */
+    public static final long SIN_FECHA = Long.MIN_VALUE;
+    private static final int SIN_TEXTO = -1;
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+    // Textos ya decodificados, por posicion (cache de mapeo directo)
+    private static final int TAMANO_DECODIFICADOS = 1024;
+
+    private final int[] ids;
+    private final int[] pacientes;
+    private final int[] doctores;
+    private final long[] segundos;
+    private final int[] motivos;
+    private final int[] notas;
+    private final byte[] textos;
+    // Filas de las columnas que forman esta tabla; null si son todas, en orden
+    private final int[] seleccion;
+    private final int filas;
+    private final Decodificado[] decodificados;
+
+    // Indices sobre esta tabla, armados en la primera busqueda que los usa
+    private int[] ordenPorFecha;
+    private int[] ordenPorId;
+    private MapaListasEnteros porPaciente;
+    private MapaListasEnteros porDoctor;
+
+    private static final class Decodificado {
+        final int posicion;
+        final String texto;
+
+        Decodificado(int posicion, String texto) {
+            this.posicion = posicion;
+            this.texto = texto;
+        }
+    }
+
+    private TablaConsultas(TablaConsultas base, int[] seleccion, int filas) {
+        this.ids = base.ids;
+        this.pacientes = base.pacientes;
+        this.doctores = base.doctores;
+        this.segundos = base.segundos;
+        this.motivos = base.motivos;
+        this.notas = base.notas;
+        this.textos = base.textos;
+        this.decodificados = base.decodificados;
+        this.seleccion = seleccion;
+        this.filas = filas;
+    }
+
+    private TablaConsultas(Constructor c) {
+        this.filas = c.filas;
+        this.ids = Arrays.copyOf(c.ids, filas);
+        this.pacientes = Arrays.copyOf(c.pacientes, filas);
+        this.doctores = Arrays.copyOf(c.doctores, filas);
+        this.segundos = Arrays.copyOf(c.segundos, filas);
+        this.motivos = Arrays.copyOf(c.motivos, filas);
+        this.notas = Arrays.copyOf(c.notas, filas);
+        this.textos = Arrays.copyOf(c.textos, c.usados);
+        this.decodificados = new Decodificado[TAMANO_DECODIFICADOS];
+        this.seleccion = null;
+    }
+
+    /** Cantidad de filas. */
+    public int filas() { return filas; }
+
+    public int id(int fila) { return ids[columna(fila)]; }
+
+    public int pacienteId(int fila) { return pacientes[columna(fila)]; }
+
+    public int doctorId(int fila) { return doctores[columna(fila)]; }
+
+    /** Segundos desde 1970-01-01T00:00 (UTC, sin zona) o SIN_FECHA. */
+    public long segundos(int fila) { return segundos[columna(fila)]; }
+
+    public LocalDateTime fecha(int fila) {
+        long s = segundos(fila);
+        return s == SIN_FECHA ? null : LocalDateTime.ofEpochSecond(s, 0, ZoneOffset.UTC);
+    }
+
+    public String motivo(int fila) { return texto(motivos[columna(fila)]); }
+
+    public String notas(int fila) { return texto(notas[columna(fila)]); }
+
+    /** Crea el Consulta de la fila. */
+    public Consulta consulta(int fila) {
+        return new Consulta(id(fila), pacienteId(fila), doctorId(fila), fecha(fila), motivo(fila), notas(fila));
+    }
+
+    /** Crea todos los Consulta, en el orden de la tabla. */
+    public List<Consulta> aLista() {
+        List<Consulta> res = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) res.add(consulta(i));
+        return res;
+    }
+
+    private int columna(int fila) {
+        if (fila < 0 || fila >= filas) throw new IndexOutOfBoundsException("Fila " + fila + " de " + filas);
+        return seleccion == null ? fila : seleccion[fila];
+    }
+
+    // Texto en esa posicion: largo (varint) seguido de los bytes
+    private String texto(int posicion) {
+        if (posicion == SIN_TEXTO) return null;
+        int slot = posicion & (TAMANO_DECODIFICADOS - 1);
+        Decodificado d = decodificados[slot];
+        if (d != null && d.posicion == posicion) return d.texto;
+        int p = posicion, largo = 0, corrimiento = 0;
+        byte b;
+        do {
+            b = textos[p++];
+            largo |= (b & 0x7F) << corrimiento;
+            corrimiento += 7;
+        } while (b < 0);
+        String texto = new String(textos, p, largo, StandardCharsets.UTF_8);
+        decodificados[slot] = new Decodificado(posicion, texto);
+        return texto;
+    }
+
+    /* ---------- Busquedas (mismas que PersistenciaConsultas) ---------- */
+
+    /** Numero de fila de la consulta con ese id (la primera si se repite), o -1. */
+    public int filaDeId(int id) {
+        int[] orden = ordenPorId();
+        int lo = 0, hi = orden.length;
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            if (id(orden[m]) < id) lo = m + 1;
+            else hi = m;
+        }
+        return lo < orden.length && id(orden[lo]) == id ? orden[lo] : -1;
+    }
+
+    public Optional<Consulta> obtenerPorId(int id) {
+        int fila = filaDeId(id);
+        return fila < 0 ? Optional.empty() : Optional.of(consulta(fila));
+    }
+
+    /** Consultas de un paciente, en el orden de la tabla. */
+    public TablaConsultas obtenerPorPaciente(int pacienteId) {
+        return seleccionar(indicePacientes().valores(pacienteId));
+    }
+
+    /**
+     * Agenda de un doctor: sus consultas con fecha en [desde, hasta), ordenadas por fecha.
+     * desde/hasta pueden ser null para no acotar ese extremo. Las consultas sin fecha no
+     * entran en ninguna agenda, aunque ambos extremos sean null: para verlas hay que buscar
+     * por doctor sin rango de fechas (buscar con Campos.CONSULTA_DOCTOR).
+     */
+    public TablaConsultas obtenerPorDoctor(int doctorId, LocalDateTime desde, LocalDateTime hasta) {
+        long d = desde == null ? SIN_FECHA + 1 : desde.toEpochSecond(ZoneOffset.UTC);
+        long h = hasta == null ? Long.MAX_VALUE : hasta.toEpochSecond(ZoneOffset.UTC);
+        int[] delDoctor = indiceDoctores().valores(doctorId);
+        int n = 0;
+        for (int fila : delDoctor) {
+            long s = segundos(fila);
+            if (s >= d && s < h) delDoctor[n++] = fila;
+        }
+        return seleccionar(ordenarPor(Arrays.copyOf(delDoctor, n), this::segundos));
+    }
+
+    /**
+     * Consultas cuya fecha (yyyy-MM-ddTHH:mm) empieza con el patron. Un prefijo de fecha
+     * completo se resuelve como rango sobre el orden por fecha.
+     */
+    public TablaConsultas buscarConsultasPorFecha(String patronFecha) {
+        if (patronFecha == null || patronFecha.isBlank()) return this;
+        long[] rango = PersistenciaConsultas.rangoDePrefijo(patronFecha);
+        if (rango != null) return enRango(rango[0] * 60, rango[1] * 60);
+        int[] res = new int[filas];
+        int n = 0;
+        for (int i = 0; i < filas; i++) {
+            LocalDateTime f = fecha(i);
+            if (f != null && f.format(FORMATO_FECHA).startsWith(patronFecha)) res[n++] = i;
+        }
+        return seleccionar(Arrays.copyOf(res, n));
+    }
+
+    /** Consultas cuya fecha (dia) cae entre inicio y fin, ambos incluidos, en el orden de la tabla. */
+    public TablaConsultas buscarConsultasEnRango(LocalDate inicio, LocalDate fin) {
+        if (fin.isBefore(inicio)) return seleccionar(new int[0]);
+        return enRango(inicio.atStartOfDay().toEpochSecond(ZoneOffset.UTC),
+                fin.plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Consultas que cumplen el criterio, en el orden de la tabla. Si fija el id, el paciente,
+     * el doctor o un rango de fechas se parte del indice que deja menos filas y el criterio
+     * completo se evalua solo sobre esas; un o usa la union si cada alternativa tiene indice.
+     * Si no, se revisa toda la tabla. Los Consulta se crean solo para las filas revisadas.
+     */
+    public Busqueda<Consulta> buscar(Criterio<Consulta> criterio) {
+        if (criterio == null) throw new IllegalArgumentException("Falta el criterio");
+        TablaConsultas t = this;
+        List<Criterio<Consulta>> alternativas = criterio.alternativas();
+        int[] elegidas = new int[0];
+        for (Criterio<Consulta> a : alternativas) {
+            int[] f = porIndice(a);
+            if (f == null) { elegidas = null; break; }
+            elegidas = union(elegidas, f);
+        }
+        if (elegidas != null) t = seleccionar(elegidas);
+        return Busqueda.sobre(t.filas(), t::consulta).donde(criterio);
+    }
+
+    // Filas (en orden) del indice mas selectivo que el criterio permite usar, o null si ninguno
+    private int[] porIndice(Criterio<Consulta> c) {
+        Criterio.Rango<Consulta, Integer> id = c.rango(Campos.CONSULTA_ID);
+        if (id != null && id.esValor()) {
+            int fila = filaDeId(id.getDesde());
+            return fila < 0 ? new int[0] : new int[] {fila};
+        }
+        int[] mejor = null;
+        Criterio.Rango<Consulta, Integer> paciente = c.rango(Campos.CONSULTA_PACIENTE);
+        if (paciente != null && paciente.esValor()) mejor = indicePacientes().valores(paciente.getDesde());
+        Criterio.Rango<Consulta, Integer> doctor = c.rango(Campos.CONSULTA_DOCTOR);
+        if (doctor != null && doctor.esValor() && (mejor == null || indiceDoctores().cantidad(doctor.getDesde()) < mejor.length)) {
+            mejor = indiceDoctores().valores(doctor.getDesde());
+        }
+        Criterio.Rango<Consulta, LocalDateTime> fecha = c.rango(Campos.CONSULTA_FECHA);
+        if (fecha != null) {
+            // Las fechas son de minutos: un extremo excluido se corre un segundo
+            long d = fecha.getDesde() == null ? SIN_FECHA + 1
+                    : fecha.getDesde().toEpochSecond(ZoneOffset.UTC) + (fecha.isIncluyeDesde() ? 0 : 1);
+            long h = fecha.getHasta() == null ? Long.MAX_VALUE
+                    : fecha.getHasta().toEpochSecond(ZoneOffset.UTC) + (fecha.isIncluyeHasta() ? 1 : 0);
+            int[] orden = ordenPorFecha();
+            int ini = primeraConFechaDesde(orden, d);
+            int fin = Math.max(ini, primeraConFechaDesde(orden, h));
+            if (mejor == null || fin - ini < mejor.length) {
+                mejor = Arrays.copyOfRange(orden, ini, fin);
+                Arrays.sort(mejor);
+            }
+        }
+        return mejor;
+    }
+
+    // Union ordenada y sin repetidos de dos listas de filas ordenadas
+    private static int[] union(int[] a, int[] b) {
+        int[] res = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            int x = j == b.length || i < a.length && a[i] <= b[j] ? a[i++] : b[j++];
+            if (n == 0 || res[n - 1] != x) res[n++] = x;
+        }
+        return n == res.length ? res : Arrays.copyOf(res, n);
+    }
+
+    // Filas con fecha en [desde, hasta) por busqueda binaria, devueltas en el orden de la tabla
+    private TablaConsultas enRango(long desde, long hasta) {
+        int[] orden = ordenPorFecha();
+        int ini = primeraConFechaDesde(orden, desde);
+        int fin = primeraConFechaDesde(orden, hasta);
+        int[] res = Arrays.copyOfRange(orden, ini, Math.max(ini, fin));
+        Arrays.sort(res);
+        return seleccionar(res);
+    }
+
+    private int primeraConFechaDesde(int[] orden, long s) {
+        int lo = 0, hi = orden.length;
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            if (segundos(orden[m]) < s) lo = m + 1;
+            else hi = m;
+        }
+        return lo;
+    }
+
+    // Nueva tabla con esas filas de esta (numeros de fila de esta tabla)
+    private TablaConsultas seleccionar(int[] filasElegidas) {
+        int[] sel = new int[filasElegidas.length];
+        for (int k = 0; k < sel.length; k++) sel[k] = columna(filasElegidas[k]);
+        return new TablaConsultas(this, sel, sel.length);
+    }
+
+    /* ---------- Indices ---------- */
+
+    private synchronized int[] ordenPorFecha() {
+        if (ordenPorFecha == null) {
+            int[] conFecha = new int[filas];
+            int n = 0;
+            for (int i = 0; i < filas; i++) {
+                if (segundos(i) != SIN_FECHA) conFecha[n++] = i;
+            }
+            ordenPorFecha = ordenarPor(Arrays.copyOf(conFecha, n), this::segundos);
+        }
+        return ordenPorFecha;
+    }
+
+    private synchronized int[] ordenPorId() {
+        if (ordenPorId == null) {
+            int[] todas = new int[filas];
+            for (int i = 0; i < filas; i++) todas[i] = i;
+            ordenPorId = ordenarPor(todas, this::id);
+        }
+        return ordenPorId;
+    }
+
+    private synchronized MapaListasEnteros indicePacientes() {
+        if (porPaciente == null) {
+            MapaListasEnteros m = new MapaListasEnteros();
+            for (int i = 0; i < filas; i++) m.agregar(pacienteId(i), i);
+            porPaciente = m;
+        }
+        return porPaciente;
+    }
+
+    private synchronized MapaListasEnteros indiceDoctores() {
+        if (porDoctor == null) {
+            MapaListasEnteros m = new MapaListasEnteros();
+            for (int i = 0; i < filas; i++) m.agregar(doctorId(i), i);
+            porDoctor = m;
+        }
+        return porDoctor;
+    }
+
+    // Filas ordenadas por su clave y, a igual clave, por numero de fila
+    private static int[] ordenarPor(int[] f, IntToLongFunction clave) {
+        int n = f.length;
+        if (n == 0) return f;
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int fila : f) {
+            min = Math.min(min, clave.applyAsLong(fila));
+            max = Math.max(max, clave.applyAsLong(fila));
+        }
+        int[] res = new int[n];
+        if (max - min >= 0 && max - min < (1L << 31)) {
+            // (clave relativa, fila) empaquetados en un long: un solo sort primitivo
+            long[] empaquetadas = new long[n];
+            for (int k = 0; k < n; k++) empaquetadas[k] = ((clave.applyAsLong(f[k]) - min) << 32) | f[k];
+            if (n > 8192) Arrays.parallelSort(empaquetadas);
+            else Arrays.sort(empaquetadas);
+            for (int k = 0; k < n; k++) res[k] = (int) empaquetadas[k];
+        } else {
+            Integer[] aux = new Integer[n];
+            for (int k = 0; k < n; k++) aux[k] = f[k];
+            Arrays.sort(aux, Comparator.<Integer>comparingLong(clave::applyAsLong).thenComparingInt(x -> x));
+            for (int k = 0; k < n; k++) res[k] = aux[k];
+        }
+        return res;
+    }
+
+    /**
+     * Arma una tabla fila por fila. Los textos iguales se guardan una sola vez.
+     */
+    public static class Constructor {
+        // Textos distintos recordados para no repetirlos; pasado el limite se guardan repetidos
+        private static final int MAXIMO_REPETIDOS = 1 << 16;
+
+        private int filas;
+        private int[] ids;
+        private int[] pacientes;
+        private int[] doctores;
+        private long[] segundos;
+        private int[] motivos;
+        private int[] notas;
+        private byte[] textos = new byte[1024];
+        private int usados;
+        private final Map<String, Integer> posiciones = new HashMap<>();
+
+        public Constructor() {
+            this(1024);
+        }
+
+        public Constructor(int capacidad) {
+            capacidad = Math.max(16, capacidad);
+            ids = new int[capacidad];
+            pacientes = new int[capacidad];
+            doctores = new int[capacidad];
+            segundos = new long[capacidad];
+            motivos = new int[capacidad];
+            notas = new int[capacidad];
+        }
+
+        public Constructor agregar(Consulta c) {
+            LocalDateTime f = c.getFecha();
+            return agregar(c.getId(), c.getPacienteId(), c.getDoctorId(),
+                    f == null ? SIN_FECHA : f.toEpochSecond(ZoneOffset.UTC), c.getMotivo(), c.getNotas());
+        }
+
+        /** segundos: desde 1970-01-01T00:00 (UTC), o SIN_FECHA. */
+        public Constructor agregar(int id, int pacienteId, int doctorId, long segundos, String motivo, String notas) {
+            if (filas == ids.length) crecer();
+            ids[filas] = id;
+            pacientes[filas] = pacienteId;
+            doctores[filas] = doctorId;
+            this.segundos[filas] = segundos;
+            motivos[filas] = guardar(motivo);
+            this.notas[filas] = guardar(notas);
+            filas++;
+            return this;
+        }
+
+        public TablaConsultas construir() {
+            return new TablaConsultas(this);
+        }
+
+        private void crecer() {
+            int n = ids.length * 2;
+            ids = Arrays.copyOf(ids, n);
+            pacientes = Arrays.copyOf(pacientes, n);
+            doctores = Arrays.copyOf(doctores, n);
+            segundos = Arrays.copyOf(segundos, n);
+            motivos = Arrays.copyOf(motivos, n);
+            notas = Arrays.copyOf(notas, n);
+        }
+
+        private int guardar(String texto) {
+            if (texto == null) return SIN_TEXTO;
+            Integer ya = posiciones.get(texto);
+            if (ya != null) return ya;
+            byte[] b = texto.getBytes(StandardCharsets.UTF_8);
+            if (usados + b.length + 5 > textos.length) {
+                textos = Arrays.copyOf(textos, Math.max(textos.length * 2, usados + b.length + 5));
+            }
+            int posicion = usados;
+            int largo = b.length;
+            while (largo >= 0x80) {
+                textos[usados++] = (byte) (largo | 0x80);
+                largo >>>= 7;
+            }
+            textos[usados++] = (byte) largo;
+            System.arraycopy(b, 0, textos, usados, b.length);
+            usados += b.length;
+            if (posiciones.size() < MAXIMO_REPETIDOS) posiciones.put(texto, posicion);
+            return posicion;
+        }
+    }
+}
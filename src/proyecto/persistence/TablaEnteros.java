@@ -0,0 +1,120 @@
+package proyecto.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Base de las tablas hash con claves int primitivas (direccionamiento abierto, sondeo
+ * lineal): reparte las claves en ranuras y resuelve colisiones, crecimiento y borrado.
+ * Las subclases guardan los valores en sus propios arreglos, en la misma ranura que
+ * la clave, y los mueven cuando la tabla se lo pide.
+ */
+abstract class TablaEnteros {
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private int[] claves;
+    private boolean[] ocupados;
+    private int tamano;
+
+    TablaEnteros(int capacidadEsperada) {
+        int cap = 16;
+        while (cap * CARGA_MAXIMA < capacidadEsperada) cap <<= 1;
+        claves = new int[cap];
+        ocupados = new boolean[cap];
+    }
+
+    /** Cantidad de ranuras; los arreglos de valores deben tener este largo. */
+    final int capacidad() { return claves.length; }
+
+    /** Cantidad de claves. */
+    final int ocupadas() { return tamano; }
+
+    /** Ranura de la clave, o -1 si no esta. */
+    final int buscar(int clave) {
+        int i = ranura(clave);
+        return ocupados[i] ? i : -1;
+    }
+
+    /**
+     * Ranura de la clave, ocupandola si no estaba (puede agrandar la tabla antes). Si la
+     * clave es nueva, ocupadas() crece en uno y la ranura no tiene valor todavia.
+     */
+    final int reservar(int clave) {
+        if (tamano + 1 > claves.length * CARGA_MAXIMA) redimensionar(claves.length << 1);
+        int i = ranura(clave);
+        if (!ocupados[i]) {
+            ocupados[i] = true;
+            claves[i] = clave;
+            tamano++;
+        }
+        return i;
+    }
+
+    /** Quita la clave de esa ranura. */
+    final void liberar(int i) {
+        // Borrado con desplazamiento hacia atras para no dejar lapidas
+        int mask = claves.length - 1;
+        int hueco = i;
+        int j = (i + 1) & mask;
+        while (ocupados[j]) {
+            int ideal = mezclar(claves[j]) & mask;
+            if (((j - ideal) & mask) >= ((j - hueco) & mask)) {
+                claves[hueco] = claves[j];
+                mover(j, hueco);
+                hueco = j;
+            }
+            j = (j + 1) & mask;
+        }
+        ocupados[hueco] = false;
+        vaciar(hueco);
+        tamano--;
+    }
+
+    /** Quita todas las claves; las subclases vacian ademas sus valores. */
+    void limpiar() {
+        Arrays.fill(ocupados, false);
+        tamano = 0;
+    }
+
+    /** Pasa el valor de la ranura desde a la ranura hacia (que queda reemplazado). */
+    abstract void mover(int desde, int hacia);
+
+    /** Suelta el valor de una ranura que quedo libre. */
+    abstract void vaciar(int ranura);
+
+    /**
+     * La tabla crecio a nuevaCapacidad: el valor de la ranura vieja k pasa a destinos[k]
+     * (-1 si estaba libre).
+     */
+    abstract void reubicar(int[] destinos, int nuevaCapacidad);
+
+    // Ranura de la clave, o la ranura libre donde iria
+    private int ranura(int clave) {
+        int mask = claves.length - 1;
+        int i = mezclar(clave) & mask;
+        while (ocupados[i] && claves[i] != clave) i = (i + 1) & mask;
+        return i;
+    }
+
+    private void redimensionar(int nuevaCap) {
+        int[] viejasClaves = claves;
+        boolean[] viejosOcupados = ocupados;
+        claves = new int[nuevaCap];
+        ocupados = new boolean[nuevaCap];
+        int[] destinos = new int[viejasClaves.length];
+        int mask = nuevaCap - 1;
+        for (int k = 0; k < viejasClaves.length; k++) {
+            if (!viejosOcupados[k]) { destinos[k] = -1; continue; }
+            int i = mezclar(viejasClaves[k]) & mask;
+            while (ocupados[i]) i = (i + 1) & mask;
+            ocupados[i] = true;
+            claves[i] = viejasClaves[k];
+            destinos[k] = i;
+        }
+        reubicar(destinos, nuevaCap);
+    }
+
+    private static int mezclar(int x) {
+        x *= 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+}
@@ -0,0 +1,169 @@
+package proyecto.servidor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lo minimo de JSON que necesita el servidor: escribir objetos planos y leer el cuerpo de
+ * una alta o modificacion, que es un objeto de un nivel con textos, numeros, booleanos o null.
+ */
+public final class Json {
+
+    private Json() {}
+
+    /** Agrega el texto entre comillas y escapado, o null. */
+    public static void texto(StringBuilder sb, String s) {
+        if (s == null) { sb.append("null"); return; }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Escritor de un objeto: new Objeto(sb).campo("id", 1).campo("nombre", n).cerrar().
+     */
+    public static final class Objeto {
+        private final StringBuilder sb;
+        private boolean primero = true;
+
+        public Objeto(StringBuilder sb) {
+            this.sb = sb;
+            sb.append('{');
+        }
+
+        public Objeto campo(String nombre, long valor) {
+            nombre(nombre).append(valor);
+            return this;
+        }
+
+        public Objeto campo(String nombre, boolean valor) {
+            nombre(nombre).append(valor);
+            return this;
+        }
+
+        public Objeto campo(String nombre, String valor) {
+            texto(nombre(nombre), valor);
+            return this;
+        }
+
+        private StringBuilder nombre(String nombre) {
+            if (!primero) sb.append(',');
+            primero = false;
+            texto(sb, nombre);
+            return sb.append(':');
+        }
+
+        public void cerrar() { sb.append('}'); }
+    }
+
+    /**
+     * Lee un objeto plano. Los valores quedan como texto (los numeros y booleanos tal cual
+     * vienen, null como null). Lanza IllegalArgumentException si no es un objeto valido.
+     */
+    public static Map<String, String> leerObjeto(String json) {
+        Lector l = new Lector(json);
+        Map<String, String> res = new LinkedHashMap<>();
+        l.esperar('{');
+        if (!l.siguienteEs('}')) {
+            do {
+                String nombre = l.texto();
+                l.esperar(':');
+                res.put(nombre, l.valor());
+            } while (l.siguienteEs(','));
+            l.esperar('}');
+        }
+        l.fin();
+        return res;
+    }
+
+    private static final class Lector {
+        private final String s;
+        private int p;
+
+        Lector(String s) {
+            if (s == null) throw new IllegalArgumentException("Cuerpo vacio");
+            this.s = s;
+        }
+
+        private void blancos() {
+            while (p < s.length() && Character.isWhitespace(s.charAt(p))) p++;
+        }
+
+        void esperar(char c) {
+            blancos();
+            if (p >= s.length() || s.charAt(p) != c) throw error("se esperaba '" + c + "'");
+            p++;
+        }
+
+        boolean siguienteEs(char c) {
+            blancos();
+            if (p < s.length() && s.charAt(p) == c) { p++; return true; }
+            return false;
+        }
+
+        void fin() {
+            blancos();
+            if (p != s.length()) throw error("sobra contenido");
+        }
+
+        String valor() {
+            blancos();
+            if (p >= s.length()) throw error("falta un valor");
+            char c = s.charAt(p);
+            if (c == '"') return texto();
+            int inicio = p;
+            while (p < s.length() && "-+.eE0123456789truefalsn".indexOf(s.charAt(p)) >= 0) p++;
+            String v = s.substring(inicio, p);
+            if (v.equals("null")) return null;
+            if (v.equals("true") || v.equals("false") || v.matches("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?")) return v;
+            throw error("valor invalido");
+        }
+
+        String texto() {
+            esperar('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (p >= s.length()) throw error("texto sin cerrar");
+                char c = s.charAt(p++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') { sb.append(c); continue; }
+                if (p >= s.length()) throw error("escape incompleto");
+                char e = s.charAt(p++);
+                switch (e) {
+                    case '"': case '\\': case '/': sb.append(e); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (p + 4 > s.length()) throw error("escape incompleto");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(p, p + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("escape invalido");
+                        }
+                        p += 4;
+                        break;
+                    default: throw error("escape invalido");
+                }
+            }
+        }
+
+        private IllegalArgumentException error(String detalle) {
+            return new IllegalArgumentException("JSON invalido en la posicion " + p + ": " + detalle);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package proyecto.servidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import proyecto.persistence.ConflictoVersionException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Endpoints REST de una entidad bajo /api/nombre:
+ *
+ *   GET    /api/nombre?filtros&desde=0&limite=100   lista (filtrada) por paginas
+ *   GET    /api/nombre/{id}                         una fila
+ *   POST   /api/nombre                              alta (cuerpo JSON)
+ *   PUT    /api/nombre/{id}                         modificacion (cuerpo JSON)
+ *   DELETE /api/nombre/{id}                         baja
+ *
+ * Los errores salen como {"error": "..."}: 400 datos invalidos, 404 no existe, 405 metodo
+ * no soportado, 409 conflicto de version, 500 error de E/S.
+ */
+abstract class Recurso<T> implements HttpHandler {
+    private static final Logger LOG = Logger.getLogger(Recurso.class.getName());
+    static final int LIMITE_POR_DEFECTO = 100;
+    static final int LIMITE_MAXIMO = 1000;
+    // Las altas y modificaciones son objetos chicos
+    private static final int MAXIMO_CUERPO = 64 * 1024;
+
+    private final String ruta;
+    private final ToIntFunction<T> idDe;
+
+    Recurso(String nombre, ToIntFunction<T> idDe) {
+        this.ruta = "/api/" + nombre;
+        this.idDe = idDe;
+    }
+
+    String getRuta() { return ruta; }
+
+    /** Filas que cumplen los filtros de la consulta (todas si no hay filtros). */
+    abstract List<T> listar(Map<String, String> filtros) throws IOException;
+
+    abstract Optional<T> obtener(int id) throws IOException;
+
+    abstract void escribir(T t, Json.Objeto o);
+
+    /** Arma la fila a partir del cuerpo; id es el de la ruta en una modificacion o null en un alta. */
+    abstract T leer(Map<String, String> campos, Integer id);
+
+    abstract void crear(T t) throws IOException;
+
+    void actualizar(T t) throws IOException {
+        throw new UnsupportedOperationException("Modificacion no soportada");
+    }
+
+    abstract void eliminar(int id) throws IOException;
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        try {
+            atender(ex);
+        } catch (ConflictoVersionException e) {
+            error(ex, 409, e.getMessage());
+        } catch (NoSuchElementException e) {
+            error(ex, 404, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeException e) {
+            error(ex, 400, e.getMessage());
+        } catch (UnsupportedOperationException e) {
+            error(ex, 405, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Error atendiendo " + ex.getRequestMethod() + " " + ex.getRequestURI(), e);
+            error(ex, 500, "Error interno: " + e.getMessage());
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void atender(HttpExchange ex) throws IOException {
+        String resto = ex.getRequestURI().getPath().substring(ruta.length());
+        Integer id = null;
+        if (resto.length() > 1) id = entero(resto.substring(1), "id");
+        else if (!resto.isEmpty() && !resto.equals("/")) throw new NoSuchElementException("Ruta desconocida");
+        String metodo = ex.getRequestMethod();
+        if (id == null) {
+            if (metodo.equals("GET")) {
+                Map<String, String> parametros = parametros(ex);
+                responder(ex, 200, pagina(listar(parametros), parametros));
+            } else if (metodo.equals("POST")) {
+                T t = leer(Json.leerObjeto(cuerpo(ex)), null);
+                crear(t);
+                int nuevo = idDe.applyAsInt(t);
+                ex.getResponseHeaders().set("Location", ruta + "/" + nuevo);
+                // Lo guardado, que puede diferir de lo enviado (p.ej. textos normalizados)
+                responder(ex, 201, objeto(obtener(nuevo).orElse(t)));
+            } else noPermitido(ex, "GET, POST");
+        } else {
+            int clave = id;
+            if (metodo.equals("GET")) {
+                responder(ex, 200, objeto(obtener(clave).orElseThrow(() -> new NoSuchElementException("No existe el id " + clave))));
+            } else if (metodo.equals("PUT")) {
+                T t = leer(Json.leerObjeto(cuerpo(ex)), clave);
+                actualizar(t);
+                responder(ex, 200, objeto(obtener(clave).orElse(t)));
+            } else if (metodo.equals("DELETE")) {
+                eliminar(clave);
+                ex.sendResponseHeaders(204, -1);
+            } else noPermitido(ex, "GET, PUT, DELETE");
+        }
+    }
+
+    private String objeto(T t) {
+        StringBuilder sb = new StringBuilder(128);
+        Json.Objeto o = new Json.Objeto(sb);
+        escribir(t, o);
+        o.cerrar();
+        return sb.toString();
+    }
+
+    private String pagina(List<T> filas, Map<String, String> parametros) {
+        int desde = parametros.containsKey("desde") ? entero(parametros.get("desde"), "desde") : 0;
+        int limite = parametros.containsKey("limite") ? entero(parametros.get("limite"), "limite") : LIMITE_POR_DEFECTO;
+        if (desde < 0 || limite < 0) throw new IllegalArgumentException("desde y limite no pueden ser negativos");
+        limite = Math.min(limite, LIMITE_MAXIMO);
+        int total = filas.size();
+        int fin = (int) Math.min(total, (long) desde + limite);
+        StringBuilder sb = new StringBuilder(64 + 96 * Math.max(0, fin - desde));
+        sb.append("{\"total\":").append(total).append(",\"desde\":").append(desde).append(",\"filas\":[");
+        for (int i = desde; i < fin; i++) {
+            if (i > desde) sb.append(',');
+            Json.Objeto o = new Json.Objeto(sb);
+            escribir(filas.get(i), o);
+            o.cerrar();
+        }
+        return sb.append("]}").toString();
+    }
+
+    /* ---------- Utilidades para las entidades ---------- */
+
+    static int entero(String valor, String campo) {
+        if (valor == null) throw new IllegalArgumentException("Falta " + campo);
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + " debe ser un numero entero");
+        }
+    }
+
+    /** Campo entero obligatorio del cuerpo. */
+    static int entero(Map<String, String> campos, String campo) {
+        return entero(campos.get(campo), campo);
+    }
+
+    /** Id del cuerpo en un alta, o el de la ruta en una modificacion (el del cuerpo, si viene, tiene que coincidir). */
+    static int id(Map<String, String> campos, Integer id) {
+        if (id == null) return entero(campos, "id");
+        if (campos.get("id") != null && entero(campos, "id") != id) throw new IllegalArgumentException("El id del cuerpo no coincide con la ruta");
+        return id;
+    }
+
+    private static Map<String, String> parametros(HttpExchange ex) {
+        Map<String, String> res = new HashMap<>();
+        String q = ex.getRequestURI().getRawQuery();
+        if (q == null || q.isEmpty()) return res;
+        for (String par : q.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            res.put(URLDecoder.decode(clave, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return res;
+    }
+
+    private static String cuerpo(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAXIMO_CUERPO + 1);
+            if (bytes.length > MAXIMO_CUERPO) throw new IllegalArgumentException("Cuerpo demasiado grande");
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void noPermitido(HttpExchange ex, String permitidos) throws IOException {
+        ex.getResponseHeaders().set("Allow", permitidos);
+        error(ex, 405, "Metodo no permitido");
+    }
+
+    private static void error(HttpExchange ex, int estado, String mensaje) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        new Json.Objeto(sb).campo("error", mensaje).cerrar();
+        responder(ex, estado, sb.toString());
+    }
+
+    private static void responder(HttpExchange ex, int estado, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(estado, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
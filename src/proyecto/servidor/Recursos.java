@@ -0,0 +1,239 @@
+package proyecto.servidor;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Los recursos de cada entidad. Las lecturas salen de la cache compartida (o de la tabla
+ * columnar en consultas) y las escrituras pasan por la persistencia, que valida y toma el
+ * cerrojo del archivo; despues se invalida la cache.
+ */
+final class Recursos {
+
+    private Recursos() {}
+
+    /**
+     * GET /api/pacientes?nombre=texto busca por nombre (sin acentos ni mayusculas).
+     * PUT necesita la version leida: si otro la cambio antes responde 409.
+     */
+    static Recurso<Paciente> pacientes(PersistenciaPacientes pp) {
+        CacheEntidades<Paciente> cache = new CacheEntidades<>(pp, pp::obtenerTodos, Paciente::getId);
+        return new Recurso<Paciente>("pacientes", Paciente::getId) {
+            @Override
+            List<Paciente> listar(Map<String, String> filtros) throws IOException {
+                String nombre = filtros.get("nombre");
+                return nombre == null || nombre.isBlank() ? cache.todos() : pp.buscarPorTexto(nombre);
+            }
+
+            @Override
+            Optional<Paciente> obtener(int id) throws IOException { return Optional.ofNullable(cache.porId(id)); }
+
+            @Override
+            void escribir(Paciente p, Json.Objeto o) {
+                o.campo("id", p.getId()).campo("nombre", p.getNombre()).campo("direccion", p.getDireccion())
+                        .campo("edad", p.getEdad()).campo("telefono", p.getTelefono()).campo("version", p.getVersion());
+            }
+
+            @Override
+            Paciente leer(Map<String, String> campos, Integer id) {
+                int version = id == null ? 0 : entero(campos, "version");
+                return new Paciente(id(campos, id), campos.get("nombre"), campos.get("direccion"), entero(campos, "edad"),
+                        campos.get("telefono"), version);
+            }
+
+            @Override
+            void crear(Paciente p) throws IOException { pp.agregar(p); cache.invalidar(); }
+
+            @Override
+            void actualizar(Paciente p) throws IOException { pp.actualizar(p); cache.invalidar(); }
+
+            @Override
+            void eliminar(int id) throws IOException { pp.eliminar(id); cache.invalidar(); }
+        };
+    }
+
+    /** GET /api/medicos?especialidad=texto filtra por especialidad exacta (sin mayusculas). */
+    static Recurso<Doctor> medicos(PersistenciaMedicos pm) {
+        CacheEntidades<Doctor> cache = new CacheEntidades<>(pm, pm::obtenerTodos, Doctor::getId);
+        return new Recurso<Doctor>("medicos", Doctor::getId) {
+            @Override
+            List<Doctor> listar(Map<String, String> filtros) throws IOException {
+                String especialidad = filtros.get("especialidad");
+                if (especialidad == null || especialidad.isBlank()) return cache.todos();
+                return cache.filtradas("especialidad=" + especialidad.toLowerCase(Locale.ROOT),
+                        d -> especialidad.equalsIgnoreCase(d.getEspecialidad()));
+            }
+
+            @Override
+            Optional<Doctor> obtener(int id) throws IOException { return Optional.ofNullable(cache.porId(id)); }
+
+            @Override
+            void escribir(Doctor d, Json.Objeto o) {
+                o.campo("id", d.getId()).campo("nombre", d.getNombre()).campo("especialidad", d.getEspecialidad());
+            }
+
+            @Override
+            Doctor leer(Map<String, String> campos, Integer id) {
+                return new Doctor(id(campos, id), campos.get("nombre"), campos.get("especialidad"));
+            }
+
+            @Override
+            void crear(Doctor d) throws IOException { pm.agregar(d); cache.invalidar(); }
+
+            @Override
+            void eliminar(int id) throws IOException { pm.eliminar(id); cache.invalidar(); }
+        };
+    }
+
+    /**
+     * GET /api/consultas admite paciente=id, doctor=id (con fechaDesde/fechaHasta
+     * yyyy-MM-ddTHH:mm opcionales, ordenadas por fecha), fecha=prefijo o inicio/fin
+     * (yyyy-MM-dd, ambos incluidos). Se responde desde la tabla columnar: solo se arman
+     * las consultas de la pagina.
+     */
+    static Recurso<Consulta> consultas(PersistenciaConsultas pc) {
+        return new Recurso<Consulta>("consultas", Consulta::getId) {
+            @Override
+            List<Consulta> listar(Map<String, String> filtros) throws IOException {
+                TablaConsultas t = pc.tabla();
+                if (filtros.containsKey("paciente")) {
+                    t = t.obtenerPorPaciente(entero(filtros.get("paciente"), "paciente"));
+                } else if (filtros.containsKey("doctor")) {
+                    t = t.obtenerPorDoctor(entero(filtros.get("doctor"), "doctor"), fechaHora(filtros.get("fechaDesde")),
+                            fechaHora(filtros.get("fechaHasta")));
+                } else if (filtros.containsKey("inicio") || filtros.containsKey("fin")) {
+                    if (filtros.get("inicio") == null || filtros.get("fin") == null) throw new IllegalArgumentException("Faltan inicio y fin");
+                    t = t.buscarConsultasEnRango(LocalDate.parse(filtros.get("inicio")), LocalDate.parse(filtros.get("fin")));
+                } else if (filtros.containsKey("fecha")) {
+                    t = t.buscarConsultasPorFecha(filtros.get("fecha"));
+                }
+                TablaConsultas vista = t;
+                return new AbstractList<Consulta>() {
+                    @Override
+                    public Consulta get(int i) { return vista.consulta(i); }
+
+                    @Override
+                    public int size() { return vista.filas(); }
+                };
+            }
+
+            @Override
+            Optional<Consulta> obtener(int id) throws IOException { return pc.tabla().obtenerPorId(id); }
+
+            @Override
+            void escribir(Consulta c, Json.Objeto o) {
+                o.campo("id", c.getId()).campo("pacienteId", c.getPacienteId()).campo("doctorId", c.getDoctorId())
+                        .campo("fecha", c.getFecha() == null ? null : c.getFecha().toString())
+                        .campo("motivo", c.getMotivo()).campo("notas", c.getNotas());
+            }
+
+            @Override
+            Consulta leer(Map<String, String> campos, Integer id) {
+                return new Consulta(id(campos, id), entero(campos, "pacienteId"), entero(campos, "doctorId"),
+                        fechaHora(campos.get("fecha")), campos.get("motivo"), campos.get("notas"));
+            }
+
+            @Override
+            void crear(Consulta c) throws IOException { pc.agregar(c); }
+
+            @Override
+            void eliminar(int id) throws IOException { pc.eliminar(id); }
+        };
+    }
+
+    /** GET /api/equipos?nombre=texto busca por nombre; ?disponibles=true deja los que tienen stock. */
+    static Recurso<Equipo> equipos(PersistenciaEquipos pe) {
+        CacheEntidades<Equipo> cache = new CacheEntidades<>(pe, pe::obtenerTodos, Equipo::getId);
+        return new Recurso<Equipo>("equipos", Equipo::getId) {
+            @Override
+            List<Equipo> listar(Map<String, String> filtros) throws IOException {
+                String nombre = textoBuscado(filtros.get("nombre"));
+                boolean conStock = Boolean.parseBoolean(filtros.get("disponibles"));
+                if (nombre == null && !conStock) return cache.todos();
+                return cache.filtradas("nombre=" + nombre + "&disponibles=" + conStock,
+                        e -> (nombre == null || contiene(e.getNombre(), nombre)) && (!conStock || e.getDisponible() > 0));
+            }
+
+            @Override
+            Optional<Equipo> obtener(int id) throws IOException { return Optional.ofNullable(cache.porId(id)); }
+
+            @Override
+            void escribir(Equipo e, Json.Objeto o) {
+                o.campo("id", e.getId()).campo("nombre", e.getNombre()).campo("descripcion", e.getDescripcion())
+                        .campo("disponible", e.getDisponible()).campo("version", e.getVersion());
+            }
+
+            @Override
+            Equipo leer(Map<String, String> campos, Integer id) {
+                int version = id == null ? 0 : entero(campos, "version");
+                return new Equipo(id(campos, id), campos.get("nombre"), campos.get("descripcion"), entero(campos, "disponible"), version);
+            }
+
+            @Override
+            void crear(Equipo e) throws IOException { pe.agregar(e); cache.invalidar(); }
+
+            @Override
+            void actualizar(Equipo e) throws IOException { pe.actualizar(e); cache.invalidar(); }
+
+            @Override
+            void eliminar(int id) throws IOException { pe.eliminar(id); cache.invalidar(); }
+        };
+    }
+
+    /** GET /api/inventario?nombre=texto busca por nombre. PUT solo cambia la cantidad. */
+    static Recurso<InventarioItem> inventario(PersistenciaInventario pi) {
+        CacheEntidades<InventarioItem> cache = new CacheEntidades<>(pi, pi::obtenerTodos, InventarioItem::getId);
+        return new Recurso<InventarioItem>("inventario", InventarioItem::getId) {
+            @Override
+            List<InventarioItem> listar(Map<String, String> filtros) throws IOException {
+                String nombre = textoBuscado(filtros.get("nombre"));
+                if (nombre == null) return cache.todos();
+                return cache.filtradas("nombre=" + nombre, i -> contiene(i.getNombre(), nombre));
+            }
+
+            @Override
+            Optional<InventarioItem> obtener(int id) throws IOException { return Optional.ofNullable(cache.porId(id)); }
+
+            @Override
+            void escribir(InventarioItem i, Json.Objeto o) {
+                o.campo("id", i.getId()).campo("nombre", i.getNombre()).campo("cantidad", i.getCantidad()).campo("unidad", i.getUnidad());
+            }
+
+            @Override
+            InventarioItem leer(Map<String, String> campos, Integer id) {
+                return new InventarioItem(id(campos, id), campos.get("nombre"), entero(campos, "cantidad"), campos.get("unidad"));
+            }
+
+            @Override
+            void crear(InventarioItem i) throws IOException { pi.agregar(i); cache.invalidar(); }
+
+            @Override
+            void actualizar(InventarioItem i) throws IOException { pi.actualizarCantidad(i.getId(), i.getCantidad()); cache.invalidar(); }
+
+            @Override
+            void eliminar(int id) throws IOException { pi.eliminar(id); cache.invalidar(); }
+        };
+    }
+
+    private static LocalDateTime fechaHora(String texto) {
+        return texto == null || texto.isBlank() ? null : LocalDateTime.parse(texto);
+    }
+
+    // Texto de busqueda sin mayusculas, o null si no hay
+    private static String textoBuscado(String texto) {
+        return texto == null || texto.isBlank() ? null : texto.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean contiene(String nombre, String buscado) {
+        return nombre != null && nombre.toLowerCase(Locale.ROOT).contains(buscado);
+    }
+}
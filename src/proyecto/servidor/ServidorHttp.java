@@ -0,0 +1,91 @@
+package proyecto.servidor;
+
+import com.sun.net.httpserver.HttpServer;
+import proyecto.persistence.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Servidor HTTP sin interfaz grafica que expone los datos como JSON (ver Recurso para las
+ * rutas). Cada pedido se atiende en su propio hilo virtual: un pedido que espera el
+ * cerrojo de un archivo no ocupa un hilo del sistema, asi que miles de pedidos
+ * concurrentes no necesitan un pool dimensionado a mano.
+ *
+ * Usa los mismos archivos que la interfaz; los cerrojos por archivo coordinan ambos
+ * procesos. Uso: MainGUI --servidor [--puerto 8080] [--host 127.0.0.1] [--datos data]
+ */
+public class ServidorHttp implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ServidorHttp.class.getName());
+    public static final int PUERTO_POR_DEFECTO = 8080;
+    // Conexiones pendientes de aceptar; bajo carga el valor por defecto del sistema se queda corto
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+
+    /**
+     * Prepara el servidor sobre los CSV del directorio (pacientes.csv, medicos.csv...).
+     * Puerto 0 elige uno libre; ver getPuerto().
+     */
+    public ServidorHttp(Path datos, InetAddress host, int puerto) throws IOException {
+        PersistenciaPacientes pp = new PersistenciaPacientes(datos.resolve("pacientes.csv"));
+        PersistenciaMedicos pm = new PersistenciaMedicos(datos.resolve("medicos.csv"));
+        PersistenciaConsultas pc = new PersistenciaConsultas(datos.resolve("consultas.csv"));
+        PersistenciaEquipos pe = new PersistenciaEquipos(datos.resolve("equipos.csv"));
+        PersistenciaInventario pi = new PersistenciaInventario(datos.resolve("inventario.csv"));
+        for (PersistenciaBase p : new PersistenciaBase[]{pp, pm, pc, pe, pi}) p.setInstantanea(true);
+
+        servidor = HttpServer.create(new InetSocketAddress(host, puerto), BACKLOG);
+        for (Recurso<?> r : List.of(Recursos.pacientes(pp), Recursos.medicos(pm), Recursos.consultas(pc),
+                Recursos.equipos(pe), Recursos.inventario(pi))) {
+            servidor.createContext(r.getRuta(), r);
+        }
+        hilos = Executors.newVirtualThreadPerTaskExecutor();
+        servidor.setExecutor(hilos);
+    }
+
+    public void iniciar() {
+        servidor.start();
+        LOG.info("Servidor escuchando en http://" + servidor.getAddress().getHostString() + ":" + getPuerto() + "/api/");
+    }
+
+    public int getPuerto() { return servidor.getAddress().getPort(); }
+
+    /** Deja de aceptar conexiones y espera hasta un segundo a los pedidos en curso. */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        hilos.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path datos = Paths.get("data");
+        InetAddress host = InetAddress.getLoopbackAddress();
+        int puerto = PUERTO_POR_DEFECTO;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--servidor": break;
+                case "--datos": datos = Paths.get(valor(args, ++i)); break;
+                case "--host": host = InetAddress.getByName(valor(args, ++i)); break;
+                case "--puerto": puerto = Integer.parseInt(valor(args, ++i)); break;
+                default: throw new IllegalArgumentException("Argumento desconocido: " + args[i]);
+            }
+        }
+        ServidorHttp s = new ServidorHttp(datos, host, puerto);
+        Runtime.getRuntime().addShutdownHook(new Thread(s::close, "cierre-servidor"));
+        s.iniciar();
+    }
+
+    private static String valor(String[] args, int i) {
+        if (i >= args.length) throw new IllegalArgumentException("Falta el valor de " + args[i - 1]);
+        return args[i];
+    }
+}
@@ -0,0 +1,125 @@
+package proyecto.validacionDatos;
+
+import proyecto.model.Doctor;
+import proyecto.model.Equipo;
+import proyecto.model.Paciente;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * Motor de validacion por lotes. Cada regla es un campo, una condicion y un mensaje;
+ * a diferencia de los validadores sueltos, un registro se evalua contra todas las reglas
+ * y se juntan todas las que no cumple. Los lotes se reparten en tramos sobre un ForkJoinPool.
+ */
+public class MotorValidacion<T> {
+    // Por debajo de este tamano un tramo se valida en el hilo actual
+    private static final int TRAMO_MINIMO = 4096;
+
+    private final List<String> campos = new ArrayList<>();
+    private final List<Predicate<T>> condiciones = new ArrayList<>();
+    private final List<String> mensajes = new ArrayList<>();
+
+    /** Agrega una regla: si valida devuelve false, el registro tiene una violacion en ese campo. */
+    public MotorValidacion<T> regla(String campo, Predicate<T> valida, String mensaje) {
+        campos.add(campo);
+        condiciones.add(valida);
+        mensajes.add(mensaje);
+        return this;
+    }
+
+    /** Reglas de alta de pacientes (mismas que validacionPaciente). */
+    public static MotorValidacion<Paciente> pacientes() {
+        return new MotorValidacion<Paciente>()
+                .regla("id", p -> p.getId() > 0, "ID debe ser positivo")
+                .regla("nombre", p -> validacionPaciente.validaNombrePaciente(p.getNombre()), "Nombre erroneo")
+                .regla("edad", p -> validacionPaciente.validaEdad(p.getEdad()), "Edad imposible")
+                .regla("direccion", p -> validacionPaciente.validaDireccion(p.getDireccion()), "Formato de Direccion erronea");
+    }
+
+    /** Reglas de alta de medicos (mismas que validacionMedico). */
+    public static MotorValidacion<Doctor> medicos() {
+        return new MotorValidacion<Doctor>()
+                .regla("id", d -> d.getId() > 0, "ID debe ser positivo")
+                .regla("nombre", d -> validacionMedico.validaNombreMedico(d.getNombre()), "Nombre erroneo")
+                .regla("especialidad", d -> validacionMedico.validaEspecialidad(d.getEspecialidad()), "Especialidad erronea");
+    }
+
+    /** Reglas de alta de equipos (mismas que validacionEquipos). */
+    public static MotorValidacion<Equipo> equipos() {
+        return new MotorValidacion<Equipo>()
+                .regla("id", e -> e.getId() > 0, "ID debe ser positivo")
+                .regla("nombre", e -> validacionEquipos.validaNombreEquipo(e.getNombre()), "Nombre erroneo")
+                .regla("disponible", e -> validacionEquipos.validaCantidadEquipo(e.getDisponible()), "Debe ser positivo");
+    }
+
+    /** Todas las violaciones del registro; null si es valido (no crea listas para los validos). */
+    public List<Violacion> validar(T t) {
+        if (t == null) {
+            List<Violacion> v = new ArrayList<>(1);
+            v.add(new Violacion("registro", "Registro nulo"));
+            return v;
+        }
+        List<Violacion> res = null;
+        for (int i = 0; i < condiciones.size(); i++) {
+            if (!condiciones.get(i).test(t)) {
+                if (res == null) res = new ArrayList<>(2);
+                res.add(new Violacion(campos.get(i), mensajes.get(i)));
+            }
+        }
+        return res;
+    }
+
+    /** Mensajes de todas las violaciones separados por "; ", o null si el registro es valido. */
+    public String motivo(T t) {
+        List<Violacion> v = validar(t);
+        if (v == null) return null;
+        if (v.size() == 1) return v.get(0).getMensaje();
+        StringBuilder sb = new StringBuilder();
+        for (Violacion x : v) {
+            if (sb.length() > 0) sb.append("; ");
+            sb.append(x.getMensaje());
+        }
+        return sb.toString();
+    }
+
+    public ResultadoValidacion validarLote(List<T> lote) {
+        return validarLote(lote, ForkJoinPool.commonPool());
+    }
+
+    public ResultadoValidacion validarLote(List<T> lote, ForkJoinPool pool) {
+        long t0 = System.nanoTime();
+        // Cada tramo escribe solo sus posiciones: set() sobre una lista de tamano fijo
+        List<List<Violacion>> res = new ArrayList<>(Collections.nCopies(lote.size(), null));
+        pool.invoke(new Tramo(lote, res, 0, lote.size()));
+        return new ResultadoValidacion(res, System.nanoTime() - t0);
+    }
+
+    private class Tramo extends RecursiveAction {
+        private final List<T> lote;
+        private final List<List<Violacion>> res;
+        private final int desde;
+        private final int hasta;
+
+        Tramo(List<T> lote, List<List<Violacion>> res, int desde, int hasta) {
+            this.lote = lote;
+            this.res = res;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde <= TRAMO_MINIMO) {
+                for (int i = desde; i < hasta; i++) res.set(i, validar(lote.get(i)));
+                return;
+            }
+            int medio = (desde + hasta) >>> 1;
+            invokeAll(new Tramo(lote, res, desde, medio), new Tramo(lote, res, medio, hasta));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package proyecto.validacionDatos;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de validar un lote: para cada posicion del lote, todas las reglas que
+ * no cumple (lista vacia si el registro es valido).
+ */
+public class ResultadoValidacion {
+    private final List<List<Violacion>> porPosicion;
+    private final int invalidos;
+    private final long nanos;
+
+    ResultadoValidacion(List<List<Violacion>> porPosicion, long nanos) {
+        this.porPosicion = porPosicion;
+        int n = 0;
+        for (List<Violacion> v : porPosicion) if (v != null) n++;
+        this.invalidos = n;
+        this.nanos = nanos;
+    }
+
+    public int getValidados() { return porPosicion.size(); }
+    public int getInvalidos() { return invalidos; }
+    public long getNanos() { return nanos; }
+
+    public boolean esValido(int posicion) { return porPosicion.get(posicion) == null; }
+
+    public List<Violacion> violaciones(int posicion) {
+        List<Violacion> v = porPosicion.get(posicion);
+        return v == null ? Collections.emptyList() : Collections.unmodifiableList(v);
+    }
+
+    /** Posiciones de los registros invalidos, ascendentes. */
+    public int[] posicionesInvalidas() {
+        int[] res = new int[invalidos];
+        int k = 0;
+        for (int i = 0; i < porPosicion.size(); i++) if (porPosicion.get(i) != null) res[k++] = i;
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d validados, %d invalidos en %d ms", porPosicion.size(), invalidos, nanos / 1_000_000);
+    }
+}
@@ -0,0 +1,22 @@
+package proyecto.validacionDatos;
+
+/**
+ * Una regla que un registro no cumple: el campo y el mensaje de la regla.
+ */
+public class Violacion {
+    private final String campo;
+    private final String mensaje;
+
+    public Violacion(String campo, String mensaje) {
+        this.campo = campo;
+        this.mensaje = mensaje;
+    }
+
+    public String getCampo() { return campo; }
+    public String getMensaje() { return mensaje; }
+
+    @Override
+    public String toString() {
+        return campo + ": " + mensaje;
+    }
+}
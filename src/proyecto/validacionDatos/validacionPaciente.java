@@ -4,36 +4,79 @@
  */
 package proyecto.validacionDatos;
 
-import java.util.regex.Pattern;
-
 /**
  *
  * @author PC
  */
 public class validacionPaciente {
     
-        // Regex: solo letras (incluye acentos y ñ), espacios intermedios, máximo 50 chars
-    private static final Pattern NOMBRE_PACIENTE_PATTERN = Pattern.compile(
-        "^(?=.{1,50}$)[A-Za-zÁÉÍÓÚÜÑáéíóúüñ]+(?: [A-Za-zÁÉÍÓÚÜÑáéíóúüñ]+)*$"
-    );
-
+    public static final int EDAD_MINIMA = 0;
+    public static final int EDAD_MAXIMA = 120;
+    
+        // Solo letras (incluye acentos y ñ), espacios intermedios, máximo 50 chars.
+        // Recorrido a mano en lugar de regex: es la regla mas usada al importar.
     public static boolean validaNombrePaciente(String nombre) {
         if (nombre == null) return false;
-        return NOMBRE_PACIENTE_PATTERN.matcher(nombre.trim()).matches();
+        int ini = inicioSinEspacios(nombre);
+        int fin = finSinEspacios(nombre, ini);
+        int largo = fin - ini;
+        if (largo < 1 || largo > 50) return false;
+        boolean anteriorEspacio = true; // no puede empezar con espacio
+        for (int i = ini; i < fin; i++) {
+            char c = nombre.charAt(i);
+            if (c == ' ') {
+                if (anteriorEspacio) return false;
+                anteriorEspacio = true;
+            } else if (esLetra(c)) {
+                anteriorEspacio = false;
+            } else {
+                return false;
+            }
+        }
+        return !anteriorEspacio;
     }
     
     public static boolean validaEdad(int edad) {
-        return edad >= 0 && edad <= 120;
+        return edad >= EDAD_MINIMA && edad <= EDAD_MAXIMA;
     }
     
     // Permite letras, números, espacios, comas, puntos y guiones
-    private static final Pattern DIRECCION_PATTERN = Pattern.compile(
-        "^[A-Za-zÁÉÍÓÚÜÑáéíóúüñ0-9 ,.-]{1,100}$"
-    );
-
     public static boolean validaDireccion(String direccion) {
         if (direccion == null) return false;
-        return DIRECCION_PATTERN.matcher(direccion.trim()).matches();
+        int ini = inicioSinEspacios(direccion);
+        int fin = finSinEspacios(direccion, ini);
+        int largo = fin - ini;
+        if (largo < 1 || largo > 100) return false;
+        for (int i = ini; i < fin; i++) {
+            char c = direccion.charAt(i);
+            if (!(esLetra(c) || (c >= '0' && c <= '9') || c == ' ' || c == ',' || c == '.' || c == '-')) return false;
+        }
+        return true;
+    }
+
+    // Misma clase que [A-Za-zÁÉÍÓÚÜÑáéíóúüñ]
+    static boolean esLetra(char c) {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) return true;
+        switch (c) {
+            case 'Á': case 'É': case 'Í': case 'Ó': case 'Ú': case 'Ü': case 'Ñ':
+            case 'á': case 'é': case 'í': case 'ó': case 'ú': case 'ü': case 'ñ':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Limites equivalentes a String.trim() sin crear otro String
+    private static int inicioSinEspacios(String s) {
+        int i = 0;
+        while (i < s.length() && s.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int finSinEspacios(String s, int ini) {
+        int f = s.length();
+        while (f > ini && s.charAt(f - 1) <= ' ') f--;
+        return f;
     }
 
 }
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.Set;
+
+public class BitacoraCambiosTest {
+
+    /* ===========================
+         ACTUALIZAR / ELIMINAR
+       =========================== */
+
+    @Test
+    void testActualizarNoReescribeCsv() throws Exception {
+        Path dir = Files.createTempDirectory("bitacora");
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        pp.agregar(new Paciente(1, "Juan Perez", "Centro", 30, "555"));
+        pp.agregar(new Paciente(2, "Ana Soto", "Norte", 41, "556"));
+        long antes = Files.size(dir.resolve("pacientes.csv"));
+
+        pp.actualizar(new Paciente(1, "Juan Perez", "Sur", 31, "555"));
+        pp.eliminar(2);
+
+        assertEquals(antes, Files.size(dir.resolve("pacientes.csv")));
+        PersistenciaPacientes otra = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        assertEquals(1, otra.obtenerTodos().size());
+        assertEquals("Sur", otra.obtenerPorId(1).get().getDireccion());
+    }
+
+    @Test
+    void testCompactarVuelcaBitacora() throws Exception {
+        Path dir = Files.createTempDirectory("bitacora");
+        PersistenciaEquipos pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+        pe.agregar(new Equipo(1, "Monitor", "Signos", 2));
+        pe.actualizar(new Equipo(1, "Monitor", "Signos", 7));
+        pe.compactar();
+
+        assertEquals(0, Files.size(dir.resolve("equipos.csv.log")));
+        assertEquals(7, pe.obtenerPorId(1).get().getDisponible());
+    }
+
+    @Test
+    void testCompactarConservaPermisos() throws Exception {
+        Path dir = Files.createTempDirectory("bitacora");
+        Path csv = dir.resolve("equipos.csv");
+        PersistenciaEquipos pe = new PersistenciaEquipos(csv);
+        pe.agregar(new Equipo(1, "Monitor", "Signos", 2));
+        if (!Files.getFileStore(csv).supportsFileAttributeView("posix")) return;
+        Set<PosixFilePermission> permisos = PosixFilePermissions.fromString("rw-r--r--");
+        Files.setPosixFilePermissions(csv, permisos);
+
+        pe.actualizar(new Equipo(1, "Monitor", "Signos", 7));
+        pe.compactar();
+        assertEquals(permisos, Files.getPosixFilePermissions(csv));
+        assertEquals(7, new PersistenciaEquipos(csv).obtenerPorId(1).get().getDisponible());
+    }
+
+    /* ===========================
+            RECUPERACION
+       =========================== */
+
+    @Test
+    void testRegistroCortadoSeDescarta() throws Exception {
+        Path dir = Files.createTempDirectory("bitacora");
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        pp.agregar(new Paciente(1, "Juan Perez", "Centro", 30, "555"));
+        pp.actualizar(new Paciente(1, "Juan Perez", "Sur", 31, "555"));
+        Path log = dir.resolve("pacientes.csv.log");
+        long valido = Files.size(log);
+        // Simula una caida a mitad de escritura del siguiente registro
+        Files.write(log, "U|0000".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        PersistenciaPacientes otra = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        assertEquals("Sur", otra.obtenerPorId(1).get().getDireccion());
+        assertEquals(valido, Files.size(log));
+    }
+
+    /* ===========================
+            VARIAS INSTANCIAS
+       =========================== */
+
+    @Test
+    void testAnexarNoSaltaRegistrosDeOtraInstancia() throws Exception {
+        Path log = Files.createTempDirectory("bitacora").resolve("equipos.csv.log");
+        BitacoraCambios una = new BitacoraCambios(log);
+        BitacoraCambios otra = new BitacoraCambios(log);
+        una.registrarModificacion(1, "1|Monitor|Signos|3");
+        otra.registrarBorrado(2);
+        // La primera escribe despues de la otra: antes lee lo que la otra dejo
+        una.registrarModificacion(3, "3|Bomba|Infusion|1");
+        assertTrue(una.tieneCambio(2));
+        assertNull(una.cambio(2));
+        assertFalse(una.cambioExterno());
+        assertEquals(3, una.getRegistros());
+        assertEquals(new BitacoraCambios(log).getPendientes(), una.getPendientes());
+    }
+
+    @Test
+    void testAltaTrasBorradoDeOtraInstancia() throws Exception {
+        Path csv = Files.createTempDirectory("bitacora").resolve("equipos.csv");
+        PersistenciaEquipos una = new PersistenciaEquipos(csv);
+        PersistenciaEquipos otra = new PersistenciaEquipos(csv);
+        una.agregar(new Equipo(1, "Monitor", "Signos", 2));
+        otra.eliminar(1);
+        una.agregar(new Equipo(1, "Bomba", "Infusion", 4));
+        assertEquals("Bomba", new PersistenciaEquipos(csv).obtenerPorId(1).get().getNombre());
+        assertEquals("Bomba", otra.obtenerPorId(1).get().getNombre());
+    }
+
+    @Test
+    void testPendientesEsUnaCopia() throws Exception {
+        Path log = Files.createTempDirectory("bitacora").resolve("equipos.csv.log");
+        BitacoraCambios b = new BitacoraCambios(log);
+        b.registrarModificacion(1, "1|Monitor|Signos|3");
+        Map<Integer, String> vista = b.getPendientes();
+        b.registrarBorrado(2);
+        b.reproducir();
+        assertEquals(1, vista.size());
+        assertEquals("1|Monitor|Signos|3", vista.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> vista.put(3, "3|x"));
+    }
+}
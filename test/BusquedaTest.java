@@ -0,0 +1,82 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import interfaces.FiltroEdad;
+import proyecto.busqueda.Busqueda;
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.*;
+
+public class BusquedaTest {
+
+    private static List<Integer> numeros(int n) {
+        return IntStream.range(0, n).boxed().collect(Collectors.toList());
+    }
+
+    /* ===========================
+           PARALELA Y SECUENCIAL
+       =========================== */
+
+    @Test
+    void testMismoResultadoEnParaleloYSecuencial() {
+        Busqueda<Integer> b = Busqueda.sobre(numeros(200_000)).donde(i -> i % 7 == 0).donde(i -> i % 2 == 1);
+        List<Integer> secuencial = b.paralela(false).aLista();
+        assertEquals(secuencial, b.paralela(true).aLista());
+        assertEquals(secuencial.subList(0, 50), b.paralela(true).limite(50).aLista());
+        assertEquals(secuencial.size(), b.paralela(true).contar());
+
+        Comparator<Integer> desc = Comparator.reverseOrder();
+        assertEquals(List.of(199_997, 199_983, 199_969), b.paralela(true).ordenadaPor(desc).limite(3).aLista());
+        assertEquals(List.of(199_997, 199_983, 199_969), b.paralela(false).ordenadaPor(desc).limite(3).aLista());
+    }
+
+    @Test
+    void testDecidePorCantidadDeFilas() {
+        assertFalse(Busqueda.sobre(numeros(1_000)).esParalela());
+        assertEquals(ForkJoinPool.getCommonPoolParallelism() > 1,
+                Busqueda.sobre(numeros(Busqueda.UMBRAL_PARALELO)).esParalela());
+        assertTrue(Busqueda.sobre(numeros(10)).paralela(true).esParalela());
+    }
+
+    @Test
+    void testConLimiteNoRecorreTodo() {
+        List<Integer> filas = numeros(1_000_000);
+        AtomicInteger evaluadas = new AtomicInteger();
+        Stream<Integer> s = Busqueda.sobre(filas).donde(i -> evaluadas.incrementAndGet() > 0).paralela(true).limite(10).stream();
+        assertEquals(0, evaluadas.get());
+        assertEquals(10, s.count());
+        // Solo el primer tramo
+        assertTrue(evaluadas.get() < 10_000, "evaluadas: " + evaluadas.get());
+
+        evaluadas.set(0);
+        assertEquals(List.of(0, 1, 2), Busqueda.sobre(filas).donde(i -> evaluadas.incrementAndGet() > 0).paralela(false).limite(3).aLista());
+        assertEquals(3, evaluadas.get());
+    }
+
+    /* ===========================
+              SOBRE LA CACHE
+       =========================== */
+
+    @Test
+    void testFiltroEdadCombinadoSobreLaCache() throws Exception {
+        Path dir = Files.createTempDirectory("busqueda");
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        pp.agregar(new Paciente(1, "Ana Soto", "Centro", 30, "555"));
+        pp.agregar(new Paciente(2, "Luis Diaz", "Sur", 65, "556"));
+        pp.agregar(new Paciente(3, "Eva Ruiz", "Centro", 70, "557"));
+        CacheEntidades<Paciente> cache = new CacheEntidades<>(pp, pp::obtenerTodos, Paciente::getId);
+
+        FiltroEdad mayores = (p, edad) -> p.getEdad() >= edad;
+        Busqueda<Paciente> b = Busqueda.sobre(cache.todos()).donde(mayores.conEdad(60)).donde(p -> p.getDireccion().equals("Centro"));
+        assertEquals(List.of(3), b.stream().map(Paciente::getId).collect(Collectors.toList()));
+
+        pp.agregar(new Paciente(4, "Juan Mora", "Centro", 80, "558"));
+        assertEquals(2, Busqueda.sobre(cache.todos()).donde(mayores.conEdad(60)).donde(p -> p.getDireccion().equals("Centro")).contar());
+        assertThrows(IllegalArgumentException.class, () -> b.limite(-1));
+    }
+}
@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ConcurrenciaTest {
+
+    private static final int HILOS = 8;
+    private static final int POR_HILO = 40;
+
+    /* ===========================
+         ESCRITURAS CONCURRENTES
+       =========================== */
+
+    @Test
+    void testNoSePierdenEscriturasEntreHilos() throws Exception {
+        Path dir = Files.createTempDirectory("concurrencia");
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> tareas = new ArrayList<>();
+        CountDownLatch largada = new CountDownLatch(1);
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            tareas.add(pool.submit(() -> {
+                // Cada hilo abre sus propias persistencias sobre los mismos archivos
+                PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+                PersistenciaMedicos pm = new PersistenciaMedicos(dir.resolve("medicos.csv"));
+                PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+                PersistenciaEquipos pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+                PersistenciaInventario pi = new PersistenciaInventario(dir.resolve("inventario.csv"));
+                largada.await();
+                for (int k = 0; k < POR_HILO; k++) {
+                    int id = hilo * POR_HILO + k + 1;
+                    pp.agregar(new Paciente(id, "Paciente Prueba", "Centro", 30, "555"));
+                    pm.agregar(new Doctor(id, "Dr. Prueba", "Cardiologia"));
+                    pc.agregar(new Consulta(id, id, id, null, "Control", "-"));
+                    pe.agregar(new Equipo(id, "Monitor", "Equipo de prueba", 1));
+                    pi.agregar(new InventarioItem(id, "Gasas", 1, "caja"));
+                    if (k % 4 == 3) {
+                        // Reescrituras completas y bitacora mezcladas con las altas de los demas
+                        pm.eliminar(id - 1);
+                        pc.eliminar(id - 1);
+                        pi.eliminar(id - 1);
+                        pi.actualizarCantidad(id, 7);
+                        pe.actualizar(new Equipo(id, "Monitor", "Actualizado", 2));
+                        pp.actualizar(new Paciente(id, "Paciente Actualizado", "Norte", 31, "556"));
+                        pe.eliminar(id - 2);
+                        pp.eliminar(id - 2);
+                    }
+                    if (hilo == 0 && k % 10 == 9) pe.compactar();
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> f : tareas) f.get(2, TimeUnit.MINUTES);
+        pool.shutdown();
+
+        int total = HILOS * POR_HILO;
+        Set<Integer> borradosPorReescritura = new HashSet<>(), borradosPorBitacora = new HashSet<>(), actualizados = new HashSet<>();
+        for (int id = 1; id <= total; id++) {
+            int k = (id - 1) % POR_HILO;
+            if (k % 4 == 3) { actualizados.add(id); borradosPorReescritura.add(id - 1); borradosPorBitacora.add(id - 2); }
+        }
+
+        List<Doctor> medicos = new PersistenciaMedicos(dir.resolve("medicos.csv")).obtenerTodos();
+        assertEquals(total - borradosPorReescritura.size(), medicos.size());
+        List<Consulta> consultas = new PersistenciaConsultas(dir.resolve("consultas.csv")).obtenerTodos();
+        assertEquals(total - borradosPorReescritura.size(), consultas.size());
+        List<InventarioItem> items = new PersistenciaInventario(dir.resolve("inventario.csv")).obtenerTodos();
+        assertEquals(total - borradosPorReescritura.size(), items.size());
+        for (InventarioItem it : items) assertEquals(actualizados.contains(it.getId()) ? 7 : 1, it.getCantidad(), "item " + it.getId());
+
+        List<Equipo> equipos = new PersistenciaEquipos(dir.resolve("equipos.csv")).obtenerTodos();
+        assertEquals(total - borradosPorBitacora.size(), equipos.size());
+        for (Equipo e : equipos) assertEquals(actualizados.contains(e.getId()) ? 2 : 1, e.getDisponible(), "equipo " + e.getId());
+        List<Paciente> pacientes = new PersistenciaPacientes(dir.resolve("pacientes.csv")).obtenerTodos();
+        assertEquals(total - borradosPorBitacora.size(), pacientes.size());
+        for (Paciente p : pacientes) assertEquals(actualizados.contains(p.getId()) ? 31 : 30, p.getEdad(), "paciente " + p.getId());
+    }
+
+    @Test
+    void testLecturaDentroDeEscritura() throws Exception {
+        Path dir = Files.createTempDirectory("concurrencia");
+        PersistenciaInventario pi = new PersistenciaInventario(dir.resolve("inventario.csv"));
+        pi.agregar(new InventarioItem(1, "Gasas", 3, "caja"));
+        // actualizarCantidad lee (obtenerTodos) y reescribe con el cerrojo de escritura tomado
+        pi.actualizarCantidad(1, 9);
+        assertEquals(9, pi.obtenerTodos().get(0).getCantidad());
+        assertThrows(NoSuchElementException.class, () -> pi.actualizarCantidad(2, 1));
+    }
+}
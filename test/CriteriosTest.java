@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import interfaces.FiltroEdad;
+import proyecto.busqueda.*;
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.ToIntFunction;
+import java.util.stream.*;
+
+public class CriteriosTest {
+
+    private static <T> List<Integer> ids(Busqueda<T> b, ToIntFunction<T> id) {
+        return b.stream().mapToInt(id).sorted().boxed().collect(Collectors.toList());
+    }
+
+    private static <T> List<Integer> recorriendo(List<T> filas, Criterio<T> c, ToIntFunction<T> id) {
+        return filas.stream().filter(c).mapToInt(id).sorted().boxed().collect(Collectors.toList());
+    }
+
+    /* ===========================
+              COMBINACIONES
+       =========================== */
+
+    @Test
+    void testRangosSeIntersecan() {
+        Criterio<Paciente> c = Campos.PACIENTE_EDAD.desde(18).y(Campos.PACIENTE_EDAD.menorQue(65))
+                .y(Campos.PACIENTE_NOMBRE.empiezaCon("Jo"));
+        Criterio.Rango<Paciente, Integer> edad = c.rango(Campos.PACIENTE_EDAD);
+        assertEquals(18, edad.minimoEntero());
+        assertEquals(64, edad.maximoEntero());
+        assertNull(c.rango(Campos.PACIENTE_ID));
+        assertTrue(c.texto(Campos.PACIENTE_NOMBRE).esPrefijo());
+        assertTrue(Campos.PACIENTE_ID.igual(3).rango(Campos.PACIENTE_ID).esValor());
+
+        assertTrue(c.test(new Paciente(1, "José Ruiz", "Centro", 40, "555")));
+        assertFalse(c.test(new Paciente(2, "José Ruiz", "Centro", 65, "555")));
+        Criterio<Paciente> o = Campos.PACIENTE_EDAD.menorQue(10).o(Campos.PACIENTE_EDAD.mayorQue(90));
+        assertNull(o.rango(Campos.PACIENTE_EDAD));
+        assertEquals(2, o.alternativas().size());
+        assertTrue(o.test(new Paciente(3, "Ana Soto", "Centro", 95, "555")));
+        assertThrows(IllegalArgumentException.class, () -> Campos.PACIENTE_NOMBRE.contiene(null));
+    }
+
+    /* ===========================
+           INDICES CONTRA RECORRIDO
+       =========================== */
+
+    @Test
+    void testPacientesConIndicesComoRecorriendo() throws Exception {
+        Path dir = Files.createTempDirectory("criterios");
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        String[] nombres = {"Ana Soto", "José Ruiz", "Jorge Diaz", "Eva Mora", "Luis Peña"};
+        Random azar = new Random(3);
+        pp.importar(IntStream.rangeClosed(1, 3000).mapToObj(i -> new Paciente(i, nombres[i % nombres.length],
+                i % 3 == 0 ? "Centro" : "Sur", azar.nextInt(100), "555")));
+        pp.eliminar(7);
+        Paciente p = pp.obtenerPorId(8).get();
+        p.setEdad(99);
+        pp.actualizar(p);
+
+        List<Criterio<Paciente>> criterios = List.of(
+                Campos.PACIENTE_EDAD.desde(60),
+                Campos.PACIENTE_EDAD.entre(30, 40).y(Campos.PACIENTE_DIRECCION.contiene("centro")),
+                Campos.PACIENTE_NOMBRE.empiezaCon("jo").y(Campos.PACIENTE_EDAD.hasta(20)),
+                Campos.PACIENTE_NOMBRE.contiene("pena"),
+                Campos.PACIENTE_ID.igual(8).y(Campos.PACIENTE_EDAD.desde(90)),
+                Campos.PACIENTE_EDAD.menorQue(5).o(Campos.PACIENTE_NOMBRE.empiezaCon("eva")),
+                Campos.PACIENTE_EDAD.menorQue(5).o(Campos.PACIENTE_TELEFONO.igual("555")),
+                Criterio.<Paciente>de(x -> x.getId() % 11 == 0));
+        List<Paciente> todos = pp.obtenerTodos();
+        for (Criterio<Paciente> c : criterios) {
+            assertEquals(recorriendo(todos, c, Paciente::getId), ids(pp.buscar(c), Paciente::getId), c.toString());
+        }
+        FiltroEdad propio = (x, edad) -> x.getEdad() >= edad;
+        assertEquals(ids(pp.buscar(Campos.PACIENTE_EDAD.desde(50)), Paciente::getId),
+                ids(pp.buscar(propio.conEdad(50)), Paciente::getId));
+        // Como en la GUI: el rango declarado acota por indice y la lambda confirma
+        Criterio<Paciente> conRango = Campos.PACIENTE_EDAD.desde(50).y(propio.conEdad(50));
+        assertEquals(50, conRango.rango(Campos.PACIENTE_EDAD).minimoEntero());
+        assertEquals(recorriendo(todos, conRango, Paciente::getId), ids(pp.buscar(conRango), Paciente::getId));
+    }
+
+    @Test
+    void testConsultasPorFechaYPaciente() throws Exception {
+        Path dir = Files.createTempDirectory("criterios");
+        PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 9, 0);
+        for (int i = 1; i <= 300; i++) pc.agregar(new Consulta(i, 1 + i % 10, 100 + i % 4, base.plusHours(i), "Control", ""));
+
+        LocalDateTime desde = base.plusHours(50), hasta = base.plusHours(120);
+        List<Criterio<Consulta>> criterios = List.of(
+                Campos.CONSULTA_FECHA.entre(desde, hasta),
+                Campos.CONSULTA_FECHA.mayorQue(desde).y(Campos.CONSULTA_FECHA.menorQue(hasta)).y(Campos.CONSULTA_PACIENTE.igual(3)),
+                Campos.CONSULTA_DOCTOR.igual(101).y(Campos.CONSULTA_MOTIVO.empiezaCon("cont")),
+                Campos.CONSULTA_ID.igual(42).o(Campos.CONSULTA_PACIENTE.igual(5)),
+                Campos.CONSULTA_MOTIVO.contiene("x"));
+        List<Consulta> todas = pc.obtenerTodos();
+        for (Criterio<Consulta> c : criterios) {
+            assertEquals(recorriendo(todas, c, Consulta::getId), ids(pc.buscar(c), Consulta::getId), c.toString());
+        }
+        // En el orden de la tabla
+        List<Integer> enOrden = pc.buscar(Campos.CONSULTA_PACIENTE.igual(3)).stream().map(Consulta::getId).collect(Collectors.toList());
+        assertEquals(enOrden.stream().sorted().collect(Collectors.toList()), enOrden);
+    }
+
+    @Test
+    void testEquiposEInventarioBajoUnTope() throws Exception {
+        Path dir = Files.createTempDirectory("criterios");
+        PersistenciaEquipos pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+        for (int i = 1; i <= 50; i++) pe.agregar(new Equipo(i, i % 2 == 0 ? "Monitor" : "Bomba", "Signos", 1 + i % 9));
+        List<Criterio<Equipo>> criterios = List.of(
+                Campos.EQUIPO_DISPONIBLE.menorQue(4),
+                Campos.EQUIPO_DISPONIBLE.entre(3, 6).y(Campos.EQUIPO_NOMBRE.igual("Monitor")),
+                Campos.EQUIPO_ID.igual(17),
+                Campos.EQUIPO_DISPONIBLE.desde(8));
+        for (Criterio<Equipo> c : criterios) {
+            assertEquals(recorriendo(pe.obtenerTodos(), c, Equipo::getId), ids(pe.buscar(c), Equipo::getId), c.toString());
+        }
+        // Entrega copias
+        pe.buscar(Campos.EQUIPO_ID.igual(17)).aLista().get(0).setDisponible(500);
+        assertEquals(9, pe.obtenerPorId(17).get().getDisponible());
+
+        PersistenciaInventario pi = new PersistenciaInventario(dir.resolve("inventario.csv"));
+        for (int i = 1; i <= 30; i++) pi.agregar(new InventarioItem(i, "Gasas", i * 3 % 40, i % 2 == 0 ? "pz" : "caja"));
+        Criterio<InventarioItem> c = Campos.INVENTARIO_CANTIDAD.hasta(10).y(Campos.INVENTARIO_UNIDAD.igual("pz"));
+        assertEquals(recorriendo(pi.obtenerTodos(), c, InventarioItem::getId), ids(pi.buscar(c), InventarioItem::getId));
+    }
+
+    /* ===========================
+            HISTOGRAMA DE EDADES
+       =========================== */
+
+    @Test
+    void testHistogramaSeMantieneConCadaEscritura() throws Exception {
+        Path dir = Files.createTempDirectory("criterios");
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        pp.agregar(new Paciente(1, "Ana Soto", "Centro", 30, "555"));
+        pp.agregar(new Paciente(2, "Luis Diaz", "Sur", 65, "556"));
+        pp.agregar(new Paciente(3, "Eva Ruiz", "Centro", 65, "557"));
+        int[] h = pp.histogramaEdades();
+        assertEquals(121, h.length);
+        assertEquals(2, h[65]);
+        assertEquals(3, IntStream.of(h).sum());
+
+        // Altas, cambios y bajas despues de armado el indice
+        pp.agregar(new Paciente(4, "Juan Mora", "Norte", 120, "558"));
+        Paciente luis = pp.obtenerPorId(2).get();
+        luis.setEdad(0);
+        pp.actualizar(luis);
+        pp.eliminar(1);
+        h = pp.histogramaEdades();
+        assertEquals(1, h[65]);
+        assertEquals(1, h[0]);
+        assertEquals(1, h[120]);
+        assertEquals(0, h[30]);
+        assertEquals(2, pp.contarPorEdad(60, 200));
+        assertArrayEquals(new int[] {2, 3}, pp.idsPorEdad(-5, 70));
+        assertEquals(0, pp.contarPorEdad(70, 60));
+
+        // Otra instancia escribe: el indice se rearma desde el archivo
+        new PersistenciaPacientes(dir.resolve("pacientes.csv")).agregar(new Paciente(5, "Rosa Vega", "Sur", 65, "559"));
+        assertEquals(2, pp.histogramaEdades()[65]);
+        assertEquals(List.of(3, 5), ids(pp.buscar(Campos.PACIENTE_EDAD.igual(65)), Paciente::getId));
+    }
+}
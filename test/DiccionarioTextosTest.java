@@ -0,0 +1,39 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.file.*;
+import java.util.List;
+
+public class DiccionarioTextosTest {
+
+    /* ===========================
+         DICCIONARIO DE TEXTOS
+       =========================== */
+
+    @Test
+    void testValoresIgualesCompartenInstancia() throws Exception {
+        Path dir = Files.createTempDirectory("diccionario");
+        PersistenciaInventario pi = new PersistenciaInventario(dir.resolve("inventario.csv"));
+        pi.agregar(new InventarioItem(1, "Gasas", 10, "caja"));
+        pi.agregar(new InventarioItem(2, "Guantes", 5, "caja"));
+        pi.agregar(new InventarioItem(3, "Alcohol", 2, "ml"));
+
+        List<InventarioItem> items = pi.obtenerTodos();
+        assertTrue(items.get(0).getUnidad() == items.get(1).getUnidad());
+        assertEquals("ml", items.get(2).getUnidad());
+    }
+
+    @Test
+    void testDiccionarioLlenoDejaDeCrecer() {
+        DiccionarioTextos d = new DiccionarioTextos(2);
+        String a = d.compartir("Cardiología");
+        assertTrue(a == d.compartir(new String("Cardiología")));
+        d.compartir("Pediatria");
+        assertEquals("Neurologia", d.compartir("Neurologia"));
+        assertTrue(d.estaLleno());
+        assertEquals(2, d.tamano());
+    }
+}
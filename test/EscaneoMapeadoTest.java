@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.persistence.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+public class EscaneoMapeadoTest {
+
+    private static Path archivo(String contenido) throws Exception {
+        Path f = Files.createTempDirectory("mapeo").resolve("datos.csv");
+        Files.write(f, contenido.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+
+    // Linea y posiciones de cada registro, para comparar ambos lectores
+    private static String describir(LectorRegistros.Registro r) {
+        return r.posicion() + ":" + r.siguiente() + ":" + r.linea();
+    }
+
+    private static List<String> secuencial(Path f) throws Exception {
+        List<String> res = new ArrayList<>();
+        LectorRegistros.leer(f, null, r -> res.add(describir(r)));
+        return res;
+    }
+
+    /* ===========================
+            COMO EL LECTOR NORMAL
+       =========================== */
+
+    @Test
+    void testTrozosNoPartenNiPierdenLineas() throws Exception {
+        Random azar = new Random(11);
+        for (int caso = 0; caso < 40; caso++) {
+            StringBuilder sb = new StringBuilder();
+            int lineas = 1 + azar.nextInt(400);
+            for (int i = 1; i <= lineas; i++) {
+                int tipo = azar.nextInt(20);
+                if (tipo == 0) sb.append("# comentario ").append(i);
+                else if (tipo == 1) sb.append("   ");
+                else sb.append(i).append("|").append("x".repeat(azar.nextInt(tipo == 2 ? 3000 : 40)));
+                if (i < lineas || azar.nextBoolean()) sb.append(azar.nextInt(3) == 0 ? "\r\n" : "\n");
+            }
+            Path f = archivo(sb.toString());
+            List<String> esperado = secuencial(f);
+            for (int trozos : new int[] {1, 2, 3, 7, 64, 1000}) {
+                for (boolean mapear : new boolean[] {true, false}) {
+                    EscaneoMapeado.Resultado<String> res = EscaneoMapeado.escanear(f, trozos, mapear, r -> describir(r));
+                    assertEquals(esperado, res.getFilas(), "caso " + caso + ", " + trozos + " trozos, mapear " + mapear);
+                    assertTrue(res.getTrozos() >= 1 && res.getTrozos() <= Math.min(trozos, lineas));
+                    assertEquals(Files.size(f), res.getBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSinSaltoFinal() throws Exception {
+        Path f = archivo("1|Ana\n2|Luis\r\n3|Eva");
+        for (int trozos = 1; trozos <= 5; trozos++) {
+            List<String> leidas = EscaneoMapeado.escanear(f, trozos, r -> r.texto(1)).getFilas();
+            assertEquals(List.of("Ana", "Luis", "Eva"), leidas);
+        }
+        assertEquals(secuencial(f), EscaneoMapeado.escanear(f, 3, r -> describir(r)).getFilas());
+    }
+
+    @Test
+    void testSinMapearConLineasMasLargasQueElBloque() throws Exception {
+        // Varios MB con lineas que cruzan el borde de cada bloque y una que no entra en uno
+        StringBuilder sb = new StringBuilder();
+        Random azar = new Random(3);
+        for (int i = 1; i <= 4000; i++) {
+            sb.append(i).append("|").append("y".repeat(i == 1700 ? 3_000_000 : azar.nextInt(1500))).append(i % 5 == 0 ? "\r\n" : "\n");
+        }
+        sb.append("4001|sin salto");
+        Path f = archivo(sb.toString());
+        List<String> esperado = secuencial(f);
+        for (int trozos : new int[] {1, 3}) {
+            assertEquals(esperado, EscaneoMapeado.escanear(f, trozos, false, r -> describir(r)).getFilas());
+        }
+        // Sin mapear, el archivo se puede reemplazar en seguida (en Windows tambien)
+        EscaneoMapeado.escanear(f, 2, false, r -> r.linea());
+        Path tmp = Files.writeString(f.resolveSibling("datos.tmp"), "1|Ana\n");
+        Files.move(tmp, f, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(List.of("1|Ana"), EscaneoMapeado.escanear(f, 2, false, r -> r.linea()).getFilas());
+    }
+
+    @Test
+    void testArchivoMasChicoQueLosTrozos() throws Exception {
+        EscaneoMapeado.Resultado<String> uno = EscaneoMapeado.escanear(archivo("1|Ana\n"), 16, r -> r.linea());
+        assertEquals(List.of("1|Ana"), uno.getFilas());
+        assertEquals(1, uno.getTrozos());
+
+        EscaneoMapeado.Resultado<String> vacio = EscaneoMapeado.escanear(archivo(""), 16, r -> r.linea());
+        assertTrue(vacio.getFilas().isEmpty());
+        assertEquals(0L, vacio.getBytes());
+
+        EscaneoMapeado.Resultado<String> saltos = EscaneoMapeado.escanear(archivo("\n\n\n"), 16, r -> r.linea());
+        assertTrue(saltos.getFilas().isEmpty());
+        assertTrue(saltos.getTrozos() <= 3);
+    }
+
+    @Test
+    void testDescartaLosNullYRespetaElOrden() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= 5000; i++) sb.append(i).append("|fila\n");
+        Path f = archivo(sb.toString());
+        List<Integer> pares = EscaneoMapeado.escanear(f, 8, r -> r.entero(0) % 2 == 0 ? r.entero(0) : null).getFilas();
+        assertEquals(2500, pares.size());
+        for (int k = 0; k < pares.size(); k++) assertEquals(2 * (k + 1), (int) pares.get(k));
+
+        assertThrows(IllegalArgumentException.class, () -> EscaneoMapeado.escanear(f, 0, r -> r.linea()));
+    }
+}
@@ -0,0 +1,106 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class EscrituraAtomicaTest {
+
+    // Volcado que escribe bastante (mas que el buffer) y falla antes de terminar
+    private static class ConsultasQueFallan extends PersistenciaConsultas {
+        ConsultasQueFallan(Path file) throws IOException { super(file); }
+
+        void volcarConFalla() throws IOException {
+            escribirTodo(w -> {
+                for (int i = 0; i < 50_000; i++) w.write(i + "|1|1|2021-01-01T10:00|Parcial|\n");
+                throw new IOException("disco lleno");
+            });
+        }
+    }
+
+    private static List<Consulta> consultas(int desde, int cantidad) {
+        List<Consulta> res = new ArrayList<>();
+        LocalDateTime f = LocalDateTime.of(2021, 3, 1, 9, 0);
+        for (int i = desde; i < desde + cantidad; i++) res.add(new Consulta(i, 1 + i % 7, 1 + i % 3, f.plusHours(i), "Control", ""));
+        return res;
+    }
+
+    // Temporales del volcado y respaldos que quedaron en el directorio
+    private static List<String> sobrantes(Path dir) throws IOException {
+        try (var s = Files.list(dir)) {
+            return s.map(p -> p.getFileName().toString()).filter(n -> n.endsWith(".tmp") || n.endsWith(".bak"))
+                    .sorted().collect(Collectors.toList());
+        }
+    }
+
+    /* ===========================
+           VOLCADO QUE FALLA
+       =========================== */
+
+    @Test
+    void testFallaAMitadDejaElOriginal() throws Exception {
+        Path dir = Files.createTempDirectory("atomica");
+        Path csv = dir.resolve("consultas.csv");
+        ConsultasQueFallan pc = new ConsultasQueFallan(csv);
+        pc.saveAll(consultas(1, 200));
+        byte[] antes = Files.readAllBytes(csv);
+
+        IOException ex = assertThrows(IOException.class, pc::volcarConFalla);
+        assertEquals("disco lleno", ex.getMessage());
+        assertArrayEquals(antes, Files.readAllBytes(csv));
+        // Ni el temporal ni un respaldo quedan en el directorio
+        assertEquals(List.of(), sobrantes(dir));
+        assertEquals(200, pc.obtenerTodos().size());
+        assertEquals(200, new PersistenciaConsultas(csv).obtenerTodos().size());
+    }
+
+    @Test
+    void testVolcadoCompletoNoDejaTemporales() throws Exception {
+        Path dir = Files.createTempDirectory("atomica");
+        PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        for (int vuelta = 0; vuelta < 3; vuelta++) pc.saveAll(consultas(1, 1000 * (vuelta + 1)));
+        assertEquals(List.of(), sobrantes(dir));
+        assertEquals(3000, pc.obtenerTodos().size());
+    }
+
+    /* ===========================
+              RESPALDO .BAK
+       =========================== */
+
+    @Test
+    void testRespaldoGuardaLoAnterior() throws Exception {
+        Path dir = Files.createTempDirectory("atomica");
+        Path csv = dir.resolve("consultas.csv");
+        Path bak = dir.resolve("consultas.csv.bak");
+        PersistenciaConsultas pc = new PersistenciaConsultas(csv);
+        pc.saveAll(consultas(1, 50));
+        assertFalse(Files.exists(bak));
+
+        pc.setRotarRespaldo(true);
+        byte[] primera = Files.readAllBytes(csv);
+        pc.saveAll(consultas(100, 10));
+        assertArrayEquals(primera, Files.readAllBytes(bak));
+        assertEquals(10, pc.obtenerTodos().size());
+
+        // Cada volcado rota: el respaldo pasa a ser la version recien reemplazada
+        byte[] segunda = Files.readAllBytes(csv);
+        pc.saveAll(consultas(200, 3));
+        assertArrayEquals(segunda, Files.readAllBytes(bak));
+        assertEquals(List.of(200, 201, 202), pc.obtenerTodos().stream().map(Consulta::getId).collect(Collectors.toList()));
+
+        // Un volcado que falla no toca ni el archivo ni el respaldo
+        ConsultasQueFallan otra = new ConsultasQueFallan(csv);
+        otra.setRotarRespaldo(true);
+        byte[] actual = Files.readAllBytes(csv);
+        assertThrows(IOException.class, otra::volcarConFalla);
+        assertArrayEquals(actual, Files.readAllBytes(csv));
+        assertArrayEquals(segunda, Files.readAllBytes(bak));
+        assertEquals(List.of("consultas.csv.bak"), sobrantes(dir));
+    }
+}
@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.exportacion.*;
+import proyecto.model.*;
+import proyecto.persistence.*;
+import proyecto.servidor.Json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.*;
+
+public class ExportacionTest {
+
+    private static String exportar(Stream<Paciente> filas, Formato formato) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Exportaciones.pacientes().exportar(filas, formato, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /* ===========================
+                FORMATOS
+       =========================== */
+
+    @Test
+    void testCsvCitaSoloLoNecesario() throws Exception {
+        String csv = exportar(Stream.of(
+                new Paciente(1, "Ana Soto", "Calle 5, Centro", 30, "555"),
+                new Paciente(2, "José \"Pepe\" Díaz", "Sur", 41, "556")), Formato.CSV);
+        assertEquals("id,nombre,direccion,edad,telefono\n"
+                + "1,Ana Soto,\"Calle 5, Centro\",30,555\n"
+                + "2,\"José \"\"Pepe\"\" Díaz\",Sur,41,556\n", csv);
+    }
+
+    @Test
+    void testJsonUnObjetoPorLinea() throws Exception {
+        String json = exportar(Stream.of(
+                new Paciente(1, "Ana Soto", "Calle \"5\"", 30, "555"),
+                new Paciente(2, "Luis Diaz", "Sur", 41, "556")), Formato.JSON);
+        String[] lineas = json.split("\n");
+        assertEquals("[", lineas[0]);
+        assertEquals("]", lineas[3]);
+        Map<String, String> primero = Json.leerObjeto(lineas[1].substring(0, lineas[1].length() - 1));
+        assertEquals("Calle \"5\"", primero.get("direccion"));
+        assertEquals("30", primero.get("edad"));
+        assertEquals("Luis Diaz", Json.leerObjeto(lineas[2]).get("nombre"));
+        assertEquals("[]\n", exportar(Stream.empty(), Formato.JSON));
+    }
+
+    @Test
+    void testFormatoDelArchivo() {
+        assertEquals(Formato.CSV, Formato.deArchivo(Paths.get("reporte.CSV")));
+        assertEquals(Formato.JSON, Formato.deArchivo(Paths.get("dir/reporte.json")));
+        assertThrows(IllegalArgumentException.class, () -> Formato.deArchivo(Paths.get("reporte.txt")));
+    }
+
+    /* ===========================
+               STREAMING
+       =========================== */
+
+    @Test
+    void testExportaTodasLasPaginasAUnArchivo() throws Exception {
+        Path dir = Files.createTempDirectory("exportacion");
+        PersistenciaEquipos pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+        for (int i = 1; i <= 2500; i++) pe.agregar(new Equipo(i, "Monitor", "Signos", 1 + i % 7));
+
+        Path destino = dir.resolve("equipos.csv.export");
+        long n = Exportaciones.equipos().exportar(Pagina.recorrer(pe::obtenerPagina, 100), Formato.CSV, destino);
+        assertEquals(2500, n);
+        List<String> lineas = Files.readAllLines(destino);
+        assertEquals(2501, lineas.size());
+        assertEquals("2500,Monitor,Signos,2", lineas.get(2500));
+        try (Stream<Path> archivos = Files.list(dir)) {
+            assertFalse(archivos.anyMatch(p -> p.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void testConsultasDesdeElStreamDeLaPersistencia() throws Exception {
+        Path dir = Files.createTempDirectory("exportacion");
+        PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 9, 30);
+        for (int i = 1; i <= 10; i++) pc.agregar(new Consulta(i, 1, 2, base.plusDays(i), "Control", "Sin, novedad"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long n = Exportaciones.consultas().exportar(pc.stream().filter(c -> c.getFecha().getDayOfMonth() <= 4), Formato.CSV, out);
+        assertEquals(3, n);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\n1,1,2,2024-03-02T09:30,Control,\"Sin, novedad\"\n"));
+    }
+
+    @Test
+    void testErrorDeLecturaNoPisaElDestino() throws Exception {
+        Path destino = Files.createTempDirectory("exportacion").resolve("pacientes.csv");
+        Files.writeString(destino, "anterior");
+        Stream<Paciente> falla = Stream.of(1, 2).map(i -> {
+            if (i == 2) throw new UncheckedIOException(new IOException("disco"));
+            return new Paciente(i, "Ana Soto", "Centro", 30, "555");
+        });
+        assertThrows(IOException.class, () -> Exportaciones.pacientes().exportar(falla, Formato.CSV, destino));
+        assertEquals("anterior", Files.readString(destino));
+    }
+}
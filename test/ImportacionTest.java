@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ImportacionTest {
+
+    /* ===========================
+         IMPORTACION MASIVA
+       =========================== */
+
+    @Test
+    void testImportarReportaRechazos() throws Exception {
+        Path dir = Files.createTempDirectory("importar");
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        pp.agregar(new Paciente(1, "Juan Perez", "Centro", 30, "555"));
+
+        ReporteImportacion r = pp.importar(Stream.of(
+                new Paciente(1, "Otro Juan", "Centro", 30, "555"),   // ya existe
+                new Paciente(2, "Ana Soto", "Norte", 41, "556"),
+                new Paciente(3, "Nombre 123", "Norte", 41, "556"),  // nombre invalido
+                new Paciente(2, "Ana Repetida", "Sur", 20, "557"))); // repetido en el lote
+
+        assertEquals(4, r.getLeidos());
+        assertEquals(1, r.getAceptados());
+        assertEquals(3, r.getRechazos().size());
+        assertEquals("ID duplicado", r.getRechazos().get(0).getMotivo());
+        assertEquals("Nombre erroneo", r.getRechazos().get(1).getMotivo());
+        assertEquals(3, r.getRechazos().get(2).getPosicion());
+        assertEquals("Ana Soto", new PersistenciaPacientes(dir.resolve("pacientes.csv")).obtenerPorId(2).get().getNombre());
+    }
+
+    @Test
+    void testImportarRespetaUltimaLineaSinSalto() throws Exception {
+        Path dir = Files.createTempDirectory("importar");
+        Path archivo = dir.resolve("consultas.csv");
+        Files.write(archivo, "#id|pacienteId|doctorId|fechaISO|motivo|notas\n1|1|1|2025-01-10T09:30|Control|-".getBytes(StandardCharsets.UTF_8));
+        PersistenciaConsultas pc = new PersistenciaConsultas(archivo);
+
+        pc.importar(Stream.of(new Consulta(2, 1, 1, null, "Dolor", "-")));
+
+        List<Consulta> todas = pc.obtenerTodos();
+        assertEquals(2, todas.size());
+        assertEquals("-", todas.get(0).getNotas());
+        assertTrue(pc.obtenerPorId(2).isPresent());
+    }
+}
@@ -0,0 +1,216 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.busqueda.Campos;
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+public class IndiceConsultasTest {
+    private static final DateTimeFormatter ISO_MINUTO = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    private static List<Integer> ids(List<Consulta> consultas) {
+        return consultas.stream().map(Consulta::getId).collect(Collectors.toList());
+    }
+
+    // Lo que deberia devolver la busqueda: recorrer todas, en el orden del archivo
+    private static List<Integer> recorriendo(List<Consulta> todas, Predicate<Consulta> filtro) {
+        return ids(todas.stream().filter(filtro).collect(Collectors.toList()));
+    }
+
+    private static Predicate<Consulta> conPrefijo(String patron) {
+        return c -> c.getFecha() != null && c.getFecha().format(ISO_MINUTO).startsWith(patron);
+    }
+
+    private static PersistenciaConsultas conDatos(Path dir) throws Exception {
+        PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        List<Consulta> datos = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2020, 12, 31, 22, 0);
+        Random azar = new Random(5);
+        for (int i = 1; i <= 1500; i++) {
+            // Fechas desordenadas, algunas con segundos y algunas sin fecha
+            LocalDateTime f = i % 53 == 0 ? null : base.plusMinutes(azar.nextInt(60 * 24 * 400)).plusSeconds(i % 4 == 0 ? 30 : 0);
+            datos.add(new Consulta(i, 1 + i % 30, 1 + i % 6, f, "Control", ""));
+        }
+        pc.saveAll(datos);
+        return pc;
+    }
+
+    /* ===========================
+            PREFIJOS Y RANGOS
+       =========================== */
+
+    @Test
+    void testPrefijoDeCadaGranularidad() throws Exception {
+        PersistenciaConsultas pc = conDatos(Files.createTempDirectory("fechas"));
+        List<Consulta> todas = pc.obtenerTodos();
+        Consulta muestra = todas.get(100);
+        String completa = muestra.getFecha().format(ISO_MINUTO);
+        for (int largo : new int[] {4, 7, 10, 13, 16}) {
+            String patron = completa.substring(0, largo);
+            List<Integer> esperado = recorriendo(todas, conPrefijo(patron));
+            assertFalse(esperado.isEmpty());
+            assertEquals(esperado, ids(pc.buscarConsultasPorFecha(patron)), patron);
+        }
+        // Limites de anio y de mes
+        for (String patron : new String[] {"2020", "2020-12-31", "2021-01", "2021-02", "2022", "1999"}) {
+            assertEquals(recorriendo(todas, conPrefijo(patron)), ids(pc.buscarConsultasPorFecha(patron)), patron);
+        }
+    }
+
+    @Test
+    void testPrefijoParcialYFechasInexistentes() throws Exception {
+        PersistenciaConsultas pc = conDatos(Files.createTempDirectory("fechas"));
+        List<Consulta> todas = pc.obtenerTodos();
+        // No son unidades completas: se resuelven recorriendo, con el mismo resultado
+        for (String patron : new String[] {"2021-0", "2021-1", "202", "2021-03-1", "2021-03-15T1", "2021-03-15T10:3"}) {
+            assertEquals(recorriendo(todas, conPrefijo(patron)), ids(pc.buscarConsultasPorFecha(patron)), patron);
+        }
+        assertTrue(pc.buscarConsultasPorFecha("2021-13").isEmpty());
+        assertTrue(pc.buscarConsultasPorFecha("2021-02-30").isEmpty());
+        assertTrue(pc.buscarConsultasPorFecha("2021-03-15T25").isEmpty());
+        assertTrue(pc.buscarConsultasPorFecha("marzo").isEmpty());
+        // Sin patron: todas, incluso las que no tienen fecha
+        assertEquals(ids(todas), ids(pc.buscarConsultasPorFecha("")));
+    }
+
+    @Test
+    void testRangoDeDiasIncluyeAmbosExtremos() throws Exception {
+        PersistenciaConsultas pc = conDatos(Files.createTempDirectory("fechas"));
+        List<Consulta> todas = pc.obtenerTodos();
+        LocalDate inicio = LocalDate.of(2021, 2, 27), fin = LocalDate.of(2021, 3, 2);
+        List<Integer> esperado = recorriendo(todas, c -> c.getFecha() != null
+                && !c.getFecha().toLocalDate().isBefore(inicio) && !c.getFecha().toLocalDate().isAfter(fin));
+        assertFalse(esperado.isEmpty());
+        assertEquals(esperado, ids(pc.buscarConsultasEnRango(inicio, fin)));
+        assertEquals(recorriendo(todas, conPrefijo("2021-03-01")),
+                ids(pc.buscarConsultasEnRango(LocalDate.of(2021, 3, 1), LocalDate.of(2021, 3, 1))));
+        assertTrue(pc.buscarConsultasEnRango(fin, inicio).isEmpty());
+    }
+
+    /* ===========================
+             ALTAS E INVALIDACION
+       =========================== */
+
+    @Test
+    void testAgregarMantieneElOrden() throws Exception {
+        PersistenciaConsultas pc = conDatos(Files.createTempDirectory("fechas"));
+        // Arma el indice
+        assertFalse(pc.buscarConsultasPorFecha("2021-03").isEmpty());
+
+        // Altas con fechas anteriores, iguales y posteriores a las que ya estan
+        LocalDateTime marzo = LocalDateTime.of(2021, 3, 10, 9, 0);
+        pc.agregar(new Consulta(5001, 1, 1, marzo, "Control", ""));
+        pc.agregar(new Consulta(5002, 1, 1, marzo.minusDays(300), "Control", ""));
+        pc.agregar(new Consulta(5003, 1, 1, marzo, "Control", ""));
+        pc.agregar(new Consulta(5004, 1, 1, null, "Control", ""));
+        pc.agregar(new Consulta(5005, 1, 1, LocalDateTime.of(2030, 1, 1, 0, 0), "Control", ""));
+
+        List<Consulta> todas = pc.obtenerTodos();
+        for (String patron : new String[] {"2021-03", "2021-03-10", "2021-03-10T09:00", "2020", "2030"}) {
+            assertEquals(recorriendo(todas, conPrefijo(patron)), ids(pc.buscarConsultasPorFecha(patron)), patron);
+        }
+        List<Integer> mismoMinuto = ids(pc.buscarConsultasPorFecha("2021-03-10T09:00"));
+        assertTrue(mismoMinuto.indexOf(5001) < mismoMinuto.indexOf(5003));
+        assertEquals(List.of(5005), ids(pc.buscarConsultasEnRango(LocalDate.of(2029, 1, 1), LocalDate.of(2031, 1, 1))));
+    }
+
+    @Test
+    void testAgregarTrasUltimaLineaSinSalto() throws Exception {
+        Path dir = Files.createTempDirectory("fechas");
+        Path csv = dir.resolve("consultas.csv");
+        PersistenciaConsultas pc = conDatos(dir);
+        // Editado a mano: la ultima linea queda sin salto
+        String texto = Files.readString(csv).stripTrailing();
+        Files.writeString(csv, texto);
+        List<Consulta> antes = pc.obtenerTodos();
+        assertFalse(pc.buscarConsultasPorFecha("2021").isEmpty());
+
+        LocalDateTime f = LocalDateTime.of(2021, 4, 2, 8, 0);
+        pc.agregar(new Consulta(5001, 3, 2, f, "Control", ""));
+        assertEquals(List.of(5001), ids(pc.buscarConsultasPorFecha("2021-04-02T08:00")));
+        assertEquals(5001, pc.obtenerPorId(5001).get().getId());
+        assertEquals(3, pc.obtenerPorId(5001).get().getPacienteId());
+        Consulta ultima = antes.get(antes.size() - 1);
+        assertEquals(ultima.getPacienteId(), pc.obtenerPorId(ultima.getId()).get().getPacienteId());
+        assertEquals(antes.size() + 1, pc.obtenerTodos().size());
+        assertEquals(antes.size() + 1, new PersistenciaConsultas(csv).obtenerTodos().size());
+    }
+
+    @Test
+    void testSaveAllYOtraInstanciaInvalidanElIndice() throws Exception {
+        Path dir = Files.createTempDirectory("fechas");
+        PersistenciaConsultas pc = conDatos(dir);
+        assertFalse(pc.buscarConsultasPorFecha("2021").isEmpty());
+
+        LocalDateTime f = LocalDateTime.of(2021, 6, 1, 10, 0);
+        pc.saveAll(List.of(new Consulta(1, 1, 1, f, "Control", ""), new Consulta(2, 1, 1, f.plusDays(400), "Control", "")));
+        assertEquals(List.of(1), ids(pc.buscarConsultasPorFecha("2021")));
+        assertEquals(List.of(1), ids(pc.buscarConsultasEnRango(LocalDate.of(2021, 6, 1), LocalDate.of(2021, 6, 1))));
+
+        // Escribe otra instancia sobre el mismo archivo: el indice se rearma
+        new PersistenciaConsultas(dir.resolve("consultas.csv")).agregar(new Consulta(3, 1, 1, f.plusHours(1), "Control", ""));
+        assertEquals(List.of(1, 3), ids(pc.buscarConsultasPorFecha("2021-06-01")));
+        assertEquals(List.of(3), ids(pc.buscarConsultasPorFecha("2021-06-01T11")));
+    }
+
+    /* ===========================
+            POR PACIENTE Y DOCTOR
+       =========================== */
+
+    @Test
+    void testObtenerPorPacienteEnOrdenDelArchivo() throws Exception {
+        Path dir = Files.createTempDirectory("fechas");
+        PersistenciaConsultas pc = conDatos(dir);
+        List<Consulta> todas = pc.obtenerTodos();
+        for (int paciente : new int[] {1, 7, 30}) {
+            List<Integer> esperado = recorriendo(todas, c -> c.getPacienteId() == paciente);
+            assertFalse(esperado.isEmpty());
+            assertEquals(esperado, ids(pc.obtenerPorPaciente(paciente)));
+        }
+        assertTrue(pc.obtenerPorPaciente(999).isEmpty());
+
+        // Altas despues de armado el indice, y de otra instancia
+        pc.agregar(new Consulta(5001, 7, 1, null, "Control", ""));
+        new PersistenciaConsultas(dir.resolve("consultas.csv")).agregar(new Consulta(5002, 7, 2, null, "Control", ""));
+        List<Integer> del7 = ids(pc.obtenerPorPaciente(7));
+        assertEquals(List.of(5001, 5002), del7.subList(del7.size() - 2, del7.size()));
+        assertEquals(recorriendo(pc.obtenerTodos(), c -> c.getPacienteId() == 7), del7);
+    }
+
+    @Test
+    void testAgendaDelDoctorConRangosAbiertos() throws Exception {
+        PersistenciaConsultas pc = conDatos(Files.createTempDirectory("fechas"));
+        List<Consulta> todas = pc.obtenerTodos();
+        LocalDateTime corte = LocalDateTime.of(2021, 5, 1, 12, 0);
+        Comparator<Consulta> porFecha = Comparator.comparing(Consulta::getFecha);
+        for (int doctor = 1; doctor <= 6; doctor++) {
+            int d = doctor;
+            List<Consulta> conFecha = todas.stream().filter(c -> c.getDoctorId() == d && c.getFecha() != null)
+                    .sorted(porFecha).collect(Collectors.toList());
+            List<Integer> antes = ids(conFecha.stream().filter(c -> c.getFecha().isBefore(corte)).collect(Collectors.toList()));
+            List<Integer> despues = ids(conFecha.stream().filter(c -> !c.getFecha().isBefore(corte)).collect(Collectors.toList()));
+
+            assertEquals(ids(conFecha), ids(pc.obtenerPorDoctor(d, null, null)));
+            assertEquals(antes, ids(pc.obtenerPorDoctor(d, null, corte)));
+            assertEquals(despues, ids(pc.obtenerPorDoctor(d, corte, null)));
+            assertEquals(ids(pc.obtenerPorDoctor(d, corte, null)), ids(pc.tabla().obtenerPorDoctor(d, corte, null).aLista()));
+            assertTrue(pc.obtenerPorDoctor(d, corte, corte).isEmpty());
+        }
+        assertTrue(pc.obtenerPorDoctor(99, null, null).isEmpty());
+
+        // Las consultas sin fecha no entran en la agenda, pero si en la busqueda por doctor
+        Consulta sinFecha = todas.stream().filter(c -> c.getFecha() == null).findFirst().get();
+        int doctor = sinFecha.getDoctorId();
+        assertFalse(ids(pc.obtenerPorDoctor(doctor, null, null)).contains(sinFecha.getId()));
+        assertFalse(ids(pc.tabla().obtenerPorDoctor(doctor, null, null).aLista()).contains(sinFecha.getId()));
+        assertTrue(pc.buscar(Campos.CONSULTA_DOCTOR.igual(doctor)).stream().anyMatch(c -> c.getId() == sinFecha.getId()));
+    }
+}
@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.persistence.*;
+
+import java.util.*;
+
+public class IndiceNombresTest {
+
+    private static IndiceNombres conNombres(String... nombres) {
+        IndiceNombres idx = new IndiceNombres();
+        for (int i = 0; i < nombres.length; i++) idx.agregar(i + 1, nombres[i]);
+        return idx;
+    }
+
+    private static int[] ordenados(int[] ids) {
+        int[] res = ids.clone();
+        Arrays.sort(res);
+        return res;
+    }
+
+    /* ===========================
+           ACENTOS Y MAYUSCULAS
+       =========================== */
+
+    @Test
+    void testSinAcentosNiMayusculas() {
+        IndiceNombres idx = conNombres("José Núñez", "JOSEFINA Peña", "Ana Soto", "Jósé Ruiz");
+        assertEquals("jose nunez", IndiceNombres.normalizar("José Núñez"));
+        assertArrayEquals(new int[] {1, 2, 4}, ordenados(idx.buscarPrefijo("jose")));
+        assertArrayEquals(new int[] {1, 2, 4}, ordenados(idx.buscarPrefijo("JOSÉ")));
+        assertArrayEquals(new int[] {1}, idx.buscarSubcadena("NUÑEZ"));
+        assertArrayEquals(new int[] {2}, idx.buscarSubcadena("pena"));
+        assertArrayEquals(new int[] {3}, idx.buscarPrefijo("ana s"));
+        assertEquals(0, idx.buscarPrefijo("soto").length);
+    }
+
+    /* ===========================
+            CONSULTAS CORTAS
+       =========================== */
+
+    @Test
+    void testConsultasDeMenosDeTresLetras() {
+        IndiceNombres idx = conNombres("Ana Soto", "Luis Diaz", "Eva Mora", "Ángel Ruiz");
+        // Sin trigramas: se revisan todos los nombres
+        assertArrayEquals(new int[] {1, 3}, ordenados(idx.buscarSubcadena("a ")));
+        assertArrayEquals(new int[] {1, 4}, ordenados(idx.buscarPrefijo("A")));
+        assertArrayEquals(new int[] {2, 4}, ordenados(idx.buscarSubcadena("ui")));
+        assertArrayEquals(new int[] {1, 2, 3, 4}, ordenados(idx.buscarSubcadena("")));
+        assertArrayEquals(new int[] {1, 2, 3, 4}, ordenados(idx.buscarPrefijo("")));
+    }
+
+    /* ===========================
+          INTERSECCION DE TRIGRAMAS
+       =========================== */
+
+    @Test
+    void testInterseccionComoRecorrerTodo() {
+        String[] partes = {"ana", "maria", "mariana", "juan", "juana", "sol", "soledad", "perez", "paredes", "aran"};
+        Random azar = new Random(9);
+        IndiceNombres idx = new IndiceNombres();
+        Map<Integer, String> nombres = new HashMap<>();
+        for (int id = 1; id <= 3000; id++) {
+            String n = partes[azar.nextInt(partes.length)] + " " + partes[azar.nextInt(partes.length)];
+            nombres.put(id, n);
+            idx.agregar(id, n);
+        }
+        for (String q : new String[] {"ana", "mariana", "ana mar", "juana sol", "edad", "rez p", "aranana", "xyz", "aaa"}) {
+            int[] sub = nombres.entrySet().stream().filter(e -> e.getValue().contains(q)).mapToInt(Map.Entry::getKey).sorted().toArray();
+            int[] pre = nombres.entrySet().stream().filter(e -> e.getValue().startsWith(q)).mapToInt(Map.Entry::getKey).sorted().toArray();
+            assertArrayEquals(sub, ordenados(idx.buscarSubcadena(q)));
+            assertArrayEquals(pre, ordenados(idx.buscarPrefijo(q)));
+        }
+    }
+
+    /* ===========================
+              CACHE DE CONSULTAS
+       =========================== */
+
+    @Test
+    void testCacheSeInvalidaConCadaCambio() {
+        IndiceNombres idx = conNombres("Ana Soto", "Luis Diaz");
+        assertArrayEquals(new int[] {1}, idx.buscarSubcadena("soto"));
+        assertArrayEquals(new int[] {1}, idx.buscarSubcadena("soto"));
+
+        idx.agregar(3, "Rosa Soto");
+        assertArrayEquals(new int[] {1, 3}, ordenados(idx.buscarSubcadena("soto")));
+
+        idx.quitar(1);
+        assertArrayEquals(new int[] {3}, idx.buscarSubcadena("soto"));
+
+        // Cambiar el nombre de un id reemplaza su entrada
+        idx.agregar(3, "Rosa Vega");
+        assertEquals(0, idx.buscarSubcadena("soto").length);
+        assertArrayEquals(new int[] {3}, idx.buscarPrefijo("rosa"));
+        idx.quitar(99);
+        assertArrayEquals(new int[] {3}, idx.buscarPrefijo("rosa"));
+    }
+
+    @Test
+    void testDevuelveCopiasDeLoCacheado() {
+        IndiceNombres idx = conNombres("Ana Soto", "Ana Ruiz");
+        int[] primera = idx.buscarPrefijo("ana");
+        Arrays.fill(primera, -1);
+        int[] segunda = idx.buscarPrefijo("ana");
+        assertArrayEquals(new int[] {1, 2}, ordenados(segunda));
+        segunda[0] = -1;
+        assertArrayEquals(new int[] {1, 2}, ordenados(idx.buscarPrefijo("ana")));
+    }
+
+    @Test
+    void testMuchosBorradosReconstruyen() {
+        IndiceNombres idx = new IndiceNombres();
+        for (int id = 1; id <= 5000; id++) idx.agregar(id, id % 2 == 0 ? "Par " + id : "Impar " + id);
+        for (int id = 1; id <= 4000; id++) idx.quitar(id);
+        assertEquals(500, idx.buscarPrefijo("par").length);
+        assertArrayEquals(new int[] {4321}, idx.buscarSubcadena("impar 4321"));
+        assertEquals(0, idx.buscarSubcadena("impar 1234").length);
+        idx.agregar(7, "Par nuevo");
+        assertEquals(501, idx.buscarPrefijo("par").length);
+    }
+}
@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class InstantaneaTest {
+
+    /* ===========================
+         INSTANTANEA BINARIA
+       =========================== */
+
+    @Test
+    void testInstantaneaDevuelveLoMismoQueElCsv() throws Exception {
+        Path dir = Files.createTempDirectory("instantanea");
+        Path archivo = dir.resolve("consultas.csv");
+        Files.write(archivo, ("#id|pacienteId|doctorId|fechaISO|motivo|notas\n"
+                + "1|10|3|2025-01-10T09:30|Control|Sin observaciones\n"
+                + "2|11|3||Dolor de cabeza|\n"
+                + "3|12|4|2025-01-11T10:15:30|Control|Reposo\n").getBytes(StandardCharsets.UTF_8));
+        PersistenciaConsultas csv = new PersistenciaConsultas(archivo);
+        List<Consulta> esperadas = csv.obtenerTodos();
+
+        PersistenciaConsultas pc = new PersistenciaConsultas(archivo);
+        pc.setInstantanea(true);
+        pc.obtenerTodos();
+        assertTrue(Files.exists(dir.resolve("consultas.csv.snap")));
+        List<Consulta> leidas = new PersistenciaConsultas(archivo) {{ setInstantanea(true); }}.obtenerTodos();
+
+        assertEquals(esperadas.size(), leidas.size());
+        for (int i = 0; i < esperadas.size(); i++) {
+            assertEquals(esperadas.get(i).getId(), leidas.get(i).getId());
+            assertEquals(esperadas.get(i).getDoctorId(), leidas.get(i).getDoctorId());
+            assertEquals(esperadas.get(i).getFecha(), leidas.get(i).getFecha());
+            assertEquals(esperadas.get(i).getMotivo(), leidas.get(i).getMotivo());
+            assertEquals(esperadas.get(i).getNotas(), leidas.get(i).getNotas());
+        }
+        assertEquals(LocalDateTime.of(2025, 1, 11, 10, 15, 30), leidas.get(2).getFecha());
+    }
+
+    @Test
+    void testInstantaneaDesactualizadaSeIgnora() throws Exception {
+        Path dir = Files.createTempDirectory("instantanea");
+        Path archivo = dir.resolve("medicos.csv");
+        PersistenciaMedicos pm = new PersistenciaMedicos(archivo);
+        pm.setInstantanea(true);
+        pm.agregar(new Doctor(1, "Dr. Perez", "Cardiologia"));
+        pm.agregar(new Doctor(2, "Dr. Gomez", "Cardiologia"));
+        assertEquals(2, pm.obtenerTodos().size());
+
+        // El CSV manda: un alta posterior deja la instantanea vieja sin efecto
+        pm.agregar(new Doctor(3, "Dr. Lopez", "Pediatria"));
+        List<Doctor> todos = pm.obtenerTodos();
+        assertEquals(3, todos.size());
+        assertEquals("Pediatria", todos.get(2).getEspecialidad());
+
+        // Una instantanea danada tampoco se usa
+        Files.write(dir.resolve("medicos.csv.snap"), new byte[]{1, 2, 3});
+        assertEquals(3, pm.obtenerTodos().size());
+    }
+}
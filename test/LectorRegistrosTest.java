@@ -0,0 +1,234 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.persistence.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.DateTimeException;
+import java.util.*;
+
+public class LectorRegistrosTest {
+
+    private static Path archivo(String contenido) throws Exception {
+        Path f = Files.createTempDirectory("lector").resolve("datos.csv");
+        Files.write(f, contenido.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+
+    private static List<String> lineas(Path f) throws Exception {
+        List<String> res = new ArrayList<>();
+        LectorRegistros.leer(f, null, r -> res.add(r.linea()));
+        return res;
+    }
+
+    /* ===========================
+              LINEAS Y CAMPOS
+       =========================== */
+
+    @Test
+    void testSaltaComentariosYLineasVacias() throws Exception {
+        Path f = archivo("# cabecera\n1|Ana\n\n   \n  # otro\n2|Luis\n");
+        assertEquals(List.of("1|Ana", "2|Luis"), lineas(f));
+    }
+
+    @Test
+    void testCrlfYSinSaltoFinal() throws Exception {
+        assertEquals(List.of("1|Ana", "2|Luis"), lineas(archivo("1|Ana\r\n2|Luis\r\n")));
+        assertEquals(List.of("1|Ana", "2|Luis"), lineas(archivo("1|Ana\n2|Luis")));
+        assertEquals(List.of("1|Ana", "2|Luis"), lineas(archivo("1|Ana\r\n2|Luis\r")));
+        assertEquals(List.of(), lineas(archivo("")));
+
+        // El ultimo campo no arrastra el \r
+        List<String> ultimos = new ArrayList<>();
+        LectorRegistros.leer(archivo("1|Ana\r\n2|Luis"), null, r -> ultimos.add(r.texto(r.campos() - 1)));
+        assertEquals(List.of("Ana", "Luis"), ultimos);
+    }
+
+    @Test
+    void testCamposVaciosYComillas() throws Exception {
+        Path f = archivo("1||\"Perez, Ana\"|\n\"a|b\"|ñandú\n");
+        try (LectorRegistros lector = new LectorRegistros(f)) {
+            assertTrue(lector.siguiente());
+            LectorRegistros.Registro r = lector.actual();
+            // A diferencia de String.split, los vacios del final cuentan
+            assertEquals(4, r.campos());
+            assertTrue(r.vacio(1));
+            assertTrue(r.vacio(3));
+            assertEquals("", r.texto(1));
+            // Las comillas no son especiales: quedan en el texto
+            assertEquals("\"Perez, Ana\"", r.texto(2));
+
+            assertTrue(lector.siguiente());
+            r = lector.actual();
+            assertEquals(3, r.campos());
+            assertEquals("\"a", r.texto(0));
+            assertEquals("b\"", r.texto(1));
+            assertEquals("ñandú", r.texto(2));
+            assertEquals("ñandú".getBytes(StandardCharsets.UTF_8).length, r.longitud(2));
+            assertTrue(r.empiezaCon(2, "ñan".getBytes(StandardCharsets.UTF_8)));
+            assertFalse(r.empiezaCon(2, "ñandúes".getBytes(StandardCharsets.UTF_8)));
+            assertFalse(lector.siguiente());
+        }
+    }
+
+    @Test
+    void testLineaMasLargaQueElBloque() throws Exception {
+        char[] largo = new char[200_000];
+        Arrays.fill(largo, 'x');
+        String nota = new String(largo);
+        List<String> leidas = new ArrayList<>();
+        LectorRegistros.leer(archivo("1|" + nota + "\n2|corta\n"), null, r -> leidas.add(r.texto(1)));
+        assertEquals(List.of(nota, "corta"), leidas);
+    }
+
+    /* ===========================
+                 ENTEROS
+       =========================== */
+
+    @Test
+    void testEnteroComoParseInt() throws Exception {
+        String[] validos = {"0", "-0", "+7", "42", "-42", "2147483647", "-2147483648", "000123"};
+        String[] invalidos = {"2147483648", "-2147483649", "99999999999999999999", "", "-", "+", "1a", " 1", "1.0"};
+        StringBuilder sb = new StringBuilder();
+        for (String v : validos) sb.append(v).append('\n');
+        for (String v : invalidos) sb.append(v).append("|x\n");
+        List<Object> res = new ArrayList<>();
+        LectorRegistros.leer(archivo(sb.toString()), null, r -> {
+            try {
+                res.add(r.entero(0));
+            } catch (NumberFormatException e) {
+                res.add("error");
+            }
+        });
+        List<Object> esperado = new ArrayList<>();
+        for (String v : validos) esperado.add(Integer.parseInt(v));
+        for (int i = 0; i < invalidos.length; i++) esperado.add("error");
+        assertEquals(esperado, res);
+    }
+
+    /* ===========================
+                  FECHAS
+       =========================== */
+
+    @Test
+    void testSegundoYMinutoEpochComoLocalDateTime() throws Exception {
+        String[] fechas = {"2024-03-01T09:00", "2024-02-29T23:59:59", "1970-01-01T00:00", "1969-12-31T23:59:30",
+                "1900-03-01T12:30", "2000-12-31T00:00:01", "0001-01-01T00:00", "2021-06-15T10:15:30.500"};
+        StringBuilder sb = new StringBuilder();
+        for (String f : fechas) sb.append("1|").append(f).append('\n');
+        sb.append("2|\n");
+        List<long[]> res = new ArrayList<>();
+        List<LocalDateTime> fechasLeidas = new ArrayList<>();
+        LectorRegistros.leer(archivo(sb.toString()), null, r -> {
+            res.add(new long[] {r.segundoEpoch(1), r.minutoEpoch(1)});
+            fechasLeidas.add(r.fechaHora(1));
+        });
+        for (int i = 0; i < fechas.length; i++) {
+            LocalDateTime esperada = LocalDateTime.parse(fechas[i]);
+            long s = esperada.toEpochSecond(ZoneOffset.UTC);
+            assertEquals(esperada, fechasLeidas.get(i), fechas[i]);
+            assertEquals(s, res.get(i)[0], fechas[i]);
+            assertEquals(Math.floorDiv(s, 60), res.get(i)[1], fechas[i]);
+        }
+        // Campo vacio
+        assertEquals(Long.MIN_VALUE, res.get(fechas.length)[0]);
+        assertEquals(Long.MIN_VALUE, res.get(fechas.length)[1]);
+        assertNull(fechasLeidas.get(fechas.length));
+    }
+
+    @Test
+    void testFechaInvalidaFallaComoLocalDateTime() throws Exception {
+        for (String f : new String[] {"2023-02-29T10:00", "2024-13-01T10:00", "2024-01-01T24:00", "2024-01-01"}) {
+            LectorRegistros.leer(archivo("1|" + f + "\n"), null,
+                    r -> assertThrows(DateTimeException.class, () -> r.segundoEpoch(1)));
+        }
+    }
+
+    /* ===========================
+            LECTURA POR POSICION
+       =========================== */
+
+    @Test
+    void testLeerEnPosiciones() throws Exception {
+        StringBuilder sb = new StringBuilder("# cabecera\r\n");
+        for (int i = 1; i <= 2000; i++) {
+            sb.append(i).append("|paciente ").append(i);
+            // Algunas lineas largas para que crucen el bloque de lectura
+            if (i % 250 == 0) sb.append("|").append("n".repeat(9000));
+            sb.append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        sb.append("2001|sin salto");
+        Path f = archivo(sb.toString());
+
+        Map<Integer, Long> posiciones = new HashMap<>();
+        Map<Integer, Long> siguientes = new HashMap<>();
+        Map<Integer, String> lineas = new HashMap<>();
+        LectorRegistros.leer(f, null, r -> {
+            posiciones.put(r.entero(0), r.posicion());
+            siguientes.put(r.entero(0), r.siguiente());
+            lineas.put(r.entero(0), r.linea());
+        });
+        assertEquals(2001, posiciones.size());
+        assertEquals(Files.size(f), (long) siguientes.get(2001));
+
+        int[] elegidos = {1, 2, 3, 249, 250, 251, 500, 1000, 1999, 2000, 2001};
+        long[] pos = new long[elegidos.length + 5];
+        for (int k = 0; k < elegidos.length; k++) pos[k] = posiciones.get(elegidos[k]);
+        List<String> leidas = new ArrayList<>();
+        List<Long> siguientesLeidos = new ArrayList<>();
+        // Solo se leen las primeras 'cantidad' posiciones
+        LectorRegistros.leerEn(f, pos, elegidos.length, r -> {
+            leidas.add(r.linea());
+            siguientesLeidos.add(r.siguiente());
+        });
+        for (int k = 0; k < elegidos.length; k++) {
+            assertEquals(lineas.get(elegidos[k]), leidas.get(k));
+            assertEquals(siguientes.get(elegidos[k]), siguientesLeidos.get(k));
+        }
+        assertEquals(elegidos.length, leidas.size());
+
+        List<String> ninguna = new ArrayList<>();
+        LectorRegistros.leerEn(f, pos, 0, r -> ninguna.add(r.linea()));
+        assertTrue(ninguna.isEmpty());
+    }
+
+    @Test
+    void testEmpezarDesdeUnaPosicion() throws Exception {
+        Path f = archivo("1|Ana\n2|Luis\n3|Eva");
+        long[] segunda = new long[1];
+        LectorRegistros.leer(f, null, r -> { if (r.entero(0) == 2) segunda[0] = r.posicion(); });
+        List<String> leidas = new ArrayList<>();
+        try (LectorRegistros lector = new LectorRegistros(f, segunda[0], null)) {
+            while (lector.siguiente()) {
+                leidas.add(lector.actual().linea());
+                assertTrue(lector.actual().posicion() >= segunda[0]);
+            }
+        }
+        assertEquals(List.of("2|Luis", "3|Eva"), leidas);
+    }
+
+    /* ===========================
+             CAMBIOS SUPERPUESTOS
+       =========================== */
+
+    @Test
+    void testSuperpuestosReemplazanBorranYAgregan() throws Exception {
+        Path f = archivo("1|Ana\n2|Luis\n3|Eva\n");
+        Map<Integer, String> cambios = new LinkedHashMap<>();
+        cambios.put(2, "2|Luis Diaz");
+        cambios.put(3, null);
+        cambios.put(9, "9|Rosa");
+        List<String> leidas = new ArrayList<>();
+        List<Long> posiciones = new ArrayList<>();
+        LectorRegistros.leer(f, cambios, r -> {
+            leidas.add(r.linea());
+            posiciones.add(r.posicion());
+        });
+        assertEquals(List.of("1|Ana", "2|Luis Diaz", "9|Rosa"), leidas);
+        assertEquals(0L, (long) posiciones.get(0));
+        assertEquals(-1L, (long) posiciones.get(1));
+    }
+}
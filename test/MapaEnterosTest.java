@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.persistence.*;
+
+import java.util.*;
+
+public class MapaEnterosTest {
+
+    /* ===========================
+             CONTRA HASHMAP
+       =========================== */
+
+    @Test
+    void testMapaEnterosComoHashMap() {
+        MapaEnteros<String> mapa = new MapaEnteros<>();
+        Map<Integer, String> esperado = new HashMap<>();
+        Random azar = new Random(17);
+        for (int k = 0; k < 50_000; k++) {
+            // Pocas claves distintas para que haya colisiones, borrados y reinserciones
+            int clave = azar.nextInt(3000) - 1500;
+            if (azar.nextInt(3) == 0) {
+                assertEquals(esperado.remove(clave), mapa.quitar(clave));
+            } else {
+                String v = "v" + k;
+                assertEquals(esperado.put(clave, v), mapa.poner(clave, v));
+            }
+            assertEquals(esperado.size(), mapa.tamano());
+        }
+        for (int clave = -1600; clave < 1600; clave++) {
+            assertEquals(esperado.get(clave), mapa.obtener(clave));
+            assertEquals(esperado.containsKey(clave), mapa.contiene(clave));
+        }
+        mapa.limpiar();
+        assertEquals(0, mapa.tamano());
+        assertNull(mapa.obtener(esperado.keySet().iterator().next()));
+    }
+
+    @Test
+    void testMapaEnterosIntComoHashMap() {
+        MapaEnterosInt mapa = new MapaEnterosInt();
+        Map<Integer, Integer> esperado = new HashMap<>();
+        Random azar = new Random(31);
+        for (int k = 0; k < 50_000; k++) {
+            int clave = azar.nextInt(3000) - 1500;
+            if (azar.nextInt(3) == 0) {
+                assertEquals((int) esperado.getOrDefault(clave, MapaEnterosInt.NINGUNO), mapa.quitar(clave));
+                esperado.remove(clave);
+            } else {
+                Integer anterior = esperado.put(clave, k);
+                assertEquals(anterior == null ? MapaEnterosInt.NINGUNO : (int) anterior, mapa.poner(clave, k));
+            }
+            assertEquals(esperado.size(), mapa.tamano());
+        }
+        for (int clave = -1600; clave < 1600; clave++) {
+            assertEquals((int) esperado.getOrDefault(clave, MapaEnterosInt.NINGUNO), mapa.obtener(clave));
+            assertEquals(esperado.containsKey(clave), mapa.contiene(clave));
+        }
+        // El valor 0 no se confunde con una clave ausente
+        mapa.poner(5000, 0);
+        assertEquals(0, mapa.obtener(5000));
+        assertEquals(0, mapa.poner(5000, 7));
+        mapa.limpiar();
+        assertEquals(0, mapa.tamano());
+        assertEquals(MapaEnterosInt.NINGUNO, mapa.obtener(5000));
+    }
+
+    @Test
+    void testMapaListasEnterosComoHashMap() {
+        MapaListasEnteros mapa = new MapaListasEnteros();
+        Map<Integer, List<Integer>> esperado = new HashMap<>();
+        Random azar = new Random(23);
+        for (int k = 0; k < 20_000; k++) {
+            int clave = azar.nextInt(2000) * 16;
+            if (azar.nextInt(4) == 0) {
+                List<Integer> l = esperado.get(clave);
+                int valor = l == null || l.isEmpty() ? k : l.get(azar.nextInt(l.size()));
+                boolean estaba = l != null && l.remove((Integer) valor);
+                assertEquals(estaba, mapa.quitar(clave, valor));
+            } else {
+                esperado.computeIfAbsent(clave, c -> new ArrayList<>()).add(k);
+                mapa.agregar(clave, k);
+            }
+        }
+        assertEquals(esperado.size(), mapa.claves());
+        for (Map.Entry<Integer, List<Integer>> e : esperado.entrySet()) {
+            int[] valores = mapa.valores(e.getKey());
+            assertEquals(e.getValue().size(), valores.length);
+            assertEquals(e.getValue().size(), mapa.cantidad(e.getKey()));
+            for (int k = 0; k < valores.length; k++) assertEquals((int) e.getValue().get(k), valores[k]);
+            assertEquals(e.getValue().isEmpty() ? -1 : (int) e.getValue().get(0), mapa.primero(e.getKey()));
+        }
+        assertEquals(0, mapa.valores(-5).length);
+        assertEquals(-1, mapa.primero(-5));
+    }
+}
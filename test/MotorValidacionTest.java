@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.validacionDatos.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class MotorValidacionTest {
+
+    // Expresiones originales, como referencia para los recorridos a mano
+    private static final Pattern NOMBRE = Pattern.compile(
+        "^(?=.{1,50}$)[A-Za-zÁÉÍÓÚÜÑáéíóúüñ]+(?: [A-Za-zÁÉÍÓÚÜÑáéíóúüñ]+)*$");
+    private static final Pattern DIRECCION = Pattern.compile(
+        "^[A-Za-zÁÉÍÓÚÜÑáéíóúüñ0-9 ,.-]{1,100}$");
+
+    /* ===========================
+         REGLAS SIN REGEX
+       =========================== */
+
+    @Test
+    void testRecorridoIgualARegex() {
+        String alfabeto = "aZñÁü9 ,.-_\t|ç";
+        Random r = new Random(7);
+        List<String> casos = new ArrayList<>(List.of("", " ", "Ana", " Ana Soto ", "Ana  Soto", "Ana ", "José Núñez",
+                "a".repeat(50), "a".repeat(51), "Av. 9 de Julio 1200, piso 3-B", "x".repeat(101)));
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int largo = r.nextInt(60);
+            for (int j = 0; j < largo; j++) sb.append(alfabeto.charAt(r.nextInt(alfabeto.length())));
+            casos.add(sb.toString());
+        }
+        for (String c : casos) {
+            assertEquals(NOMBRE.matcher(c.trim()).matches(), validacionPaciente.validaNombrePaciente(c), c);
+            assertEquals(DIRECCION.matcher(c.trim()).matches(), validacionPaciente.validaDireccion(c), c);
+        }
+    }
+
+    /* ===========================
+         MOTOR POR LOTES
+       =========================== */
+
+    @Test
+    void testJuntaTodasLasViolaciones() {
+        List<Paciente> lote = new ArrayList<>();
+        for (int i = 1; i <= 10000; i++) lote.add(new Paciente(i, "Ana Soto", "Centro 1", 30, "555"));
+        lote.set(5000, new Paciente(-1, "Ana 2", "Centro|1", 200, "555"));
+        lote.set(9999, null);
+
+        ResultadoValidacion r = MotorValidacion.pacientes().validarLote(lote);
+
+        assertEquals(10000, r.getValidados());
+        assertEquals(2, r.getInvalidos());
+        assertArrayEquals(new int[]{5000, 9999}, r.posicionesInvalidas());
+        assertEquals(4, r.violaciones(5000).size());
+        assertEquals("edad", r.violaciones(5000).get(2).getCampo());
+        assertEquals("Registro nulo", r.violaciones(9999).get(0).getMensaje());
+        assertTrue(r.violaciones(0).isEmpty());
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+public class PaginaTest {
+
+    private static PersistenciaMedicos medicos(Path archivo, int n) throws Exception {
+        PersistenciaMedicos pm = new PersistenciaMedicos(archivo);
+        for (int i = 1; i <= n; i++) pm.agregar(new Doctor(i, "Dr. Perez", "General"));
+        return pm;
+    }
+
+    private static List<Integer> ids(Pagina<Doctor> p) {
+        List<Integer> ids = new ArrayList<>();
+        for (Doctor d : p.getFilas()) ids.add(d.getId());
+        return ids;
+    }
+
+    /* ===========================
+             DESPLAZAMIENTO
+       =========================== */
+
+    @Test
+    void testPaginaPorDesplazamiento() throws Exception {
+        PersistenciaMedicos pm = medicos(Files.createTempDirectory("paginas").resolve("medicos.csv"), 25);
+        assertEquals(List.of(11, 12, 13, 14, 15), ids(pm.obtenerPagina(10, 5)));
+        Pagina<Doctor> ultima = pm.obtenerPagina(20, 10);
+        assertEquals(List.of(21, 22, 23, 24, 25), ids(ultima));
+        assertFalse(ultima.hayMas());
+        assertTrue(pm.obtenerPagina(30, 5).getFilas().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> pm.obtenerPagina(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> pm.obtenerPagina(-1, 5));
+    }
+
+    /* ===========================
+                 CURSOR
+       =========================== */
+
+    @Test
+    void testCursorRecorreTodoSinRepetir() throws Exception {
+        Path archivo = Files.createTempDirectory("paginas").resolve("medicos.csv");
+        PersistenciaMedicos pm = medicos(archivo, 103);
+        List<Integer> vistos = new ArrayList<>();
+        Pagina<Doctor> p = pm.obtenerPagina((Pagina.Cursor) null, 10);
+        vistos.addAll(ids(p));
+        while (p.hayMas()) {
+            // Se guarda como texto y se retoma desde otra instancia
+            Pagina.Cursor cursor = Pagina.Cursor.desdeTexto(p.getSiguiente().aTexto());
+            p = new PersistenciaMedicos(archivo).obtenerPagina(cursor, 10);
+            vistos.addAll(ids(p));
+        }
+        List<Integer> esperados = new ArrayList<>();
+        for (int i = 1; i <= 103; i++) esperados.add(i);
+        assertEquals(esperados, vistos);
+        assertThrows(IllegalArgumentException.class, () -> Pagina.Cursor.desdeTexto("abc"));
+    }
+
+    @Test
+    void testCursorSobreviveAltasYBajas() throws Exception {
+        PersistenciaMedicos pm = medicos(Files.createTempDirectory("paginas").resolve("medicos.csv"), 20);
+        Pagina<Doctor> p = pm.obtenerPagina((Pagina.Cursor) null, 5);
+        Pagina.Cursor cursor = p.getSiguiente();
+        assertEquals(5, cursor.getUltimoId());
+
+        // Una baja anterior al cursor reescribe el archivo: se busca la fila por id
+        pm.eliminar(2);
+        pm.agregar(new Doctor(21, "Dr. Perez", "General"));
+        assertEquals(List.of(6, 7, 8, 9, 10), ids(pm.obtenerPagina(cursor, 5)));
+
+        // Si se borra la fila del cursor se sigue con los ids mayores
+        pm.eliminar(5);
+        Pagina<Doctor> resto = pm.obtenerPagina(cursor, 100);
+        assertEquals(16, resto.getFilas().size());
+        assertEquals(6, (int) ids(resto).get(0));
+        assertEquals(21, (int) ids(resto).get(15));
+        assertFalse(resto.hayMas());
+    }
+
+    @Test
+    void testCursorConCambiosEnBitacora() throws Exception {
+        Path dir = Files.createTempDirectory("paginas");
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        for (int i = 1; i <= 12; i++) pp.agregar(new Paciente(i, "Paciente", "Centro", 30, "555"));
+        Pagina<Paciente> p = pp.obtenerPagina((Pagina.Cursor) null, 4);
+
+        // La edicion queda en la bitacora hasta compactar; la pagina ya la ve
+        Paciente editado = pp.obtenerPorId(6).get();
+        editado.setDireccion("Sur");
+        pp.actualizar(editado);
+        Pagina<Paciente> siguiente = pp.obtenerPagina(p.getSiguiente(), 4);
+        assertEquals(5, siguiente.getFilas().get(0).getId());
+        assertEquals("Sur", siguiente.getFilas().get(1).getDireccion());
+        assertEquals(8, siguiente.getSiguiente().getUltimoId());
+    }
+
+    /* ===========================
+                FILTRADAS
+       =========================== */
+
+    @Test
+    void testPaginasFiltradas() throws Exception {
+        Path dir = Files.createTempDirectory("paginas");
+        PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 9, 0);
+        for (int i = 1; i <= 40; i++) pc.agregar(new Consulta(i, 1, 1, base.plusDays(i % 4), "Control", "-"));
+        Pagina<Consulta> marzo2 = pc.buscarConsultasPorFecha("2024-03-02", null, 6);
+        assertEquals(6, marzo2.getFilas().size());
+        assertEquals(21, marzo2.getSiguiente().getUltimoId());
+        Pagina<Consulta> resto = pc.buscarConsultasPorFecha("2024-03-02", marzo2.getSiguiente(), 6);
+        assertEquals(4, resto.getFilas().size());
+        assertFalse(resto.hayMas());
+        for (Consulta c : resto.getFilas()) assertEquals(2, c.getFecha().getDayOfMonth());
+
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        pp.agregar(new Paciente(1, "José Pérez", "Centro", 30, "555"));
+        pp.agregar(new Paciente(2, "Ana Soto", "Centro", 30, "555"));
+        pp.agregar(new Paciente(3, "Luis Perez", "Centro", 30, "555"));
+        Pagina<Paciente> perez = pp.buscarPorNombre("perez", null, 1);
+        assertEquals(1, perez.getFilas().get(0).getId());
+        assertEquals(3, pp.buscarPorNombre("perez", perez.getSiguiente(), 1).getFilas().get(0).getId());
+        assertEquals(2, pp.buscarPorNombre("^Ana", null, 5).getFilas().get(0).getId());
+    }
+}
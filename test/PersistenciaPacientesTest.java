@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class PersistenciaPacientesTest {
+
+    private static List<Integer> ids(List<Paciente> pacientes) {
+        return pacientes.stream().map(Paciente::getId).collect(Collectors.toList());
+    }
+
+    /* ===========================
+         CAMBIOS FUERA DE LA CACHE
+       =========================== */
+
+    @Test
+    void testVeLoQueEscribeOtraInstancia() throws Exception {
+        Path csv = Files.createTempDirectory("pacientes").resolve("pacientes.csv");
+        PersistenciaPacientes pp = new PersistenciaPacientes(csv);
+        pp.agregar(new Paciente(1, "Ana Soto", "Centro", 30, "555"));
+        // Carga la cache
+        assertEquals(List.of(1), ids(pp.obtenerTodos()));
+        assertEquals("Centro", pp.obtenerPorId(1).get().getDireccion());
+
+        PersistenciaPacientes otra = new PersistenciaPacientes(csv);
+        otra.agregar(new Paciente(2, "Luis Diaz", "Norte", 41, "556"));
+        assertEquals(List.of(1, 2), ids(pp.obtenerTodos()));
+        assertEquals("Luis Diaz", pp.obtenerPorId(2).get().getNombre());
+
+        Paciente ana = otra.obtenerPorId(1).get();
+        ana.setDireccion("Sur");
+        otra.actualizar(ana);
+        assertEquals("Sur", pp.obtenerPorId(1).get().getDireccion());
+        assertEquals(1, pp.obtenerPorId(1).get().getVersion());
+
+        otra.eliminar(2);
+        assertFalse(pp.obtenerPorId(2).isPresent());
+        assertEquals(List.of(1), ids(pp.obtenerTodos()));
+    }
+
+    @Test
+    void testVeElArchivoEditadoAMano() throws Exception {
+        Path csv = Files.createTempDirectory("pacientes").resolve("pacientes.csv");
+        PersistenciaPacientes pp = new PersistenciaPacientes(csv);
+        pp.agregar(new Paciente(1, "Ana Soto", "Centro", 30, "555"));
+        pp.agregar(new Paciente(2, "Luis Diaz", "Norte", 41, "556"));
+        assertEquals(List.of(1, 2), ids(pp.obtenerTodos()));
+
+        // Otro programa reescribe el CSV: cambia una fila, quita otra y agrega una nueva
+        Files.write(csv, List.of("1|Ana Soto|Avenida Central 100|31|555|0", "3|Eva Mora|Oeste|25|557|0"),
+                StandardCharsets.UTF_8);
+        assertEquals(List.of(1, 3), ids(pp.obtenerTodos()));
+        assertEquals("Avenida Central 100", pp.obtenerPorId(1).get().getDireccion());
+        assertEquals(31, pp.obtenerPorId(1).get().getEdad());
+        assertFalse(pp.obtenerPorId(2).isPresent());
+        assertEquals("Eva Mora", pp.obtenerPorId(3).get().getNombre());
+
+        // Y despues anexa al final
+        Files.write(csv, List.of("4|Rosa Vega|Este|52|558|0"), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertEquals("Rosa Vega", pp.obtenerPorId(4).get().getNombre());
+        assertEquals(List.of(1, 3, 4), ids(pp.obtenerTodos()));
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+import proyecto.servidor.Json;
+import proyecto.servidor.ServidorHttp;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ServidorHttpTest {
+
+    private static final HttpClient CLIENTE = HttpClient.newHttpClient();
+
+    private static HttpResponse<String> pedir(ServidorHttp s, String metodo, String ruta, String cuerpo) throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + s.getPuerto() + ruta));
+        b.method(metodo, cuerpo == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(cuerpo));
+        return CLIENTE.send(b.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static ServidorHttp iniciar(Path dir) throws Exception {
+        ServidorHttp s = new ServidorHttp(dir, InetAddress.getLoopbackAddress(), 0);
+        s.iniciar();
+        return s;
+    }
+
+    /* ===========================
+              ALTAS Y BAJAS
+       =========================== */
+
+    @Test
+    void testCicloCompletoDePaciente() throws Exception {
+        Path dir = Files.createTempDirectory("servidor");
+        try (ServidorHttp s = iniciar(dir)) {
+            HttpResponse<String> alta = pedir(s, "POST", "/api/pacientes",
+                    "{\"id\": 7, \"nombre\": \"Ana Soto\", \"direccion\": \"Centro\", \"edad\": 41, \"telefono\": \"555\"}");
+            assertEquals(201, alta.statusCode());
+            assertEquals("/api/pacientes/7", alta.headers().firstValue("Location").get());
+
+            Map<String, String> leido = Json.leerObjeto(pedir(s, "GET", "/api/pacientes/7", null).body());
+            assertEquals("Ana Soto", leido.get("nombre"));
+            assertEquals("0", leido.get("version"));
+
+            HttpResponse<String> cambio = pedir(s, "PUT", "/api/pacientes/7",
+                    "{\"nombre\": \"Ana Soto\", \"direccion\": \"Sur\", \"edad\": 42, \"telefono\": \"555\", \"version\": 0}");
+            assertEquals(200, cambio.statusCode());
+            assertEquals("1", Json.leerObjeto(cambio.body()).get("version"));
+            // Otro cliente con la version vieja
+            assertEquals(409, pedir(s, "PUT", "/api/pacientes/7",
+                    "{\"nombre\": \"Ana Soto\", \"direccion\": \"Norte\", \"edad\": 42, \"telefono\": \"555\", \"version\": 0}").statusCode());
+
+            assertEquals(204, pedir(s, "DELETE", "/api/pacientes/7", null).statusCode());
+            assertEquals(404, pedir(s, "GET", "/api/pacientes/7", null).statusCode());
+        }
+        assertTrue(new PersistenciaPacientes(dir.resolve("pacientes.csv")).obtenerTodos().isEmpty());
+    }
+
+    @Test
+    void testErroresDelCliente() throws Exception {
+        Path dir = Files.createTempDirectory("servidor");
+        try (ServidorHttp s = iniciar(dir)) {
+            assertEquals(400, pedir(s, "POST", "/api/medicos", "{\"id\": 1, \"nombre\": ").statusCode());
+            assertEquals(400, pedir(s, "GET", "/api/medicos/abc", null).statusCode());
+            assertEquals(405, pedir(s, "PUT", "/api/medicos/1", "{}").statusCode());
+            assertEquals(404, pedir(s, "DELETE", "/api/equipos/99", null).statusCode());
+            assertTrue(pedir(s, "GET", "/api/medicos/abc", null).body().contains("\"error\""));
+        }
+    }
+
+    /* ===========================
+               BUSQUEDAS
+       =========================== */
+
+    @Test
+    void testBusquedasYPaginas() throws Exception {
+        Path dir = Files.createTempDirectory("servidor");
+        PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        LocalDateTime base = LocalDateTime.of(2024, 3, 1, 9, 0);
+        for (int i = 1; i <= 30; i++) pc.agregar(new Consulta(i, 1 + i % 3, 1 + i % 2, base.plusDays(i % 10), "Control", "-"));
+        PersistenciaMedicos pm = new PersistenciaMedicos(dir.resolve("medicos.csv"));
+        pm.agregar(new Doctor(1, "Dr. Perez", "Cardiologia"));
+        pm.agregar(new Doctor(2, "Dra. Soto", "Pediatria"));
+
+        try (ServidorHttp s = iniciar(dir)) {
+            String pagina = pedir(s, "GET", "/api/consultas?paciente=2&desde=2&limite=3", null).body();
+            assertTrue(pagina.startsWith("{\"total\":10,\"desde\":2,\"filas\":["), pagina);
+            assertEquals(3, pagina.split("\"pacienteId\":2").length - 1);
+
+            String rango = pedir(s, "GET", "/api/consultas?inicio=2024-03-02&fin=2024-03-03&limite=0", null).body();
+            assertTrue(rango.startsWith("{\"total\":6,"), rango);
+
+            String medicos = pedir(s, "GET", "/api/medicos?especialidad=pediatria", null).body();
+            assertTrue(medicos.contains("Dra. Soto") && !medicos.contains("Dr. Perez"), medicos);
+
+            // Lo que escribe otro proceso (aqui, otra persistencia) se ve en el siguiente pedido
+            pm.agregar(new Doctor(3, "Dr. Diaz", "Pediatria"));
+            assertTrue(pedir(s, "GET", "/api/medicos?especialidad=Pediatria", null).body().contains("Dr. Diaz"));
+        }
+    }
+
+    /* ===========================
+              CONCURRENCIA
+       =========================== */
+
+    @Test
+    void testLecturasConcurrentes() throws Exception {
+        Path dir = Files.createTempDirectory("servidor");
+        PersistenciaEquipos pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+        for (int i = 1; i <= 20; i++) pe.agregar(new Equipo(i, "Monitor", "Signos", i));
+
+        try (ServidorHttp s = iniciar(dir);
+             ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> respuestas = new ArrayList<>();
+            for (int k = 0; k < 400; k++) {
+                int id = 1 + k % 20;
+                respuestas.add(clientes.submit(() -> pedir(s, "GET", "/api/equipos/" + id, null).statusCode()));
+            }
+            for (Future<Integer> r : respuestas) assertEquals(200, (int) r.get(1, TimeUnit.MINUTES));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+public class StockTest {
+
+    private static List<Integer> ids(List<Equipo> equipos) {
+        return equipos.stream().map(Equipo::getId).collect(Collectors.toList());
+    }
+
+    /* ===========================
+                 EQUIPOS
+       =========================== */
+
+    @Test
+    void testTotalYBajoStockDeEquipos() throws Exception {
+        Path dir = Files.createTempDirectory("stock");
+        PersistenciaEquipos pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+        pe.agregar(new Equipo(1, "Monitor", "Signos", 8));
+        pe.agregar(new Equipo(2, "Bomba", "Infusion", 2));
+        pe.agregar(new Equipo(3, "Camilla", "Traslado", 4));
+        pe.agregar(new Equipo(4, "Oximetro", "Saturacion", 2));
+        assertEquals(16, pe.getStockTotal());
+        assertEquals(List.of(2, 4, 3), ids(pe.obtenerBajoStock(5)));
+
+        Equipo bomba = pe.obtenerPorId(2).get();
+        bomba.setDisponible(10);
+        pe.actualizar(bomba);
+        pe.eliminar(3);
+        assertEquals(20, pe.getStockTotal());
+        assertEquals(List.of(4), ids(pe.obtenerBajoStock(5)));
+        assertTrue(pe.obtenerBajoStock(0).isEmpty());
+
+        // Otra instancia (u otro proceso) escribe: el agregado se rearma
+        new PersistenciaEquipos(dir.resolve("equipos.csv")).agregar(new Equipo(5, "Desfibrilador", "Urgencias", 1));
+        assertEquals(21, pe.getStockTotal());
+        assertEquals(List.of(5, 4), ids(pe.obtenerBajoStock(5)));
+
+        pe.compactar();
+        assertEquals(21, new PersistenciaEquipos(dir.resolve("equipos.csv")).getStockTotal());
+        assertEquals(21, pe.getStockTotal());
+    }
+
+    @Test
+    void testCoincideConRecorrerTodo() throws Exception {
+        Path dir = Files.createTempDirectory("stock");
+        PersistenciaEquipos pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+        Random azar = new Random(7);
+        Set<Integer> vivos = new TreeSet<>();
+        for (int paso = 0; paso < 400; paso++) {
+            int id = 1 + azar.nextInt(60);
+            if (!vivos.contains(id)) {
+                pe.agregar(new Equipo(id, "Monitor", "Signos", 1 + azar.nextInt(20)));
+                vivos.add(id);
+            } else if (azar.nextBoolean()) {
+                Equipo e = pe.obtenerPorId(id).get();
+                e.setDisponible(1 + azar.nextInt(20));
+                pe.actualizar(e);
+            } else {
+                pe.eliminar(id);
+                vivos.remove(id);
+            }
+        }
+        List<Equipo> todos = new PersistenciaEquipos(dir.resolve("equipos.csv")).obtenerTodos();
+        assertEquals(todos.stream().mapToLong(Equipo::getDisponible).sum(), pe.getStockTotal());
+        List<Integer> esperados = todos.stream().filter(e -> e.getDisponible() < 8)
+                .sorted(Comparator.comparingInt(Equipo::getDisponible).thenComparingInt(Equipo::getId))
+                .map(Equipo::getId).collect(Collectors.toList());
+        assertEquals(esperados, ids(pe.obtenerBajoStock(8)));
+    }
+
+    /* ===========================
+                INVENTARIO
+       =========================== */
+
+    @Test
+    void testTotalesPorUnidadDelInventario() throws Exception {
+        Path dir = Files.createTempDirectory("stock");
+        PersistenciaInventario pi = new PersistenciaInventario(dir.resolve("inventario.csv"));
+        pi.agregar(new InventarioItem(1, "Gasas", 40, "pz"));
+        pi.agregar(new InventarioItem(2, "Suero", 12, "caja"));
+        pi.agregar(new InventarioItem(3, "Guantes", 3, "caja"));
+        assertEquals(Map.of("caja", 15L, "pz", 40L), pi.totalesPorUnidad());
+        assertEquals(55, pi.getStockTotal());
+
+        pi.actualizarCantidad(3, 30);
+        pi.eliminar(1);
+        assertEquals(Map.of("caja", 42L), pi.totalesPorUnidad());
+        assertEquals(List.of(2), pi.obtenerBajoStock(20).stream().map(InventarioItem::getId).collect(Collectors.toList()));
+        assertEquals(30, pi.obtenerPorId(3).get().getCantidad());
+
+        pi.saveAll(List.of(new InventarioItem(9, "Jeringas", 0, "pz")));
+        assertEquals(Map.of("pz", 0L), pi.totalesPorUnidad());
+        assertEquals(Map.of("pz", 0L), new PersistenciaInventario(dir.resolve("inventario.csv")).totalesPorUnidad());
+        assertThrows(NoSuchElementException.class, () -> pi.eliminar(2));
+    }
+}
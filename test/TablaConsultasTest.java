@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TablaConsultasTest {
+
+    /* ===========================
+         TABLA POR COLUMNAS
+       =========================== */
+
+    @Test
+    void testMismasRespuestasQueLaPersistencia() throws Exception {
+        Path dir = Files.createTempDirectory("tabla");
+        PersistenciaConsultas pc = new PersistenciaConsultas(dir.resolve("consultas.csv"));
+        List<Consulta> datos = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2024, 12, 30, 8, 0);
+        for (int i = 1; i <= 2000; i++) {
+            LocalDateTime f = i % 97 == 0 ? null : base.plusMinutes(i * 53L).plusSeconds(i % 3 == 0 ? 30 : 0);
+            datos.add(new Consulta(i, 1 + i % 40, 1 + i % 7, f, i % 5 == 0 ? "Control" : "Dolor " + (i % 11), "Nota ñ " + (i % 3)));
+        }
+        pc.saveAll(datos);
+        TablaConsultas t = pc.tabla();
+
+        assertEquals(2000, t.filas());
+        assertEquals(ids(pc.obtenerTodos()), ids(t.aLista()));
+        assertEquals(pc.obtenerTodos().get(193).getFecha(), t.fecha(193));
+        assertEquals("Nota ñ 1", t.notas(0));
+        assertEquals(ids(pc.obtenerPorPaciente(7)), ids(t.obtenerPorPaciente(7).aLista()));
+        LocalDateTime desde = LocalDateTime.of(2025, 1, 5, 0, 0);
+        assertEquals(ids(pc.obtenerPorDoctor(3, desde, null)), ids(t.obtenerPorDoctor(3, desde, null).aLista()));
+        assertEquals(ids(pc.obtenerPorDoctor(3, null, desde)), ids(t.obtenerPorDoctor(3, null, desde).aLista()));
+        for (String patron : new String[]{"2025-01", "2025-01-02", "2025-01-02T1", "2025-13", "-01-0"}) {
+            assertEquals(ids(pc.buscarConsultasPorFecha(patron)), ids(t.buscarConsultasPorFecha(patron).aLista()), patron);
+        }
+        LocalDate ini = LocalDate.of(2025, 1, 3), fin = LocalDate.of(2025, 1, 9);
+        assertEquals(ids(pc.buscarConsultasEnRango(ini, fin)), ids(t.buscarConsultasEnRango(ini, fin).aLista()));
+        assertEquals(pc.obtenerPorId(1500).get().getMotivo(), t.obtenerPorId(1500).get().getMotivo());
+        assertEquals(-1, t.filaDeId(5000));
+
+        // Busqueda sobre una busqueda: numeros de fila relativos a la seleccion
+        TablaConsultas delPaciente = t.obtenerPorPaciente(7);
+        assertEquals(t.obtenerPorPaciente(7).id(2), delPaciente.id(delPaciente.filaDeId(delPaciente.id(2))));
+        assertTrue(pc.tabla() == t);
+    }
+
+    private static List<Integer> ids(List<Consulta> consultas) {
+        List<Integer> res = new ArrayList<>();
+        for (Consulta c : consultas) res.add(c.getId());
+        return res;
+    }
+}
@@ -0,0 +1,136 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import proyecto.model.*;
+import proyecto.persistence.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.NoSuchElementException;
+
+public class VersionesTest {
+
+    // La bitacora falla al escribir mientras fallar este activo
+    private static class PacientesConFalla extends PersistenciaPacientes {
+        boolean fallar;
+
+        PacientesConFalla(Path file) throws IOException { super(file); }
+
+        @Override
+        protected void registrarModificacion(int id, String line) throws IOException {
+            if (fallar) throw new IOException("disco lleno");
+            super.registrarModificacion(id, line);
+        }
+
+        @Override
+        protected void registrarBorrado(int id) throws IOException {
+            if (fallar) throw new IOException("disco lleno");
+            super.registrarBorrado(id);
+        }
+    }
+
+    /* ===========================
+          EDICIONES CONCURRENTES
+       =========================== */
+
+    @Test
+    void testSegundaEdicionDelMismoPacienteChoca() throws Exception {
+        Path dir = Files.createTempDirectory("versiones");
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        pp.agregar(new Paciente(1, "Juan Perez", "Centro", 30, "555"));
+
+        // Dos usuarios abren el mismo paciente
+        PersistenciaPacientes otra = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        Paciente a = pp.obtenerPorId(1).get();
+        Paciente b = otra.obtenerPorId(1).get();
+        a.setDireccion("Sur");
+        b.setDireccion("Norte");
+
+        pp.actualizar(a);
+        assertEquals(1, a.getVersion());
+        ConflictoVersionException ex = assertThrows(ConflictoVersionException.class, () -> otra.actualizar(b));
+        assertEquals(0, ex.getVersionEsperada());
+        assertEquals(1, ex.getVersionActual());
+
+        // No se pisaron los cambios del primero; releyendo se puede editar
+        Paciente releido = otra.obtenerPorId(1).get();
+        assertEquals("Sur", releido.getDireccion());
+        releido.setDireccion("Norte");
+        otra.actualizar(releido);
+        assertEquals(2, new PersistenciaPacientes(dir.resolve("pacientes.csv")).obtenerPorId(1).get().getVersion());
+    }
+
+    @Test
+    void testSegundaEdicionDelMismoEquipoChoca() throws Exception {
+        Path dir = Files.createTempDirectory("versiones");
+        PersistenciaEquipos pe = new PersistenciaEquipos(dir.resolve("equipos.csv"));
+        pe.agregar(new Equipo(1, "Monitor", "Signos", 2));
+
+        Equipo a = pe.obtenerPorId(1).get();
+        Equipo b = pe.obtenerPorId(1).get();
+        a.setDisponible(5);
+        b.setDisponible(0);
+        pe.actualizar(a);
+        assertThrows(ConflictoVersionException.class, () -> pe.actualizar(b));
+
+        pe.compactar();
+        Equipo guardado = new PersistenciaEquipos(dir.resolve("equipos.csv")).obtenerPorId(1).get();
+        assertEquals(5, guardado.getDisponible());
+        assertEquals(1, guardado.getVersion());
+    }
+
+    /* ===========================
+           ARCHIVOS ANTERIORES
+       =========================== */
+
+    @Test
+    void testCsvSinVersionSeLeeComoVersionCero() throws Exception {
+        Path dir = Files.createTempDirectory("versiones");
+        Files.write(dir.resolve("pacientes.csv"), "1|Juan Perez|Centro|30|555\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("equipos.csv"), "1|Monitor|Signos|2\n".getBytes(StandardCharsets.UTF_8));
+
+        PersistenciaPacientes pp = new PersistenciaPacientes(dir.resolve("pacientes.csv"));
+        Paciente p = pp.obtenerPorId(1).get();
+        assertEquals(0, p.getVersion());
+        p.setEdad(31);
+        pp.actualizar(p);
+        assertEquals(1, p.getVersion());
+
+        assertEquals(0, new PersistenciaEquipos(dir.resolve("equipos.csv")).obtenerPorId(1).get().getVersion());
+    }
+
+    /* ===========================
+          ESCRITURA QUE FALLA
+       =========================== */
+
+    @Test
+    void testFallaDeLaBitacoraNoCambiaVersionNiCache() throws Exception {
+        Path dir = Files.createTempDirectory("versiones");
+        PacientesConFalla pp = new PacientesConFalla(dir.resolve("pacientes.csv"));
+        pp.agregar(new Paciente(1, "Juan Perez", "Centro", 30, "555"));
+
+        Paciente p = pp.obtenerPorId(1).get();
+        p.setDireccion("Sur");
+        p.setEdad(31);
+        // Indices ya armados, para ver que tampoco cambian
+        assertEquals(1, pp.histogramaEdades()[30]);
+        assertEquals(1, pp.buscarPorTexto("perez").size());
+        pp.fallar = true;
+        assertThrows(IOException.class, () -> pp.actualizar(p));
+        assertThrows(IOException.class, () -> pp.eliminar(1));
+        assertEquals(0, p.getVersion());
+        Paciente guardado = pp.obtenerPorId(1).get();
+        assertEquals(0, guardado.getVersion());
+        assertEquals("Centro", guardado.getDireccion());
+        assertEquals(1, pp.histogramaEdades()[30]);
+
+        // El reintento no choca con una version que nunca se guardo
+        pp.fallar = false;
+        pp.actualizar(p);
+        assertEquals(1, p.getVersion());
+        assertEquals("Sur", new PersistenciaPacientes(dir.resolve("pacientes.csv")).obtenerPorId(1).get().getDireccion());
+        pp.eliminar(1);
+        assertThrows(NoSuchElementException.class, () -> pp.eliminar(1));
+    }
+}